@@ -29,29 +29,42 @@ package antidot.dm.core;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.openrdf.model.BNode;
 import org.openrdf.model.Literal;
 import org.openrdf.model.Resource;
 import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
-import org.openrdf.model.Value;
 import org.openrdf.model.ValueFactory;
 import org.openrdf.model.impl.ValueFactoryImpl;
 
 import antidot.rdf.impl.sesame.SemiStatement;
 import antidot.rdf.impl.sesame.SesameDataSet;
+import antidot.rdf.impl.sesame.TripleSink;
 import antidot.rdf.tools.RDFToolkit;
 import antidot.rdf.tools.SQLToRDFToolkit;
 import antidot.sql.model.CandidateKey;
 import antidot.sql.model.Database;
 import antidot.sql.model.ForeignKey;
-import antidot.sql.model.Header;
 import antidot.sql.model.Row;
 import antidot.sql.model.Table;
 import antidot.sql.type.SQLType;
@@ -71,14 +84,37 @@ public class DirectMapper {
 	// Attributes
 	// Sesame valueFactory which generates values like litterals or URI
 	private ValueFactory vf;
-	// Map which store blankNodes associated with a converted subject of a Row
-	private HashMap<Row, BNode> blankNodes;
-	// Map which store URIs associated with a converted subject of a Row
-	private HashMap<Row, URI> URIs;
 	// Number of broken references
 	/**
 	 */
-	private int nbBrokenReferences;
+	private AtomicInteger nbBrokenReferences;
+	// Schemas of tables, compiled before their rows are converted
+	private HashMap<String, TableSchema> schemas;
+	// Predicate of type triples
+	private URI typePredicate;
+
+	// Number of rows converted by a task of parallel conversion
+	private static int chunkSize = 1000;
+
+	// Maximal number of chunks being converted or waiting to be written, by
+	// thread of parallel conversion
+	private static int chunksByThread = 2;
+
+	// Digest of blank node labels, by thread
+	private static ThreadLocal<MessageDigest> skolemDigest = new ThreadLocal<MessageDigest>() {
+
+		protected MessageDigest initialValue() {
+			try {
+				return MessageDigest.getInstance("SHA-1");
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(
+						"[DirectMapper:skolemDigest] SHA-1 is not available.");
+			}
+		}
+	};
+
+	// Hexadecimal digits of blank node labels
+	private static char[] hexDigits = "0123456789abcdef".toCharArray();
 
 	private Long start = 0l;
 
@@ -94,10 +130,11 @@ public class DirectMapper {
 
 	private DirectMapper() {
 		vf = new ValueFactoryImpl();
-		blankNodes = new HashMap<Row, BNode>();
-		URIs = new HashMap<Row, URI>();
-		nbBrokenReferences = 0;
-
+		nbBrokenReferences = new AtomicInteger();
+		schemas = new HashMap<String, TableSchema>();
+		// TODO : check namespaces
+		// URI typePredicate = vf.createURI("rdf:type");
+		typePredicate = vf.createURI(prefix.get("rdf"), "type");
 	}
 
 	/**
@@ -125,6 +162,25 @@ public class DirectMapper {
 	public static SesameDataSet generateDirectMapping(Database db,
 			String baseURI, String fileToNativeStore)
 			throws UnsupportedEncodingException {
+		return generateDirectMapping(db, baseURI, fileToNativeStore, 1);
+	}
+
+	/**
+	 * Convert a database model with a base URI into a rdf Graph (with native
+	 * storage), the rows of each table being converted by several threads.
+	 * Triples are added to the graph by the calling thread only, one
+	 * transaction by chunk of rows : writes to the graph are serialized.
+	 * 
+	 * @param db
+	 * @param baseURI
+	 * @param fileToNativeStore
+	 * @param nbThreads
+	 * @return
+	 * @throws UnsupportedEncodingException
+	 */
+	public static SesameDataSet generateDirectMapping(Database db,
+			String baseURI, String fileToNativeStore, int nbThreads)
+			throws UnsupportedEncodingException {
 
 		if (log.isDebugEnabled())
 			log.debug("[DirectMapper:generateDirectMapping] db : " + db
@@ -138,20 +194,13 @@ public class DirectMapper {
 		}
 
 		DirectMapper dm = new DirectMapper();
-		HashSet<Statement> triples = dm.convertDatabase(db, baseURI);
-		for (Statement triple : triples) {
-			if (log.isDebugEnabled())
-				log
-						.debug("[DirectMapper:generateDirectMapping] Triple generated : "
-								+ triple);
-			g.add(triple.getSubject(), triple.getPredicate(), triple
-					.getObject());
-		}
+		// Triples are added to the graph row by row
+		dm.convertDatabase(db, baseURI, g, nbThreads);
 
 		if (log.isInfoEnabled())
 			log
 					.info("[DirectMapper:generateDirectMapping] Number of generated triples : "
-							+ g.tuplePattern(null, null, null).size() + ".");
+							+ g.getSize() + ".");
 		if (log.isInfoEnabled())
 			log
 					.info("[DirectMapper:generateDirectMapping] Number of broken references : "
@@ -159,68 +208,181 @@ public class DirectMapper {
 		return g;
 	}
 
+	/**
+	 * Convert a database model with a base URI into triples handed to a sink
+	 * as soon as each row is converted, without storing the graph : use a
+	 * RDFHandlerSink to write them with a Rio RDFWriter.
+	 * 
+	 * @param db
+	 * @param baseURI
+	 * @param sink
+	 * @return Number of triples handed to the sink
+	 * @throws UnsupportedEncodingException
+	 */
+	public static long streamDirectMapping(Database db, String baseURI,
+			TripleSink sink) throws UnsupportedEncodingException {
+		return streamDirectMapping(db, baseURI, sink, 1);
+	}
+
+	/**
+	 * Convert a database model with a base URI into triples handed to a sink,
+	 * as above, the rows of each table being converted by several threads.
+	 * Each thread converts a chunk of rows into its own list of triples. The
+	 * calling thread alone hands these lists to the sink, in the order of
+	 * the rows : output is serialized, and the sink receives the triples in
+	 * the same order as with one thread. Conversion of the next chunks goes
+	 * on meanwhile, up to two chunks by thread.
+	 * 
+	 * @param db
+	 * @param baseURI
+	 * @param sink
+	 * @param nbThreads
+	 * @return Number of triples handed to the sink
+	 * @throws UnsupportedEncodingException
+	 */
+	public static long streamDirectMapping(Database db, String baseURI,
+			TripleSink sink, int nbThreads)
+			throws UnsupportedEncodingException {
+		if (log.isDebugEnabled())
+			log.debug("[DirectMapper:streamDirectMapping] db : " + db
+					+ ", base URI : " + baseURI);
+		DirectMapper dm = new DirectMapper();
+		long nbTriples = dm.convertDatabase(db, baseURI, sink, nbThreads);
+		if (log.isInfoEnabled())
+			log.info("[DirectMapper:streamDirectMapping] Number of "
+					+ "generated triples : " + nbTriples + ".");
+		if (log.isInfoEnabled())
+			log.info("[DirectMapper:streamDirectMapping] Number of broken "
+					+ "references : " + dm.getNbBrokenReferences() + ".");
+		return nbTriples;
+	}
+
 	/**
 	 * Most of the functions defining the Direct Mapping are higher-order
 	 * functions parameterized by a function φ (phi) : Row → Node. This function
-	 * maps any row to a unique node IRI or Blank Node [35]/[36].
+	 * maps any row to a unique node IRI or Blank Node [35]/[36]. Nodes depend
+	 * on the values of the row only, and on its occurrence among identical
+	 * rows of a table without primary key, so a row referenced several times,
+	 * by any thread, always gets the same node without being stored.
+	 * 
+	 * @param occurrence
+	 *            Number of identical rows converted before this one (0 for a
+	 *            referenced row, unique by its key)
 	 */
-	private Resource phi(Table t, Row r, String baseURI) {
+	private Resource phi(TableSchema schema, Row r, String baseURI,
+			int occurrence) {
 		if (log.isDebugEnabled())
-			log.debug("[DirectMapper:phi] Table : " + t);
-		CandidateKey primaryKey = t.getPrimaryKey();
+			log.debug("[DirectMapper:phi] Table : " + schema.getTable());
+		String[] primaryKey = schema.getPrimaryKeyColumns();
 		if (primaryKey != null) {
 			// Unique Node IRI
-			String stringURI = t.getTableName() + "/";
-			int i = 0;
-			for (String columnName : primaryKey.getColumnNames()) {
-				i++;
-				stringURI += columnName + "=" + r.getValues().get(columnName);
-				if (i < primaryKey.getColumnNames().size())
-					stringURI += ",";
+			StringBuffer stringURI = new StringBuffer(schema
+					.getSubjectPrefix());
+			for (int i = 0; i < primaryKey.length; i++) {
+				if (i > 0)
+					stringURI.append(",");
+				stringURI.append(primaryKey[i]).append("=").append(
+						r.getValues().get(primaryKey[i]));
 			}
-			if (URIs.containsKey(r))
-				return URIs.get(r); // Use blankNode map
 			// Check URI syntax
 			if (!RDFToolkit.validURI(baseURI + stringURI)) {
 				if (log.isWarnEnabled())
 					log.warn("[DirectMapper:phi] This URI is not valid : "
 							+ baseURI + stringURI);
 			}
-			URI uri = vf.createURI(baseURI, stringURI);
-			URIs.put(r, uri);
-			return uri;
+			return vf.createURI(baseURI, stringURI.toString());
 		} else {
-			// Blank node
-			if (blankNodes.containsKey(r))
-				return blankNodes.get(r); // Use blankNode map
-			BNode bnode = vf.createBNode();
-			blankNodes.put(r, bnode);
-			return bnode;
+			// Blank node, skolemized from the values of the row
+			return vf.createBNode(skolemize(schema, r, occurrence));
+		}
+	}
+
+	/**
+	 * Label of the blank node of a row without primary key : hash of its
+	 * table, its values and its occurrence among identical rows, so the label
+	 * does not depend on the order of the rows.
+	 */
+	private static String skolemize(TableSchema schema, Row r,
+			int occurrence) {
+		// Length of each string is written before it : no value can be
+		// confused with a separator
+		StringBuffer key = new StringBuffer();
+		String tableName = schema.getTable().getTableName();
+		key.append(tableName.length()).append(':').append(tableName);
+		for (Map.Entry<String, String> value : r.getValues().entrySet()) {
+			key.append(value.getKey().length()).append(':').append(
+					value.getKey());
+			if (value.getValue() == null)
+				key.append("-1:");
+			else
+				key.append(value.getValue().length()).append(':').append(
+						value.getValue());
+		}
+		// First occurrence is not written : a referenced row gets the node of
+		// its conversion
+		if (occurrence > 0)
+			key.append('#').append(occurrence);
+		byte[] hash = null;
+		try {
+			hash = skolemDigest.get().digest(
+					key.toString().getBytes("UTF-8"));
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(
+					"[DirectMapper:skolemize] UTF-8 is not available.");
 		}
+		char[] result = new char[1 + 2 * hash.length];
+		result[0] = 'r';
+		for (int i = 0; i < hash.length; i++) {
+			result[1 + 2 * i] = hexDigits[(hash[i] >> 4) & 0xf];
+			result[2 + 2 * i] = hexDigits[hash[i] & 0xf];
+		}
+		return new String(result);
 	}
 
 	/**
 	 * Denotational semantics function [37]/[38] : convert database into
-	 * triples.
+	 * triples, handed to a sink row by row. If nbThreads is greater than 1,
+	 * the rows of each table are split into chunks converted concurrently :
+	 * the database model is only read during the conversion. The sink is
+	 * only used by the calling thread.
 	 * 
+	 * @return Number of triples handed to the sink
 	 * @throws UnsupportedEncodingException
 	 */
-	private HashSet<Statement> convertDatabase(Database db, String baseURI)
+	private long convertDatabase(Database db, String baseURI,
+			TripleSink sink, int nbThreads)
 			throws UnsupportedEncodingException {
 		// Init time
 		start = System.currentTimeMillis();
 		if (log.isDebugEnabled())
-			log.debug("[DirectMapper:convertDatabase]");
-		HashSet<Statement> result = new HashSet<Statement>();
+			log.debug("[DirectMapper:convertDatabase] Threads : " + nbThreads);
+		long result = 0;
 		int nbTables = db.getTables().size();
 		int cptTable = 1;
-		for (Table t : db.getTables()) {
-			if (log.isInfoEnabled())
-				log.info("[DirectMapper:convertDatabase] ----- Table "
-						+ cptTable + " / " + nbTables + " : "
-						+ t.getTableName() + " ------ ");
-			cptTable++;
-			result.addAll(convertTable(db, t, baseURI));
+		compileSchemas(db, baseURI);
+		ExecutorService executor = null;
+		if (nbThreads > 1)
+			executor = Executors.newFixedThreadPool(nbThreads);
+		// Chunks being converted or waiting to be written, in row order
+		LinkedList<Future<List<Statement>>> chunks = new LinkedList<Future<List<Statement>>>();
+		try {
+			for (Table t : db.getTables()) {
+				if (log.isInfoEnabled())
+					log.info("[DirectMapper:convertDatabase] ----- Table "
+							+ cptTable + " / " + nbTables + " : "
+							+ t.getTableName() + " ------ ");
+				cptTable++;
+				if (executor == null)
+					result += convertTable(t, baseURI, sink);
+				else
+					result += submitTable(executor, t, baseURI, sink, chunks,
+							nbThreads * chunksByThread);
+			}
+			while (!chunks.isEmpty())
+				result += writeChunk(chunks.removeFirst(), sink);
+		} finally {
+			if (executor != null)
+				executor.shutdownNow();
 		}
 		Float stop = Float.valueOf(System.currentTimeMillis() - start) / 1000;
 		if (log.isInfoEnabled())
@@ -230,14 +392,243 @@ public class DirectMapper {
 	}
 
 	/**
-	 * Denotational semantics function [39]/[40] : convert table into triples.
+	 * Compile the schema of each table of a database, before any of its rows
+	 * is converted : predicates, datatypes and references of a table are thus
+	 * computed once instead of once per row.
+	 * 
+	 * @throws UnsupportedEncodingException
+	 */
+	private void compileSchemas(Database db, String baseURI)
+			throws UnsupportedEncodingException {
+		schemas.clear();
+		for (Table t : db.getTables())
+			schemas.put(t.getTableName(), compileTable(db, t, baseURI));
+	}
+
+	/**
+	 * Compile the schema of a table.
+	 * 
+	 * @throws UnsupportedEncodingException
+	 */
+	private TableSchema compileTable(Database db, Table t, String baseURI)
+			throws UnsupportedEncodingException {
+		if (log.isDebugEnabled())
+			log.debug("[DirectMapper:compileTable] Table : " + t);
+		CandidateKey pk = t.getPrimaryKey();
+		String[] primaryKeyColumns = null;
+		if (pk != null)
+			primaryKeyColumns = pk.getColumnNames().toArray(
+					new String[pk.getColumnNames().size()]);
+		// Literal Triples : See [45]/[46]
+		ArrayList<TableSchema.LexicalColumn> lexicalColumns = new ArrayList<TableSchema.LexicalColumn>();
+		for (String columnName : t.getLexicals())
+			lexicalColumns.add(compileLexicalColumn(t, columnName, baseURI));
+		// Reference Triples : See [43]/[44]
+		ArrayList<TableSchema.Reference> references = new ArrayList<TableSchema.Reference>();
+		for (ForeignKey fk : t.getForeignKeys()) {
+			Table targetTable = db.getTable(fk.getTargetTableName());
+			if (targetTable == null)
+				throw new IllegalStateException(
+						"[DirectMapper:compileTable] Reference table doesn't exist : "
+								+ fk.getTargetTableName());
+			if ((pk != null) && pk.matchSameColumns(fk)) {
+				// Primary-is-Candidate-Key Exception : each column of the key
+				// generates a literal triple
+				TableSchema.LexicalColumn[] keyColumns = new TableSchema.LexicalColumn[fk
+						.getColumnNames().size()];
+				int i = 0;
+				for (String columnName : fk.getColumnNames())
+					keyColumns[i++] = compileLexicalColumn(t, columnName,
+							baseURI);
+				references.add(new TableSchema.Reference(fk, targetTable,
+						null, true, keyColumns));
+			} else {
+				ArrayList<String> columnNames = new ArrayList<String>();
+				columnNames.addAll(fk.getColumnNames());
+				references.add(new TableSchema.Reference(fk, targetTable,
+						convertCol(t.getTableName(), columnNames, baseURI),
+						false, null));
+			}
+		}
+		// Table Triples
+		// TODO : check if litteral or not
+		// Literal typeObject = vf.createLiteral(currentTable.getTableName());
+		URI typeObject = vf.createURI(baseURI, t.getTableName());
+		return new TableSchema(t, primaryKeyColumns, t.getTableName() + "/",
+				typeObject, lexicalColumns
+						.toArray(new TableSchema.LexicalColumn[lexicalColumns
+								.size()]), references
+						.toArray(new TableSchema.Reference[references.size()]));
+	}
+
+	/**
+	 * Compile the predicate and the datatype of a lexical column.
+	 * 
+	 * @throws UnsupportedEncodingException
+	 */
+	private TableSchema.LexicalColumn compileLexicalColumn(Table t,
+			String columnName, String baseURI)
+			throws UnsupportedEncodingException {
+		ArrayList<String> columnNames = new ArrayList<String>();
+		columnNames.add(columnName);
+		URI p = convertCol(t.getTableName(), columnNames, baseURI);
+		String d = t.getHeader().getDatatypes().get(columnName);
+		SQLType.MySQLType mySQLType = SQLType.MySQLType.toMySQLType(d);
+		if (mySQLType.isBlobType())
+			return new TableSchema.LexicalColumn(columnName, p, d, null, null,
+					true);
+		// Unknown types are reported by the first value to convert
+		XSDType type = SQLToRDFToolkit.getEquivalentType(d);
+		URI datatype = null;
+		if (type != null && !type.toString().equals(XSDType.STRING.toString()))
+			datatype = convertDatatype(d);
+		return new TableSchema.LexicalColumn(columnName, p, d, type, datatype,
+				false);
+	}
+
+	/**
+	 * Denotational semantics function [39]/[40] : convert table into triples,
+	 * handed to a sink row by row.
 	 * 
+	 * @return Number of triples handed to the sink
 	 * @throws UnsupportedEncodingException
 	 */
-	private HashSet<Statement> convertTable(Database db, Table t, String baseURI)
+	private long convertTable(Table t, String baseURI, TripleSink sink)
 			throws UnsupportedEncodingException {
 		if (log.isDebugEnabled())
 			log.debug("[DirectMapper:convertTable] Table : " + t);
+		checkBlobColumns(t);
+		TableSchema schema = schemas.get(t.getTableName());
+		ConcurrentHashMap<String, Integer> occurrences = new ConcurrentHashMap<String, Integer>();
+		long result = 0;
+		for (Row r : t.getBody().getRows())
+			result += writeTriples(convertRow(r, baseURI, getOccurrence(
+					occurrences, schema, r)), sink);
+		return result;
+	}
+
+	/**
+	 * Submit the conversion of the rows of a table, by chunks, to an
+	 * executor. The first chunks submitted are written to the sink whenever
+	 * too many chunks are pending.
+	 * 
+	 * @param chunks
+	 *            Chunks submitted and not written yet, in row order
+	 * @param maxChunks
+	 *            Maximal number of pending chunks
+	 * @return Number of triples handed to the sink
+	 * @throws UnsupportedEncodingException
+	 */
+	private long submitTable(ExecutorService executor, Table t,
+			final String baseURI, TripleSink sink,
+			LinkedList<Future<List<Statement>>> chunks, int maxChunks)
+			throws UnsupportedEncodingException {
+		if (log.isDebugEnabled())
+			log.debug("[DirectMapper:submitTable] Table : " + t);
+		checkBlobColumns(t);
+		final TableSchema schema = schemas.get(t.getTableName());
+		// Shared by the chunks of this table
+		final ConcurrentHashMap<String, Integer> occurrences = new ConcurrentHashMap<String, Integer>();
+		long result = 0;
+		List<Row> rows = new ArrayList<Row>(t.getBody().getRows());
+		for (int i = 0; i < rows.size(); i += chunkSize) {
+			final List<Row> chunk = rows.subList(i, Math.min(i + chunkSize,
+					rows.size()));
+			while (chunks.size() >= maxChunks)
+				result += writeChunk(chunks.removeFirst(), sink);
+			chunks.add(executor.submit(new Callable<List<Statement>>() {
+
+				public List<Statement> call() throws Exception {
+					// Triples of this chunk only : workers share no buffer
+					List<Statement> triples = new ArrayList<Statement>();
+					for (Row r : chunk)
+						triples.addAll(convertRow(r, baseURI, getOccurrence(
+								occurrences, schema, r)));
+					return triples;
+				}
+			}));
+		}
+		return result;
+	}
+
+	/**
+	 * Wait for the conversion of a chunk, then hand its triples to a sink.
+	 * 
+	 * @return Number of triples of the chunk
+	 * @throws UnsupportedEncodingException
+	 */
+	private static long writeChunk(Future<List<Statement>> chunk,
+			TripleSink sink) throws UnsupportedEncodingException {
+		try {
+			return writeTriples(chunk.get(), sink);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(
+					"[DirectMapper:writeChunk] Interrupted conversion.");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof UnsupportedEncodingException)
+				throw (UnsupportedEncodingException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new IllegalStateException(
+					"[DirectMapper:writeChunk] Conversion failed : "
+							+ cause.getMessage(), cause);
+		}
+	}
+
+	/**
+	 * Returns the number of rows identical to a row of a table without
+	 * primary key which have already been converted, and counts this row.
+	 * Counts are kept by value of the rows while their table is converted
+	 * only. Identical rows are converted in any order : they get the same
+	 * set of nodes.
+	 * 
+	 * @param occurrences
+	 *            Number of converted rows, by label of their first occurrence
+	 * @return
+	 */
+	private static int getOccurrence(
+			ConcurrentHashMap<String, Integer> occurrences,
+			TableSchema schema, Row r) {
+		if (schema.getPrimaryKeyColumns() != null)
+			return 0;
+		String label = skolemize(schema, r, 0);
+		Integer previous = occurrences.putIfAbsent(label, 1);
+		while (previous != null
+				&& !occurrences.replace(label, previous, previous + 1))
+			previous = occurrences.get(label);
+		return previous == null ? 0 : previous;
+	}
+
+	/**
+	 * Hand triples to a sink, from the thread which called the mapping
+	 * only. A dataset adds them in one transaction, any other sink receives
+	 * them one by one.
+	 * 
+	 * @return Number of triples
+	 */
+	private static long writeTriples(Collection<Statement> triples,
+			TripleSink sink) {
+		if (sink instanceof SesameDataSet)
+			((SesameDataSet) sink).addAll(triples);
+		else
+			for (Statement triple : triples)
+				sink.add(triple.getSubject(), triple.getPredicate(), triple
+						.getObject());
+		if (log.isDebugEnabled())
+			for (Statement triple : triples)
+				log.debug("[DirectMapper:writeTriples] Triple generated : "
+						+ triple);
+		return triples.size();
+	}
+
+	/**
+	 * Warn about BLOB columns of a table, which are not converted.
+	 * 
+	 * @param t
+	 */
+	private static void checkBlobColumns(Table t) {
 		// Check BLOB types
 		for (String column : t.getHeader().getDatatypes().keySet()) {
 			SQLType.MySQLType type = SQLType.MySQLType.toMySQLType(t
@@ -252,11 +643,6 @@ public class DirectMapper {
 									+ " Forbidden BLOB type (binary stream not supported in XSD)"
 									+ " => this column will be ignored.");
 		}
-		HashSet<Statement> result = new HashSet<Statement>();
-		for (Row r : t.getBody().getRows()) {
-			result.addAll(convertRow(db, r, baseURI));
-		}
-		return result;
 	}
 
 	/**
@@ -264,28 +650,27 @@ public class DirectMapper {
 	 * 
 	 * @throws UnsupportedEncodingException
 	 */
-	private HashSet<Statement> convertRow(Database db, Row r, String baseURI)
-			throws UnsupportedEncodingException {
+	private HashSet<Statement> convertRow(Row r, String baseURI,
+			int occurrence) throws UnsupportedEncodingException {
 		if (log.isDebugEnabled())
 			log.debug("[DirectMapper:convertRow] Table : " + r);
 		HashSet<Statement> result = new HashSet<Statement>();
-		Table currentTable = db.getTable(r.getParentTableName());
-		Resource s = phi(currentTable, r, baseURI);
+		TableSchema schema = schemas.get(r.getParentTableName());
+		Resource s = phi(schema, r, baseURI, occurrence);
 		// Temporary set of triple used to store triples
 		// before attribute them their subject
 		// It's necessary for manage the Primary-is-Candidate-Key Exception
 		// which can modify subject
 		HashSet<SemiStatement> tmpResult = new HashSet<SemiStatement>();
 		// Reference Triples : See [43]/[44]
-		for (ForeignKey fk : currentTable.getForeignKeys()) {
-			CandidateKey pk = currentTable.getPrimaryKey();
-			if ((pk != null) && pk.matchSameColumns(fk)) {
+		for (TableSchema.Reference reference : schema.getReferences()) {
+			if (reference.isPrimaryIsCandidateKey()) {
 				// Primary-is-Candidate-Key Exception
 				// See 2.2.1 IRIs generated for the initial example
 				// TODO : surveiller l'evolution de cette proposition dans le
 				// draft
 				HashSet<Statement> primaryIsCandidateKeyTriples = convertPrimaryIsCandidateKey(
-						db, r, fk, baseURI);
+						r, reference, baseURI);
 				// Add these triples to result
 				boolean firstTriple = true;
 				for (Statement primaryIsCandidateKeyTriple : primaryIsCandidateKeyTriples) {
@@ -297,8 +682,8 @@ public class DirectMapper {
 					result.add(primaryIsCandidateKeyTriple);
 				}
 			} else {
-				HashSet<SemiStatement> refSemiTriples = convertRef(db, r, fk,
-						baseURI);
+				HashSet<SemiStatement> refSemiTriples = convertRef(r,
+						reference, baseURI);
 				for (SemiStatement refSemiTriple : refSemiTriples) {
 					// Add these triples to temporary result (their subject is
 					// null)
@@ -319,24 +704,14 @@ public class DirectMapper {
 				result.add(triple);
 		}
 		// Literal Triples : See [45]/[46]
-		for (String columnName : currentTable.getLexicals()) {
-			Statement triple = convertLex(currentTable.getHeader(), r,
-					columnName, baseURI);
-			if (triple != null) {
-				result.add(vf.createStatement(s, triple.getPredicate(), triple
-						.getObject()));
-			}
+		for (TableSchema.LexicalColumn column : schema.getLexicalColumns()) {
+			Literal l = convertLex(column, r);
+			if (l != null)
+				result.add(vf.createStatement(s, column.getPredicate(), l));
 		}
 		// Table Triples
-		// TODO : check namespaces
-		// URI typePredicate = vf.createURI("rdf:type");
-		URI typePredicate = vf.createURI(prefix.get("rdf"), "type");
-		// TODO : check if litteral or not
-		// Literal typeObject = vf.createLiteral(currentTable.getTableName());
-
-		URI typeObject = vf.createURI(baseURI, currentTable.getTableName());
-		Statement typeTriple = vf.createStatement(s, typePredicate, typeObject);
-		result.add(typeTriple);
+		result.add(vf.createStatement(s, typePredicate, schema
+				.getTypeObject()));
 		return result;
 	}
 
@@ -346,59 +721,50 @@ public class DirectMapper {
 	 * row in R. - The foreign key K generates no reference triple. - Even if K
 	 * is a single-column foreign key, it generates a literal triple.
 	 * 
-	 * @param db
 	 * @param r
-	 * @param fk
+	 * @param reference
 	 * @param baseURI
 	 * @return
 	 * @throws UnsupportedEncodingException
 	 */
-	private HashSet<Statement> convertPrimaryIsCandidateKey(Database db, Row r,
-			ForeignKey fk, String baseURI) throws UnsupportedEncodingException {
+	private HashSet<Statement> convertPrimaryIsCandidateKey(Row r,
+			TableSchema.Reference reference, String baseURI)
+			throws UnsupportedEncodingException {
 		HashSet<Statement> result = new HashSet<Statement>();
 		// Generate URI subject
 
 		Row targetRow = r;
-		ForeignKey currentFk = fk;
-		boolean primaryIsCandidateKey = true;
-		Table targetTable = null;
-		while (primaryIsCandidateKey) {
-
-			primaryIsCandidateKey = false;
+		TableSchema.Reference currentReference = reference;
+		TableSchema targetSchema = null;
+		while (currentReference != null) {
 			// Search targetRow
-			HashSet<Row> targetRows = db.dereference(targetRow, currentFk);
+			Set<Row> targetRows = dereference(targetRow, currentReference);
 			if (targetRows.size() == 0) {
-				nbBrokenReferences++;
+				nbBrokenReferences.incrementAndGet();
 				if (log.isWarnEnabled())
 					log
 							.warn("[DirectMapper:convertPrimaryIsCandidateKey] Broken reference from r : "
 									+ r
 									+ " with foreignKey : "
-									+ currentFk
+									+ currentReference.getForeignKey()
 									+ " to targetRow : " + targetRow);
 				return result;
 			}
 			// Unique by definition
 			targetRow = targetRows.iterator().next();
 
-			targetTable = db.getTable(targetRow.getParentTableName());
-			for (ForeignKey targetFk : targetTable.getForeignKeys()) {
-				CandidateKey currentPk = targetTable.getPrimaryKey();
-				if (targetFk.matchSameColumns(currentPk)) {
-					// This is not the top of hierarchy : get the reference
-					// table again
-					primaryIsCandidateKey = true;
-					currentFk = targetFk;
-				}
-			}
+			targetSchema = schemas.get(targetRow.getParentTableName());
+			// If this is not the top of hierarchy : get the reference table
+			// again
+			currentReference = targetSchema.getPrimaryKeyReference();
 		}
-		Resource s = phi(targetTable, targetRow, baseURI);
+		Resource s = phi(targetSchema, targetRow, baseURI, 0);
 		// Generate predicates and objects
-		for (String columnName : fk.getColumnNames()) {
+		for (TableSchema.LexicalColumn column : reference.getKeyColumns()) {
 			// For each column in candidate key, a literal triple is generated
-			Statement t = convertLex(db.getTable(r.getParentTableName())
-					.getHeader(), r, columnName, baseURI);
-			result.add(vf.createStatement(s, t.getPredicate(), t.getObject()));
+			Literal l = convertLex(column, r);
+			if (l != null)
+				result.add(vf.createStatement(s, column.getPredicate(), l));
 		}
 		return result;
 	}
@@ -407,30 +773,25 @@ public class DirectMapper {
 	 * @return
 	 */
 	public int getNbBrokenReferences() {
-		return nbBrokenReferences;
+		return nbBrokenReferences.get();
 	}
 
 	/**
 	 * Denotational semantics function [43]/[44] : convert foreign key columns
 	 * into a triple with mapped (predicate, object).
-	 * 
-	 * @throws UnsupportedEncodingException
 	 */
-	private HashSet<SemiStatement> convertRef(Database db, Row r,
-			ForeignKey fk, String baseURI) throws UnsupportedEncodingException {
+	private HashSet<SemiStatement> convertRef(Row r,
+			TableSchema.Reference reference, String baseURI) {
 		HashSet<SemiStatement> result = new HashSet<SemiStatement>();
-		ArrayList<String> columnNames = new ArrayList<String>();
-		columnNames.addAll(fk.getColumnNames());
-		URI p = convertCol(r, columnNames, baseURI);
-		HashSet<Row> targetRows = db.dereference(r, fk);
-		for (Row targetRow : targetRows) {
+		URI p = reference.getPredicate();
+		for (Row targetRow : dereference(r, reference)) {
 			if (log.isDebugEnabled())
 				log
 						.debug("[DirectMapper:convertRef] **** Dereference targetRow : "
 								+ targetRow);
 			// Get URI of target table
-			Resource o = phi(db.getTable(targetRow.getParentTableName()),
-					targetRow, baseURI);
+			Resource o = phi(schemas.get(targetRow.getParentTableName()),
+					targetRow, baseURI, 0);
 			SemiStatement semiTriple = new SemiStatement(p, o);
 			result.add(semiTriple);
 		}
@@ -438,73 +799,67 @@ public class DirectMapper {
 	}
 
 	/**
-	 * Denotational semantics function [45]/[46] : convert lexical columns into
-	 * a triple with mapped (predicate, object).
-	 * 
-	 * @throws UnsupportedEncodingException
+	 * Rows referenced by a row through a foreign key, read from the index of
+	 * the target table (see Database:dereference, whose checks are done by
+	 * the compilation of the schema).
 	 */
-	private Statement convertLex(Header header, Row r, String columnName,
-			String baseURI) throws UnsupportedEncodingException {
+	private Set<Row> dereference(Row r, TableSchema.Reference reference) {
+		HashSet<String> columnValues = new HashSet<String>();
+		for (String columnName : reference.getForeignKey().getColumnNames())
+			columnValues.add(r.getValues().get(columnName));
+		HashSet<Row> targetRows = reference.getTargetTable().getIndexedRow(
+				reference.getForeignKey(), columnValues);
+		if (targetRows == null)
+			return Collections.emptySet();
+		return targetRows;
+	}
+
+	/**
+	 * Denotational semantics function [45]/[46] : convert lexical column into
+	 * the object of a triple, its predicate being compiled with its table.
+	 */
+	private Literal convertLex(TableSchema.LexicalColumn column, Row r) {
 		if (log.isDebugEnabled())
 			log.debug("[DirectMapper:convertLex] Table "
-					+ r.getParentTableName() + ", column : " + columnName);
-		Statement result = null;
-		Literal l = null;
-		ArrayList<String> columnNames = new ArrayList<String>();
-		columnNames.add(columnName);
-		URI p = convertCol(r, columnNames, baseURI);
-		String v = r.getValues().get(columnName);
-		String d = header.getDatatypes().get(columnName);
+					+ r.getParentTableName() + ", column : "
+					+ column.getColumnName());
+		String v = r.getValues().get(column.getColumnName());
 		if (v == null || v.equals("null")) {
 			// Don't keep triple with null value
 			return null;
 		}
-		XSDType type = null;
-		SQLType.MySQLType mySQLType = SQLType.MySQLType.toMySQLType(d);
-		if (mySQLType.isBlobType()) {
+		if (column.isBlob()) {
 			if (log.isDebugEnabled())
 				log
 						.debug("[DirectMapper:convertLex] Table "
 								+ r.getParentTableName()
 								+ ", column "
-								+ columnName
+								+ column.getColumnName()
 								+ " Forbidden BLOB type (binary stream not supported in XSD)"
 								+ " => this triple will be ignored.");
 			return null;
-		} else {
-			type = SQLToRDFToolkit.getEquivalentType(d);
-			if (type == null)
-				throw new IllegalStateException(
-						"[DirectMapper:convertLex] Unknown XSD equivalent type of : "
-								+ SQLType.MySQLType.toMySQLType(d)
-								+ " in column : " + columnName + " in table : "
-								+ r.getParentTableName());
-		}
-		if (type.toString().equals(XSDType.STRING.toString())) {
-			l = vf.createLiteral(v);
-		} else {
-
-			URI datatype_iri = convertDatatype(d);
-			if (datatype_iri == null) {
-				l = vf.createLiteral(v);
-			} else {
-				l = vf.createLiteral(v, datatype_iri);
-			}
 		}
-		result = vf.createStatement(null, p, (Value) l);
-		return result;
+		if (column.getType() == null)
+			throw new IllegalStateException(
+					"[DirectMapper:convertLex] Unknown XSD equivalent type of : "
+							+ SQLType.MySQLType
+									.toMySQLType(column.getSqlType())
+							+ " in column : " + column.getColumnName()
+							+ " in table : " + r.getParentTableName());
+		if (column.getDatatype() == null)
+			return vf.createLiteral(v);
+		return vf.createLiteral(v, column.getDatatype());
 	}
 
 	/**
-	 * Denotational semantics function [47]/[48] : convert row and columnNames
-	 * into predicate URI.
+	 * Denotational semantics function [47]/[48] : convert table and
+	 * columnNames into predicate URI.
 	 * 
 	 * @throws UnsupportedEncodingException
 	 */
-	private URI convertCol(Row row, ArrayList<String> columnNames,
+	private URI convertCol(String tableName, ArrayList<String> columnNames,
 			String baseURI) throws UnsupportedEncodingException {
-		String label = URLEncoder.encode(row.getParentTableName(), "UTF-8")
-				+ "#";
+		String label = URLEncoder.encode(tableName, "UTF-8") + "#";
 		int i = 0;
 		for (String columnName : columnNames) {
 			i++;
@@ -0,0 +1,264 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ *
+ * Table Schema
+ *
+ * Everything the Direct Mapping of a row needs which depends on its table
+ * only : predicates and datatypes of its literal triples, foreign keys of
+ * its reference triples, object of its type triple and next link of a
+ * Primary-is-Candidate-Key chain. A schema is compiled once per table by
+ * the Direct Mapper, before its rows are converted, and is only read
+ * afterwards.
+ *
+ * @author jhomo
+ *
+ */
+package antidot.dm.core;
+
+import org.openrdf.model.URI;
+
+import antidot.sql.model.ForeignKey;
+import antidot.sql.model.Table;
+import antidot.xmls.type.XSDType;
+
+public class TableSchema {
+
+	/**
+	 * Column of a literal triple.
+	 */
+	public static class LexicalColumn {
+
+		private String columnName;
+
+		private URI predicate;
+
+		// SQL datatype of the column
+		private String sqlType;
+
+		// XSD equivalent of SQL datatype (null if unknown)
+		private XSDType type;
+
+		// Datatype of literals (null for plain literals)
+		private URI datatype;
+
+		// BLOB columns are not converted
+		private boolean blob;
+
+		public LexicalColumn(String columnName, URI predicate, String sqlType,
+				XSDType type, URI datatype, boolean blob) {
+			this.columnName = columnName;
+			this.predicate = predicate;
+			this.sqlType = sqlType;
+			this.type = type;
+			this.datatype = datatype;
+			this.blob = blob;
+		}
+
+		/**
+		 * @return
+		 */
+		public String getColumnName() {
+			return columnName;
+		}
+
+		/**
+		 * @return
+		 */
+		public URI getPredicate() {
+			return predicate;
+		}
+
+		/**
+		 * @return
+		 */
+		public String getSqlType() {
+			return sqlType;
+		}
+
+		/**
+		 * @return
+		 */
+		public XSDType getType() {
+			return type;
+		}
+
+		/**
+		 * @return
+		 */
+		public URI getDatatype() {
+			return datatype;
+		}
+
+		/**
+		 * @return
+		 */
+		public boolean isBlob() {
+			return blob;
+		}
+	}
+
+	/**
+	 * Foreign key of a table.
+	 */
+	public static class Reference {
+
+		private ForeignKey foreignKey;
+
+		// Table referenced by the foreign key
+		private Table targetTable;
+
+		// Predicate of reference triples (null for the primary key)
+		private URI predicate;
+
+		// True if the foreign key is the primary key of its table
+		private boolean primaryIsCandidateKey;
+
+		// Literal columns of the primary key (null for other keys)
+		private LexicalColumn[] keyColumns;
+
+		public Reference(ForeignKey foreignKey, Table targetTable,
+				URI predicate, boolean primaryIsCandidateKey,
+				LexicalColumn[] keyColumns) {
+			this.foreignKey = foreignKey;
+			this.targetTable = targetTable;
+			this.predicate = predicate;
+			this.primaryIsCandidateKey = primaryIsCandidateKey;
+			this.keyColumns = keyColumns;
+		}
+
+		/**
+		 * @return
+		 */
+		public ForeignKey getForeignKey() {
+			return foreignKey;
+		}
+
+		/**
+		 * @return
+		 */
+		public Table getTargetTable() {
+			return targetTable;
+		}
+
+		/**
+		 * @return
+		 */
+		public URI getPredicate() {
+			return predicate;
+		}
+
+		/**
+		 * @return
+		 */
+		public boolean isPrimaryIsCandidateKey() {
+			return primaryIsCandidateKey;
+		}
+
+		/**
+		 * @return
+		 */
+		public LexicalColumn[] getKeyColumns() {
+			return keyColumns;
+		}
+	}
+
+	private Table table;
+
+	// Columns of primary key (null if the table has no primary key)
+	private String[] primaryKeyColumns;
+
+	// Beginning of the relative URIs of subjects
+	private String subjectPrefix;
+
+	// Object of type triples
+	private URI typeObject;
+
+	private LexicalColumn[] lexicalColumns;
+
+	private Reference[] references;
+
+	// Foreign key which is the primary key, followed by Primary-is-Candidate-
+	// Key chains (null if there is none)
+	private Reference primaryKeyReference;
+
+	public TableSchema(Table table, String[] primaryKeyColumns,
+			String subjectPrefix, URI typeObject,
+			LexicalColumn[] lexicalColumns, Reference[] references) {
+		this.table = table;
+		this.primaryKeyColumns = primaryKeyColumns;
+		this.subjectPrefix = subjectPrefix;
+		this.typeObject = typeObject;
+		this.lexicalColumns = lexicalColumns;
+		this.references = references;
+		for (Reference reference : references)
+			if (reference.isPrimaryIsCandidateKey())
+				primaryKeyReference = reference;
+	}
+
+	/**
+	 * @return
+	 */
+	public Table getTable() {
+		return table;
+	}
+
+	/**
+	 * @return
+	 */
+	public String[] getPrimaryKeyColumns() {
+		return primaryKeyColumns;
+	}
+
+	/**
+	 * @return
+	 */
+	public String getSubjectPrefix() {
+		return subjectPrefix;
+	}
+
+	/**
+	 * @return
+	 */
+	public URI getTypeObject() {
+		return typeObject;
+	}
+
+	/**
+	 * @return
+	 */
+	public LexicalColumn[] getLexicalColumns() {
+		return lexicalColumns;
+	}
+
+	/**
+	 * @return
+	 */
+	public Reference[] getReferences() {
+		return references;
+	}
+
+	/**
+	 * @return
+	 */
+	public Reference getPrimaryKeyReference() {
+		return primaryKeyReference;
+	}
+
+}
@@ -28,6 +28,8 @@
 package antidot.dm.main;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.SQLException;
 
@@ -42,8 +44,11 @@ import org.apache.commons.cli.ParseException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFWriter;
+import org.openrdf.rio.Rio;
 
 import antidot.dm.core.DirectMapper;
+import antidot.rdf.impl.sesame.RDFHandlerSink;
 import antidot.rdf.impl.sesame.SesameDataSet;
 import antidot.sql.core.SQLConnector;
 import antidot.sql.core.SQLExtractor;
@@ -116,6 +121,21 @@ public class DirectMapping {
 					"RDF syntax output format ('RDFXML', 'N3', 'NTRIPLES' or 'TURTLE')")
 			.withLongOpt("format").create("format");
 
+	private static Option explainOpt = OptionBuilder.withDescription(
+			"Print the extraction plan of the database without running it")
+			.withLongOpt("explain").create("e");
+
+	private static Option streamOpt = OptionBuilder.withDescription(
+			"Write triples into output file as soon as they are generated, "
+					+ "without storing the graph").withLongOpt("stream")
+			.create("s");
+
+	private static Option threadsOpt = OptionBuilder.withArgName("threads")
+			.hasArg().withDescription(
+					"Number of threads converting the rows of each table "
+							+ "(default : 1)").withLongOpt("threads").create(
+					"t");
+
 	public static void main(String[] args) {
 		// Get all options
 		Options options = new Options();
@@ -132,6 +152,9 @@ public class DirectMapping {
 		options.addOption(transformSPARQLFile);
 		options.addOption(transformOutputFile);
 		options.addOption(rdfFormat);
+		options.addOption(explainOpt);
+		options.addOption(streamOpt);
+		options.addOption(threadsOpt);
 
 		// Init parameters
 		String userName = null;
@@ -147,6 +170,9 @@ public class DirectMapping {
 		String sparql = null;
 		String sparqlOutput = null;
 		String format = null;
+		boolean explain = false;
+		boolean stream = false;
+		int nbThreads = 1;
 
 		// RDF Format output
 		RDFFormat rdfFormat = RDFFormat.N3; // N3 by default
@@ -228,7 +254,28 @@ public class DirectMapping {
 					System.exit(-1);
 				}
 			}
+			// Print extraction plan only
+			explain = line.hasOption("explain");
+			// Streamed output
+			stream = line.hasOption("stream");
+			if (stream && (useNativeStore || sparql != null)) {
+				if (log.isErrorEnabled())
+					log.error("Streamed output can not be stored in a native "
+							+ "store nor transformed by a SPARQL request.");
+				System.exit(-1);
+			}
+			// Number of threads
+			nbThreads = Integer.parseInt(line.getOptionValue("threads", "1"));
+			if (nbThreads < 1) {
+				log.error("[DirectMapping:main] Number of threads must be "
+						+ "positive.");
+				System.exit(-1);
+			}
 
+		} catch (NumberFormatException exp) {
+			log.error("[DirectMapping:main] Invalid number of threads : "
+					+ exp.getMessage());
+			System.exit(-1);
 		} catch (ParseException exp) {
 			// oops, something went wrong
 			log.error("[DirectMapping:main] Parsing failed. Reason : "
@@ -244,6 +291,10 @@ public class DirectMapping {
 			// Connect database
 			conn = SQLConnector
 					.connect(userName, password, url, driver, dbName);
+			if (explain) {
+				System.out.print(SQLExtractor.explainMySQLDatabase(conn));
+				return;
+			}
 			// Extract database model
 			Database db = SQLExtractor.extractMySQLDatabase(conn, null);
 			// Generate RDF graph
@@ -260,7 +311,7 @@ public class DirectMapping {
 					System.exit(-1);
 				}
 				g = DirectMapper.generateDirectMapping(db, baseURI,
-						nativeOutput);
+						nativeOutput, nbThreads);
 			} else {
 				File outputFile = new File(output);
 				if (outputFile.exists() && !forceExistingRep) {
@@ -271,9 +322,24 @@ public class DirectMapping {
 										+ " already exists. Please remove it or modify ouput name option.");
 					System.exit(-1);
 				}
-				g = DirectMapper.generateDirectMapping(db, baseURI);
-				// Dump graph
-				g.dumpRDF(output, rdfFormat);
+				if (stream) {
+					// Write triples row by row
+					OutputStream out = new FileOutputStream(outputFile);
+					try {
+						RDFWriter writer = Rio.createWriter(rdfFormat, out);
+						writer.startRDF();
+						DirectMapper.streamDirectMapping(db, baseURI,
+								new RDFHandlerSink(writer), nbThreads);
+						writer.endRDF();
+					} finally {
+						out.close();
+					}
+				} else {
+					g = DirectMapper.generateDirectMapping(db, baseURI, null,
+							nbThreads);
+					// Dump graph
+					g.dumpRDF(output, rdfFormat);
+				}
 			}
 			if (sparql != null) {
 
@@ -0,0 +1,387 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Batch Mapper
+ *
+ * Batch-at-a-time evaluation of a triplesMap plan : the subjectMap and each
+ * predicateObjectMap are evaluated over whole column vectors of a column
+ * batch. The kind of each term (constant, column or template, term type,
+ * datatype) is decided once when the mapper is built, so that each vector
+ * is processed by a tight loop. PredicateObjectMaps whose predicate is not
+ * constant are left to row-at-a-time interpretation.
+ *
+ * A batch mapper reuses its vectors : it is confined to one thread.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openrdf.model.Resource;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+
+import antidot.r2rml.model.ISubjectMap;
+import antidot.r2rml.model.ObjectMap;
+import antidot.r2rml.model.TermType;
+import antidot.rdf.impl.sesame.TripleSink;
+import antidot.xmls.type.XSDType;
+
+public class BatchMapper {
+
+	// Log
+	private static Log log = LogFactory.getLog(BatchMapper.class);
+
+	// Value factory
+	private static ValueFactory vf = new ValueFactoryImpl();
+
+	// XSD namespace
+	private static String xsd = "http://www.w3.org/2001/XMLSchema#";
+
+	// Format of converted dates (see SQLConnector.dateToISO8601)
+	private static String dateFormat = "yyyy-MM-dd'T'HH:mm:ss";
+
+	// rdf:type URI
+	private static URI rdfType = vf.createURI(
+			"http://www.w3.org/1999/02/22-rdf-syntax-ns#", "type");
+
+	// Subject term
+	private Term subject;
+
+	// Contexts of subject (a null context stands for the default graph)
+	private Resource[] subjectContexts;
+
+	// Class of subjects
+	private URI rdfsClass;
+
+	// Evaluated predicateObjectMaps
+	private List<Term> objects;
+
+	// PredicateObjectMaps which are not handled by this batch mapper
+	private List<TriplesMapPlan.PredicateObjectPlan> interpretedPlans;
+
+	// Reused vectors
+	private Resource[] subjects;
+
+	private Value[] values;
+
+	private String[] strings;
+
+	private StringBuilder buffer;
+
+	/**
+	 * Evaluation of a term over column vectors.
+	 */
+	private static class Term {
+
+		private URI predicate;
+
+		private Resource[] contexts;
+
+		private Value constant;
+
+		private TermType termType;
+
+		// Index of rr:column (0 if none)
+		private int column;
+
+		private R2RMLTemplate template;
+
+		private int[] templateColumns;
+
+		private URI datatype;
+
+		private boolean date;
+
+		private String language;
+	}
+
+	/**
+	 * Build the batch mapper of a plan whose subject graphs are constant.
+	 * Columns are read at the indexes resolved by the plan.
+	 *
+	 * @param plan
+	 * @param subjectContexts
+	 * @param capacity
+	 *            Capacity of evaluated batches
+	 */
+	public BatchMapper(TriplesMapPlan plan, Resource[] subjectContexts,
+			int capacity) {
+		if (plan.getSubjectGraphs() == null)
+			throw new IllegalStateException(
+					"[BatchMapper:BatchMapper] Subject graphs of triplesMap "
+							+ "depend on rows.");
+		this.subjectContexts = subjectContexts;
+		rdfsClass = plan.getRdfsClass();
+		// Subject
+		ISubjectMap subjectMap = plan.getTriplesMap().getSubjectMap();
+		subject = new Term();
+		subject.constant = subjectMap.getSubject();
+		subject.termType = subjectMap.getTermType();
+		subject.column = plan.getSubjectColumnIndex();
+		setTemplate(subject, plan.getSubjectTemplate());
+		// PredicateObjectMaps
+		objects = new ArrayList<Term>();
+		interpretedPlans = new ArrayList<TriplesMapPlan.PredicateObjectPlan>();
+		for (TriplesMapPlan.PredicateObjectPlan predicateObjectPlan : plan
+				.getPredicateObjectPlans()) {
+			if (predicateObjectPlan.getPredicate() == null) {
+				interpretedPlans.add(predicateObjectPlan);
+				continue;
+			}
+			ObjectMap objectMap = predicateObjectPlan.getObjectMap();
+			Term object = new Term();
+			object.predicate = predicateObjectPlan.getPredicate();
+			object.contexts = toContexts(predicateObjectPlan.getGraphs());
+			object.constant = objectMap.getObject();
+			object.termType = objectMap.getTermType();
+			object.column = predicateObjectPlan.getObjectColumnIndex();
+			setTemplate(object, predicateObjectPlan.getObjectTemplate());
+			XSDType datatype = predicateObjectPlan.getDatatype();
+			if (object.column != 0 && datatype != null) {
+				object.datatype = vf.createURI(xsd, datatype.toString());
+				object.date = XSDType.isDateType(datatype);
+			}
+			object.language = objectMap.getLanguage();
+			objects.add(object);
+		}
+		subjects = new Resource[capacity];
+		values = new Value[capacity];
+		strings = new String[capacity];
+		buffer = new StringBuilder();
+		if (log.isDebugEnabled())
+			log.debug("[BatchMapper:BatchMapper] " + objects.size()
+					+ " predicateObjectMaps evaluated by batch ("
+					+ interpretedPlans.size() + " interpreted).");
+	}
+
+	/**
+	 * @return
+	 */
+	public List<TriplesMapPlan.PredicateObjectPlan> getInterpretedPlans() {
+		return interpretedPlans;
+	}
+
+	/**
+	 * Emit the class triples and the triples of evaluated
+	 * predicateObjectMaps of all rows of a batch. Returns the subject vector
+	 * of the batch (a null subject stands for a row without subject), which
+	 * is valid until next call.
+	 *
+	 * @param batch
+	 * @param timeZone
+	 *            Time zone of database (used by date conversion)
+	 * @param sink
+	 * @return
+	 */
+	public Resource[] mapBatch(ColumnBatch batch, String timeZone,
+			TripleSink sink) {
+		int size = batch.size();
+		evaluate(subject, batch, timeZone, subjects);
+		for (int row = 0; row < size; row++)
+			if (subjects[row] == null)
+				if (log.isWarnEnabled())
+					log.warn("[BatchMapper:mapBatch] No subject extracted :"
+							+ " this row will be ignored.");
+		if (rdfsClass != null)
+			for (int row = 0; row < size; row++)
+				if (subjects[row] != null)
+					emit(sink, subjects[row], rdfType, rdfsClass, null);
+		for (Term object : objects) {
+			evaluate(object, batch, timeZone, values);
+			for (int row = 0; row < size; row++) {
+				if (subjects[row] == null)
+					continue;
+				if (values[row] == null) {
+					if (log.isWarnEnabled())
+						log.warn("[BatchMapper:mapBatch] Object of triple is "
+								+ "null : this triple will be ignored.");
+					continue;
+				}
+				emit(sink, subjects[row], object.predicate, values[row],
+						object.contexts);
+			}
+		}
+		return subjects;
+	}
+
+	/**
+	 * Evaluate a term over the rows of a batch. A null result stands for a
+	 * null column value.
+	 *
+	 * @param term
+	 * @param batch
+	 * @param timeZone
+	 * @param results
+	 */
+	private void evaluate(Term term, ColumnBatch batch, String timeZone,
+			Value[] results) {
+		int size = batch.size();
+		if (term.constant != null) {
+			for (int row = 0; row < size; row++)
+				results[row] = term.constant;
+			return;
+		}
+		if (term.column != 0) {
+			String[] column = batch.getStrings(term.column);
+			if (term.termType.equals(TermType.BLANK_NODE)) {
+				for (int row = 0; row < size; row++)
+					results[row] = column[row] == null ? null : vf
+							.createBNode(column[row]);
+			} else if (term.termType.equals(TermType.IRI)
+					|| term.predicate == null) {
+				// Subject columns are IRIs by default
+				for (int row = 0; row < size; row++)
+					results[row] = column[row] == null ? null : vf
+							.createURI(column[row]);
+			} else if (term.date) {
+				Timestamp[] timestamps = batch.getTimestamps(term.column);
+				SimpleDateFormat df = new SimpleDateFormat(dateFormat);
+				for (int row = 0; row < size; row++)
+					results[row] = timestamps[row] == null ? null : vf
+							.createLiteral(df.format(new Date(timestamps[row]
+									.getTime()))
+									+ timeZone, term.datatype);
+			} else if (term.datatype != null) {
+				for (int row = 0; row < size; row++)
+					results[row] = column[row] == null ? null : vf
+							.createLiteral(column[row], term.datatype);
+			} else if (term.language != null) {
+				for (int row = 0; row < size; row++)
+					results[row] = column[row] == null ? null : vf
+							.createLiteral(column[row], term.language);
+			} else {
+				for (int row = 0; row < size; row++)
+					results[row] = column[row] == null ? null : vf
+							.createLiteral(column[row]);
+			}
+			if (term.template == null)
+				return;
+			// A null subject column falls back to subject template
+			for (int row = 0; row < size; row++)
+				if (results[row] == null)
+					results[row] = renderTemplate(term, batch, row);
+			return;
+		}
+		if (term.template != null) {
+			term.template.render(batch, term.templateColumns, strings, buffer);
+			if (term.predicate == null
+					|| term.termType.equals(TermType.IRI)) {
+				// Subject templates are IRIs
+				for (int row = 0; row < size; row++)
+					results[row] = strings[row] == null ? null : vf
+							.createURI(strings[row]);
+			} else if (term.termType.equals(TermType.BLANK_NODE)) {
+				for (int row = 0; row < size; row++)
+					results[row] = strings[row] == null ? null : vf
+							.createBNode(strings[row]);
+			} else if (term.language != null) {
+				for (int row = 0; row < size; row++)
+					results[row] = strings[row] == null ? null : vf
+							.createLiteral(strings[row], term.language);
+			} else {
+				for (int row = 0; row < size; row++)
+					results[row] = strings[row] == null ? null : vf
+							.createLiteral(strings[row]);
+			}
+			return;
+		}
+		for (int row = 0; row < size; row++)
+			results[row] = null;
+	}
+
+	private URI renderTemplate(Term term, ColumnBatch batch, int row) {
+		String result = term.template.render(batch, term.templateColumns,
+				row, buffer);
+		return result == null ? null : vf.createURI(result);
+	}
+
+	/**
+	 * Use a template of the plan, already resolved against the logical
+	 * table.
+	 *
+	 * @param term
+	 * @param templatePlan
+	 *            Resolved template (null if the term has no template)
+	 */
+	private void setTemplate(Term term,
+			TriplesMapPlan.TemplatePlan templatePlan) {
+		if (templatePlan == null)
+			return;
+		term.template = templatePlan.getTemplate();
+		term.templateColumns = templatePlan.getColumnIndexes();
+	}
+
+	/**
+	 * Add a triple in the contexts of its subject and in the contexts of its
+	 * predicateObjectMap.
+	 *
+	 * @param sink
+	 * @param s
+	 * @param p
+	 * @param o
+	 * @param contexts
+	 */
+	private void emit(TripleSink sink, Resource s, URI p, Value o,
+			Resource[] contexts) {
+		for (Resource context : subjectContexts) {
+			if (context == null)
+				sink.add(s, p, o);
+			else
+				sink.add(s, p, o, context);
+		}
+		if (contexts == null)
+			return;
+		for (Resource context : contexts) {
+			if (context == null)
+				sink.add(s, p, o);
+			else
+				sink.add(s, p, o, context);
+		}
+	}
+
+	private Resource[] toContexts(Set<URI> graphs) {
+		URI defaultGraph = vf.createURI("http://www.w3.org/ns/r2rml#"
+				+ R2RMLVocabulary.DEFAULT_GRAPH_OBJ);
+		Resource[] contexts = new Resource[graphs.size()];
+		int i = 0;
+		for (URI graph : graphs) {
+			if (graph.equals(defaultGraph))
+				// Default graph <=> No context
+				contexts[i] = null;
+			else
+				contexts[i] = graph;
+			i++;
+		}
+		return contexts;
+	}
+
+}
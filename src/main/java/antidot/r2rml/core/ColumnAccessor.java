@@ -0,0 +1,68 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Column Accessor
+ *
+ * Read access to the columns of the current row of a logical table, by
+ * JDBC column index. The interpreter of the engine reads a row through this
+ * interface, whether the row comes from a ResultSet (ResultSetAccessor) or
+ * from a column batch (ColumnBatch.RowView).
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+public interface ColumnAccessor {
+
+	/**
+	 * Returns the index of a column from its label.
+	 * 
+	 * @param columnLabel
+	 * @return
+	 * @throws SQLException
+	 */
+	public int findColumn(String columnLabel) throws SQLException;
+
+	/**
+	 * @param column
+	 * @return
+	 * @throws SQLException
+	 */
+	public String getString(int column) throws SQLException;
+
+	/**
+	 * @param column
+	 * @return
+	 * @throws SQLException
+	 */
+	public Object getObject(int column) throws SQLException;
+
+	/**
+	 * @param column
+	 * @return
+	 * @throws SQLException
+	 */
+	public Timestamp getTimestamp(int column) throws SQLException;
+
+}
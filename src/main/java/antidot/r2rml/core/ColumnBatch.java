@@ -0,0 +1,246 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Column Batch
+ *
+ * Rows of a logical table stored column by column : a column vector holds
+ * the values of one column for all rows of the batch. All columns are read
+ * as strings ; columns read with getObject or getTimestamp by the mapping
+ * are captured too. Vectors are allocated once and overwritten each time
+ * the batch is filled.
+ *
+ * A row of a batch can be read through a column accessor view : getString,
+ * and getObject and getTimestamp for captured columns.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Set;
+
+public class ColumnBatch {
+
+	// Maximum number of rows
+	private int capacity;
+
+	// Column indexes by column label (and lower case label)
+	private HashMap<String, Integer> columnIndexes;
+
+	// Column vectors (indexed from 1, as JDBC columns)
+	private String[][] strings;
+
+	// Captured object vectors (null if column is not captured)
+	private Object[][] objects;
+
+	// Captured timestamp vectors (null if column is not captured)
+	private Timestamp[][] timestamps;
+
+	// Number of rows
+	private int size;
+
+	/**
+	 * Create an empty batch for the rows of a logical table.
+	 *
+	 * @param logicalTable
+	 * @param capacity
+	 * @param objectColumns
+	 *            Indexes of the columns read with getObject
+	 * @param timestampColumns
+	 *            Indexes of the columns read with getTimestamp
+	 * @throws SQLException
+	 */
+	public ColumnBatch(ResultSet logicalTable, int capacity,
+			Set<Integer> objectColumns, Set<Integer> timestampColumns)
+			throws SQLException {
+		if (capacity < 1)
+			throw new IllegalStateException(
+					"[ColumnBatch:ColumnBatch] Capacity must be positive.");
+		ResultSetMetaData meta = logicalTable.getMetaData();
+		int nbColumns = meta.getColumnCount();
+		columnIndexes = new HashMap<String, Integer>();
+		for (int i = nbColumns; i > 0; i--) {
+			// First column wins, as with ResultSet.findColumn
+			columnIndexes.put(meta.getColumnLabel(i), i);
+			columnIndexes.put(meta.getColumnLabel(i).toLowerCase(), i);
+		}
+		this.capacity = capacity;
+		strings = new String[nbColumns + 1][];
+		objects = new Object[nbColumns + 1][];
+		timestamps = new Timestamp[nbColumns + 1][];
+		for (int i = 1; i <= nbColumns; i++)
+			strings[i] = new String[capacity];
+		for (Integer column : objectColumns)
+			objects[column] = new Object[capacity];
+		for (Integer column : timestampColumns)
+			timestamps[column] = new Timestamp[capacity];
+		size = 0;
+	}
+
+	/**
+	 * Create an empty batch with the same columns as another one.
+	 *
+	 * @param batch
+	 */
+	public ColumnBatch(ColumnBatch batch) {
+		capacity = batch.capacity;
+		columnIndexes = batch.columnIndexes;
+		strings = new String[batch.strings.length][];
+		objects = new Object[batch.objects.length][];
+		timestamps = new Timestamp[batch.timestamps.length][];
+		for (int i = 1; i < strings.length; i++) {
+			strings[i] = new String[capacity];
+			if (batch.objects[i] != null)
+				objects[i] = new Object[capacity];
+			if (batch.timestamps[i] != null)
+				timestamps[i] = new Timestamp[capacity];
+		}
+		size = 0;
+	}
+
+	/**
+	 * Read the next rows of a logical table into this batch, until it is
+	 * full or the logical table is exhausted. Returns the number of rows
+	 * read : the logical table is exhausted if it is lower than the
+	 * capacity.
+	 *
+	 * @param logicalTable
+	 * @return
+	 * @throws SQLException
+	 */
+	public int fill(ResultSet logicalTable) throws SQLException {
+		size = 0;
+		while (size < capacity && logicalTable.next()) {
+			for (int i = 1; i < strings.length; i++) {
+				strings[i][size] = logicalTable.getString(i);
+				if (objects[i] != null)
+					objects[i][size] = logicalTable.getObject(i);
+				if (timestamps[i] != null)
+					timestamps[i][size] = logicalTable.getTimestamp(i);
+			}
+			size++;
+		}
+		return size;
+	}
+
+	/**
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the string vector of a column.
+	 *
+	 * @param column
+	 * @return
+	 */
+	public String[] getStrings(int column) {
+		return strings[column];
+	}
+
+	/**
+	 * Returns the timestamp vector of a captured column.
+	 *
+	 * @param column
+	 * @return
+	 */
+	public Timestamp[] getTimestamps(int column) {
+		if (timestamps[column] == null)
+			throw new IllegalStateException("[ColumnBatch:getTimestamps] Column "
+					+ column + " is not captured as timestamps.");
+		return timestamps[column];
+	}
+
+	/**
+	 * Returns the index of a column from its label.
+	 *
+	 * @param columnLabel
+	 * @return
+	 * @throws SQLException
+	 */
+	public int findColumn(String columnLabel) throws SQLException {
+		Integer column = columnIndexes.get(columnLabel);
+		if (column == null)
+			column = columnIndexes.get(columnLabel.toLowerCase());
+		if (column == null)
+			throw new SQLException("[ColumnBatch:findColumn] Unknown column : "
+					+ columnLabel);
+		return column;
+	}
+
+	/**
+	 * Column accessor view of a row of a column batch. A view can be moved
+	 * from a batch to another one.
+	 */
+	public static class RowView implements ColumnAccessor {
+
+		private ColumnBatch batch;
+
+		private int row;
+
+		/**
+		 * @param batch
+		 * @param row
+		 */
+		public void setRow(ColumnBatch batch, int row) {
+			this.batch = batch;
+			this.row = row;
+		}
+
+		public int findColumn(String columnLabel) throws SQLException {
+			return batch.findColumn(columnLabel);
+		}
+
+		public String getString(int column) {
+			return batch.strings[column][row];
+		}
+
+		public Object getObject(int column) {
+			return get(batch.objects[column], column, "getObject");
+		}
+
+		public Timestamp getTimestamp(int column) {
+			return (Timestamp) get(batch.timestamps[column], column,
+					"getTimestamp");
+		}
+
+		private Object get(Object[] vector, int column, String name) {
+			if (vector == null)
+				throw new IllegalStateException("[RowView:get] Column "
+						+ column + " has not been read with " + name + ".");
+			return vector[row];
+		}
+	}
+
+}
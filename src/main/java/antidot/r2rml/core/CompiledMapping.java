@@ -0,0 +1,259 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Compiled Mapping
+ *
+ * Compiled form of the triplesMaps of a run : their parsed templates and
+ * join conditions, and the columns read from their logical tables. It is
+ * built before the run starts, only read afterwards, shared by the
+ * executions of the run and dropped with it.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import antidot.r2rml.model.ISubjectMap;
+import antidot.r2rml.model.ObjectMap;
+import antidot.r2rml.model.PredicateMap;
+import antidot.r2rml.model.PredicateObjectMap;
+import antidot.r2rml.model.RefObjectMap;
+import antidot.r2rml.model.RefPredicateObjectMap;
+import antidot.r2rml.model.TriplesMap;
+
+public class CompiledMapping {
+
+	// Log
+	private static Log log = LogFactory.getLog(CompiledMapping.class);
+
+	// Compiled templates by template expression
+	private HashMap<String, R2RMLTemplate> templates;
+
+	// Parsed join conditions by join condition
+	private HashMap<String, JoinKeys> joinKeys;
+
+	// Columns read from the logical table of each triplesMap
+	private HashMap<TriplesMap, Set<String>> referencedColumns;
+
+	/**
+	 * Parse all templates and join conditions of some triplesMaps and
+	 * collect the columns read from their logical tables.
+	 * 
+	 * @param triplesMaps
+	 */
+	public CompiledMapping(Collection<TriplesMap> triplesMaps) {
+		templates = new HashMap<String, R2RMLTemplate>();
+		joinKeys = new HashMap<String, JoinKeys>();
+		referencedColumns = new HashMap<TriplesMap, Set<String>>();
+		for (TriplesMap triplesMap : triplesMaps) {
+			ISubjectMap subjectMap = triplesMap.getSubjectMap();
+			compileTemplate(subjectMap.getTemplate());
+			compileTemplates(subjectMap.getGraphTemplates());
+			for (PredicateObjectMap predicateObjectMap : triplesMap
+					.getPredicateObjectMaps()) {
+				compileTemplate(predicateObjectMap.getPredicateMap()
+						.getTemplate());
+				compileTemplate(predicateObjectMap.getObjectMap().getTemplate());
+				compileTemplates(predicateObjectMap.getGraphTemplates());
+			}
+			for (RefPredicateObjectMap refPredicateObjectMap : triplesMap
+					.getRefPredicateObjectMaps()) {
+				compileTemplates(refPredicateObjectMap.getGraphTemplates());
+				compileJoinKeys(refPredicateObjectMap.getRefObjectMap());
+			}
+		}
+		compileReferencedColumns(triplesMaps);
+		if (log.isDebugEnabled())
+			log.debug("[CompiledMapping:CompiledMapping] Number of compiled "
+					+ "templates : " + templates.size()
+					+ ", join conditions : " + joinKeys.size());
+	}
+
+	/**
+	 * Returns the compiled form of a template expression, or null if there
+	 * is no template expression.
+	 * 
+	 * @param templateExpression
+	 * @return
+	 */
+	public R2RMLTemplate getTemplate(String templateExpression) {
+		if (templateExpression == null)
+			return null;
+		R2RMLTemplate template = templates.get(templateExpression);
+		if (template == null)
+			throw new IllegalStateException(
+					"[CompiledMapping:getTemplate] Template "
+							+ templateExpression + " has not been compiled.");
+		return template;
+	}
+
+	/**
+	 * Returns the parsed join condition of a refObjectMap.
+	 * 
+	 * @param refObjectMap
+	 * @return
+	 */
+	public JoinKeys getJoinKeys(RefObjectMap refObjectMap) {
+		JoinKeys result = joinKeys.get(refObjectMap.getJoinCondition());
+		if (result == null)
+			throw new IllegalStateException(
+					"[CompiledMapping:getJoinKeys] Join condition "
+							+ refObjectMap.getJoinCondition()
+							+ " has not been compiled.");
+		return result;
+	}
+
+	/**
+	 * Returns the columns read from the logical table of a triplesMap.
+	 * 
+	 * @param triplesMap
+	 * @return
+	 */
+	public Set<String> getReferencedColumns(TriplesMap triplesMap) {
+		Set<String> columnNames = referencedColumns.get(triplesMap);
+		if (columnNames == null)
+			throw new IllegalStateException(
+					"[CompiledMapping:getReferencedColumns] TriplesMap "
+							+ triplesMap + " has not been compiled.");
+		return columnNames;
+	}
+
+	/**
+	 * Returns the columns read from the logical table shared by a group of
+	 * triplesMaps.
+	 * 
+	 * @param triplesMaps
+	 * @return
+	 */
+	public Set<String> getReferencedColumns(List<TriplesMap> triplesMaps) {
+		if (triplesMaps.size() == 1)
+			return getReferencedColumns(triplesMaps.get(0));
+		Set<String> columnNames = new LinkedHashSet<String>();
+		for (TriplesMap triplesMap : triplesMaps)
+			columnNames.addAll(getReferencedColumns(triplesMap));
+		return columnNames;
+	}
+
+	/**
+	 * Collect the columns read from the logical table of each triplesMap :
+	 * columns and template columns of its terms and graphs, child columns of
+	 * its join conditions and parent columns of the join conditions which
+	 * refer to it.
+	 * 
+	 * @param triplesMaps
+	 */
+	private void compileReferencedColumns(Collection<TriplesMap> triplesMaps) {
+		HashMap<TriplesMap, Set<String>> columns = new HashMap<TriplesMap, Set<String>>();
+		for (TriplesMap triplesMap : triplesMaps) {
+			Set<String> columnNames = getColumnNames(columns, triplesMap);
+			ISubjectMap subjectMap = triplesMap.getSubjectMap();
+			addColumnNames(columnNames, subjectMap.getColumn(), subjectMap
+					.getTemplate());
+			addColumnNames(columnNames, subjectMap.getGraphColumns(),
+					subjectMap.getGraphTemplates());
+			for (PredicateObjectMap predicateObjectMap : triplesMap
+					.getPredicateObjectMaps()) {
+				PredicateMap predicateMap = predicateObjectMap
+						.getPredicateMap();
+				ObjectMap objectMap = predicateObjectMap.getObjectMap();
+				addColumnNames(columnNames, predicateMap.getColumn(),
+						predicateMap.getTemplate());
+				addColumnNames(columnNames, objectMap.getColumn(), objectMap
+						.getTemplate());
+				addColumnNames(columnNames, predicateObjectMap
+						.getGraphColumns(), predicateObjectMap
+						.getGraphTemplates());
+			}
+			for (RefPredicateObjectMap refPredicateObjectMap : triplesMap
+					.getRefPredicateObjectMaps()) {
+				RefObjectMap refObjectMap = refPredicateObjectMap
+						.getRefObjectMap();
+				JoinKeys keys = getJoinKeys(refObjectMap);
+				addColumnNames(columnNames, refPredicateObjectMap
+						.getGraphColumns(), refPredicateObjectMap
+						.getGraphTemplates());
+				columnNames.addAll(keys.getChildColumnNames());
+				getColumnNames(columns, refObjectMap.getParentTriplesMap())
+						.addAll(keys.getParentColumnNames());
+			}
+		}
+		for (TriplesMap triplesMap : columns.keySet())
+			referencedColumns.put(triplesMap, Collections
+					.unmodifiableSet(columns.get(triplesMap)));
+	}
+
+	private static Set<String> getColumnNames(
+			HashMap<TriplesMap, Set<String>> columns, TriplesMap triplesMap) {
+		Set<String> columnNames = columns.get(triplesMap);
+		if (columnNames == null) {
+			columnNames = new LinkedHashSet<String>();
+			columns.put(triplesMap, columnNames);
+		}
+		return columnNames;
+	}
+
+	private void addColumnNames(Set<String> columnNames, String column,
+			String templateExpression) {
+		if (column != null)
+			columnNames.add(column);
+		if (templateExpression != null)
+			columnNames.addAll(getTemplate(templateExpression)
+					.getColumnNames());
+	}
+
+	private void addColumnNames(Set<String> columnNames,
+			Set<String> columns, Set<String> templateExpressions) {
+		if (columns != null)
+			columnNames.addAll(columns);
+		if (templateExpressions != null)
+			for (String templateExpression : templateExpressions)
+				addColumnNames(columnNames, null, templateExpression);
+	}
+
+	private void compileTemplates(Set<String> templateExpressions) {
+		if (templateExpressions != null)
+			for (String templateExpression : templateExpressions)
+				compileTemplate(templateExpression);
+	}
+
+	private void compileTemplate(String templateExpression) {
+		if (templateExpression != null
+				&& !templates.containsKey(templateExpression))
+			templates.put(templateExpression, R2RMLTemplate
+					.compile(templateExpression));
+	}
+
+	private void compileJoinKeys(RefObjectMap refObjectMap) {
+		String joinCondition = refObjectMap.getJoinCondition();
+		if (!joinKeys.containsKey(joinCondition))
+			joinKeys.put(joinCondition, JoinKeys.parse(joinCondition));
+	}
+
+}
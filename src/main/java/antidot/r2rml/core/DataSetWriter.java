@@ -0,0 +1,81 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : DataSet Writer
+ *
+ * Writer of the triples extracted by an execution into one dataset.
+ * Triples are buffered in a statement batch and added to the dataset in
+ * one transaction once the batch is full, instead of one transaction per
+ * triple. A writer is confined to the thread of its execution.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openrdf.model.Resource;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+
+import antidot.rdf.impl.sesame.SesameDataSet;
+import antidot.rdf.impl.sesame.TripleSink;
+
+public class DataSetWriter implements TripleSink {
+
+	// Log
+	private static Log log = LogFactory.getLog(DataSetWriter.class);
+
+	// Written dataset
+	private SesameDataSet sesameDataSet;
+
+	// Triples waiting to be written
+	private StatementBatch statements;
+
+	// Number of statements written at once
+	private int batchSize;
+
+	public DataSetWriter(SesameDataSet sesameDataSet, int batchSize) {
+		this.sesameDataSet = sesameDataSet;
+		this.batchSize = batchSize;
+		statements = new StatementBatch(batchSize);
+	}
+
+	public void add(Resource s, URI p, Value o, Resource... contexts) {
+		statements.add(s, p, o, contexts);
+		if (statements.size() >= batchSize)
+			flush();
+	}
+
+	/**
+	 * Add the buffered triples to the dataset.
+	 */
+	public void flush() {
+		if (statements.size() == 0)
+			return;
+		if (log.isDebugEnabled())
+			log.debug("[DataSetWriter:flush] Write " + statements.size()
+					+ " statements.");
+		sesameDataSet.addAll(statements.getStatements());
+		statements.clear();
+	}
+
+}
@@ -0,0 +1,210 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Grace Hash Join
+ *
+ * Out-of-core join between a parent and a child spilled relation. Both
+ * relations are partitioned with the same hash function, so the records
+ * which can match are in partitions with the same index. Partitions are
+ * joined one by one : the parent partition is loaded in memory and the
+ * child partition is streamed against it. A parent partition which does not
+ * fit in the memory budget is partitioned again, with its child partition,
+ * at the next level.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import antidot.r2rml.core.SpilledRelation.Record;
+
+public class GraceHashJoin {
+
+	// Log
+	private static Log log = LogFactory.getLog(GraceHashJoin.class);
+
+	// Estimated ratio between in-memory size and on-disk size of a partition
+	private static int memoryOverhead = 4;
+
+	// Maximum partitioning level (beyond, partition is skewed by a single
+	// key and it is loaded whatever its size)
+	private static int maxLevel = 8;
+
+	/**
+	 * Handler of the results of a join.
+	 */
+	public interface JoinHandler {
+
+		/**
+		 * A child record matches with a parent record.
+		 *
+		 * @param childValues
+		 * @param parentValues
+		 */
+		public void handleMatch(List<String> childValues,
+				List<String> parentValues) throws IOException;
+
+		/**
+		 * No parent record matches with a child record.
+		 *
+		 * @param childKey
+		 * @param childValues
+		 */
+		public void handleNoMatch(List<String> childKey,
+				List<String> childValues) throws IOException;
+	}
+
+	// Memory budget (in bytes)
+	private long memoryBudget;
+
+	public GraceHashJoin(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Join a child relation with a parent relation. Both relations must have
+	 * the same number of partitions and the same level.
+	 *
+	 * @param parent
+	 * @param child
+	 * @param handler
+	 * @throws IOException
+	 */
+	public void join(SpilledRelation parent, SpilledRelation child,
+			JoinHandler handler) throws IOException {
+		if (parent.getNbPartitions() != child.getNbPartitions()
+				|| parent.getLevel() != child.getLevel())
+			throw new IllegalStateException(
+					"[GraceHashJoin:join] Parent and child relations are not "
+							+ "partitioned in the same way.");
+		parent.close();
+		child.close();
+		for (int i = 0; i < child.getNbPartitions(); i++) {
+			if (child.getPartitionLength(i) == 0)
+				continue;
+			if ((parent.getPartitionLength(i) * memoryOverhead > memoryBudget)
+					&& (parent.getLevel() < maxLevel)) {
+				// Split again this partition
+				if (log.isDebugEnabled())
+					log.debug("[GraceHashJoin:join] Partition " + i
+							+ " exceeds memory budget : repartition at level "
+							+ (parent.getLevel() + 1));
+				SpilledRelation subParent = repartition(parent, i);
+				SpilledRelation subChild = null;
+				try {
+					subChild = repartition(child, i);
+					join(subParent, subChild, handler);
+				} finally {
+					subParent.delete();
+					if (subChild != null)
+						subChild.delete();
+				}
+			} else {
+				joinPartition(parent, child, i, handler);
+			}
+		}
+	}
+
+	/**
+	 * Join a partition in memory.
+	 *
+	 * @param parent
+	 * @param child
+	 * @param partition
+	 * @param handler
+	 * @throws IOException
+	 */
+	private void joinPartition(SpilledRelation parent, SpilledRelation child,
+			int partition, JoinHandler handler) throws IOException {
+		// Load parent partition
+		HashMap<List<String>, List<String>> parentRecords = new HashMap<List<String>, List<String>>();
+		HashSet<List<String>> duplicatedKeys = new HashSet<List<String>>();
+		DataInputStream in = parent.openPartition(partition);
+		try {
+			Record record = SpilledRelation.readRecord(in);
+			while (record != null) {
+				if (parentRecords.put(record.getKey(), record.getValues()) != null)
+					duplicatedKeys.add(record.getKey());
+				record = SpilledRelation.readRecord(in);
+			}
+		} finally {
+			in.close();
+		}
+		// Stream child partition against it
+		in = child.openPartition(partition);
+		try {
+			Record record = SpilledRelation.readRecord(in);
+			while (record != null) {
+				if (duplicatedKeys.contains(record.getKey()))
+					throw new IllegalStateException(
+							"[GraceHashJoin:joinPartition] No unicity"
+									+ " in results of join condition whereas a foreign key"
+									+ " is defined as a pointer to a unqiue row.");
+				List<String> parentValues = parentRecords.get(record.getKey());
+				if (parentValues == null)
+					handler.handleNoMatch(record.getKey(), record.getValues());
+				else
+					handler.handleMatch(record.getValues(), parentValues);
+				record = SpilledRelation.readRecord(in);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Partition again a partition of a relation at the next level.
+	 *
+	 * @param relation
+	 * @param partition
+	 * @return
+	 * @throws IOException
+	 */
+	private SpilledRelation repartition(SpilledRelation relation, int partition)
+			throws IOException {
+		SpilledRelation result = new SpilledRelation(relation.getDirectory(),
+				relation.getNbPartitions(), relation.getLevel() + 1);
+		DataInputStream in = relation.openPartition(partition);
+		try {
+			Record record = SpilledRelation.readRecord(in);
+			while (record != null) {
+				result.add(record.getKey(), record.getValues());
+				record = SpilledRelation.readRecord(in);
+			}
+		} catch (IOException e) {
+			result.delete();
+			throw e;
+		} finally {
+			in.close();
+		}
+		result.close();
+		return result;
+	}
+
+}
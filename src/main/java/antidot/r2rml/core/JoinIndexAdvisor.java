@@ -0,0 +1,363 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Join Index Advisor
+ *
+ * Checks the indexes of the source database on the columns of each
+ * rr:joinCondition : parent columns are read by lookups and by joins of the
+ * database, child columns by joins of the database. Missing indexes are
+ * reported with their DDL, and can be created for the duration of a run.
+ * Only base tables are checked : the logical table of a SQL query can not
+ * be indexed.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import antidot.r2rml.model.RefObjectMap;
+import antidot.r2rml.model.RefPredicateObjectMap;
+import antidot.r2rml.model.TriplesMap;
+import antidot.sql.core.SQLStatistics;
+
+public class JoinIndexAdvisor {
+
+	// Log
+	private static Log log = LogFactory.getLog(JoinIndexAdvisor.class);
+
+	// Name prefix of advised indexes
+	private static String indexPrefix = "r2rml_idx_";
+
+	// Maximal length of an index name (MySQL : 64, PostgreSQL : 63)
+	private static int maxIndexNameLength = 60;
+
+	// SQL Connection
+	private Connection conn;
+
+	// Indexes of the database
+	private SQLStatistics statistics;
+
+	/**
+	 * Index on the join columns of a table.
+	 */
+	public static class JoinIndex {
+
+		private String tableName;
+
+		private List<String> columnNames;
+
+		// Only made of letters, digits and underscores : never quoted
+		private String indexName;
+
+		// Table and columns in the DDL
+		private String quotedTableName;
+
+		private List<String> quotedColumnNames;
+
+		// Join conditions using this index
+		private List<String> joinConditions;
+
+		private JoinIndex(String tableName, List<String> columnNames,
+				String quotedTableName, List<String> quotedColumnNames) {
+			this.tableName = tableName;
+			this.columnNames = columnNames;
+			this.quotedTableName = quotedTableName;
+			this.quotedColumnNames = quotedColumnNames;
+			joinConditions = new ArrayList<String>();
+			StringBuffer name = new StringBuffer(indexPrefix + tableName);
+			for (String columnName : columnNames)
+				name.append("_" + columnName);
+			indexName = name.toString().replaceAll("[^A-Za-z0-9_]", "_");
+			if (indexName.length() > maxIndexNameLength)
+				// Keep distinct names for long names
+				indexName = indexName.substring(0, maxIndexNameLength - 9)
+						+ "_"
+						+ Integer.toHexString(name.toString().hashCode());
+		}
+
+		/**
+		 * @return
+		 */
+		public String getTableName() {
+			return tableName;
+		}
+
+		/**
+		 * @return
+		 */
+		public List<String> getColumnNames() {
+			return columnNames;
+		}
+
+		/**
+		 * @return
+		 */
+		public String getIndexName() {
+			return indexName;
+		}
+
+		/**
+		 * @return
+		 */
+		public List<String> getJoinConditions() {
+			return joinConditions;
+		}
+
+		/**
+		 * @return
+		 */
+		public String getCreateStatement() {
+			StringBuffer columns = new StringBuffer();
+			for (String columnName : quotedColumnNames)
+				columns.append((columns.length() == 0 ? "" : ", ")
+						+ columnName);
+			return "CREATE INDEX " + indexName + " ON " + quotedTableName
+					+ " (" + columns + ")";
+		}
+
+		/**
+		 * @param mySQL
+		 *            True if the database is MySQL, which requires the
+		 *            table of the index
+		 * @return
+		 */
+		public String getDropStatement(boolean mySQL) {
+			return "DROP INDEX " + indexName
+					+ (mySQL ? " ON " + quotedTableName : "");
+		}
+	}
+
+	public JoinIndexAdvisor(Connection conn) {
+		this.conn = conn;
+		statistics = new SQLStatistics(conn);
+	}
+
+	/**
+	 * Returns the indexes missing on the join columns of the RefObjectMaps
+	 * of some triplesMaps, once by table and columns.
+	 *
+	 * @param triplesMaps
+	 * @return
+	 * @throws SQLException
+	 */
+	public List<JoinIndex> getMissingIndexes(
+			Collection<TriplesMap> triplesMaps) throws SQLException {
+		LinkedHashMap<String, JoinIndex> missingIndexes = new LinkedHashMap<String, JoinIndex>();
+		for (TriplesMap triplesMap : triplesMaps)
+			for (RefPredicateObjectMap refPredicateObjectMap : triplesMap
+					.getRefPredicateObjectMaps()) {
+				RefObjectMap refObjectMap = refPredicateObjectMap
+						.getRefObjectMap();
+				JoinKeys joinKeys = JoinKeys.parse(refObjectMap
+						.getJoinCondition());
+				addMissingIndex(missingIndexes, triplesMap, joinKeys
+						.getChildColumnNames(), refObjectMap);
+				addMissingIndex(missingIndexes, refObjectMap
+						.getParentTriplesMap(), joinKeys
+						.getParentColumnNames(), refObjectMap);
+			}
+		return new ArrayList<JoinIndex>(missingIndexes.values());
+	}
+
+	private void addMissingIndex(
+			LinkedHashMap<String, JoinIndex> missingIndexes,
+			TriplesMap triplesMap, List<String> columnNames,
+			RefObjectMap refObjectMap) throws SQLException {
+		if (triplesMap.getSQLQuery() != null
+				|| statistics.isIndexed(triplesMap.getTableName(),
+						columnNames))
+			return;
+		String key = triplesMap.getTableName() + " " + columnNames;
+		JoinIndex index = missingIndexes.get(key);
+		if (index == null) {
+			List<String> quotedColumnNames = new ArrayList<String>();
+			for (String columnName : columnNames)
+				quotedColumnNames.add(quoteIdentifier(columnName));
+			index = new JoinIndex(triplesMap.getTableName(), columnNames,
+					quoteIdentifier(triplesMap.getTableName()),
+					quotedColumnNames);
+			missingIndexes.put(key, index);
+		}
+		index.getJoinConditions().add(refObjectMap.getJoinCondition());
+	}
+
+	/**
+	 * Quote an identifier of the mapping with the quote string of the
+	 * database, each part of a qualified name apart. An unquoted identifier
+	 * is first put in the case in which the database stores it, so that the
+	 * quotes do not change the object it names. An identifier already
+	 * quoted by the mapping is kept.
+	 * 
+	 * @param identifier
+	 * @return
+	 * @throws SQLException
+	 */
+	private String quoteIdentifier(String identifier) throws SQLException {
+		DatabaseMetaData meta = conn.getMetaData();
+		String quote = meta.getIdentifierQuoteString().trim();
+		if (quote.length() == 0 || identifier.contains(quote)
+				|| identifier.contains("\"") || identifier.contains("`"))
+			return identifier;
+		StringBuffer result = new StringBuffer();
+		for (String part : identifier.split("\\.")) {
+			if (meta.storesUpperCaseIdentifiers())
+				part = part.toUpperCase();
+			else if (meta.storesLowerCaseIdentifiers())
+				part = part.toLowerCase();
+			result.append((result.length() == 0 ? "" : ".") + quote + part
+					+ quote);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Describe the indexes of the join columns of the RefObjectMaps of some
+	 * triplesMaps, followed by the DDL of the missing ones.
+	 *
+	 * @param triplesMaps
+	 * @return
+	 * @throws SQLException
+	 */
+	public String getReport(Collection<TriplesMap> triplesMaps)
+			throws SQLException {
+		StringBuffer report = new StringBuffer();
+		int nbJoins = 0;
+		for (TriplesMap triplesMap : triplesMaps)
+			for (RefPredicateObjectMap refPredicateObjectMap : triplesMap
+					.getRefPredicateObjectMaps()) {
+				nbJoins++;
+				RefObjectMap refObjectMap = refPredicateObjectMap
+						.getRefObjectMap();
+				JoinKeys joinKeys = JoinKeys.parse(refObjectMap
+						.getJoinCondition());
+				report.append("\nJoin " + refObjectMap.getJoinCondition()
+						+ "\n");
+				report.append("  Child : "
+						+ describeIndex(triplesMap, joinKeys
+								.getChildColumnNames()) + "\n");
+				report.append("  Parent : "
+						+ describeIndex(refObjectMap.getParentTriplesMap(),
+								joinKeys.getParentColumnNames()) + "\n");
+			}
+		List<JoinIndex> missingIndexes = getMissingIndexes(triplesMaps);
+		report.append("\n" + missingIndexes.size() + " missing index(es)"
+				+ (missingIndexes.isEmpty() ? "" : " :") + "\n");
+		for (JoinIndex index : missingIndexes)
+			report.append(index.getCreateStatement() + ";\n");
+		return "Join indexes of " + nbJoins + " join condition(s)\n"
+				+ report.toString();
+	}
+
+	private String describeIndex(TriplesMap triplesMap,
+			List<String> columnNames) {
+		if (triplesMap.getSQLQuery() != null)
+			return "SQL query " + columnNames + " : not checked";
+		return triplesMap.getTableName()
+				+ " "
+				+ columnNames
+				+ " : "
+				+ (statistics.isIndexed(triplesMap.getTableName(),
+						columnNames) ? "indexed" : "MISSING");
+	}
+
+	/**
+	 * Create indexes. Each index is added to the created indexes as soon as
+	 * it exists, so that it can be dropped even if a next one fails.
+	 *
+	 * @param indexes
+	 * @param createdIndexes
+	 * @throws SQLException
+	 */
+	public void createIndexes(List<JoinIndex> indexes,
+			List<JoinIndex> createdIndexes) throws SQLException {
+		Statement s = conn.createStatement();
+		try {
+			for (JoinIndex index : indexes) {
+				long start = System.currentTimeMillis();
+				s.executeUpdate(index.getCreateStatement());
+				createdIndexes.add(index);
+				if (log.isInfoEnabled())
+					log.info("[JoinIndexAdvisor:createIndexes] Index "
+							+ index.getIndexName() + " created on "
+							+ index.getTableName() + " "
+							+ index.getColumnNames() + " in "
+							+ (System.currentTimeMillis() - start) + " ms.");
+			}
+		} finally {
+			s.close();
+		}
+		// Indexes must be visible to other connections
+		if (!conn.getAutoCommit())
+			conn.commit();
+	}
+
+	/**
+	 * Drop indexes. A failure is logged and does not prevent other indexes
+	 * from being dropped.
+	 *
+	 * @param indexes
+	 */
+	public void dropIndexes(List<JoinIndex> indexes) {
+		boolean mySQL = false;
+		try {
+			// Leave a transaction aborted by a failed run
+			if (!conn.getAutoCommit())
+				conn.rollback();
+			mySQL = conn.getMetaData().getDatabaseProductName().toLowerCase()
+					.contains("mysql");
+		} catch (SQLException e) {
+			if (log.isWarnEnabled())
+				log.warn("[JoinIndexAdvisor:dropIndexes] " + e.getMessage());
+		}
+		for (JoinIndex index : indexes) {
+			try {
+				Statement s = conn.createStatement();
+				try {
+					s.executeUpdate(index.getDropStatement(mySQL));
+				} finally {
+					s.close();
+				}
+				if (!conn.getAutoCommit())
+					conn.commit();
+				if (log.isDebugEnabled())
+					log.debug("[JoinIndexAdvisor:dropIndexes] Index "
+							+ index.getIndexName() + " dropped.");
+			} catch (SQLException e) {
+				if (log.isWarnEnabled())
+					log.warn("[JoinIndexAdvisor:dropIndexes] Index "
+							+ index.getIndexName() + " can not be dropped : "
+							+ e.getMessage());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,116 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Join Keys
+ *
+ * Parsed form of a rr:joinCondition : the child and parent columns of its
+ * equalities, in the order of the join condition. The i-th child column is
+ * compared to the i-th parent column.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class JoinKeys {
+
+	// Join condition
+	private String joinCondition;
+
+	// Columns of child logical table
+	private List<String> childColumnNames;
+
+	// Columns of parent logical table
+	private List<String> parentColumnNames;
+
+	private JoinKeys(String joinCondition, List<String> childColumnNames,
+			List<String> parentColumnNames) {
+		this.joinCondition = joinCondition;
+		this.childColumnNames = Collections.unmodifiableList(childColumnNames);
+		this.parentColumnNames = Collections
+				.unmodifiableList(parentColumnNames);
+	}
+
+	/**
+	 * Parse a join condition. Its syntax is supposed to be checked by the
+	 * model.
+	 * 
+	 * @param joinCondition
+	 * @return
+	 */
+	public static JoinKeys parse(String joinCondition) {
+		List<String> childColumnNames = new ArrayList<String>();
+		List<String> parentColumnNames = new ArrayList<String>();
+		String childAlias = "{" + R2RMLVocabulary.JOIN_CONDITION_CHILD_ALIAS
+				+ ".}";
+		String parentAlias = "{" + R2RMLVocabulary.JOIN_CONDITION_PARENT_ALIAS
+				+ ".}";
+		String[] andSplits = joinCondition.split(" AND ");
+		for (String andSplit : andSplits) {
+			String[] equalSplits = andSplit.split("=");
+			if (equalSplits[0].contains(childAlias)) {
+				childColumnNames.add(equalSplits[0].replace(childAlias, "")
+						.replaceAll("\\s", ""));
+				parentColumnNames.add(equalSplits[1].replace(parentAlias, "")
+						.replaceAll("\\s", ""));
+			} else {
+				childColumnNames.add(equalSplits[1].replace(childAlias, "")
+						.replaceAll("\\s", ""));
+				parentColumnNames.add(equalSplits[0].replace(parentAlias, "")
+						.replaceAll("\\s", ""));
+			}
+		}
+		if (parentColumnNames.size() == 0 || childColumnNames.size() == 0)
+			throw new IllegalStateException(
+					"[JoinKeys:parse] Extraction of "
+							+ "parent or child columns failed (empty result).");
+		return new JoinKeys(joinCondition, childColumnNames, parentColumnNames);
+	}
+
+	/**
+	 * @return
+	 */
+	public String getJoinCondition() {
+		return joinCondition;
+	}
+
+	/**
+	 * @return
+	 */
+	public List<String> getChildColumnNames() {
+		return childColumnNames;
+	}
+
+	/**
+	 * @return
+	 */
+	public List<String> getParentColumnNames() {
+		return parentColumnNames;
+	}
+
+	public String toString() {
+		return joinCondition;
+	}
+
+}
@@ -0,0 +1,171 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Join Planner
+ *
+ * Chooses the join strategy of each RefObjectMap from cheap statistics :
+ * number of rows of the logical tables (counted by previous runs, or
+ * estimated by the database for base tables), indexes of the parent table
+ * on the join columns and the memory budget of the joins.
+ *
+ * The parent subjects are indexed in memory when they fit in the budget.
+ * Otherwise, the join relies on a parent index if there is one : few child
+ * rows are looked up by batches, more child rows are joined by the
+ * database. Without index, the join is partitioned on disk.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.sql.Connection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import antidot.r2rml.model.TriplesMap;
+import antidot.sql.core.SQLStatistics;
+
+public class JoinPlanner {
+
+	// Log
+	private static Log log = LogFactory.getLog(JoinPlanner.class);
+
+	// Estimated memory used by a parent subject in a hash index (in bytes)
+	private static long indexEntrySize = 256;
+
+	// Child rows by parent row under which looking up parent rows is
+	// cheaper than a join of whole logical tables
+	private static double lookupRatio = 0.1;
+
+	// Row counts of previous runs
+	private JoinStatistics statistics;
+
+	// Memory left for hash indexes (in bytes)
+	private long memoryBudget;
+
+	// Planned hash indexes, by parent logical table and join columns
+	private Set<String> hashIndexes;
+
+	// Statistics read from the database
+	private SQLStatistics tableStatistics;
+
+	public JoinPlanner(Connection conn, JoinStatistics statistics,
+			long memoryBudget) {
+		this.statistics = statistics;
+		this.memoryBudget = memoryBudget;
+		hashIndexes = new HashSet<String>();
+		tableStatistics = new SQLStatistics(conn);
+	}
+
+	/**
+	 * Choose the join strategy of a RefObjectMap.
+	 *
+	 * @param child
+	 *            Child triplesMap
+	 * @param childKey
+	 *            Key of child logical table
+	 * @param pushable
+	 *            True if child logical table can be joined by the database
+	 * @param parent
+	 *            Parent triplesMap
+	 * @param parentKey
+	 *            Key of parent logical table
+	 * @param parentColumnNames
+	 * @return
+	 */
+	public JoinStrategy plan(TriplesMap child, String childKey,
+			boolean pushable, TriplesMap parent, String parentKey,
+			List<String> parentColumnNames) {
+		Long childRows = getRowCount(child, childKey);
+		Long parentRows = getRowCount(parent, parentKey);
+		boolean indexed = isIndexed(parent, parentColumnNames);
+		JoinStrategy strategy = null;
+		String hashIndex = parentKey + " " + parentColumnNames;
+		if (hashIndexes.contains(hashIndex))
+			// Index already built for another RefObjectMap
+			strategy = JoinStrategy.HASH_JOIN;
+		else if (parentRows != null
+				&& parentRows * indexEntrySize <= memoryBudget) {
+			strategy = JoinStrategy.HASH_JOIN;
+			hashIndexes.add(hashIndex);
+			memoryBudget -= parentRows * indexEntrySize;
+		} else if (indexed && childRows != null && parentRows != null
+				&& childRows <= parentRows * lookupRatio)
+			strategy = JoinStrategy.LOOKUP_JOIN;
+		else if (indexed && pushable)
+			strategy = JoinStrategy.SQL_PUSHDOWN;
+		else
+			strategy = JoinStrategy.GRACE_HASH_JOIN;
+		if (log.isInfoEnabled())
+			log.info("[JoinPlanner:plan] " + childKey + " -> " + parentKey
+					+ " on " + parentColumnNames + " : " + strategy
+					+ " (child rows : " + describe(childRows)
+					+ ", parent rows : " + describe(parentRows)
+					+ ", parent index : " + (indexed ? "yes" : "no") + ")");
+		return strategy;
+	}
+
+	static String describe(Long rowCount) {
+		return rowCount == null ? "unknown" : rowCount.toString();
+	}
+
+	/**
+	 * Returns the number of rows of a logical table : the count of the last
+	 * run, or the estimate of the database for a base table (null if
+	 * unknown).
+	 *
+	 * @param triplesMap
+	 * @param logicalTableKey
+	 * @return
+	 */
+	Long getRowCount(TriplesMap triplesMap, String logicalTableKey) {
+		Long rowCount = statistics.getRowCount(logicalTableKey);
+		if (rowCount == null && triplesMap.getSQLQuery() == null)
+			rowCount = tableStatistics.getRowCount(triplesMap.getTableName());
+		return rowCount;
+	}
+
+	/**
+	 * Returns true if an index of the parent base table starts with the join
+	 * columns (in any order).
+	 *
+	 * @param parent
+	 * @param parentColumnNames
+	 * @return
+	 */
+	boolean isIndexed(TriplesMap parent, List<String> parentColumnNames) {
+		if (parent.getSQLQuery() != null)
+			return false;
+		return tableStatistics.isIndexed(parent.getTableName(),
+				parentColumnNames);
+	}
+
+	/**
+	 * @return
+	 */
+	public SQLStatistics getTableStatistics() {
+		return tableStatistics;
+	}
+
+}
@@ -0,0 +1,123 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Join Statistics
+ *
+ * Number of rows of the logical tables read by previous runs, by logical
+ * table. These counts are exact, unlike the estimates of the database, and
+ * are available for SQL queries too. They can be kept in a properties file
+ * from a run to the next one.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+public class JoinStatistics {
+
+	// Log
+	private static Log log = LogFactory.getLog(JoinStatistics.class);
+
+	// Number of rows by logical table
+	private ConcurrentHashMap<String, Long> rowCounts;
+
+	public JoinStatistics() {
+		rowCounts = new ConcurrentHashMap<String, Long>();
+	}
+
+	/**
+	 * Returns the number of rows read from a logical table by the last scan,
+	 * or null if it has never been read.
+	 *
+	 * @param logicalTableKey
+	 * @return
+	 */
+	public Long getRowCount(String logicalTableKey) {
+		return rowCounts.get(logicalTableKey);
+	}
+
+	/**
+	 * @param logicalTableKey
+	 * @param rowCount
+	 */
+	public void setRowCount(String logicalTableKey, long rowCount) {
+		rowCounts.put(logicalTableKey, rowCount);
+	}
+
+	/**
+	 * Load the statistics saved in a file. Statistics which can not be read
+	 * are ignored.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void load(File file) throws IOException {
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(file);
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		for (String key : properties.stringPropertyNames()) {
+			try {
+				rowCounts.put(key, Long.valueOf(properties.getProperty(key)));
+			} catch (NumberFormatException e) {
+				if (log.isWarnEnabled())
+					log.warn("[JoinStatistics:load] Invalid row count for "
+							+ key + " : it will be ignored.");
+			}
+		}
+		if (log.isDebugEnabled())
+			log.debug("[JoinStatistics:load] " + rowCounts.size()
+					+ " row counts loaded from " + file);
+	}
+
+	/**
+	 * Save these statistics in a file.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public synchronized void save(File file) throws IOException {
+		Properties properties = new Properties();
+		for (String key : rowCounts.keySet())
+			properties.setProperty(key, rowCounts.get(key).toString());
+		OutputStream out = new FileOutputStream(file);
+		try {
+			properties.store(out, "Row counts of R2RML logical tables");
+		} finally {
+			out.close();
+		}
+	}
+
+}
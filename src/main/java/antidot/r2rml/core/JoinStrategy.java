@@ -0,0 +1,95 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Join Strategy
+ *
+ * Strategy used by the R2RML engine to retrieve the subject of the parent
+ * row referenced by a RefObjectMap through its join condition.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+public enum JoinStrategy {
+
+	/**
+	 * Parent logical table is queried and scanned for each child row.
+	 */
+	NESTED_LOOP("nestedLoop"),
+	/**
+	 * Parent logical table is scanned once and its subjects are indexed in
+	 * memory by join condition values.
+	 */
+	HASH_JOIN("hashJoin"),
+	/**
+	 * Parent logical tables are LEFT JOINed to the child logical table by the
+	 * database, in one SQL query per child TriplesMap.
+	 */
+	SQL_PUSHDOWN("sqlPushdown"),
+	/**
+	 * Ref triples and parent logical tables are partitioned into temporary
+	 * files by join values, then joined partition by partition within a
+	 * memory budget.
+	 */
+	GRACE_HASH_JOIN("graceHashJoin"),
+	/**
+	 * Join values of child rows are buffered and their parent rows are
+	 * looked up by batches, with a prepared query per RefObjectMap.
+	 */
+	LOOKUP_JOIN("lookupJoin"),
+	/**
+	 * Strategy of each RefObjectMap is chosen by a join planner from table
+	 * statistics.
+	 */
+	AUTO("auto");
+
+	private String displayName;
+
+	private JoinStrategy(String displayName) {
+		this.displayName = displayName;
+	}
+
+	public String toString() {
+		return displayName;
+	}
+
+	/**
+	 * @return
+	 */
+	public String getDisplayName() {
+		return displayName;
+	}
+
+	/**
+	 * Converts a join strategy from its display name.
+	 *
+	 * @param displayName
+	 * @return
+	 */
+	public static JoinStrategy toJoinStrategy(String displayName) {
+		for (JoinStrategy joinStrategy : JoinStrategy.values()) {
+			if (joinStrategy.getDisplayName().equals(displayName))
+				return joinStrategy;
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,330 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Logical Table Projection
+ *
+ * SQL queries which read the logical tables of triplesMaps : a logical
+ * table is referenced by its table name, the table materializing its SQL
+ * query or its SQL query as a derived table, and only the columns read by
+ * the mapping are selected when projection pushdown is enabled. Column
+ * labels are read once per execution.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import antidot.r2rml.model.TriplesMap;
+
+public class LogicalTableProjection {
+
+	// Log
+	private static Log log = LogFactory.getLog(LogicalTableProjection.class);
+
+	// Alias of SQL queries projected on their referenced columns
+	private static String queryAlias = "r2rml_q";
+
+	// True if only referenced columns are selected from logical tables
+	private boolean projectionPushdown;
+
+	public LogicalTableProjection(boolean projectionPushdown) {
+		this.projectionPushdown = projectionPushdown;
+	}
+
+	/**
+	 * @return
+	 */
+	public boolean isProjectionPushdown() {
+		return projectionPushdown;
+	}
+
+	/**
+	 * @param projectionPushdown
+	 */
+	public void setProjectionPushdown(boolean projectionPushdown) {
+		this.projectionPushdown = projectionPushdown;
+	}
+
+	/**
+	 * Returns the key of the logical table of a triplesMap : its table name
+	 * or its SQL query, whose white spaces out of string literals are
+	 * normalized.
+	 * 
+	 * @param triplesMap
+	 * @return
+	 */
+	public static String getLogicalTableKey(TriplesMap triplesMap) {
+		if (triplesMap.getSQLQuery() == null)
+			return "table:" + triplesMap.getTableName();
+		String query = triplesMap.getSQLQuery().trim();
+		while (query.endsWith(";"))
+			query = query.substring(0, query.length() - 1).trim();
+		StringBuilder key = new StringBuilder("query:");
+		boolean literal = false;
+		boolean space = false;
+		for (int i = 0; i < query.length(); i++) {
+			char c = query.charAt(i);
+			if (!literal && Character.isWhitespace(c)) {
+				space = true;
+				continue;
+			}
+			if (space)
+				key.append(' ');
+			space = false;
+			if (c == '\'')
+				literal = !literal;
+			key.append(c);
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Returns the SQL query which reads some columns of the logical table of
+	 * a triplesMap.
+	 * 
+	 * @param execution
+	 * @param triplesMap
+	 * @param columnNames
+	 * @return
+	 * @throws SQLException
+	 */
+	public String getLogicalTableQuery(R2RMLExecution execution,
+			TriplesMap triplesMap, Set<String> columnNames)
+			throws SQLException {
+		String projection = getProjection(execution, triplesMap, columnNames,
+				null);
+		String reference = getLogicalTableReference(execution, triplesMap);
+		if (triplesMap.getSQLQuery() == null)
+			return "SELECT " + projection + " FROM " + reference;
+		if (projection.equals("*") && reference.startsWith("("))
+			// SQL query which is not materialized
+			return triplesMap.getSQLQuery();
+		return "SELECT " + projection + " FROM " + reference + " "
+				+ queryAlias;
+	}
+
+	/**
+	 * Returns the select list of the logical table of a triplesMap : its
+	 * columns read by the mapping, or all its columns if projection pushdown
+	 * is disabled, if its SQL query can not be wrapped, if no column is read
+	 * or if a column can not be found. Column names of the mapping are
+	 * replaced by the quoted labels of the logical table.
+	 * 
+	 * @param execution
+	 * @param triplesMap
+	 * @param columnNames
+	 * @param alias
+	 *            Alias of the logical table in the query (null if none)
+	 * @return
+	 * @throws SQLException
+	 */
+	public String getProjection(R2RMLExecution execution,
+			TriplesMap triplesMap, Set<String> columnNames, String alias)
+			throws SQLException {
+		String qualifier = alias == null ? "" : alias + ".";
+		if (!projectionPushdown || columnNames.isEmpty()
+				|| !isProjectable(triplesMap))
+			return qualifier + "*";
+		List<String> labels = getColumnLabels(execution, triplesMap);
+		Set<String> projectedLabels = new LinkedHashSet<String>();
+		for (String columnName : columnNames) {
+			String label = findColumnLabel(labels, columnName);
+			if (label == null) {
+				if (log.isDebugEnabled())
+					log.debug("[LogicalTableProjection:getProjection] Column "
+							+ columnName + " not found in "
+							+ getLogicalTableReference(execution, triplesMap)
+							+ " : all columns are selected.");
+				return qualifier + "*";
+			}
+			projectedLabels.add(label);
+		}
+		if (projectedLabels.size() == labels.size())
+			return qualifier + "*";
+		StringBuffer projection = new StringBuffer();
+		for (String label : projectedLabels) {
+			if (projection.length() > 0)
+				projection.append(", ");
+			projection.append(qualifier + quoteIdentifier(execution, label));
+		}
+		if (log.isDebugEnabled())
+			log.debug("[LogicalTableProjection:getProjection] Select "
+					+ projectedLabels.size() + " of " + labels.size()
+					+ " columns of "
+					+ getLogicalTableReference(execution, triplesMap));
+		return projection.toString();
+	}
+
+	/**
+	 * Returns the quoted reference to a column of the logical table of a
+	 * triplesMap. The column name of the mapping is replaced by the label of
+	 * the logical table, or kept if it can not be found.
+	 * 
+	 * @param execution
+	 * @param triplesMap
+	 * @param columnName
+	 * @param alias
+	 *            Alias of the logical table in the query (null if none)
+	 * @return
+	 * @throws SQLException
+	 */
+	public static String getColumnReference(R2RMLExecution execution,
+			TriplesMap triplesMap, String columnName, String alias)
+			throws SQLException {
+		String label = findColumnLabel(getColumnLabels(execution, triplesMap),
+				columnName);
+		if (label == null)
+			label = columnName;
+		return (alias == null ? "" : alias + ".")
+				+ quoteIdentifier(execution, label);
+	}
+
+	/**
+	 * Quote an identifier with the quote string of the database. Quoted
+	 * identifiers keep their case whatever the database.
+	 * 
+	 * @param execution
+	 * @param identifier
+	 * @return
+	 * @throws SQLException
+	 */
+	public static String quoteIdentifier(R2RMLExecution execution,
+			String identifier) throws SQLException {
+		String quote = execution.getConnection().getMetaData()
+				.getIdentifierQuoteString().trim();
+		if (quote.length() == 0)
+			return identifier;
+		return quote + identifier.replace(quote, quote + quote) + quote;
+	}
+
+	/**
+	 * Returns the label matching a column name : the same label, or else the
+	 * first label which differs only by case, as with ResultSet.findColumn.
+	 * 
+	 * @param labels
+	 * @param columnName
+	 * @return null if no label matches
+	 */
+	private static String findColumnLabel(List<String> labels,
+			String columnName) {
+		if (labels.contains(columnName))
+			return columnName;
+		for (String label : labels)
+			if (label.equalsIgnoreCase(columnName))
+				return label;
+		return null;
+	}
+
+	/**
+	 * Returns true if the logical table of a triplesMap can be used as a
+	 * derived table : a base table, or a single SELECT query (R2RML forbids
+	 * duplicate column names in the result of a query).
+	 * 
+	 * @param triplesMap
+	 * @return
+	 */
+	public static boolean isProjectable(TriplesMap triplesMap) {
+		if (triplesMap.getSQLQuery() == null)
+			return true;
+		String query = getSQLQuery(triplesMap);
+		return query.length() > 6
+				&& query.regionMatches(true, 0, "SELECT", 0, 6)
+				&& Character.isWhitespace(query.charAt(6))
+				&& query.indexOf(';') == -1;
+	}
+
+	/**
+	 * Returns the column labels of the logical table of a triplesMap. They
+	 * are read once per execution from an empty result.
+	 * 
+	 * @param execution
+	 * @param triplesMap
+	 * @return
+	 * @throws SQLException
+	 */
+	private static List<String> getColumnLabels(R2RMLExecution execution,
+			TriplesMap triplesMap) throws SQLException {
+		String key = getLogicalTableKey(triplesMap);
+		List<String> labels = execution.getColumnLabels().get(key);
+		if (labels != null)
+			return labels;
+		labels = new ArrayList<String>();
+		java.sql.Statement s = execution.getConnection().createStatement();
+		try {
+			ResultSet rs = s.executeQuery("SELECT * FROM "
+					+ getLogicalTableReference(execution, triplesMap) + " "
+					+ queryAlias + " WHERE 1 = 0");
+			ResultSetMetaData meta = rs.getMetaData();
+			for (int i = 1; i <= meta.getColumnCount(); i++)
+				labels.add(meta.getColumnLabel(i));
+			rs.close();
+		} finally {
+			s.close();
+		}
+		execution.getColumnLabels().put(key, labels);
+		return labels;
+	}
+
+	/**
+	 * Returns the reference to the logical table of a triplesMap which can be
+	 * used in a FROM clause : its table name, the table materializing its SQL
+	 * query or its SQL query as a derived table.
+	 * 
+	 * @param execution
+	 * @param triplesMap
+	 * @return
+	 */
+	public static String getLogicalTableReference(R2RMLExecution execution,
+			TriplesMap triplesMap) {
+		if (triplesMap.getSQLQuery() != null) {
+			String materializedTable = execution.getMaterializedTables().get(
+					getLogicalTableKey(triplesMap));
+			if (materializedTable != null)
+				return materializedTable;
+			return "(" + getSQLQuery(triplesMap) + ")";
+		}
+		return triplesMap.getTableName();
+	}
+
+	/**
+	 * Returns the SQL query of a triplesMap without its final semicolon.
+	 * 
+	 * @param triplesMap
+	 * @return
+	 */
+	public static String getSQLQuery(TriplesMap triplesMap) {
+		String query = triplesMap.getSQLQuery().trim();
+		if (query.endsWith(";"))
+			query = query.substring(0, query.length() - 1);
+		return query;
+	}
+
+}
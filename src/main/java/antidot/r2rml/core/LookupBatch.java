@@ -0,0 +1,149 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Lookup Batch
+ *
+ * Ref triples of a RefObjectMap buffered by the lookup join strategy while
+ * their ref object is unknown. The distinct join column values of the
+ * buffered child rows are looked up together in the parent logical table.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openrdf.model.Resource;
+import org.openrdf.model.URI;
+
+public class LookupBatch {
+
+	// Distinct join column values of buffered child rows
+	private LinkedHashSet<List<Object>> keys;
+
+	// Buffered ref triples
+	private List<PendingRefTriple> refTriples;
+
+	/**
+	 * A ref triple waiting for its ref object.
+	 */
+	public static class PendingRefTriple {
+
+		private List<Object> key;
+
+		private Resource subject;
+
+		private URI predicate;
+
+		private List<URI> contexts;
+
+		public PendingRefTriple(List<Object> key, Resource subject,
+				URI predicate, List<URI> contexts) {
+			this.key = key;
+			this.subject = subject;
+			this.predicate = predicate;
+			this.contexts = contexts;
+		}
+
+		/**
+		 * @return
+		 */
+		public List<Object> getKey() {
+			return key;
+		}
+
+		/**
+		 * @return
+		 */
+		public Resource getSubject() {
+			return subject;
+		}
+
+		/**
+		 * @return
+		 */
+		public URI getPredicate() {
+			return predicate;
+		}
+
+		/**
+		 * @return
+		 */
+		public List<URI> getContexts() {
+			return contexts;
+		}
+	}
+
+	public LookupBatch() {
+		keys = new LinkedHashSet<List<Object>>();
+		refTriples = new ArrayList<PendingRefTriple>();
+	}
+
+	/**
+	 * Buffer a ref triple with the join column values of its child row.
+	 * 
+	 * @param key
+	 * @param subject
+	 * @param predicate
+	 * @param contexts
+	 */
+	public void add(List<Object> key, Resource subject, URI predicate,
+			List<URI> contexts) {
+		keys.add(key);
+		refTriples.add(new PendingRefTriple(key, subject, predicate, contexts));
+	}
+
+	/**
+	 * @return
+	 */
+	public Set<List<Object>> getKeys() {
+		return keys;
+	}
+
+	/**
+	 * @return
+	 */
+	public List<PendingRefTriple> getRefTriples() {
+		return refTriples;
+	}
+
+	/**
+	 * Returns the number of distinct keys.
+	 * 
+	 * @return
+	 */
+	public int size() {
+		return keys.size();
+	}
+
+	public boolean isEmpty() {
+		return refTriples.isEmpty();
+	}
+
+	public void clear() {
+		keys.clear();
+		refTriples.clear();
+	}
+
+}
@@ -0,0 +1,94 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Parent Subject Index
+ *
+ * In-memory index used by the hash join strategy. It maps the values of the
+ * parent columns of a join condition to the subject generated for the
+ * corresponding row of the parent logical table. An index is built once per
+ * parent TriplesMap and join columns, and it is shared by every
+ * RefObjectMap which uses them.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import org.openrdf.model.Resource;
+
+public class ParentSubjectIndex {
+
+	// Subjects of parent rows indexed by their join column values
+	private HashMap<List<Object>, Resource> subjects;
+
+	// Join column values shared by several parent rows
+	private HashSet<List<Object>> duplicatedKeys;
+
+	public ParentSubjectIndex() {
+		subjects = new HashMap<List<Object>, Resource>();
+		duplicatedKeys = new HashSet<List<Object>>();
+	}
+
+	/**
+	 * Index the subject of a parent row. A key which is not unique is kept
+	 * aside : it will be rejected if a child row refers to it.
+	 *
+	 * @param key
+	 * @param subject
+	 */
+	public void put(List<Object> key, Resource subject) {
+		if (duplicatedKeys.contains(key))
+			return;
+		if (subjects.containsKey(key)) {
+			subjects.remove(key);
+			duplicatedKeys.add(key);
+		} else {
+			subjects.put(key, subject);
+		}
+	}
+
+	/**
+	 * Returns the subject of the parent row which matches with given join
+	 * column values, or null if no row matches.
+	 *
+	 * @param key
+	 * @return
+	 */
+	public Resource get(List<Object> key) {
+		if (duplicatedKeys.contains(key))
+			throw new IllegalStateException(
+					"[ParentSubjectIndex:get] No unicity"
+							+ " in results of join condition whereas a foreign key"
+							+ " is defined as a pointer to a unqiue row.");
+		return subjects.get(key);
+	}
+
+	/**
+	 * @return
+	 */
+	public int size() {
+		return subjects.size();
+	}
+
+}
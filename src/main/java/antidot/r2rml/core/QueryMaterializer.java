@@ -0,0 +1,191 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Query Materializer
+ *
+ * Materializes the SQL queries of parent logical tables for the duration of
+ * a run : each query is run once into a table indexed on its join columns,
+ * which is read instead of the query by lookups, joins and scans. Tables
+ * are named after this JVM and a counter of runs, so that concurrent runs,
+ * in one process or in several, never share a table.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import antidot.r2rml.model.RefObjectMap;
+import antidot.r2rml.model.RefPredicateObjectMap;
+import antidot.r2rml.model.TriplesMap;
+
+public class QueryMaterializer {
+
+	// Log
+	private static Log log = LogFactory.getLog(QueryMaterializer.class);
+
+	// Name prefix of the tables materializing SQL queries
+	private static String materializedTablePrefix = "r2rml_m";
+
+	// Random identifier of this JVM in the names of materialized tables, so
+	// that runs of several processes on the same database do not collide
+	private static String materializedTableJvmId = Long.toString(
+			new SecureRandom().nextLong() & Long.MAX_VALUE, 36);
+
+	// Number of runs which materialized SQL queries in this JVM
+	private static AtomicLong materializations = new AtomicLong();
+
+	// SQL Connection
+	private Connection conn;
+
+	public QueryMaterializer(Connection conn) {
+		this.conn = conn;
+	}
+
+	/**
+	 * Materialize the SQL queries of the parent logical tables of some
+	 * triplesMaps : each query is run once into a table, indexed on the join
+	 * columns of its RefObjectMaps. A table is registered as soon as it is
+	 * created, so that it is dropped even if the materialization fails.
+	 * 
+	 * @param compiledMapping
+	 * @param triplesMaps
+	 * @param materializedTables
+	 *            Materialized tables by logical table key
+	 * @throws SQLException
+	 */
+	public void materializeLogicalTables(CompiledMapping compiledMapping,
+			Collection<TriplesMap> triplesMaps,
+			HashMap<String, String> materializedTables) throws SQLException {
+		// Parent SQL queries and their join columns, by logical table key
+		HashMap<String, TriplesMap> queries = new LinkedHashMap<String, TriplesMap>();
+		HashMap<String, Set<List<String>>> indexes = new HashMap<String, Set<List<String>>>();
+		for (TriplesMap triplesMap : triplesMaps)
+			for (RefPredicateObjectMap refPredicateObjectMap : triplesMap
+					.getRefPredicateObjectMaps()) {
+				RefObjectMap refObjectMap = refPredicateObjectMap
+						.getRefObjectMap();
+				TriplesMap parentTriplesMap = refObjectMap
+						.getParentTriplesMap();
+				if (parentTriplesMap.getSQLQuery() == null)
+					continue;
+				String key = LogicalTableProjection
+						.getLogicalTableKey(parentTriplesMap);
+				if (!queries.containsKey(key)) {
+					queries.put(key, parentTriplesMap);
+					indexes.put(key, new LinkedHashSet<List<String>>());
+				}
+				indexes.get(key).add(
+						compiledMapping.getJoinKeys(refObjectMap)
+								.getParentColumnNames());
+			}
+		// Distinct names for concurrent runs, in this JVM or in others
+		String runPrefix = materializedTablePrefix + materializedTableJvmId
+				+ "_" + Long.toString(materializations.incrementAndGet(), 36)
+				+ "_";
+		java.sql.Statement s = conn.createStatement();
+		try {
+			for (String key : queries.keySet()) {
+				String tableName = runPrefix + materializedTables.size();
+				long start = System.currentTimeMillis();
+				s.executeUpdate("CREATE TABLE " + tableName + " AS ("
+						+ LogicalTableProjection.getSQLQuery(queries.get(key))
+						+ ")");
+				materializedTables.put(key, tableName);
+				int cpt = 0;
+				for (List<String> columnNames : indexes.get(key)) {
+					StringBuffer columns = new StringBuffer();
+					for (String columnName : columnNames)
+						columns.append((columns.length() == 0 ? "" : ", ")
+								+ columnName);
+					s.executeUpdate("CREATE INDEX " + tableName + "_i" + cpt
+							+ " ON " + tableName + " (" + columns + ")");
+					cpt++;
+				}
+				if (log.isInfoEnabled())
+					log.info("[QueryMaterializer:materializeLogicalTables] "
+							+ key + " materialized into " + tableName + " with "
+							+ cpt + " index(es) in "
+							+ (System.currentTimeMillis() - start) + " ms.");
+			}
+		} finally {
+			s.close();
+		}
+		// Materialized tables must be visible to other connections
+		if (!conn.getAutoCommit())
+			conn.commit();
+	}
+
+	/**
+	 * Drop the tables materializing SQL queries. A failure is logged and
+	 * does not prevent other tables from being dropped.
+	 * 
+	 * @param materializedTables
+	 */
+	public void dropMaterializedTables(
+			HashMap<String, String> materializedTables) {
+		if (materializedTables.isEmpty())
+			return;
+		try {
+			// Leave a transaction aborted by a failed run
+			if (!conn.getAutoCommit())
+				conn.rollback();
+		} catch (SQLException e) {
+			if (log.isWarnEnabled())
+				log.warn("[QueryMaterializer:dropMaterializedTables] Rollback "
+						+ "failed : " + e.getMessage());
+		}
+		for (String tableName : materializedTables.values()) {
+			try {
+				java.sql.Statement s = conn.createStatement();
+				try {
+					s.executeUpdate("DROP TABLE " + tableName);
+				} finally {
+					s.close();
+				}
+				if (!conn.getAutoCommit())
+					conn.commit();
+				if (log.isDebugEnabled())
+					log.debug("[QueryMaterializer:dropMaterializedTables] "
+							+ tableName + " dropped.");
+			} catch (SQLException e) {
+				if (log.isWarnEnabled())
+					log.warn("[QueryMaterializer:dropMaterializedTables] Table "
+							+ tableName + " can not be dropped : "
+							+ e.getMessage());
+			}
+		}
+		materializedTables.clear();
+	}
+
+}
@@ -30,18 +30,35 @@
  ****************************************************************************/
 package antidot.r2rml.core;
 
+import java.io.File;
+import java.io.IOException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.openrdf.model.BNode;
 import org.openrdf.model.Resource;
 import org.openrdf.model.URI;
 import org.openrdf.model.Value;
@@ -58,8 +75,11 @@ import antidot.r2rml.model.RefPredicateMap;
 import antidot.r2rml.model.RefPredicateObjectMap;
 import antidot.r2rml.model.TermType;
 import antidot.r2rml.model.TriplesMap;
+import antidot.r2rml.tools.R2RMLToolkit;
 import antidot.rdf.impl.sesame.SesameDataSet;
+import antidot.rdf.impl.sesame.TripleSink;
 import antidot.rdf.tools.SQLToRDFToolkit;
+import antidot.sql.core.ConnectionFactory;
 import antidot.sql.core.SQLConnector;
 import antidot.xmls.type.XSDType;
 
@@ -68,11 +88,93 @@ public class R2RMLEngine {
 	// Log
 	private static Log log = LogFactory.getLog(R2RMLEngine.class);
 
-	// SQL Connection
+	// Default SQL Connection (null if a connection is given to each run)
 	private Connection conn;
 
-	// Current logical table
-	private ResultSet logicalTable;
+	// Strategy used to resolve RefObjectMaps
+	private JoinStrategy joinStrategy;
+
+	// Directory of spilled relations
+	private File temporaryDirectory;
+
+	// Memory budget of an in-memory partition join (in bytes)
+	private long joinMemoryBudget;
+
+	// Number of partitions of spilled relations
+	private static int joinPartitions = 32;
+
+	// Number of distinct join keys looked up by a query
+	private int lookupBatchSize;
+
+	// Queries of logical tables, projected on their referenced columns
+	private LogicalTableProjection projection;
+
+	// True if SQL queries of parent logical tables are materialized into
+	// indexed tables during a run
+	private boolean queryMaterialization;
+
+	// True if missing indexes on join columns are created for the duration
+	// of a run
+	private boolean temporaryJoinIndexes;
+
+	// Row counts of logical tables read by previous runs (used by join
+	// planner)
+	private JoinStatistics joinStatistics;
+
+	// File where join statistics are kept between runs (null if they are
+	// not saved)
+	private File statisticsFile;
+
+	// Fetch size of logical tables (0 : chosen for the driver)
+	private int fetchSize;
+
+	// Fetch size used when it is not chosen by user (except for MySQL)
+	private static int defaultFetchSize = 1000;
+
+	// Number of triplesMaps extracted concurrently
+	private int nbThreads;
+
+	// Factory of the connections of parallel extraction
+	private ConnectionFactory connectionFactory;
+
+	// True if row mappers are generated for triplesMaps
+	private boolean codeGeneration;
+
+	// Number of rows of a column batch (0 if rows are mapped one by one)
+	private int batchSize;
+
+	// Number of mapping threads of a row pipeline (0 if rows are mapped by
+	// the reading thread)
+	private int pipelineWorkers;
+
+	// Number of row buffers of a row pipeline
+	private int pipelineBuffers;
+
+	// Number of rows of a column batch of a row pipeline
+	private int pipelineBufferRows;
+
+	// Number of statements written at once by the writer of a row pipeline
+	// or of an execution
+	private int pipelineBatchSize;
+
+	// Generator of row mappers (created at first use)
+	private RowMapperCompiler rowMapperCompiler;
+
+	// Seconds between two warnings while stopped threads are awaited
+	private static int workerTimeout = 10;
+
+	// Alias of parent logical table in lookup queries
+	private static String lookupAlias = "parent";
+
+	// Maximum number of keys of a lookup query whose composite key can not
+	// be compared as a row value
+	private static int lookupDisjunctionSize = 100;
+
+	// Alias of child logical table in joined logical tables
+	private static String childAlias = "child";
+
+	// Prefix of parent logical tables aliases in joined logical tables
+	private static String parentAliasPrefix = "r2rml_p";
 
 	// Prefix used in this class
 	private static HashMap<String, String> prefix = new HashMap<String, String>();
@@ -89,18 +191,405 @@ public class R2RMLEngine {
 	private static URI defaultGraph = vf.createURI(prefix.get("rr")
 			+ R2RMLVocabulary.DEFAULT_GRAPH_OBJ);
 
+	// rdf:type URI
+	private static URI rdfType = vf.createURI(prefix.get("rdf"), "type");
+
 	public R2RMLEngine(Connection conn) {
-		super();
+		this(conn, JoinStrategy.HASH_JOIN);
+	}
+
+	public R2RMLEngine(Connection conn, JoinStrategy joinStrategy) {
+		this(joinStrategy);
 		if (conn == null)
 			throw new IllegalStateException(
 					"[R2RMLEngine:R2RMLEngine] SQL connection does not exists.");
 		this.conn = conn;
-		logicalTable = null;
+	}
+
+	/**
+	 * Create an engine without default connection : a connection is given to
+	 * each run.
+	 * 
+	 * @param joinStrategy
+	 */
+	public R2RMLEngine(JoinStrategy joinStrategy) {
+		super();
+		conn = null;
+		setJoinStrategy(joinStrategy);
+		temporaryDirectory = new File(System.getProperty("java.io.tmpdir"));
+		joinMemoryBudget = Runtime.getRuntime().maxMemory() / 4;
+		lookupBatchSize = 1000;
+		projection = new LogicalTableProjection(true);
+		queryMaterialization = false;
+		temporaryJoinIndexes = false;
+		joinStatistics = new JoinStatistics();
+		statisticsFile = null;
+		codeGeneration = false;
+		fetchSize = 0;
+		nbThreads = 1;
+		batchSize = 0;
+		pipelineWorkers = 0;
+		pipelineBuffers = 16;
+		pipelineBufferRows = 256;
+		pipelineBatchSize = 1000;
+	}
+
+	/**
+	 * @return
+	 */
+	public JoinStrategy getJoinStrategy() {
+		return joinStrategy;
+	}
+
+	/**
+	 * @param joinStrategy
+	 */
+	public void setJoinStrategy(JoinStrategy joinStrategy) {
+		if (joinStrategy == null)
+			throw new IllegalStateException(
+					"[R2RMLEngine:setJoinStrategy] Join strategy have to be specified.");
+		this.joinStrategy = joinStrategy;
+	}
+
+	/**
+	 * @return
+	 */
+	public File getTemporaryDirectory() {
+		return temporaryDirectory;
+	}
+
+	/**
+	 * Directory where relations are spilled by grace hash join strategy
+	 * (default : java.io.tmpdir).
+	 * 
+	 * @param pathToTemporaryDirectory
+	 */
+	public void setTemporaryDirectory(String pathToTemporaryDirectory) {
+		File directory = new File(pathToTemporaryDirectory);
+		if (!directory.isDirectory())
+			throw new IllegalStateException(
+					"[R2RMLEngine:setTemporaryDirectory] Temporary directory does not exists : "
+							+ pathToTemporaryDirectory);
+		this.temporaryDirectory = directory;
+	}
+
+	/**
+	 * @return
+	 */
+	public long getJoinMemoryBudget() {
+		return joinMemoryBudget;
+	}
+
+	/**
+	 * Memory (in bytes) which can be used by grace hash join strategy to join
+	 * a partition (default : a quarter of the maximum heap size).
+	 * 
+	 * @param joinMemoryBudget
+	 */
+	public void setJoinMemoryBudget(long joinMemoryBudget) {
+		if (joinMemoryBudget <= 0)
+			throw new IllegalStateException(
+					"[R2RMLEngine:setJoinMemoryBudget] Memory budget must be positive.");
+		this.joinMemoryBudget = joinMemoryBudget;
+	}
+
+	/**
+	 * @return
+	 */
+	public int getLookupBatchSize() {
+		return lookupBatchSize;
+	}
+
+	/**
+	 * Number of distinct join keys resolved by each query of lookup join
+	 * strategy (default : 1000).
+	 * 
+	 * @param lookupBatchSize
+	 */
+	public void setLookupBatchSize(int lookupBatchSize) {
+		if (lookupBatchSize < 1)
+			throw new IllegalStateException(
+					"[R2RMLEngine:setLookupBatchSize] Batch size must be positive.");
+		this.lookupBatchSize = lookupBatchSize;
+	}
+
+	/**
+	 * @return
+	 */
+	public JoinStatistics getJoinStatistics() {
+		return joinStatistics;
+	}
+
+	/**
+	 * @return
+	 */
+	public File getStatisticsFile() {
+		return statisticsFile;
+	}
+
+	/**
+	 * File where the row counts of logical tables are kept from a run to the
+	 * next one, for the join planner (default : null, row counts are only
+	 * kept by this engine). Existing statistics are loaded.
+	 * 
+	 * @param pathToStatisticsFile
+	 */
+	public void setStatisticsFile(String pathToStatisticsFile) {
+		File file = new File(pathToStatisticsFile);
+		if (file.exists()) {
+			try {
+				joinStatistics.load(file);
+			} catch (IOException e) {
+				throw new IllegalStateException(
+						"[R2RMLEngine:setStatisticsFile] Statistics can not be read : "
+								+ e.getMessage(), e);
+			}
+		}
+		this.statisticsFile = file;
+	}
+
+	/**
+	 * @return
+	 */
+	public boolean isProjectionPushdown() {
+		return projection.isProjectionPushdown();
+	}
+
+	/**
+	 * If true (default), logical tables only select the columns referenced
+	 * by the mapping instead of all columns. SQL queries are wrapped in a
+	 * projection if they are SELECT queries.
+	 * 
+	 * @param projectionPushdown
+	 */
+	public void setProjectionPushdown(boolean projectionPushdown) {
+		projection.setProjectionPushdown(projectionPushdown);
+	}
+
+	/**
+	 * @return
+	 */
+	public boolean isQueryMaterialization() {
+		return queryMaterialization;
+	}
+
+	/**
+	 * If true, the SQL query of each parent logical table is run once at the
+	 * beginning of a run into a table of the database, indexed on its join
+	 * columns. Its scans and lookups read this table, which is dropped at
+	 * the end of the run. Default is false.
+	 * 
+	 * @param queryMaterialization
+	 */
+	public void setQueryMaterialization(boolean queryMaterialization) {
+		this.queryMaterialization = queryMaterialization;
+	}
+
+	/**
+	 * @return
+	 */
+	public boolean isTemporaryJoinIndexes() {
+		return temporaryJoinIndexes;
+	}
+
+	/**
+	 * If true, the indexes missing on the join columns of base tables (see
+	 * JoinIndexAdvisor) are created at the beginning of a run, before join
+	 * planning, and dropped at the end of the run. Default is false.
+	 * 
+	 * @param temporaryJoinIndexes
+	 */
+	public void setTemporaryJoinIndexes(boolean temporaryJoinIndexes) {
+		this.temporaryJoinIndexes = temporaryJoinIndexes;
+	}
+
+	/**
+	 * @return
+	 */
+	public int getFetchSize() {
+		return fetchSize;
+	}
+
+	/**
+	 * Number of rows fetched at once from logical tables. By default (0),
+	 * MySQL logical tables are streamed row by row when no other query is
+	 * run during their scan, and other databases use a fetch size of 1000.
+	 * A positive value is used as is (with MySQL, it requires the
+	 * useCursorFetch connection property).
+	 * 
+	 * @param fetchSize
+	 */
+	public void setFetchSize(int fetchSize) {
+		if (fetchSize < 0)
+			throw new IllegalStateException(
+					"[R2RMLEngine:setFetchSize] Fetch size must be positive.");
+		this.fetchSize = fetchSize;
+	}
+
+	/**
+	 * @return
+	 */
+	public int getNbThreads() {
+		return nbThreads;
+	}
+
+	/**
+	 * Number of triplesMaps extracted concurrently (default : 1). Each thread
+	 * uses its own connection, opened by the connection factory.
+	 * 
+	 * @param nbThreads
+	 */
+	public void setNbThreads(int nbThreads) {
+		if (nbThreads < 1)
+			throw new IllegalStateException(
+					"[R2RMLEngine:setNbThreads] Number of threads must be positive.");
+		this.nbThreads = nbThreads;
+	}
+
+	/**
+	 * @return
+	 */
+	public ConnectionFactory getConnectionFactory() {
+		return connectionFactory;
+	}
+
+	/**
+	 * Factory of the connections used by parallel extraction.
+	 * 
+	 * @param connectionFactory
+	 */
+	public void setConnectionFactory(ConnectionFactory connectionFactory) {
+		this.connectionFactory = connectionFactory;
+	}
+
+	/**
+	 * @return
+	 */
+	public boolean isCodeGeneration() {
+		return codeGeneration;
+	}
+
+	/**
+	 * If true, a specialized row mapper class is generated for each
+	 * triplesMap (requires a JDK). TriplesMaps are interpreted otherwise.
+	 * 
+	 * @param codeGeneration
+	 */
+	public void setCodeGeneration(boolean codeGeneration) {
+		this.codeGeneration = codeGeneration;
+	}
+
+	/**
+	 * @return
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Number of rows read and mapped at once, column by column (default : 0,
+	 * rows are mapped one by one). A batch mapper evaluates subjects and
+	 * predicateObjectMaps with a constant predicate over whole columns, and
+	 * replaces generated row mappers. A size of 1024 rows is a good
+	 * trade-off between memory and speed.
+	 * 
+	 * @param batchSize
+	 */
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 0)
+			throw new IllegalStateException(
+					"[R2RMLEngine:setBatchSize] Batch size must be positive.");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @return
+	 */
+	public int getPipelineWorkers() {
+		return pipelineWorkers;
+	}
+
+	/**
+	 * Number of threads which map the rows of a logical table read by
+	 * another thread, their triples being written by a third stage (default
+	 * : 0, rows are mapped by the reading thread). Logical tables which are
+	 * joined by nested loop, grace hash join or lookup join strategies are
+	 * never pipelined.
+	 * 
+	 * @param pipelineWorkers
+	 */
+	public void setPipelineWorkers(int pipelineWorkers) {
+		if (pipelineWorkers < 0)
+			throw new IllegalStateException(
+					"[R2RMLEngine:setPipelineWorkers] Number of workers must be positive.");
+		this.pipelineWorkers = pipelineWorkers;
+	}
+
+	/**
+	 * @return
+	 */
+	public int getPipelineBuffers() {
+		return pipelineBuffers;
+	}
+
+	/**
+	 * Number of column batches between the reader and the workers of a row
+	 * pipeline (default : 16). The reader waits for a free buffer when all
+	 * of them are full.
+	 * 
+	 * @param pipelineBuffers
+	 */
+	public void setPipelineBuffers(int pipelineBuffers) {
+		if (pipelineBuffers < 1)
+			throw new IllegalStateException(
+					"[R2RMLEngine:setPipelineBuffers] Number of buffers must be positive.");
+		this.pipelineBuffers = pipelineBuffers;
+	}
+
+	/**
+	 * @return
+	 */
+	public int getPipelineBufferRows() {
+		return pipelineBufferRows;
+	}
+
+	/**
+	 * Number of rows of a column batch of a row pipeline (default : 256).
+	 * It replaces batchSize for pipelined logical tables.
+	 * 
+	 * @param pipelineBufferRows
+	 */
+	public void setPipelineBufferRows(int pipelineBufferRows) {
+		if (pipelineBufferRows < 1)
+			throw new IllegalStateException(
+					"[R2RMLEngine:setPipelineBufferRows] Number of rows must be positive.");
+		this.pipelineBufferRows = pipelineBufferRows;
+	}
+
+	/**
+	 * @return
+	 */
+	public int getPipelineBatchSize() {
+		return pipelineBatchSize;
+	}
+
+	/**
+	 * Number of statements added to a dataset in one transaction by the
+	 * writer of a row pipeline or of an execution (default : 1000).
+	 * 
+	 * @param pipelineBatchSize
+	 */
+	public void setPipelineBatchSize(int pipelineBatchSize) {
+		if (pipelineBatchSize < 1)
+			throw new IllegalStateException(
+					"[R2RMLEngine:setPipelineBatchSize] Batch size must be positive.");
+		this.pipelineBatchSize = pipelineBatchSize;
 	}
 
 	/**
 	 * Execute R2RML Mapping from a R2RML file in order to generate a RDF
-	 * dataset. This dataset is built with Sesame API.
+	 * dataset. This dataset is built with Sesame API. The default connection
+	 * of this engine is used.
 	 * 
 	 * @param r2rmlMapping
 	 * @return
@@ -108,253 +597,1678 @@ public class R2RMLEngine {
 	 */
 	public SesameDataSet runR2RMLMapping(R2RMLMapping r2rmlMapping,
 			String pathToNativeStore) throws SQLException {
+		if (conn == null)
+			throw new IllegalStateException(
+					"[R2RMLEngine:runR2RMLMapping] This engine has no default "
+							+ "connection.");
+		return runR2RMLMapping(conn, r2rmlMapping, pathToNativeStore);
+	}
+
+	/**
+	 * Execute R2RML Mapping against a connection in order to generate a RDF
+	 * dataset. Each run has its own execution state : this engine and the
+	 * mapping can be shared by concurrent runs, with distinct connections.
+	 * Settings of this engine should not be changed during a run.
+	 * 
+	 * @param conn
+	 * @param r2rmlMapping
+	 * @param pathToNativeStore
+	 * @return
+	 * @throws SQLException
+	 */
+	public SesameDataSet runR2RMLMapping(Connection conn,
+			R2RMLMapping r2rmlMapping, String pathToNativeStore)
+			throws SQLException {
+		return runR2RMLMappings(conn,
+				Collections.singletonList(r2rmlMapping),
+				Collections.singletonList(pathToNativeStore)).get(0);
+	}
+
+	/**
+	 * Execute several R2RML mappings against a connection in one run : their
+	 * logical tables are grouped together, so a logical table used by
+	 * several mappings is scanned once, and the triples of each mapping are
+	 * added to its own dataset.
+	 * 
+	 * @param conn
+	 * @param r2rmlMappings
+	 * @param pathToNativeStores
+	 *            Native store of each mapping (null for a memory store)
+	 * @return Dataset of each mapping
+	 * @throws SQLException
+	 */
+	public List<SesameDataSet> runR2RMLMappings(Connection conn,
+			List<R2RMLMapping> r2rmlMappings, List<String> pathToNativeStores)
+			throws SQLException {
+		if (r2rmlMappings.size() != pathToNativeStores.size())
+			throw new IllegalStateException(
+					"[R2RMLEngine:runR2RMLMappings] One native store path (or "
+							+ "null) is required by mapping.");
 		if (log.isDebugEnabled())
-			log.debug("[R2RMLEngine:runR2RMLMapping] Run R2RML mapping... ");
-		SesameDataSet sesameDataSet = null;
-		// Check if use of native store is required
-		if (pathToNativeStore != null) {
-			if (log.isDebugEnabled())
-				log.debug("[R2RMLEngine:runR2RMLMapping] Use native store "
-						+ pathToNativeStore);
-			sesameDataSet = new SesameDataSet(pathToNativeStore, false);
-		} else {
-			sesameDataSet = new SesameDataSet();
+			log.debug("[R2RMLEngine:runR2RMLMappings] Run "
+					+ r2rmlMappings.size() + " R2RML mapping(s)... ");
+		List<SesameDataSet> sesameDataSets = new ArrayList<SesameDataSet>();
+		HashMap<TriplesMap, SesameDataSet> outputs = new HashMap<TriplesMap, SesameDataSet>();
+		List<TriplesMap> allTriplesMaps = new ArrayList<TriplesMap>();
+		for (int i = 0; i < r2rmlMappings.size(); i++) {
+			R2RMLMapping r2rmlMapping = r2rmlMappings.get(i);
+			String pathToNativeStore = pathToNativeStores.get(i);
+			SesameDataSet sesameDataSet = null;
+			// Check if use of native store is required
+			if (pathToNativeStore != null) {
+				if (log.isDebugEnabled())
+					log.debug("[R2RMLEngine:runR2RMLMappings] Use native store "
+							+ pathToNativeStore);
+				sesameDataSet = new SesameDataSet(pathToNativeStore, false);
+			} else {
+				sesameDataSet = new SesameDataSet();
+			}
+			sesameDataSets.add(sesameDataSet);
+			for (TriplesMap triplesMap : r2rmlMapping.getTriplesMaps()) {
+				if (outputs.containsKey(triplesMap))
+					throw new IllegalStateException(
+							"[R2RMLEngine:runR2RMLMappings] A triplesMap "
+									+ "belongs to several mappings.");
+				outputs.put(triplesMap, sesameDataSet);
+				allTriplesMaps.add(triplesMap);
+			}
 		}
+		// Parse templates and join conditions once per run
+		CompiledMapping compiledMapping = new CompiledMapping(allTriplesMaps);
 
-		// Explore R2RML Mapping TriplesMap objects
-		extractRDFFromTriplesMap(sesameDataSet, r2rmlMapping);
-
-		// Close connection to logical table
-		if (logicalTable != null) {
+		List<JoinIndexAdvisor.JoinIndex> temporaryIndexes = new ArrayList<JoinIndexAdvisor.JoinIndex>();
+		HashMap<String, String> materializedTables = new HashMap<String, String>();
+		QueryMaterializer materializer = new QueryMaterializer(conn);
+		try {
+			if (temporaryJoinIndexes) {
+				JoinIndexAdvisor advisor = new JoinIndexAdvisor(conn);
+				advisor.createIndexes(advisor.getMissingIndexes(allTriplesMaps),
+						temporaryIndexes);
+			}
+			// Choose join strategies of this run
+			HashMap<RefObjectMap, JoinStrategy> joinStrategies = planJoins(
+					conn, compiledMapping, allTriplesMaps);
+			List<List<TriplesMap>> triplesMaps = groupTriplesMapsByLogicalTable(
+					joinStrategies, allTriplesMaps);
+			if (queryMaterialization)
+				materializer.materializeLogicalTables(compiledMapping,
+						allTriplesMaps, materializedTables);
+			if (nbThreads > 1)
+				runParallelMapping(outputs, compiledMapping, joinStrategies,
+						materializedTables, triplesMaps);
+			else {
+				R2RMLExecution execution = new R2RMLExecution(conn);
+				execution.setCompiledMapping(compiledMapping);
+				execution.setJoinStrategies(joinStrategies);
+				execution.setMaterializedTables(materializedTables);
+				runMapping(execution, outputs,
+						new LinkedList<List<TriplesMap>>(triplesMaps));
+			}
+		} finally {
+			materializer.dropMaterializedTables(materializedTables);
+			if (!temporaryIndexes.isEmpty())
+				new JoinIndexAdvisor(conn).dropIndexes(temporaryIndexes);
+		}
+		saveJoinStatistics();
+		if (log.isDebugEnabled())
+			log.debug("[R2RMLEngine:runR2RMLMappings] R2RML mappings done. ");
+		return sesameDataSets;
+	}
 
-			logicalTable.getStatement().close();
-			logicalTable.close();
+	/**
+	 * Describe the execution plan of a R2RML mapping against a connection,
+	 * without running it (see R2RMLExplainer).
+	 * 
+	 * @param conn
+	 * @param r2rmlMapping
+	 * @return
+	 * @throws SQLException
+	 */
+	public String explainR2RMLMapping(Connection conn,
+			R2RMLMapping r2rmlMapping) throws SQLException {
+		return new R2RMLExplainer(this).explainR2RMLMapping(conn,
+				r2rmlMapping);
+	}
+
+	/**
+	 * Choose the join strategy of each RefObjectMap of some triplesMaps : the
+	 * join strategy of this engine, or the strategy chosen by a join planner
+	 * if it is AUTO.
+	 * 
+	 * @param conn
+	 * @param compiledMapping
+	 * @param triplesMaps
+	 * @return
+	 */
+	HashMap<RefObjectMap, JoinStrategy> planJoins(Connection conn,
+			CompiledMapping compiledMapping,
+			Collection<TriplesMap> triplesMaps) {
+		HashMap<RefObjectMap, JoinStrategy> joinStrategies = new HashMap<RefObjectMap, JoinStrategy>();
+		JoinPlanner planner = null;
+		if (joinStrategy == JoinStrategy.AUTO)
+			planner = new JoinPlanner(conn, joinStatistics, joinMemoryBudget);
+		for (TriplesMap triplesMap : triplesMaps)
+			for (RefPredicateObjectMap refPredicateObjectMap : triplesMap
+					.getRefPredicateObjectMaps()) {
+				RefObjectMap refObjectMap = refPredicateObjectMap
+						.getRefObjectMap();
+				if (planner == null) {
+					joinStrategies.put(refObjectMap, joinStrategy);
+					continue;
+				}
+				TriplesMap parentTriplesMap = refObjectMap
+						.getParentTriplesMap();
+				joinStrategies.put(refObjectMap, planner.plan(triplesMap,
+						LogicalTableProjection.getLogicalTableKey(triplesMap),
+						LogicalTableProjection.isProjectable(triplesMap),
+						parentTriplesMap, LogicalTableProjection
+								.getLogicalTableKey(parentTriplesMap),
+						compiledMapping.getJoinKeys(refObjectMap)
+								.getParentColumnNames()));
+			}
+		return joinStrategies;
+	}
+
+	/**
+	 * Returns the join strategy of a RefObjectMap in an execution.
+	 * 
+	 * @param execution
+	 * @param refObjectMap
+	 * @return
+	 */
+	private JoinStrategy getJoinStrategy(R2RMLExecution execution,
+			RefObjectMap refObjectMap) {
+		return execution.getJoinStrategies().get(refObjectMap);
+	}
+
+	/**
+	 * Save the join statistics if a statistics file is set. A failure does
+	 * not fail the run.
+	 */
+	private void saveJoinStatistics() {
+		if (statisticsFile == null)
+			return;
+		try {
+			joinStatistics.save(statisticsFile);
+		} catch (IOException e) {
+			if (log.isWarnEnabled())
+				log.warn("[R2RMLEngine:saveJoinStatistics] Statistics can not "
+						+ "be saved : " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Extract the groups of triplesMaps of a queue within an execution.
+	 * 
+	 * @param execution
+	 * @param outputs
+	 *            Dataset of each triplesMap
+	 * @param triplesMaps
+	 * @throws SQLException
+	 */
+	private void runMapping(R2RMLExecution execution,
+			HashMap<TriplesMap, SesameDataSet> outputs,
+			Queue<List<TriplesMap>> triplesMaps) throws SQLException {
+		Connection conn = execution.getConnection();
+		// Logical tables are read in one read-only transaction (required by
+		// some drivers to fetch rows progressively) : the mode of the
+		// connection is restored afterwards
+		boolean autoCommit = conn.getAutoCommit();
+		conn.setAutoCommit(false);
+		boolean committed = false;
+		try {
+			try {
+				if (execution.isMySQL() && fetchSize == 0)
+					// No query can be run during a streamed scan
+					execution.setTimeZone(SQLConnector.getTimeZone(conn));
+
+				// Explore R2RML Mapping TriplesMap objects
+				extractRDFFromTriplesMap(execution, outputs, triplesMaps);
+			} finally {
+				// Close logical tables, delete spilled relations and close
+				// lookup queries
+				execution.release();
+			}
+			conn.commit();
+			committed = true;
+		} finally {
+			if (committed)
+				conn.setAutoCommit(autoCommit);
+			else
+				rollback(conn, autoCommit);
+		}
+	}
+
+	/**
+	 * Roll back the transaction of a failed extraction and restore the
+	 * auto-commit mode of its connection. A failure is only logged : the
+	 * failure of the extraction is reported instead.
+	 * 
+	 * @param conn
+	 * @param autoCommit
+	 */
+	private void rollback(Connection conn, boolean autoCommit) {
+		try {
+			conn.rollback();
+		} catch (SQLException e) {
+			if (log.isWarnEnabled())
+				log.warn("[R2RMLEngine:rollback] Rollback failed : "
+						+ e.getMessage());
+		}
+		try {
+			conn.setAutoCommit(autoCommit);
+		} catch (SQLException e) {
+			if (log.isWarnEnabled())
+				log.warn("[R2RMLEngine:rollback] Auto-commit mode can not be "
+						+ "restored : " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Extract the groups of triplesMaps of a R2RML mapping with nbThreads
+	 * threads. Each thread runs its own execution, with its own connection,
+	 * and extracts groups of triplesMaps from a shared queue. Each thread
+	 * adds its triples to the datasets by batches of pipelineBatchSize
+	 * statements, in one transaction per batch (a Sesame repository is
+	 * thread-safe). If a thread fails, the queries of the others are
+	 * cancelled and all threads are stopped before its failure is thrown,
+	 * so that the tables and indexes of the run can be dropped.
+	 * 
+	 * @param outputs
+	 *            Dataset of each triplesMap
+	 * @param compiledMapping
+	 * @param joinStrategies
+	 * @param materializedTables
+	 * @param groups
+	 * @throws SQLException
+	 */
+	private void runParallelMapping(
+			final HashMap<TriplesMap, SesameDataSet> outputs,
+			final CompiledMapping compiledMapping,
+			final HashMap<RefObjectMap, JoinStrategy> joinStrategies,
+			final HashMap<String, String> materializedTables,
+			List<List<TriplesMap>> groups) throws SQLException {
+		if (connectionFactory == null)
+			throw new IllegalStateException(
+					"[R2RMLEngine:runParallelMapping] A connection factory is "
+							+ "required by parallel extraction.");
+		final Queue<List<TriplesMap>> triplesMaps = new ConcurrentLinkedQueue<List<TriplesMap>>(
+				groups);
+		int nbWorkers = Math.max(1, Math.min(nbThreads, triplesMaps.size()));
+		if (log.isDebugEnabled())
+			log.debug("[R2RMLEngine:runParallelMapping] Extract "
+					+ triplesMaps.size() + " logical tables with " + nbWorkers
+					+ " threads.");
+		ExecutorService executor = Executors.newFixedThreadPool(nbWorkers);
+		// Results are taken as threads end : the first failure is not
+		// delayed by other threads
+		CompletionService<Object> results = new ExecutorCompletionService<Object>(
+				executor);
+		final List<R2RMLExecution> executions = Collections
+				.synchronizedList(new ArrayList<R2RMLExecution>());
+		try {
+			for (int i = 0; i < nbWorkers; i++)
+				results.submit(new Callable<Object>() {
+
+					public Object call() throws Exception {
+						Connection workerConn = connectionFactory
+								.createConnection();
+						try {
+							R2RMLExecution execution = new R2RMLExecution(
+									workerConn);
+							executions.add(execution);
+							execution.setCompiledMapping(compiledMapping);
+							execution.setJoinStrategies(joinStrategies);
+							execution
+									.setMaterializedTables(materializedTables);
+							runMapping(execution, outputs, triplesMaps);
+						} finally {
+							workerConn.close();
+						}
+						return null;
+					}
+				});
+			for (int i = 0; i < nbWorkers; i++) {
+				try {
+					results.take().get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException(
+							"[R2RMLEngine:runParallelMapping] Interrupted extraction.");
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof SQLException)
+						throw (SQLException) cause;
+					if (cause instanceof RuntimeException)
+						throw (RuntimeException) cause;
+					throw new IllegalStateException(
+							"[R2RMLEngine:runParallelMapping] Extraction failed : "
+									+ cause.getMessage(), cause);
+				}
+			}
+		} finally {
+			// No other group is extracted and running queries are cancelled
+			triplesMaps.clear();
+			synchronized (executions) {
+				for (R2RMLExecution execution : executions)
+					execution.cancelStatements();
+			}
+			executor.shutdownNow();
+			awaitWorkers(executor);
+		}
+	}
+
+	/**
+	 * Wait until the threads of a stopped executor are terminated. A thread
+	 * which runs longer than workerTimeout seconds is only logged.
+	 * 
+	 * @param executor
+	 */
+	private void awaitWorkers(ExecutorService executor) {
+		try {
+			while (!executor.awaitTermination(workerTimeout, TimeUnit.SECONDS))
+				if (log.isWarnEnabled())
+					log.warn("[R2RMLEngine:awaitWorkers] Threads still running"
+							+ " after " + workerTimeout + " seconds.");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			if (log.isWarnEnabled())
+				log.warn("[R2RMLEngine:awaitWorkers] Interrupted : threads may"
+						+ " still be running.");
+		}
+	}
+
+	/**
+	 * Group the triplesMaps of a mapping by logical table : triplesMaps of a
+	 * group share one scan of their logical table. Logical tables are
+	 * equivalent if they read the same table or run the same SQL query (up
+	 * to white spaces and final semicolon). A logical table joined with its
+	 * parents by the database is never shared.
+	 * 
+	 * @param joinStrategies
+	 * @param triplesMaps
+	 * @return
+	 */
+	List<List<TriplesMap>> groupTriplesMapsByLogicalTable(
+			HashMap<RefObjectMap, JoinStrategy> joinStrategies,
+			Collection<TriplesMap> triplesMaps) {
+		List<List<TriplesMap>> groups = new ArrayList<List<TriplesMap>>();
+		HashMap<String, List<TriplesMap>> groupsByKey = new HashMap<String, List<TriplesMap>>();
+		for (TriplesMap triplesMap : new HashSet<TriplesMap>(triplesMaps)) {
+			List<TriplesMap> group = null;
+			String key = null;
+			if (!isJoinedLogicalTable(joinStrategies, triplesMap)) {
+				key = LogicalTableProjection.getLogicalTableKey(triplesMap);
+				group = groupsByKey.get(key);
+			}
+			if (group == null) {
+				group = new ArrayList<TriplesMap>();
+				groups.add(group);
+				if (key != null)
+					groupsByKey.put(key, group);
+			}
+			group.add(triplesMap);
+		}
+		if (log.isDebugEnabled())
+			log.debug("[R2RMLEngine:groupTriplesMapsByLogicalTable] "
+					+ groups.size() + " logical tables scanned for "
+					+ new HashSet<TriplesMap>(triplesMaps).size()
+					+ " triplesMaps.");
+		return groups;
+	}
+
+	/**
+	 * Returns true if the logical table of a triplesMap is joined with the
+	 * logical tables of some of its parents by the database.
+	 * 
+	 * @param joinStrategies
+	 * @param triplesMap
+	 * @return
+	 */
+	boolean isJoinedLogicalTable(
+			HashMap<RefObjectMap, JoinStrategy> joinStrategies,
+			TriplesMap triplesMap) {
+		for (RefPredicateObjectMap refPredicateObjectMap : triplesMap
+				.getRefPredicateObjectMaps()) {
+			JoinStrategy refJoinStrategy = joinStrategies
+					.get(refPredicateObjectMap.getRefObjectMap());
+			if (refJoinStrategy == JoinStrategy.SQL_PUSHDOWN)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Extract all RDF triples which are contained in the groups of
+	 * triplesMaps of a queue. The logical table of a group is read once and
+	 * each row is mapped by all triplesMaps of the group, into the dataset
+	 * of each triplesMap. Triples are added to a dataset by batches, and all
+	 * the triples of a group are written before the next group is read.
+	 * 
+	 * @param execution
+	 * @param outputs
+	 * @param triplesMaps
+	 * @throws SQLException
+	 */
+	private void extractRDFFromTriplesMap(R2RMLExecution execution,
+			HashMap<TriplesMap, SesameDataSet> outputs,
+			Queue<List<TriplesMap>> triplesMaps) throws SQLException {
+		if (log.isDebugEnabled())
+			log
+					.debug("[R2RMLEngine:extractRDFFromTriplesMap] Extract tripleMaps... ");
+		// Writer of each dataset, which adds triples by batches
+		IdentityHashMap<SesameDataSet, DataSetWriter> writers = new IdentityHashMap<SesameDataSet, DataSetWriter>();
+		List<TriplesMap> group = triplesMaps.poll();
+		for (; group != null; group = triplesMaps.poll()) {
+			if (log.isDebugEnabled())
+				log.debug("[R2RMLEngine:extractRDFFromTriplesMap]"
+						+ " ---- Extract " + group.size()
+						+ " triplesMap(s) from one logical table...");
+			boolean streamable = true;
+			boolean pipelined = true;
+			List<SesameDataSet> groupOutputs = new ArrayList<SesameDataSet>();
+			List<TripleSink> groupWriters = new ArrayList<TripleSink>();
+			for (TriplesMap triplesMap : group) {
+				SesameDataSet output = outputs.get(triplesMap);
+				groupOutputs.add(output);
+				if (!writers.containsKey(output))
+					writers.put(output, new DataSetWriter(output,
+							pipelineBatchSize));
+				groupWriters.add(writers.get(output));
+				// The writer of a pipeline fills one dataset
+				pipelined = pipelined && groupOutputs.get(0) == output;
+				// Index parent subjects before the scan of logical table
+				for (RefPredicateObjectMap refPredicateObjectMap : triplesMap
+						.getRefPredicateObjectMaps()) {
+					RefObjectMap refObjectMap = refPredicateObjectMap
+							.getRefObjectMap();
+					JoinStrategy refJoinStrategy = getJoinStrategy(execution,
+							refObjectMap);
+					if (refJoinStrategy == JoinStrategy.HASH_JOIN)
+						getParentSubjectIndex(execution, refObjectMap
+								.getParentTriplesMap(), getJoinKeys(execution,
+								refObjectMap).getParentColumnNames());
+				}
+				streamable = streamable && isStreamable(execution, triplesMap);
+				pipelined = pipelined && isPipelined(execution, triplesMap);
+			}
+			// Construct current logical table of this group
+			TriplesMap firstTriplesMap = group.get(0);
+			ResultSet logicalTable = null;
+			if (isJoinedLogicalTable(execution.getJoinStrategies(),
+					firstTriplesMap))
+				// Parent logical tables are joined by the database
+				logicalTable = constructJoinedLogicalTable(execution,
+						firstTriplesMap);
+			else
+				logicalTable = constructLogicalTable(execution,
+						firstTriplesMap, getReferencedColumns(execution, group),
+						streamable);
+			execution.setLogicalTable(logicalTable);
+			if (log.isDebugEnabled())
+				log.debug("[R2RMLEngine:extractRDFFromTriplesMap]"
+						+ " Extracted logicalTable : "
+						+ describeLogicalTable(logicalTable));
+			// Compile triplesMaps against their logical table
+			List<TriplesMapPlan> plans = new ArrayList<TriplesMapPlan>();
+			for (TriplesMap triplesMap : group)
+				plans.add(compileTriplesMapPlan(execution, triplesMap));
+			long nbRows = 0;
+			if (pipelined)
+				// Read, map and write rows in separate threads
+				nbRows = extractRDFFromPipeline(execution, plans, groupOutputs
+						.get(0));
+			else if (batchSize > 0)
+				// Read and map rows by column batches
+				nbRows = extractRDFFromBatches(execution, plans,
+						groupWriters);
+			else
+				// Explore each row contained in the logical table
+				while (logicalTable.next()) {
+					nbRows++;
+					for (int i = 0; i < plans.size(); i++)
+						extractRDFFromRow(execution, plans.get(i),
+								groupWriters.get(i));
+				}
+			if (!isJoinedLogicalTable(execution.getJoinStrategies(),
+					firstTriplesMap))
+				joinStatistics.setRowCount(LogicalTableProjection
+						.getLogicalTableKey(firstTriplesMap), nbRows);
+			// Release logical table before joins
+			closeLogicalTable(execution, logicalTable);
+			execution.setLogicalTable(null);
+			// Join spilled ref triples of this logical table
+			if (!execution.getChildRelations().isEmpty())
+				joinSpilledRefTriples(execution, group, groupWriters);
+			// Look up last buffered ref triples of this logical table
+			HashMap<RefObjectMap, LookupBatch> lookupBatches = execution
+					.getLookupBatches();
+			for (int i = 0; i < group.size(); i++)
+				for (RefPredicateObjectMap refPredicateObjectMap : group.get(i)
+						.getRefPredicateObjectMaps()) {
+					RefObjectMap refObjectMap = refPredicateObjectMap
+							.getRefObjectMap();
+					if (lookupBatches.containsKey(refObjectMap))
+						resolveLookupBatch(execution, groupWriters.get(i),
+								refObjectMap, lookupBatches.get(refObjectMap));
+				}
+			lookupBatches.clear();
+			// Triples of this logical table are written before the next one
+			for (DataSetWriter writer : writers.values())
+				writer.flush();
+		}
+		if (log.isDebugEnabled())
+			log.debug("[R2RMLEngine:extractRDFFromTriplesMap] "
+					+ "Extraction done.");
+	}
+
+	/**
+	 * Extract the RDF triples of current row of the logical table of an
+	 * execution.
+	 * 
+	 * @param execution
+	 * @param plan
+	 * @param sink
+	 * @throws SQLException
+	 */
+	private void extractRDFFromRow(R2RMLExecution execution,
+			TriplesMapPlan plan, TripleSink sink) throws SQLException {
+		ColumnAccessor row = execution.getCurrentRow();
+		ISubjectMap subjectMap = plan.getTriplesMap().getSubjectMap();
+		// Extract subject
+		Resource subject = extractSubjectFromSubjectMap(execution,
+				row, subjectMap, plan.getSubjectColumnIndex(), plan
+						.getSubjectTemplate());
+		if (subject == null) {
+			// No triple of this row has a subject
+			if (log.isWarnEnabled())
+				log.warn("[R2RMLEngine:extractRDFFromRow]"
+						+ " No subject extracted : this row will be ignored.");
+			return;
+		}
+		if (log.isDebugEnabled())
+			log.debug("[R2RMLEngine:extractRDFFromRow]"
+					+ " Resource subject extracted : " + subject);
+		// Extract graphs subject
+		Set<URI> subjectGraphs = plan.getSubjectGraphs();
+		if (subjectGraphs == null)
+			subjectGraphs = extractGraphFromSubjectMap(execution,
+					subjectMap, plan.getGraphColumnIndexes(), plan
+							.getGraphTemplates());
+		if (log.isDebugEnabled()) {
+			for (URI graph : subjectGraphs)
+				log.debug("[R2RMLEngine:extractRDFFromRow]"
+						+ " Resource graph subject extracted : "
+						+ graph);
+		}
+		// Construct class triple
+		if (plan.getRdfsClass() != null) {
+			URI type = plan.getRdfsClass();
+			if (subjectGraphs.isEmpty())
+				// Add to default graph...
+				sink.add(subject, rdfType, type);
+			else
+				// ...or to other graphs
+				for (URI graph : subjectGraphs) {
+					if (log.isDebugEnabled())
+						log
+								.debug("[R2RMLEngine:extractRDFFromRow]"
+										+ " Class subject extracted : "
+										+ type);
+					if (graph.equals(defaultGraph)) {
+						// Default graph <=> No context
+						sink.add(subject, rdfType, type);
+					} else {
+						sink.add(subject, rdfType, type,
+								graph);
+					}
+
+				}
+		}
+		// TODO : Use of subject inverse expression ?
+		// Extract predicates and objects
+		RowMapper rowMapper = plan.getRowMapper();
+		if (rowMapper != null)
+			rowMapper.mapRow(row, subject,
+					plan.getSubjectContexts() != null ? plan
+							.getSubjectContexts()
+							: getSubjectContexts(subjectGraphs), sink);
+		extractRDFFromPredicateObjectPlans(execution, plan, subject,
+				subjectGraphs, plan.getInterpretedPlans(), sink);
+	}
+
+	/**
+	 * Extract the RDF triples of interpreted predicateObjectMaps and of
+	 * refPredicateObjectMaps from current row of the logical table of an
+	 * execution.
+	 * 
+	 * @param execution
+	 * @param plan
+	 * @param subject
+	 * @param subjectGraphs
+	 * @param interpretedPlans
+	 * @param sink
+	 * @throws SQLException
+	 */
+	private void extractRDFFromPredicateObjectPlans(R2RMLExecution execution,
+			TriplesMapPlan plan, Resource subject, Set<URI> subjectGraphs,
+			List<TriplesMapPlan.PredicateObjectPlan> interpretedPlans,
+			TripleSink sink) throws SQLException {
+		for (TriplesMapPlan.PredicateObjectPlan predicateObjectPlan : interpretedPlans) {
+			// Extract graphs predicateObject
+			Set<URI> predicateObjectsGraphs = predicateObjectPlan
+					.getGraphs();
+			// Extract predicate
+			URI predicate = predicateObjectPlan.getPredicate();
+			if (predicate == null)
+				predicate = extractPredicateFromPredicateMap(execution,
+						predicateObjectPlan.getPredicateObjectMap()
+								.getPredicateMap(), predicateObjectPlan
+								.getPredicateColumnIndex(), predicateObjectPlan
+								.getPredicateTemplate());
+			if (predicate == null) {
+				if (log.isWarnEnabled())
+					log.warn("[R2RMLEngine:extractRDFFromRow] Predicate of"
+							+ " triple is null : this triple will be ignored.");
+				continue;
+			}
+			if (log.isDebugEnabled())
+				log.debug("[R2RMLEngine:extractRDFFromRow]"
+						+ " Resource predicate extracted : "
+						+ predicate);
+			// TODO : Use of predicate inverse expression ?
+			// Extract object
+			Value object = extractObjectFromObjectMap(execution,
+					predicateObjectPlan.getObjectMap(),
+					predicateObjectPlan.getDatatype(),
+					predicateObjectPlan.getObjectColumnIndex(),
+					predicateObjectPlan.getObjectTemplate());
+
+			if (object == null || object.stringValue() == null){
+				if (log.isWarnEnabled())
+					log
+							.warn("[R2RMLEngine:extractRDFFromRow] " +
+									"Object of triple is null : this triple will be ignored.");
+					continue;			
+			}
+			if (log.isDebugEnabled())
+				log.debug("[R2RMLEngine:extractRDFFromRow]"
+						+ " Resource object extracted : " + object);
+
+			// TODO : Use of object inverse expression ?
+
+			// Construct triple
+			if (subjectGraphs.isEmpty()) {
+				// No subject graph specified : use default graph
+				sink.add(subject, predicate, object);
+			} else {
+				// Add triple in the specified subject graphs
+				for (URI subjectGraph : subjectGraphs) {
+					if (subjectGraph.equals(defaultGraph)) {
+						// Default graph <=> No context
+						sink.add(subject, predicate, object);
+					} else {
+						sink.add(subject, predicate, object,
+								subjectGraph);
+					}
+				}
+			}
+			// Add triple in the specified predicate object map too
+			for (URI predicateObjectGraph : predicateObjectsGraphs) {
+				if (predicateObjectGraph.equals(defaultGraph)) {
+					// Default graph <=> No context
+					sink.add(subject, predicate, object);
+				} else {
+					sink.add(subject, predicate, object,
+							predicateObjectGraph);
+				}
+			}
+		}
+		// Extract ref predicates and ref objects
+		for (TriplesMapPlan.RefPredicateObjectPlan refPredicateObjectPlan : plan
+				.getRefPredicateObjectPlans()) {
+			RefObjectMap refObjectMap = refPredicateObjectPlan
+					.getRefObjectMap();
+			URI refPredicate = refPredicateObjectPlan.getPredicate();
+			List<URI> refContexts = refPredicateObjectPlan
+					.getContexts();
+			if (refContexts == null)
+				refContexts = getRefTripleContexts(subjectGraphs,
+						refPredicateObjectPlan.getGraphs());
+			JoinStrategy refJoinStrategy = refPredicateObjectPlan
+					.getJoinStrategy();
+			if (refJoinStrategy == JoinStrategy.GRACE_HASH_JOIN) {
+				// Ref object will be joined when the whole logical
+				// table has been read
+				spillRefTriple(execution, refPredicateObjectPlan, subject,
+						refPredicate, refContexts);
+				continue;
+			}
+			if (refJoinStrategy == JoinStrategy.LOOKUP_JOIN) {
+				// Ref object will be looked up with a batch of child
+				// rows
+				bufferRefTriple(execution, sink, refPredicateObjectPlan,
+						subject, refPredicate, refContexts);
+				continue;
+			}
+			// Extract ref object
+			Value refObject = extractObjectFromRefObjectMap(execution,
+					refPredicateObjectPlan);
+			
+			if (refObject == null){
+				if (log.isWarnEnabled())
+					log
+							.warn("[R2RMLEngine:extractRDFFromRow] " +
+									"RefObject of triple is null : this triple will be ignored.");
+					continue;			
+			}
+			if (log.isDebugEnabled())
+				log.debug("[R2RMLEngine:extractRDFFromRow] "
+						+ "Resource ref object extracted : "
+						+ refObject);
+			// Construct triple
+			addRefTriple(sink, subject, refPredicate,
+					refObject, refContexts);
+		}
+	}
+
+	/**
+	 * Returns true if the logical table of a triplesMap can be read, mapped
+	 * and written by a row pipeline. Nested loop, grace hash join and lookup
+	 * join strategies use the connection or buffer ref triples during the
+	 * scan.
+	 * 
+	 * @param execution
+	 * @param triplesMap
+	 * @return
+	 */
+	boolean isPipelined(R2RMLExecution execution,
+			TriplesMap triplesMap) {
+		if (pipelineWorkers == 0)
+			return false;
+		for (RefPredicateObjectMap refPredicateObjectMap : triplesMap
+				.getRefPredicateObjectMaps()) {
+			JoinStrategy refJoinStrategy = getJoinStrategy(execution,
+					refPredicateObjectMap.getRefObjectMap());
+			if (refJoinStrategy != JoinStrategy.HASH_JOIN
+					&& refJoinStrategy != JoinStrategy.SQL_PUSHDOWN)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Extract the RDF triples of the logical table of an execution with a
+	 * row pipeline : this thread reads the rows, pipelineWorkers threads map
+	 * them with all plans and a writer thread adds their triples to the
+	 * dataset. Each worker has its own execution, which shares the parent
+	 * subject indexes of this one.
+	 * 
+	 * @param execution
+	 * @param plans
+	 *            Plans of the triplesMaps sharing the logical table
+	 * @param sesameDataSet
+	 * @return Number of rows read
+	 * @throws SQLException
+	 */
+	private long extractRDFFromPipeline(R2RMLExecution execution,
+			final List<TriplesMapPlan> plans, SesameDataSet sesameDataSet)
+			throws SQLException {
+		ResultSet logicalTable = execution.getLogicalTable();
+		ColumnBatch batch = createColumnBatch(execution, plans,
+				pipelineBufferRows);
+		List<RowPipeline.BatchHandler> handlers = new ArrayList<RowPipeline.BatchHandler>();
+		for (int i = 0; i < pipelineWorkers; i++) {
+			final R2RMLExecution workerExecution = new R2RMLExecution(
+					execution);
+			final List<BatchMapper> batchMappers = new ArrayList<BatchMapper>();
+			for (TriplesMapPlan plan : plans)
+				batchMappers.add(createBatchMapper(plan, pipelineBufferRows));
+			final ColumnBatch.RowView rowView = new ColumnBatch.RowView();
+			handlers.add(new RowPipeline.BatchHandler() {
+
+				public void handleBatch(ColumnBatch batch, TripleSink sink)
+						throws SQLException {
+					for (int j = 0; j < plans.size(); j++)
+						extractRDFFromBatch(workerExecution, plans.get(j),
+								batchMappers.get(j), batch, rowView, sink);
+				}
+			});
+		}
+		return new RowPipeline(pipelineBuffers, pipelineBatchSize).run(
+				logicalTable, batch, handlers, sesameDataSet);
+	}
+
+	/**
+	 * Extract the RDF triples of the logical table of an execution batch by
+	 * batch : each batch is mapped by all plans.
+	 * 
+	 * @param execution
+	 * @param plans
+	 *            Plans of the triplesMaps sharing the logical table
+	 * @param outputs
+	 *            Writer of each plan
+	 * @return Number of rows read
+	 * @throws SQLException
+	 */
+	private long extractRDFFromBatches(R2RMLExecution execution,
+			List<TriplesMapPlan> plans, List<TripleSink> outputs)
+			throws SQLException {
+		ResultSet logicalTable = execution.getLogicalTable();
+		ColumnBatch batch = createColumnBatch(execution, plans, batchSize);
+		List<BatchMapper> batchMappers = new ArrayList<BatchMapper>();
+		for (TriplesMapPlan plan : plans)
+			batchMappers.add(createBatchMapper(plan, batchSize));
+		ColumnBatch.RowView rowView = new ColumnBatch.RowView();
+		long nbRows = 0;
+		int nbRead = batch.fill(logicalTable);
+		while (nbRead > 0) {
+			nbRows += nbRead;
+			for (int i = 0; i < plans.size(); i++)
+				extractRDFFromBatch(execution, plans.get(i), batchMappers
+						.get(i), batch, rowView, outputs.get(i));
+			if (nbRead < batch.getCapacity())
+				// Logical table is exhausted
+				break;
+			nbRead = batch.fill(logicalTable);
+		}
+		return nbRows;
+	}
+
+	/**
+	 * Extract the RDF triples of the rows of a column batch. Terms which are
+	 * not evaluated by the batch mapper are interpreted row by row, through
+	 * a view of the batch.
+	 * 
+	 * @param execution
+	 * @param plan
+	 * @param batchMapper
+	 *            Batch mapper of the plan (null if rows are mapped one by
+	 *            one)
+	 * @param batch
+	 * @param rowView
+	 * @param sink
+	 * @throws SQLException
+	 */
+	private void extractRDFFromBatch(R2RMLExecution execution,
+			TriplesMapPlan plan, BatchMapper batchMapper, ColumnBatch batch,
+			ColumnBatch.RowView rowView, TripleSink sink) throws SQLException {
+		ColumnAccessor currentRow = execution.getCurrentRow();
+		execution.setCurrentRow(rowView);
+		try {
+			if (batchMapper == null) {
+				for (int row = 0; row < batch.size(); row++) {
+					rowView.setRow(batch, row);
+					extractRDFFromRow(execution, plan, sink);
+				}
+				return;
+			}
+			Resource[] subjects = batchMapper.mapBatch(batch, execution
+					.getTimeZone(), sink);
+			List<TriplesMapPlan.PredicateObjectPlan> rowPlans = batchMapper
+					.getInterpretedPlans();
+			if (rowPlans.isEmpty()
+					&& plan.getRefPredicateObjectPlans().isEmpty())
+				return;
+			for (int row = 0; row < batch.size(); row++) {
+				if (subjects[row] == null)
+					// Row ignored by the batch mapper
+					continue;
+				rowView.setRow(batch, row);
+				extractRDFFromPredicateObjectPlans(execution, plan,
+						subjects[row], plan.getSubjectGraphs(), rowPlans, sink);
+			}
+		} finally {
+			execution.setCurrentRow(currentRow);
+		}
+	}
+
+	/**
+	 * Create an empty column batch for the logical table of an execution.
+	 * Besides strings, it captures the columns which are read as objects by
+	 * joins and as timestamps by date conversions in any of the plans.
+	 * 
+	 * @param execution
+	 * @param plans
+	 * @param capacity
+	 * @return
+	 * @throws SQLException
+	 */
+	private ColumnBatch createColumnBatch(R2RMLExecution execution,
+			List<TriplesMapPlan> plans, int capacity) throws SQLException {
+		ResultSet logicalTable = execution.getLogicalTable();
+		Set<Integer> objectColumns = new HashSet<Integer>();
+		Set<Integer> timestampColumns = new HashSet<Integer>();
+		for (TriplesMapPlan plan : plans) {
+			for (TriplesMapPlan.PredicateObjectPlan predicateObjectPlan : plan
+					.getPredicateObjectPlans()) {
+				XSDType datatype = predicateObjectPlan.getDatatype();
+				if (predicateObjectPlan.getObjectColumnIndex() > 0
+						&& datatype != null && XSDType.isDateType(datatype))
+					timestampColumns.add(predicateObjectPlan
+							.getObjectColumnIndex());
+			}
+			for (TriplesMapPlan.RefPredicateObjectPlan refPredicateObjectPlan : plan
+					.getRefPredicateObjectPlans()) {
+				if (refPredicateObjectPlan.getParentKeyColumnIndex() > 0)
+					objectColumns.add(refPredicateObjectPlan
+							.getParentKeyColumnIndex());
+				for (int childColumnIndex : refPredicateObjectPlan
+						.getChildColumnIndexes())
+					objectColumns.add(childColumnIndex);
+			}
+		}
+		if (!timestampColumns.isEmpty() && execution.getTimeZone() == null)
+			// Read before the scan
+			execution.setTimeZone(SQLConnector.getTimeZone(execution
+					.getConnection()));
+		return new ColumnBatch(logicalTable, capacity, objectColumns,
+				timestampColumns);
+	}
+
+	/**
+	 * Returns the batch mapper of a plan, or null if batch evaluation is
+	 * disabled or if subject graphs of the plan depend on rows.
+	 * 
+	 * @param plan
+	 * @param capacity
+	 * @return
+	 */
+	private BatchMapper createBatchMapper(TriplesMapPlan plan, int capacity) {
+		if (batchSize == 0 || plan.getSubjectGraphs() == null)
+			return null;
+		return new BatchMapper(plan, plan.getSubjectContexts(), capacity);
+	}
+
+	/**
+	 * Compile a triplesMap against its opened logical table : everything
+	 * which does not depend on rows is computed once.
+	 * 
+	 * @param execution
+	 * @param triplesMap
+	 * @return
+	 * @throws SQLException
+	 */
+	private TriplesMapPlan compileTriplesMapPlan(R2RMLExecution execution,
+			TriplesMap triplesMap) throws SQLException {
+		ResultSet logicalTable = execution.getLogicalTable();
+		ISubjectMap subjectMap = triplesMap.getSubjectMap();
+		URI rdfsClass = null;
+		if (subjectMap.getRdfsClass() != null)
+			rdfsClass = vf.createURI(subjectMap.getRdfsClass());
+		int subjectColumnIndex = resolveColumn(logicalTable, subjectMap
+				.getColumn(), "");
+		TriplesMapPlan.TemplatePlan subjectTemplate = resolveTemplate(execution,
+				logicalTable, subjectMap.getTemplate(), "");
+		int[] graphColumnIndexes = new int[0];
+		if (subjectMap.getGraphColumns() != null) {
+			graphColumnIndexes = new int[subjectMap.getGraphColumns().size()];
+			int i = 0;
+			for (String graphColumn : subjectMap.getGraphColumns())
+				graphColumnIndexes[i++] = logicalTable.findColumn(graphColumn);
+		}
+		List<TriplesMapPlan.TemplatePlan> graphTemplates = new ArrayList<TriplesMapPlan.TemplatePlan>();
+		if (subjectMap.getGraphTemplates() != null)
+			for (String graphTemplate : subjectMap.getGraphTemplates())
+				graphTemplates.add(resolveTemplate(execution, logicalTable,
+						graphTemplate, ""));
+		// Subject graphs are constant without graph columns and templates
+		Set<URI> subjectGraphs = null;
+		if (graphColumnIndexes.length == 0 && graphTemplates.isEmpty())
+			subjectGraphs = extractGraphFromSubjectMap(execution, subjectMap,
+					graphColumnIndexes, graphTemplates);
+		List<TriplesMapPlan.PredicateObjectPlan> predicateObjectPlans = new ArrayList<TriplesMapPlan.PredicateObjectPlan>();
+		for (PredicateObjectMap predicateObjectMap : triplesMap
+				.getPredicateObjectMaps()) {
+			PredicateMap predicateMap = predicateObjectMap.getPredicateMap();
+			int predicateColumnIndex = 0;
+			TriplesMapPlan.TemplatePlan predicateTemplate = null;
+			if (predicateMap.getPredicate() == null
+					&& predicateMap.getColumn() != null)
+				predicateColumnIndex = logicalTable.findColumn(predicateMap
+						.getColumn());
+			else if (predicateMap.getPredicate() == null)
+				predicateTemplate = resolveTemplate(execution, logicalTable,
+						predicateMap.getTemplate(), "");
+			ObjectMap objectMap = predicateObjectMap.getObjectMap();
+			int objectColumnIndex = 0;
+			TriplesMapPlan.TemplatePlan objectTemplate = null;
+			if (objectMap.getObject() == null && objectMap.getColumn() != null)
+				objectColumnIndex = logicalTable.findColumn(objectMap
+						.getColumn());
+			else if (objectMap.getObject() == null)
+				objectTemplate = resolveTemplate(execution, logicalTable,
+						objectMap.getTemplate(), "");
+			// Only rr:graph is used for predicateObjectMaps
+			predicateObjectPlans.add(new TriplesMapPlan.PredicateObjectPlan(
+					predicateObjectMap, predicateMap.getPredicate(),
+					predicateColumnIndex, predicateTemplate,
+					extractDatatypeFromObjectMap(execution, objectMap),
+					objectColumnIndex, objectTemplate,
+					copyGraphs(predicateObjectMap.getGraphs())));
+		}
+		List<TriplesMapPlan.RefPredicateObjectPlan> refPredicateObjectPlans = new ArrayList<TriplesMapPlan.RefPredicateObjectPlan>();
+		for (RefPredicateObjectMap refPredicateObjectMap : triplesMap
+				.getRefPredicateObjectMaps()) {
+			RefObjectMap refObjectMap = refPredicateObjectMap
+					.getRefObjectMap();
+			// Only rr:graph is used for refPredicateObjectMaps
+			Set<URI> graphs = copyGraphs(refPredicateObjectMap.getGraphs());
+			List<URI> contexts = null;
+			if (subjectGraphs != null)
+				contexts = getRefTripleContexts(subjectGraphs, graphs);
+			JoinKeys keys = getJoinKeys(execution, refObjectMap);
+			JoinStrategy refJoinStrategy = getJoinStrategy(execution,
+					refObjectMap);
+			int[] childColumnIndexes = new int[0];
+			int parentKeyColumnIndex = 0;
+			int parentSubjectColumnIndex = 0;
+			TriplesMapPlan.TemplatePlan parentSubjectTemplate = null;
+			String columnPrefix = execution.getParentColumnPrefixes().get(
+					refObjectMap);
+			if (refJoinStrategy != JoinStrategy.SQL_PUSHDOWN) {
+				childColumnIndexes = new int[keys.getChildColumnNames()
+						.size()];
+				for (int i = 0; i < childColumnIndexes.length; i++)
+					childColumnIndexes[i] = logicalTable.findColumn(keys
+							.getChildColumnNames().get(i));
+			} else if (columnPrefix != null) {
+				// Parent subject is built from the prefixed columns of a
+				// parent logical table joined by the database
+				ISubjectMap parentSubjectMap = refObjectMap
+						.getParentTriplesMap().getSubjectMap();
+				parentKeyColumnIndex = resolveColumn(logicalTable, keys
+						.getParentColumnNames().get(0), columnPrefix);
+				parentSubjectColumnIndex = resolveColumn(logicalTable,
+						parentSubjectMap.getColumn(), columnPrefix);
+				parentSubjectTemplate = resolveTemplate(execution, logicalTable,
+						parentSubjectMap.getTemplate(), columnPrefix);
+			}
+			// Parent subjects are indexed before the scan of logical table
+			ParentSubjectIndex parentSubjectIndex = null;
+			if (refJoinStrategy == JoinStrategy.HASH_JOIN)
+				parentSubjectIndex = getParentSubjectIndex(execution,
+						refObjectMap.getParentTriplesMap(), keys
+								.getParentColumnNames());
+			refPredicateObjectPlans
+					.add(new TriplesMapPlan.RefPredicateObjectPlan(
+							refObjectMap,
+							extractPredicateFromRefPredicateMap(refPredicateObjectMap
+									.getRefPredicateMap()), graphs, keys,
+							refJoinStrategy, childColumnIndexes,
+							parentSubjectIndex, contexts, parentKeyColumnIndex,
+							parentSubjectColumnIndex, parentSubjectTemplate));
+		}
+		if (log.isDebugEnabled())
+			log.debug("[R2RMLEngine:compileTriplesMapPlan] Compiled "
+					+ predicateObjectPlans.size() + " predicateObjectMaps and "
+					+ refPredicateObjectPlans.size()
+					+ " refPredicateObjectMaps (constant subject graphs : "
+					+ (subjectGraphs != null) + ")");
+		Resource[] subjectContexts = null;
+		if (subjectGraphs != null)
+			subjectContexts = getSubjectContexts(subjectGraphs);
+		TriplesMapPlan plan = new TriplesMapPlan(triplesMap, rdfsClass,
+				subjectColumnIndex, subjectTemplate, subjectGraphs,
+				graphColumnIndexes, graphTemplates, subjectContexts,
+				predicateObjectPlans, refPredicateObjectPlans);
+		if (codeGeneration)
+			// Generate row mapper of this plan
+			plan.setRowMapper(getRowMapperCompiler().compile(plan));
+		return plan;
+	}
+
+	/**
+	 * Returns the contexts of subject graphs. A null context stands for the
+	 * default graph.
+	 * 
+	 * @param subjectGraphs
+	 * @return
+	 */
+	private Resource[] getSubjectContexts(Set<URI> subjectGraphs) {
+		if (subjectGraphs.isEmpty())
+			// No subject graph specified : use default graph
+			return new Resource[] { null };
+		Resource[] contexts = new Resource[subjectGraphs.size()];
+		int i = 0;
+		for (URI subjectGraph : subjectGraphs) {
+			if (subjectGraph.equals(defaultGraph))
+				// Default graph <=> No context
+				contexts[i] = null;
+			else
+				contexts[i] = subjectGraph;
+			i++;
+		}
+		return contexts;
+	}
+
+	private Set<URI> copyGraphs(Set<URI> graphs) {
+		HashSet<URI> result = new HashSet<URI>();
+		if (graphs != null)
+			result.addAll(graphs);
+		return result;
+	}
+
+	/**
+	 * Returns the contexts of a triple generated by a refPredicateObjectMap.
+	 * A null context stands for the default graph.
+	 * 
+	 * @param subjectGraphs
+	 * @param refPredicateObjectsGraphs
+	 * @return
+	 */
+	private List<URI> getRefTripleContexts(Set<URI> subjectGraphs,
+			Set<URI> refPredicateObjectsGraphs) {
+		List<URI> contexts = new ArrayList<URI>();
+		if (subjectGraphs.isEmpty()) {
+			// No subject graph specified : use default graph
+			contexts.add(null);
+		} else {
+			// Add triple in the specified subject graphs
+			for (URI subjectGraph : subjectGraphs) {
+				if (subjectGraph.equals(defaultGraph))
+					// Default graph <=> No context
+					contexts.add(null);
+				else
+					contexts.add(subjectGraph);
+			}
+		}
+		// Add triple in the specified predicate object map too
+		// TODO : verifier ce comportement
+		contexts.addAll(refPredicateObjectsGraphs);
+		return contexts;
+	}
+
+	/**
+	 * Add a triple generated by a refPredicateObjectMap in each of its
+	 * contexts.
+	 * 
+	 * @param sink
+	 * @param subject
+	 * @param refPredicate
+	 * @param refObject
+	 * @param contexts
+	 */
+	private void addRefTriple(TripleSink sink, Resource subject,
+			URI refPredicate, Value refObject, List<URI> contexts) {
+		for (URI context : contexts) {
+			if (context == null)
+				sink.add(subject, refPredicate, refObject);
+			else
+				sink.add(subject, refPredicate, refObject, context);
+		}
+	}
+
+	/**
+	 * Lookup join : buffer a ref triple of current row with its join column
+	 * values. Buffered ref triples are resolved when their batch reaches the
+	 * lookup batch size.
+	 * 
+	 * @param execution
+	 * @param sink
+	 * @param refPredicateObjectPlan
+	 * @param subject
+	 * @param refPredicate
+	 * @param contexts
+	 * @throws SQLException
+	 */
+	private void bufferRefTriple(R2RMLExecution execution,
+			TripleSink sink,
+			TriplesMapPlan.RefPredicateObjectPlan refPredicateObjectPlan,
+			Resource subject, URI refPredicate, List<URI> contexts)
+			throws SQLException {
+		ColumnAccessor row = execution.getCurrentRow();
+		RefObjectMap refObjectMap = refPredicateObjectPlan.getRefObjectMap();
+		List<Object> key = new ArrayList<Object>();
+		for (int childColumnIndex : refPredicateObjectPlan
+				.getChildColumnIndexes()) {
+			Object childValue = row.getObject(childColumnIndex);
+			if (childValue == null) {
+				// NULL never matches in a join condition
+				if (log.isWarnEnabled())
+					log.warn("[R2RMLEngine:bufferRefTriple] No result for"
+							+ " the join condition : "
+							+ refObjectMap.getJoinCondition());
+				return;
+			}
+			key.add(childValue);
+		}
+		LookupBatch lookupBatch = execution.getLookupBatches().get(
+				refObjectMap);
+		if (lookupBatch == null) {
+			lookupBatch = new LookupBatch();
+			execution.getLookupBatches().put(refObjectMap, lookupBatch);
+		}
+		lookupBatch.add(key, subject, refPredicate, contexts);
+		if (lookupBatch.size() >= getLookupBatchSize(execution, key.size()))
+			resolveLookupBatch(execution, sink, refObjectMap, lookupBatch);
+	}
+
+	/**
+	 * Returns the number of keys of a lookup query. Without row value
+	 * constructors, a composite key gives one disjunct per key : the batch
+	 * is limited to lookupDisjunctionSize keys.
+	 * 
+	 * @param execution
+	 * @param keyColumnCount
+	 * @return
+	 * @throws SQLException
+	 */
+	int getLookupBatchSize(R2RMLExecution execution, int keyColumnCount)
+			throws SQLException {
+		if (keyColumnCount == 1 || execution.isRowValueSupported())
+			return lookupBatchSize;
+		return Math.min(lookupBatchSize, lookupDisjunctionSize);
+	}
+
+	/**
+	 * Lookup join : retrieve the parent rows of the distinct keys of a batch
+	 * with one query, then add its ref triples to the dataset. A full batch
+	 * uses the prepared query of its refObjectMap, a partial batch (the last
+	 * one of a logical table) a query with its exact number of keys.
+	 * 
+	 * @param execution
+	 * @param sink
+	 * @param refObjectMap
+	 * @param lookupBatch
+	 * @throws SQLException
+	 */
+	private void resolveLookupBatch(R2RMLExecution execution,
+			TripleSink sink, RefObjectMap refObjectMap,
+			LookupBatch lookupBatch) throws SQLException {
+		if (lookupBatch.isEmpty())
+			return;
+		TriplesMap parentTriplesMap = refObjectMap.getParentTriplesMap();
+		List<String> parentColumnNames = getJoinKeys(execution, refObjectMap)
+				.getParentColumnNames();
+		boolean partial = lookupBatch.size() < getLookupBatchSize(execution,
+				parentColumnNames.size());
+		PreparedStatement lookupStatement = null;
+		if (partial) {
+			lookupStatement = execution.getConnection().prepareStatement(
+					getLookupQuery(execution, refObjectMap,
+							parentColumnNames, lookupBatch.size()));
+			execution.registerStatement(lookupStatement);
+		} else
+			lookupStatement = getLookupStatement(execution, refObjectMap,
+					parentColumnNames);
+		int parameterIndex = 1;
+		for (List<Object> key : lookupBatch.getKeys())
+			for (Object value : key)
+				lookupStatement.setObject(parameterIndex++, value);
+		// Index parent subjects of this batch
+		ParentSubjectIndex index = new ParentSubjectIndex();
+		ResultSet parentRows = lookupStatement.executeQuery();
+		int parentSubjectColumnIndex = resolveColumn(parentRows,
+				parentTriplesMap.getSubjectMap().getColumn(), "");
+		TriplesMapPlan.TemplatePlan parentSubjectTemplate = resolveTemplate(
+				execution, parentRows, parentTriplesMap.getSubjectMap()
+				.getTemplate(), "");
+		ColumnAccessor parentRow = new ResultSetAccessor(parentRows);
+		while (parentRows.next()) {
+			List<Object> key = new ArrayList<Object>();
+			for (String parentColumnName : parentColumnNames)
+				key.add(parentRows.getObject(parentColumnName));
+			index.put(key, extractSubjectFromSubjectMap(execution, parentRow,
+					parentTriplesMap.getSubjectMap(), parentSubjectColumnIndex,
+					parentSubjectTemplate));
+		}
+		parentRows.close();
+		if (partial)
+			execution.closeStatement(lookupStatement);
+		if (log.isDebugEnabled())
+			log.debug("[R2RMLEngine:resolveLookupBatch] " + index.size()
+					+ " parent subjects found for " + lookupBatch.size()
+					+ " keys of join condition : "
+					+ refObjectMap.getJoinCondition());
+		for (LookupBatch.PendingRefTriple refTriple : lookupBatch
+				.getRefTriples()) {
+			Resource refObject = index.get(refTriple.getKey());
+			if (refObject == null) {
+				if (log.isWarnEnabled())
+					log.warn("[R2RMLEngine:resolveLookupBatch] No result for"
+							+ " the join condition : "
+							+ refObjectMap.getJoinCondition());
+				continue;
+			}
+			addRefTriple(sink, refTriple.getSubject(), refTriple
+					.getPredicate(), refObject, refTriple.getContexts());
+		}
+		lookupBatch.clear();
+	}
+
+	/**
+	 * Returns the prepared lookup query of a refObjectMap. This query
+	 * selects the rows of the parent logical table which match with one of
+	 * the keys of a full batch.
+	 * 
+	 * @param execution
+	 * @param refObjectMap
+	 * @param parentColumnNames
+	 * @return
+	 * @throws SQLException
+	 */
+	private PreparedStatement getLookupStatement(R2RMLExecution execution,
+			RefObjectMap refObjectMap, List<String> parentColumnNames)
+			throws SQLException {
+		PreparedStatement lookupStatement = execution.getLookupStatements().get(
+				refObjectMap);
+		if (lookupStatement != null)
+			return lookupStatement;
+		if (log.isDebugEnabled())
+			log.debug("[R2RMLEngine:getLookupStatement] Prepare lookup query of"
+					+ " join condition : " + refObjectMap.getJoinCondition());
+		lookupStatement = execution.getConnection().prepareStatement(
+				getLookupQuery(execution, refObjectMap, parentColumnNames,
+						getLookupBatchSize(execution, parentColumnNames
+								.size())));
+		execution.registerStatement(lookupStatement);
+		execution.getLookupStatements().put(refObjectMap, lookupStatement);
+		return lookupStatement;
+	}
+
+	/**
+	 * Returns the lookup query of a refObjectMap with a number of keys. Join
+	 * columns are quoted. A composite key uses a row value constructor if
+	 * the database supports it, or else a disjunction of conjunctions.
+	 * 
+	 * @param execution
+	 * @param refObjectMap
+	 * @param parentColumnNames
+	 * @param keyCount
+	 * @return
+	 * @throws SQLException
+	 */
+	String getLookupQuery(R2RMLExecution execution,
+			RefObjectMap refObjectMap, List<String> parentColumnNames,
+			int keyCount) throws SQLException {
+		TriplesMap parentTriplesMap = refObjectMap.getParentTriplesMap();
+		StringBuffer query = new StringBuffer("SELECT "
+				+ projection.getProjection(execution, parentTriplesMap,
+						getReferencedColumns(execution, parentTriplesMap),
+						lookupAlias)
+				+ " FROM "
+				+ LogicalTableProjection.getLogicalTableReference(execution,
+						parentTriplesMap) + " " + lookupAlias + " WHERE ");
+		List<String> parentColumns = new ArrayList<String>();
+		for (String parentColumnName : parentColumnNames)
+			parentColumns.add(LogicalTableProjection.getColumnReference(
+					execution, parentTriplesMap, parentColumnName,
+					lookupAlias));
+		if (parentColumns.size() == 1 || execution.isRowValueSupported()) {
+			// IN list of values or of row values
+			String value = "?";
+			if (parentColumns.size() > 1) {
+				StringBuffer row = new StringBuffer("(");
+				for (int j = 0; j < parentColumns.size(); j++)
+					row.append(j == 0 ? "?" : ", ?");
+				value = row.append(")").toString();
+				query.append("(");
+			}
+			for (int j = 0; j < parentColumns.size(); j++)
+				query.append((j == 0 ? "" : ", ") + parentColumns.get(j));
+			query.append(parentColumns.size() > 1 ? ") IN (" : " IN (");
+			for (int i = 0; i < keyCount; i++)
+				query.append((i == 0 ? "" : ", ") + value);
+			query.append(")");
+		} else {
+			// Disjunction of conjunctions
+			for (int i = 0; i < keyCount; i++) {
+				if (i > 0)
+					query.append(" OR ");
+				query.append("(");
+				for (int j = 0; j < parentColumns.size(); j++) {
+					if (j > 0)
+						query.append(" AND ");
+					query.append(parentColumns.get(j) + " = ?");
+				}
+				query.append(")");
+			}
+		}
+		return query.toString();
+	}
+
+	/**
+	 * Grace hash join : spill a ref triple of current row with its join
+	 * column values. Its ref object is resolved by joinSpilledRefTriples.
+	 * 
+	 * @param execution
+	 * @param refPredicateObjectPlan
+	 * @param subject
+	 * @param refPredicate
+	 * @param contexts
+	 * @throws SQLException
+	 */
+	private void spillRefTriple(R2RMLExecution execution,
+			TriplesMapPlan.RefPredicateObjectPlan refPredicateObjectPlan,
+			Resource subject, URI refPredicate, List<URI> contexts)
+			throws SQLException {
+		ColumnAccessor row = execution.getCurrentRow();
+		RefObjectMap refObjectMap = refPredicateObjectPlan.getRefObjectMap();
+		List<String> key = new ArrayList<String>();
+		for (int childColumnIndex : refPredicateObjectPlan
+				.getChildColumnIndexes()) {
+			String childValue = row.getString(childColumnIndex);
+			if (childValue == null) {
+				// NULL never matches in a join condition
+				if (log.isWarnEnabled())
+					log.warn("[R2RMLEngine:spillRefTriple] No result for"
+							+ " the join condition : "
+							+ refObjectMap.getJoinCondition());
+				return;
+			}
+			key.add(childValue);
+		}
+		List<String> values = new ArrayList<String>();
+		values.add(encodeValue(subject));
+		values.add(encodeValue(refPredicate));
+		for (URI context : contexts)
+			values.add(encodeValue(context));
+		try {
+			SpilledRelation childRelation = execution.getChildRelations().get(
+					refObjectMap);
+			if (childRelation == null) {
+				childRelation = new SpilledRelation(temporaryDirectory,
+						joinPartitions, 0);
+				execution.getChildRelations().put(refObjectMap, childRelation);
+			}
+			childRelation.add(key, values);
+		} catch (IOException e) {
+			throw new IllegalStateException(
+					"[R2RMLEngine:spillRefTriple] Unable to spill ref triple : "
+							+ e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Grace hash join : join the ref triples spilled from current logical
+	 * table with their parent logical tables and add them to the dataset of
+	 * their triplesMap.
+	 * 
+	 * @param execution
+	 * @param triplesMaps
+	 *            TriplesMaps of current logical table
+	 * @param outputs
+	 *            Writer of each triplesMap
+	 * @throws SQLException
+	 */
+	private void joinSpilledRefTriples(R2RMLExecution execution,
+			List<TriplesMap> triplesMaps, List<TripleSink> outputs)
+			throws SQLException {
+		GraceHashJoin graceHashJoin = new GraceHashJoin(joinMemoryBudget);
+		try {
+			for (int i = 0; i < triplesMaps.size(); i++)
+				for (RefPredicateObjectMap refPredicateObjectMap : triplesMaps
+						.get(i).getRefPredicateObjectMaps()) {
+					RefObjectMap refObjectMap = refPredicateObjectMap
+							.getRefObjectMap();
+					if (execution.getChildRelations().containsKey(refObjectMap))
+						joinSpilledRefTriples(execution, graceHashJoin,
+								refObjectMap, outputs.get(i));
+				}
+		} catch (IOException e) {
+			throw new IllegalStateException(
+					"[R2RMLEngine:joinSpilledRefTriples] Out-of-core join failed : "
+							+ e.getMessage(), e);
+		} finally {
+			for (SpilledRelation childRelation : execution.getChildRelations()
+					.values())
+				childRelation.delete();
+			execution.getChildRelations().clear();
+		}
+	}
+
+	/**
+	 * Grace hash join : join the ref triples of a RefObjectMap spilled from
+	 * current logical table with its parent logical table.
+	 * 
+	 * @param execution
+	 * @param graceHashJoin
+	 * @param refObjectMap
+	 * @param sink
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	private void joinSpilledRefTriples(R2RMLExecution execution,
+			GraceHashJoin graceHashJoin, RefObjectMap refObjectMap,
+			final TripleSink sink) throws SQLException, IOException {
+		final String joinCondition = refObjectMap.getJoinCondition();
+		SpilledRelation parentRelation = getParentSpilledRelation(execution,
+				refObjectMap.getParentTriplesMap(), getJoinKeys(execution,
+				refObjectMap).getParentColumnNames());
+		graceHashJoin.join(parentRelation, execution.getChildRelations().get(
+				refObjectMap), new GraceHashJoin.JoinHandler() {
+
+			public void handleMatch(List<String> childValues,
+					List<String> parentValues) {
+				Value refObject = decodeValue(parentValues.get(0));
+				if (refObject == null) {
+					handleNoMatch(null, childValues);
+					return;
+				}
+				List<URI> contexts = new ArrayList<URI>();
+				for (int i = 2; i < childValues.size(); i++)
+					contexts.add((URI) decodeValue(childValues.get(i)));
+				addRefTriple(sink, (Resource) decodeValue(childValues
+						.get(0)), (URI) decodeValue(childValues.get(1)),
+						refObject, contexts);
+			}
+
+			public void handleNoMatch(List<String> childKey,
+					List<String> childValues) {
+				if (log.isWarnEnabled())
+					log.warn("[R2RMLEngine:joinSpilledRefTriples] No result for"
+							+ " the join condition : " + joinCondition);
+			}
+		});
+	}
+
+	/**
+	 * Returns the parent logical table spilled on disk for a parent
+	 * triplesMap and its join columns. If it does not exist yet, the parent
+	 * logical table is scanned once in order to spill it.
+	 * 
+	 * @param execution
+	 * @param parentTriplesMap
+	 * @param parentColumnNames
+	 * @return
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	private SpilledRelation getParentSpilledRelation(R2RMLExecution execution,
+			TriplesMap parentTriplesMap, List<String> parentColumnNames)
+			throws SQLException, IOException {
+		HashMap<List<String>, SpilledRelation> relations = execution
+				.getParentRelations().get(parentTriplesMap);
+		if (relations == null) {
+			relations = new HashMap<List<String>, SpilledRelation>();
+			execution.getParentRelations().put(parentTriplesMap, relations);
+		}
+		SpilledRelation relation = relations.get(parentColumnNames);
+		if (relation != null)
+			return relation;
+		relation = new SpilledRelation(temporaryDirectory, joinPartitions, 0);
+		relations.put(parentColumnNames, relation);
+		ResultSet parentLogicalTable = constructLogicalTable(execution,
+				parentTriplesMap);
+		int parentSubjectColumnIndex = resolveColumn(parentLogicalTable,
+				parentTriplesMap.getSubjectMap().getColumn(), "");
+		TriplesMapPlan.TemplatePlan parentSubjectTemplate = resolveTemplate(
+				execution, parentLogicalTable, parentTriplesMap.getSubjectMap()
+				.getTemplate(), "");
+		ColumnAccessor parentRow = new ResultSetAccessor(parentLogicalTable);
+		long nbRows = 0;
+		while (parentLogicalTable.next()) {
+			nbRows++;
+			List<String> key = new ArrayList<String>();
+			for (String parentColumnName : parentColumnNames) {
+				String parentValue = parentLogicalTable
+						.getString(parentColumnName);
+				if (parentValue == null) {
+					// NULL never matches in a join condition
+					key = null;
+					break;
+				}
+				key.add(parentValue);
+			}
+			if (key == null)
+				continue;
+			List<String> values = new ArrayList<String>();
+			values.add(encodeValue(extractSubjectFromSubjectMap(execution,
+					parentRow, parentTriplesMap.getSubjectMap(),
+					parentSubjectColumnIndex, parentSubjectTemplate)));
+			relation.add(key, values);
 		}
-		if (log.isDebugEnabled())
-			log.debug("[R2RMLEngine:runR2RMLMapping] R2RML mapping done. ");
-		return sesameDataSet;
+		closeLogicalTable(execution, parentLogicalTable);
+		joinStatistics.setRowCount(LogicalTableProjection
+				.getLogicalTableKey(parentTriplesMap), nbRows);
+		relation.close();
+		return relation;
 	}
 
 	/**
-	 * Extract all RDF triples which are contained in triplesMap of a R2RML
-	 * Mapping object.
+	 * Encode a resource in a spilled relation.
 	 * 
-	 * @param sesameDataSet
-	 * @param r2rmlMapping
-	 * @throws SQLException
+	 * @param value
+	 * @return
 	 */
-	private void extractRDFFromTriplesMap(SesameDataSet sesameDataSet,
-			R2RMLMapping r2rmlMapping) throws SQLException {
-		if (log.isDebugEnabled())
-			log
-					.debug("[R2RMLEngine:extractRDFFromTriplesMap] Extract tripleMaps... ");
-		HashSet<TriplesMap> triplesMaps = new HashSet<TriplesMap>(r2rmlMapping
-				.getTriplesMaps());
-		for (TriplesMap triplesMap : triplesMaps) {
-			if (log.isDebugEnabled())
-				log.debug("[R2RMLEngine:extractRDFFromTriplesMap]"
-						+ " ---- Extract triplesMap...");
-			// Construct current logical table of this triplesMap
-			logicalTable = constructLogicalTable(triplesMap);
-			if (log.isDebugEnabled())
-				log.debug("[R2RMLEngine:extractRDFFromTriplesMap]"
-						+ " Extracted logicalTable : "
-						+ printLogicalTable(logicalTable));
-			// Explore each row contained in the logical table
-			while (logicalTable.next()) {
-				// Extract subject
-				ISubjectMap subjectMap = triplesMap.getSubjectMap();
-				Resource subject = extractSubjectFromSubjectMap(logicalTable,
-						subjectMap);
-				if (subject == null) {
-					/*
-					 * throw new IllegalStateException(
-					 * "[R2RMLEngine:extractRDFFromTriplesMap]" +
-					 * " No subject extracted.");
-					 */
-					if (log.isWarnEnabled())
-						log.warn("[R2RMLEngine:extractRDFFromTriplesMap]"
-								+ " No subject extracted.");
-				}
-				if (log.isDebugEnabled())
-					log.debug("[R2RMLEngine:extractRDFFromTriplesMap]"
-							+ " Resource subject extracted : " + subject);
-				// Extract graphs subject
-				Set<URI> subjectGraphs = extractGraphFromSubjectMap(subjectMap);
-				if (log.isDebugEnabled()) {
-					for (URI graph : subjectGraphs)
-						log.debug("[R2RMLEngine:extractRDFFromTriplesMap]"
-								+ " Resource graph subject extracted : "
-								+ graph);
-				}
-				// Construct class triple
-				if (subjectMap.getRdfsClass() != null) {
-					URI predicate = vf.createURI(prefix.get("rdf"), "type");
-					Value type = vf.createURI(subjectMap.getRdfsClass());
-					if (subjectGraphs.isEmpty())
-						// Add to default graph...
-						sesameDataSet.add(subject, predicate, type);
-					else
-						// ...or to other graphs
-						for (URI graph : subjectGraphs) {
-							if (log.isDebugEnabled())
-								log
-										.debug("[R2RMLEngine:extractRDFFromTriplesMap]"
-												+ " Class subject extracted : "
-												+ type);
-							if (graph.equals(vf.createURI(prefix.get("rr")
-									+ R2RMLVocabulary.DEFAULT_GRAPH_OBJ))) {
-								// Default graph <=> No context
-								sesameDataSet.add(subject, predicate, type);
-							} else {
-								sesameDataSet.add(subject, predicate, type,
-										graph);
-							}
-
-						}
-				}
-				// TODO : Use of subject inverse expression ?
-				// Extract predicates and objects
-				for (PredicateObjectMap predicateObjectMap : triplesMap
-						.getPredicateObjectMaps()) {
-					// Extract graphs predicateObject
-					Set<URI> predicateObjectsGraphs = extractGraphFromPredicateObjectMap(predicateObjectMap);
-					if (log.isDebugEnabled()) {
-						for (URI graph : predicateObjectsGraphs)
-							log.debug("[R2RMLEngine:extractRDFFromTriplesMap]"
-									+ " Resource graph predicateObjectsGraphs "
-									+ "extracted : " + graph);
-					}
-					// Extract predicate
-					URI predicate = extractPredicateFromPredicateMap(predicateObjectMap
-							.getPredicateMap());
-					if (log.isDebugEnabled())
-						log.debug("[R2RMLEngine:extractRDFFromTriplesMap]"
-								+ " Resource predicate extracted : "
-								+ predicate);
-					// TODO : Use of predicate inverse expression ?
-					// Extract object
-					// Extract object properties
-					ObjectMap objectMap = predicateObjectMap.getObjectMap();
-					XSDType datatype = extractDatatypeFromObjectMap(objectMap);
-					Value object = extractObjectFromObjectMap(objectMap,
-							datatype);
-
-					if (object.stringValue() == null){
-						if (log.isWarnEnabled())
-							log
-									.warn("R2RMLEngine:extractRDFFromTriplesMap] " +
-											"Object of triple is null : this triple will be ignored.");
-							continue;			
-					}
-					if (log.isDebugEnabled())
-						log.debug("[R2RMLEngine:extractRDFFromTriplesMap]"
-								+ " Resource object extracted : " + object);
-
-					// TODO : Use of object inverse expression ?
+	private static String encodeValue(Value value) {
+		if (value == null)
+			return "N";
+		if (value instanceof BNode)
+			return "B" + ((BNode) value).getID();
+		return "U" + value.stringValue();
+	}
 
-					// Construct triple
-					if (subjectGraphs.isEmpty()) {
-						// No subject graph specified : use default graph
-						sesameDataSet.add(subject, predicate, object);
-					} else {
-						// Add triple in the specified subject graphs
-						for (URI subjectGraph : subjectGraphs) {
-							if (subjectGraph.equals(defaultGraph)) {
-								// Default graph <=> No context
-								sesameDataSet.add(subject, predicate, object);
-							} else {
-								sesameDataSet.add(subject, predicate, object,
-										subjectGraph);
-							}
-						}
-					}
-					// Add triple in the specified predicate object map too
-					for (URI predicateObjectGraph : predicateObjectsGraphs) {
-						if (predicateObjectGraph.equals(defaultGraph)) {
-							// Default graph <=> No context
-							sesameDataSet.add(subject, predicate, object);
-						} else {
-							sesameDataSet.add(subject, predicate, object,
-									predicateObjectGraph);
-						}
-					}
-				}
-				// Extract ref predicates and ref objects
-				for (RefPredicateObjectMap refPredicateObjectMap : triplesMap
-						.getRefPredicateObjectMaps()) {
-					// Extract properties
-					Set<URI> refPredicateObjectsGraphs = extractGraphFromRefPredicateObjectMap(refPredicateObjectMap);
-					if (log.isDebugEnabled()) {
-						for (URI graph : refPredicateObjectsGraphs)
-							log
-									.debug("[R2RMLEngine:extractRDFFromTriplesMap]"
-											+ " Resource graph refPredicateObjects extracted : "
-											+ graph);
-					}
-					// Extract ref predicate
-					URI refPredicate = extractPredicateFromRefPredicateMap(refPredicateObjectMap
-							.getRefPredicateMap());
-					if (log.isDebugEnabled())
-						log.debug("[R2RMLEngine:extractRDFFromTriplesMap] "
-								+ "URI ref predicate extracted : "
-								+ refPredicate);
-					// Extract ref object
-					Value refObject = extractObjectFromRefObjectMap(refPredicateObjectMap
-							.getRefObjectMap());
-					
-					if (refObject == null){
-						if (log.isWarnEnabled())
-							log
-									.warn("R2RMLEngine:extractRDFFromTriplesMap] " +
-											"RefObject of triple is null : this triple will be ignored.");
-							continue;			
-					}
-					if (log.isDebugEnabled())
-						log.debug("[R2RMLEngine:extractRDFFromTriplesMap] "
-								+ "Resource ref object extracted : "
-								+ refObject);
-					// Construct triple
-					if (subjectGraphs.isEmpty()) {
-						// No subject graph specified : use default graph
-						sesameDataSet.add(subject, refPredicate, refObject);
-					} else {
-						// Add triple in the specified subject graphs
-						for (URI subjectGraph : subjectGraphs) {
-							if (subjectGraph.equals(defaultGraph)) {
-								// Default graph <=> No context
-								sesameDataSet.add(subject, refPredicate,
-										refObject);
-							} else {
-								sesameDataSet.add(subject, refPredicate,
-										refObject, subjectGraph);
-							}
-						}
-					}
-					// Add triple in the specified predicate object map too
-					// TODO : verifier ce comportement
-					for (URI refPredicateObjectGraph : refPredicateObjectsGraphs) {
-						sesameDataSet.add(subject, refPredicate, refObject,
-								refPredicateObjectGraph);
-					}
-				}
-			}
+	/**
+	 * Decode a resource from a spilled relation.
+	 * 
+	 * @param encodedValue
+	 * @return
+	 */
+	private static Value decodeValue(String encodedValue) {
+		switch (encodedValue.charAt(0)) {
+		case 'B':
+			return vf.createBNode(encodedValue.substring(1));
+		case 'U':
+			return vf.createURI(encodedValue.substring(1));
+		default:
+			return null;
 		}
-		if (log.isDebugEnabled())
-			log.debug("[R2RMLEngine:extractRDFFromTriplesMap] "
-					+ "Extraction done.");
 	}
 
 	/**
 	 * Extract datatype from an objectMap. This datatype can be already defined
 	 * in object Map or it can be deducted from the database.
 	 * 
+	 * @param execution
 	 * @param objectMap
 	 * @return
 	 * @throws SQLException
 	 */
-	private XSDType extractDatatypeFromObjectMap(ObjectMap objectMap)
-			throws SQLException {
+	private XSDType extractDatatypeFromObjectMap(R2RMLExecution execution,
+			ObjectMap objectMap) throws SQLException {
+		ResultSet logicalTable = execution.getLogicalTable();
 		XSDType datatype = objectMap.getDatatype();
 
 		String column = objectMap.getColumn();
@@ -382,100 +2296,43 @@ public class R2RMLEngine {
 	}
 
 	/**
-	 * Extract graphs URI from an predicateObjectMap. These graphs can provide
-	 * from different sources (rr:graph, rr:graphColumn or rr:graphTemplate).
-	 * 
-	 * @param predicateObjectMap
-	 * @return
-	 * @throws SQLException
-	 */
-	private Set<URI> extractGraphFromPredicateObjectMap(
-			PredicateObjectMap predicateObjectMap) throws SQLException {
-		HashSet<URI> result = new HashSet<URI>();
-		// Check graph properties
-		Set<URI> graphs = predicateObjectMap.getGraphs();
-		if (graphs != null)
-			// Graph already defined by user
-			for (URI graph : graphs)
-				result.add(graph);
-
-		Set<String> graphColumns = predicateObjectMap.getGraphColumns();
-		if (graphColumns != null) {
-			// Extract graph from column name
-			for (String graph : graphColumns)
-				result.add(vf.createURI(logicalTable.getString(graph)));
-		}
-
-		Set<String> graphTemplates = predicateObjectMap.getGraphTemplates();
-		if (graphTemplates != null) {
-			for (String graphTemplate : graphTemplates) {
-				// Extract graph from template
-				// Replace curly braces contents
-				String graphResult = replaceColumnNames(logicalTable,
-						graphTemplate);
-				result.add(vf.createURI(graphResult));
-			}
-		}
-		return graphs;
-	}
-
-	/**
-	 * Extract graphs URI from an refPredicateObjectMap. These graphs can
-	 * provide from different sources (rr:graph, rr:graphColumn or
-	 * rr:graphTemplate).
+	 * Construct a parent logical table. It is entirely read before any other
+	 * query is run, so it can be streamed.
 	 * 
-	 * @param predicateObjectMap
-	 * @return
+	 * @param execution
+	 * @param triplesMap
 	 * @throws SQLException
 	 */
-	private Set<URI> extractGraphFromRefPredicateObjectMap(
-			RefPredicateObjectMap refPredicateObjectMap) throws SQLException {
-		HashSet<URI> result = new HashSet<URI>();
-		// Check graph properties
-		Set<URI> graphs = refPredicateObjectMap.getGraphs();
-		if (graphs != null)
-			// Graph already defined by user
-			for (URI graph : graphs)
-				result.add(graph);
-
-		Set<String> graphColumns = refPredicateObjectMap.getGraphColumns();
-		if (graphColumns != null) {
-			// Extract graph from column name
-			for (String graph : graphColumns)
-				result.add(vf.createURI(logicalTable.getString(graph)));
-		}
-
-		Set<String> graphTemplates = refPredicateObjectMap.getGraphTemplates();
-		if (graphTemplates != null) {
-			for (String graphTemplate : graphTemplates) {
-				// Extract graph from template
-				// Replace curly braces contents
-				String graphResult = replaceColumnNames(logicalTable,
-						graphTemplate);
-				result.add(vf.createURI(graphResult));
-			}
-		}
-		return graphs;
+	private ResultSet constructLogicalTable(R2RMLExecution execution,
+			TriplesMap triplesMap) throws SQLException {
+		return constructLogicalTable(execution, triplesMap,
+				getReferencedColumns(execution, triplesMap), true);
 	}
 
 	/**
-	 * Construct logical table. Note : Run SQL Query against database calling
-	 * the method Connection.commit can close the ResultSet objects that have
-	 * been created during the current transaction. In some cases, however, this
-	 * may not be the desired behavior. The ResultSet property holdability gives
-	 * the application control over whether ResultSet objects (cursors) are
-	 * closed when commit is called.
+	 * Construct logical table. Logical tables are read-only and read forward
+	 * once, within the transaction of the mapping : they are fetched
+	 * progressively instead of being loaded in memory.
 	 * 
+	 * @param execution
 	 * @param triplesMap
+	 * @param columnNames
+	 *            Columns read from the logical table
+	 * @param streamable
+	 *            True if no other query is run during the scan of this logical
+	 *            table
 	 * @throws SQLException
 	 */
-	private ResultSet constructLogicalTable(TriplesMap triplesMap)
+	private ResultSet constructLogicalTable(R2RMLExecution execution,
+			TriplesMap triplesMap, Set<String> columnNames, boolean streamable)
 			throws SQLException {
 		ResultSet rs = null;
-		java.sql.Statement s = conn.createStatement(
-				ResultSet.HOLD_CURSORS_OVER_COMMIT, ResultSet.CONCUR_READ_ONLY);
+		String query = projection.getLogicalTableQuery(execution, triplesMap,
+				columnNames);
+		java.sql.Statement s = createLogicalTableStatement(execution,
+				streamable);
 		if (triplesMap.getSQLQuery() != null) {
-			s.executeQuery(triplesMap.getSQLQuery());
+			s.executeQuery(query);
 			rs = s.getResultSet();
 			if (rs == null)
 				throw new IllegalStateException(
@@ -491,25 +2348,201 @@ public class R2RMLEngine {
 							+ " Table owner not specified. "
 							+ "Default mode : TODO");
 			// Run generic SQL Query against database
-			s.executeQuery("SELECT * FROM " + triplesMap.getTableName());
+			s.executeQuery(query);
 			rs = s.getResultSet();
 		}
-		// Commit to held logical table (read-only)
-		conn.setAutoCommit(false);
-		conn.commit();
 		return rs;
 	}
 
+	/**
+	 * Create a forward-only and read-only statement with a fetch size
+	 * appropriate for the driver. It is registered by the execution, which
+	 * can cancel it.
+	 * 
+	 * @param execution
+	 * @param streamable
+	 *            True if no other query is run while its result set is read
+	 * @return
+	 * @throws SQLException
+	 */
+	private java.sql.Statement createLogicalTableStatement(
+			R2RMLExecution execution, boolean streamable) throws SQLException {
+		java.sql.Statement s = execution.getConnection().createStatement(
+				ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		execution.registerStatement(s);
+		if (fetchSize > 0)
+			s.setFetchSize(fetchSize);
+		else if (!execution.isMySQL())
+			s.setFetchSize(defaultFetchSize);
+		else if (streamable)
+			// MySQL driver streams rows one by one with this value only
+			s.setFetchSize(Integer.MIN_VALUE);
+		return s;
+	}
+
+	/**
+	 * Returns true if no other query is run during the scan of the logical
+	 * table of a triplesMap, i.e. its ref objects are not resolved by
+	 * queries.
+	 * 
+	 * @param execution
+	 * @param triplesMap
+	 * @return
+	 */
+	private boolean isStreamable(R2RMLExecution execution,
+			TriplesMap triplesMap) {
+		for (RefPredicateObjectMap refPredicateObjectMap : triplesMap
+				.getRefPredicateObjectMaps()) {
+			switch (getJoinStrategy(execution, refPredicateObjectMap
+					.getRefObjectMap())) {
+			case HASH_JOIN:
+			case SQL_PUSHDOWN:
+			case GRACE_HASH_JOIN:
+				break;
+
+			default:
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Construct logical table of a triplesMap joined with the logical tables
+	 * of its parent triplesMaps. Each RefObjectMap resolved by SQL pushdown
+	 * strategy becomes a LEFT JOIN built
+	 * from its join condition, and the columns required by the parent
+	 * subjectMap are returned as extra columns prefixed by the parent alias.
+	 * 
+	 * @param execution
+	 * @param triplesMap
+	 * @return
+	 * @throws SQLException
+	 */
+	private ResultSet constructJoinedLogicalTable(R2RMLExecution execution,
+			TriplesMap triplesMap) throws SQLException {
+		String query = getJoinedLogicalTableQuery(execution, triplesMap);
+		if (log.isDebugEnabled())
+			log.debug("[R2RMLEngine:constructJoinedLogicalTable] SQL request : "
+					+ query);
+		java.sql.Statement s = createLogicalTableStatement(execution, true);
+		ResultSet rs = s.executeQuery(query);
+		return rs;
+	}
+
+	/**
+	 * Returns the SQL query of the logical table of a triplesMap joined with
+	 * the logical tables of its parent triplesMaps, and registers the column
+	 * prefix of each parent in the execution.
+	 * 
+	 * @param execution
+	 * @param triplesMap
+	 * @return
+	 * @throws SQLException
+	 */
+	String getJoinedLogicalTableQuery(R2RMLExecution execution,
+			TriplesMap triplesMap) throws SQLException {
+		execution.getParentColumnPrefixes().clear();
+		StringBuffer selectClause = new StringBuffer("SELECT "
+				+ projection.getProjection(execution, triplesMap,
+						getReferencedColumns(execution, triplesMap),
+						childAlias));
+		StringBuffer fromClause = new StringBuffer(" FROM "
+				+ LogicalTableProjection.getLogicalTableReference(execution,
+						triplesMap) + " " + childAlias);
+		int cpt = 0;
+		for (RefPredicateObjectMap refPredicateObjectMap : triplesMap
+				.getRefPredicateObjectMaps()) {
+			RefObjectMap refObjectMap = refPredicateObjectMap
+					.getRefObjectMap();
+			JoinStrategy refJoinStrategy = getJoinStrategy(execution,
+					refObjectMap);
+			if (refJoinStrategy != JoinStrategy.SQL_PUSHDOWN)
+				// Resolved by another strategy
+				continue;
+			TriplesMap parentTriplesMap = refObjectMap.getParentTriplesMap();
+			String parentAlias = parentAliasPrefix + cpt;
+			cpt++;
+			List<String> parentColumnNames = getJoinKeys(execution,
+					refObjectMap).getParentColumnNames();
+			List<String> childColumnNames = getJoinKeys(execution, refObjectMap)
+					.getChildColumnNames();
+			// Join condition
+			fromClause.append(" LEFT JOIN "
+					+ LogicalTableProjection.getLogicalTableReference(
+							execution, parentTriplesMap) + " " + parentAlias
+					+ " ON ");
+			for (int i = 0; i < parentColumnNames.size(); i++) {
+				if (i > 0)
+					fromClause.append(" AND ");
+				fromClause.append(childAlias + "." + childColumnNames.get(i)
+						+ " = " + parentAlias + "." + parentColumnNames.get(i));
+			}
+			// Parent subject columns (first join column is always selected :
+			// it is null when no parent row matches)
+			Set<String> parentSubjectColumnNames = new HashSet<String>();
+			parentSubjectColumnNames.add(parentColumnNames.get(0));
+			ISubjectMap parentSubjectMap = parentTriplesMap.getSubjectMap();
+			if (parentSubjectMap.getColumn() != null)
+				parentSubjectColumnNames.add(parentSubjectMap.getColumn());
+			parentSubjectColumnNames.addAll(R2RMLToolkit
+					.extractColumnNamesFromTemplate(parentSubjectMap
+							.getTemplate()));
+			for (String parentSubjectColumnName : parentSubjectColumnNames)
+				selectClause.append(", " + parentAlias + "."
+						+ parentSubjectColumnName + " AS " + parentAlias + "_"
+						+ parentSubjectColumnName);
+			execution.getParentColumnPrefixes().put(refObjectMap, parentAlias
+					+ "_");
+		}
+		return selectClause.toString() + fromClause.toString();
+	}
+
+	/**
+	 * Returns the columns read from the logical table of a triplesMap.
+	 * 
+	 * @param execution
+	 * @param triplesMap
+	 * @return
+	 */
+	private Set<String> getReferencedColumns(R2RMLExecution execution,
+			TriplesMap triplesMap) {
+		return execution.getCompiledMapping().getReferencedColumns(
+				triplesMap);
+	}
+
+	/**
+	 * Returns the columns read from the logical table shared by a group of
+	 * triplesMaps.
+	 * 
+	 * @param execution
+	 * @param triplesMaps
+	 * @return
+	 */
+	private Set<String> getReferencedColumns(R2RMLExecution execution,
+			List<TriplesMap> triplesMaps) {
+		return execution.getCompiledMapping().getReferencedColumns(
+				triplesMaps);
+	}
+
 	/**
 	 * Extract graphs URI from an subjectMap. These graphs can provide from
 	 * different sources (rr:graph, rr:graphColumn or rr:graphTemplate).
 	 * 
+	 * @param execution
 	 * @param subjectMap
+	 * @param graphColumnIndexes
+	 *            Indexes of graph columns in the logical table
+	 * @param graphTemplates
+	 *            Graph templates resolved against the logical table
 	 * @return
 	 * @throws SQLException
 	 */
-	private Set<URI> extractGraphFromSubjectMap(ISubjectMap subjectMap)
+	private Set<URI> extractGraphFromSubjectMap(R2RMLExecution execution,
+			ISubjectMap subjectMap, int[] graphColumnIndexes,
+			List<TriplesMapPlan.TemplatePlan> graphTemplates)
 			throws SQLException {
+		ColumnAccessor row = execution.getCurrentRow();
 		HashSet<URI> result = new HashSet<URI>();
 		// Check graph properties
 		Set<URI> graphs = subjectMap.getGraphs();
@@ -518,23 +2551,17 @@ public class R2RMLEngine {
 			for (URI graph : graphs)
 				result.add(graph);
 
-		Set<String> graphColumns = subjectMap.getGraphColumns();
-		if (graphColumns != null) {
-			// Extract graph from column name
-			for (String graph : graphColumns) {
-				result.add(vf.createURI(logicalTable.getString(graph)));
-			}
-		}
+		// Extract graph from column name
+		for (int graphColumnIndex : graphColumnIndexes)
+			result.add(vf.createURI(row.getString(graphColumnIndex)));
 
-		Set<String> graphTemplates = subjectMap.getGraphTemplates();
-		if (graphTemplates != null) {
-			for (String graphTemplate : graphTemplates) {
-				// Extract graph from template
-				// Replace curly braces contents
-				String graphResult = replaceColumnNames(logicalTable,
-						graphTemplate);
+		for (TriplesMapPlan.TemplatePlan graphTemplate : graphTemplates) {
+			// Extract graph from template
+			// Replace curly braces contents
+			String graphResult = graphTemplate.render(row,
+					execution.getTemplateBuffer());
+			if (graphResult != null)
 				result.add(vf.createURI(graphResult));
-			}
 		}
 		return result;
 	}
@@ -543,34 +2570,45 @@ public class R2RMLEngine {
 	 * Extract resource subject from a subjectMap object. This resource can be
 	 * extracted from different sources (rr:subject, rr:column or rr:template).
 	 * 
-	 * @param logicalTable
+	 * @param execution
+	 * @param row
 	 * @param subjectMap
+	 * @param subjectColumnIndex
+	 *            Index of rr:column in the logical table (0 if none)
+	 * @param subjectTemplate
+	 *            Subject template resolved against the logical table
 	 * @return
 	 * @throws SQLException
 	 */
-	private Resource extractSubjectFromSubjectMap(ResultSet logicalTable,
-			ISubjectMap subjectMap) throws SQLException {
+	private Resource extractSubjectFromSubjectMap(R2RMLExecution execution,
+			ColumnAccessor row, ISubjectMap subjectMap,
+			int subjectColumnIndex, TriplesMapPlan.TemplatePlan subjectTemplate)
+			throws SQLException {
 		// Check properties
 		Resource subject = subjectMap.getSubject();
 		if (subject != null)
 			// Subject already defined by user
 			return subject;
 
-		String column = subjectMap.getColumn();
-		if ((column != null) && (logicalTable.getString(column) != null)) {
+		String columnValue = null;
+		if (subjectColumnIndex > 0)
+			columnValue = row.getString(subjectColumnIndex);
+		if (columnValue != null) {
 			// Extract subject from column name
 			// Check term type
 			if (subjectMap.getTermType().equals(TermType.BLANK_NODE))
-				return vf.createBNode(logicalTable.getString(column));
+				return vf.createBNode(columnValue);
 			else
-				return vf.createURI(logicalTable.getString(column));
+				return vf.createURI(columnValue);
 		}
-		String template = subjectMap.getTemplate();
-		String result = template;
-		if (template != null) {
+		if (subjectTemplate != null) {
 			// Extract subject from template
 			// Replace curly braces contents
-			result = replaceColumnNames(logicalTable, template);
+			String result = subjectTemplate.render(row, execution
+					.getTemplateBuffer());
+			if (result == null)
+				// A NULL column value generates no subject
+				return null;
 			return vf.createURI(result);
 		}
 		return null;
@@ -582,13 +2620,20 @@ public class R2RMLEngine {
 	 * This object is associated with a datatype. If datatype is null, no type
 	 * is associated with object.
 	 * 
-	 * @param logicalTable
-	 * @param subjectMap
+	 * @param execution
+	 * @param objectMap
+	 * @param datatype
+	 * @param columnIndex
+	 *            Index of rr:column in the logical table
+	 * @param objectTemplate
+	 *            Object template resolved against the logical table
 	 * @return
 	 * @throws SQLException
 	 */
-	private Value extractObjectFromObjectMap(ObjectMap objectMap,
-			XSDType datatype) throws SQLException {
+	private Value extractObjectFromObjectMap(R2RMLExecution execution,
+			ObjectMap objectMap, XSDType datatype, int columnIndex,
+			TriplesMapPlan.TemplatePlan objectTemplate) throws SQLException {
+		ColumnAccessor row = execution.getCurrentRow();
 		// Check properties
 		Value object = objectMap.getObject();
 		if (object != null)
@@ -600,7 +2645,7 @@ public class R2RMLEngine {
 		if (column != null) {
 			// Extract subject from column name
 			// Check term type
-			String columnValue = logicalTable.getString(column);
+			String columnValue = row.getString(columnIndex);
 			
 			if (objectMap.getTermType().equals(TermType.BLANK_NODE))
 				return vf.createBNode(columnValue);
@@ -610,11 +2655,14 @@ public class R2RMLEngine {
 					// If a xsd date format is required by user the column value
 					// have
 					// be XSD-valid.
-					long timestamp = logicalTable.getTimestamp(column)
+					long timestamp = row.getTimestamp(columnIndex)
 							.getTime();
-					String timeZone = SQLConnector.getTimeZone(conn);
+					if (execution.getTimeZone() == null)
+						execution.setTimeZone(SQLConnector.getTimeZone(execution
+								.getConnection()));
 					columnValue = SQLConnector.dateToISO8601(SQLConnector
-							.timestampToDate(timestamp), timeZone);
+							.timestampToDate(timestamp), execution
+							.getTimeZone());
 				}
 				if (datatype != null)
 					return vf.createLiteral(columnValue, vf.createURI(prefix
@@ -627,12 +2675,14 @@ public class R2RMLEngine {
 			} else
 				return vf.createURI(columnValue);
 		}
-		String template = objectMap.getTemplate();
-		String result = template;
-		if (template != null) {
+		if (objectTemplate != null) {
 			// Extract subject from template
 			// Replace curly braces contents
-			result = replaceColumnNames(logicalTable, template);
+			String result = objectTemplate.render(row, execution
+					.getTemplateBuffer());
+			if (result == null)
+				// A NULL column value generates no object
+				return null;
 			// TODO : template for Object => URI/Literal par defaut ? Non precise.
 			// Ajustement propre a mon proto : prise en compte du rr:termtype
 			if (objectMap.getTermType().equals(TermType.BLANK_NODE)) {
@@ -654,29 +2704,39 @@ public class R2RMLEngine {
 	 * extracted from different sources (rr:predicate, rr:column or
 	 * rr:template).
 	 * 
+	 * @param execution
 	 * @param predicateMap
+	 * @param predicateColumnIndex
+	 *            Index of rr:column in the logical table (0 if none)
+	 * @param predicateTemplate
+	 *            Predicate template resolved against the logical table
 	 * @return
 	 * @throws SQLException
 	 */
-	private URI extractPredicateFromPredicateMap(PredicateMap predicateMap)
+	private URI extractPredicateFromPredicateMap(R2RMLExecution execution,
+			PredicateMap predicateMap, int predicateColumnIndex,
+			TriplesMapPlan.TemplatePlan predicateTemplate)
 			throws SQLException {
+		ColumnAccessor row = execution.getCurrentRow();
 		// Check properties
 		URI predicate = predicateMap.getPredicate();
 		if (predicate != null)
 			// Predicate already defined by user
 			return predicate;
 
-		String column = predicateMap.getColumn();
-		if (column != null) {
-			// Extract predicate from column name
-			return vf.createURI(logicalTable.getString(column));
+		if (predicateColumnIndex > 0) {
+			// Extract predicate from column name (none if NULL)
+			String columnValue = row.getString(predicateColumnIndex);
+			return columnValue == null ? null : vf.createURI(columnValue);
 		}
-		String template = predicateMap.getTemplate();
-		String result = template;
-		if (template != null) {
+		if (predicateTemplate != null) {
 			// Extract subject from template
 			// Replace curly braces contents
-			result = replaceColumnNames(logicalTable, template);
+			String result = predicateTemplate.render(row, execution
+					.getTemplateBuffer());
+			if (result == null)
+				// A NULL column value generates no predicate
+				return null;
 			return vf.createURI(result);
 		}
 		return null;
@@ -702,36 +2762,82 @@ public class R2RMLEngine {
 	 * schema de base de donnees ? Avis : non, les tables logiques sont
 	 * decorellees du schema.
 	 * 
-	 * @param refObjectMap
+	 * @param execution
+	 * @param refPredicateObjectPlan
 	 * @return
 	 * @throws SQLException
 	 */
-	private Resource extractObjectFromRefObjectMap(RefObjectMap refObjectMap)
+	private Resource extractObjectFromRefObjectMap(R2RMLExecution execution,
+			TriplesMapPlan.RefPredicateObjectPlan refPredicateObjectPlan)
 			throws SQLException {
+		RefObjectMap refObjectMap = refPredicateObjectPlan.getRefObjectMap();
 		Resource result = null;
-		TriplesMap parentTriplesMap = refObjectMap.getParentTriplesMap();
+		List<String> parentColumnNames = refPredicateObjectPlan.getJoinKeys()
+				.getParentColumnNames();
+		switch (refPredicateObjectPlan.getJoinStrategy()) {
+		case SQL_PUSHDOWN:
+			result = extractObjectFromJoinedColumns(execution,
+					refPredicateObjectPlan);
+			break;
 
-		ResultSet parentLogicalTable = constructLogicalTable(parentTriplesMap);
-		List<String> parentColumnNames = getParentLogicalTableColumnNames(refObjectMap
-				.getJoinCondition());
-		List<String> childColumnNames = getChildLogicalTableColumnNames(refObjectMap
-				.getJoinCondition());
-		if (parentColumnNames.size() == 0 || childColumnNames.size() == 0)
-			throw new IllegalStateException(
-					"[R2RMLEngine:extractObjectFromRefObjectMap] Extraction of "
-							+ "parent or child columns failed (empty result).");
+		case HASH_JOIN:
+			result = extractObjectFromParentSubjectIndex(execution,
+					refPredicateObjectPlan);
+			break;
+
+		default:
+			result = extractObjectFromParentLogicalTable(execution, refObjectMap
+					.getParentTriplesMap(), parentColumnNames,
+					refPredicateObjectPlan.getChildColumnIndexes());
+			break;
+		}
+
+		if (result == null)
+			if (log.isWarnEnabled())
+				log
+						.warn("[R2RMLEngine:extractObjectFromRefObjectMap] No result for"
+								+ " the join condition : "
+								+ refObjectMap.getJoinCondition());
+		return result;
+	}
+
+	/**
+	 * Nested loop join : scan the whole parent logical table in order to find
+	 * the row which matches with current child row.
+	 * 
+	 * @param execution
+	 * @param parentTriplesMap
+	 * @param parentColumnNames
+	 * @param childColumnIndexes
+	 *            Indexes of the child columns in current logical table
+	 * @return
+	 * @throws SQLException
+	 */
+	private Resource extractObjectFromParentLogicalTable(
+			R2RMLExecution execution, TriplesMap parentTriplesMap,
+			List<String> parentColumnNames, int[] childColumnIndexes)
+			throws SQLException {
+		ColumnAccessor row = execution.getCurrentRow();
+		Resource result = null;
+		ResultSet parentLogicalTable = constructLogicalTable(execution,
+				parentTriplesMap);
+		int parentSubjectColumnIndex = resolveColumn(parentLogicalTable,
+				parentTriplesMap.getSubjectMap().getColumn(), "");
+		TriplesMapPlan.TemplatePlan parentSubjectTemplate = resolveTemplate(
+				execution, parentLogicalTable, parentTriplesMap.getSubjectMap()
+				.getTemplate(), "");
+		ColumnAccessor parentRow = new ResultSetAccessor(parentLogicalTable);
 		boolean rowFound = false; // Use for check unicity of result
 		while (parentLogicalTable.next()) {
 
 			boolean areTheSame = true; //
-			// Check column names equality
-			for (String parentColumnName : parentColumnNames) {
-				for (String childColumnName : childColumnNames) {
-					Object parentValue = parentLogicalTable
-							.getObject(parentColumnName);
-					Object childValue = logicalTable.getObject(childColumnName);
-					areTheSame &= (parentValue.equals(childValue));
-				}
+			// Check equality of each pair of join columns
+			for (int i = 0; i < parentColumnNames.size(); i++) {
+				Object parentValue = parentLogicalTable
+						.getObject(parentColumnNames.get(i));
+				Object childValue = row.getObject(childColumnIndexes[i]);
+				areTheSame &= (parentValue != null && parentValue
+						.equals(childValue));
 			}
 			if (areTheSame && rowFound) {
 				throw new IllegalStateException(
@@ -739,148 +2845,257 @@ public class R2RMLEngine {
 								+ " in results of join condition whereas a foreign key"
 								+ " is defined as a pointer to a unqiue row.");
 			} else if (areTheSame) {
-				result = extractSubjectFromSubjectMap(parentLogicalTable,
-						parentTriplesMap.getSubjectMap());
+				result = extractSubjectFromSubjectMap(execution,
+						parentRow, parentTriplesMap.getSubjectMap(),
+						parentSubjectColumnIndex, parentSubjectTemplate);
 				rowFound = true;
 			}
 		}
-
-		if (result == null)
-			if (log.isWarnEnabled())
-				log
-						.warn("[R2RMLEngine:extractObjectFromRefObjectMap] No result for"
-								+ " the join condition : "
-								+ refObjectMap.getJoinCondition());
+		closeLogicalTable(execution, parentLogicalTable);
 		return result;
 	}
 
-	// TOOLS
-
 	/**
-	 * Replace column names in template expressions with appropriates column
-	 * values.
+	 * SQL pushdown : the parent row has already been joined by the database,
+	 * its subject is built from the prefixed columns of current row.
 	 * 
-	 * @param template
+	 * @param execution
+	 * @param refPredicateObjectPlan
+	 *            Plan holding the prefixed parent columns of current logical
+	 *            table
 	 * @return
+	 * @throws SQLException
 	 */
-	private String replaceColumnNames(ResultSet logicalTable, String template)
+	private Resource extractObjectFromJoinedColumns(R2RMLExecution execution,
+			TriplesMapPlan.RefPredicateObjectPlan refPredicateObjectPlan)
 			throws SQLException {
-		String result = template;
-		String[] opened = template.split("\\{");
-		boolean first = true;
-		for (String openedContent : opened) {
-			if (first) {
-				// Not in brace content
-				first = false;
-				continue;
-			}
-			String[] closed = openedContent.split("\\}");
-			String columnName = closed[0];
-			if (columnName == null)
-				if (log.isErrorEnabled()) {
-					// This error have not to be happened ! It must be
-					// caught by the model !
-					throw new IllegalStateException(
-							"[R2RMLEngine:replaceColumnNames] Invalid R2RML"
-									+ " syntax expression : " + result);
-				}
-			// Get column value
-			String replacement = logicalTable.getString(columnName);
+		ColumnAccessor row = execution.getCurrentRow();
+		RefObjectMap refObjectMap = refPredicateObjectPlan.getRefObjectMap();
+		if (refPredicateObjectPlan.getParentKeyColumnIndex() == 0)
+			throw new IllegalStateException(
+					"[R2RMLEngine:extractObjectFromJoinedColumns] Parent logical"
+							+ " table of join condition "
+							+ refObjectMap.getJoinCondition()
+							+ " is not joined to current logical table.");
+		if (row.getObject(refPredicateObjectPlan
+				.getParentKeyColumnIndex()) == null)
+			// No parent row matches with current row (LEFT JOIN)
+			return null;
+		return extractSubjectFromSubjectMap(execution, row,
+				refObjectMap.getParentTriplesMap().getSubjectMap(),
+				refPredicateObjectPlan.getParentSubjectColumnIndex(),
+				refPredicateObjectPlan.getParentSubjectTemplate());
+	}
 
-			result = result.replace("{" + columnName + "}", replacement);
+	/**
+	 * Hash join : probe the index of parent subjects with the join column
+	 * values of current child row. The index is built before the scan of
+	 * current logical table.
+	 * 
+	 * @param execution
+	 * @param refPredicateObjectPlan
+	 *            Plan holding the index of parent subjects and the child
+	 *            columns of current logical table
+	 * @return
+	 * @throws SQLException
+	 */
+	private Resource extractObjectFromParentSubjectIndex(
+			R2RMLExecution execution,
+			TriplesMapPlan.RefPredicateObjectPlan refPredicateObjectPlan)
+			throws SQLException {
+		ColumnAccessor row = execution.getCurrentRow();
+		List<Object> key = new ArrayList<Object>();
+		for (int childColumnIndex : refPredicateObjectPlan
+				.getChildColumnIndexes()) {
+			Object childValue = row.getObject(childColumnIndex);
+			if (childValue == null)
+				// NULL never matches in a join condition
+				return null;
+			key.add(childValue);
 		}
-		return result;
+		return refPredicateObjectPlan.getParentSubjectIndex().get(key);
 	}
 
 	/**
-	 * Extract column names from parent alias from a join condition.
+	 * Returns the index of parent subjects for a parent triplesMap and its
+	 * join columns. If it does not exist yet, the parent logical table is
+	 * scanned once in order to build it.
 	 * 
-	 * @param joinCondition
+	 * @param execution
+	 * @param parentTriplesMap
+	 * @param parentColumnNames
 	 * @return
+	 * @throws SQLException
 	 */
-	private List<String> getParentLogicalTableColumnNames(String joinCondition) {
-		List<String> columnNames = new ArrayList<String>();
-		String[] andSplits = joinCondition.split(" AND ");
-		String parentAlias = "{" + R2RMLVocabulary.JOIN_CONDITION_PARENT_ALIAS
-				+ ".}";
-		for (String andSplit : andSplits) {
-			String[] equalSplits = andSplit.split("=");
-			if (equalSplits[0].contains(parentAlias)) {
-				columnNames.add(equalSplits[0].replace(parentAlias, "")
-						.replaceAll("\\s", ""));
-			} else {
-				columnNames.add(equalSplits[1].replace(parentAlias, "")
-						.replaceAll("\\s", ""));
+	private ParentSubjectIndex getParentSubjectIndex(R2RMLExecution execution,
+			TriplesMap parentTriplesMap, List<String> parentColumnNames)
+			throws SQLException {
+		HashMap<List<String>, ParentSubjectIndex> indexes = execution
+				.getParentSubjectIndexes().get(parentTriplesMap);
+		if (indexes == null) {
+			indexes = new HashMap<List<String>, ParentSubjectIndex>();
+			execution.getParentSubjectIndexes().put(parentTriplesMap, indexes);
+		}
+		ParentSubjectIndex index = indexes.get(parentColumnNames);
+		if (index != null)
+			return index;
+		if (log.isDebugEnabled())
+			log.debug("[R2RMLEngine:getParentSubjectIndex] Index parent "
+					+ "logical table " + parentTriplesMap + " on columns "
+					+ parentColumnNames);
+		index = new ParentSubjectIndex();
+		ResultSet parentLogicalTable = constructLogicalTable(execution,
+				parentTriplesMap);
+		int parentSubjectColumnIndex = resolveColumn(parentLogicalTable,
+				parentTriplesMap.getSubjectMap().getColumn(), "");
+		TriplesMapPlan.TemplatePlan parentSubjectTemplate = resolveTemplate(
+				execution, parentLogicalTable, parentTriplesMap.getSubjectMap()
+				.getTemplate(), "");
+		ColumnAccessor parentRow = new ResultSetAccessor(parentLogicalTable);
+		long nbRows = 0;
+		while (parentLogicalTable.next()) {
+			nbRows++;
+			List<Object> key = new ArrayList<Object>();
+			for (String parentColumnName : parentColumnNames) {
+				Object parentValue = parentLogicalTable
+						.getObject(parentColumnName);
+				if (parentValue == null) {
+					// NULL never matches in a join condition
+					key = null;
+					break;
+				}
+				key.add(parentValue);
 			}
+			if (key == null)
+				continue;
+			index.put(key, extractSubjectFromSubjectMap(execution,
+					parentRow, parentTriplesMap.getSubjectMap(),
+					parentSubjectColumnIndex, parentSubjectTemplate));
 		}
-		return columnNames;
+		closeLogicalTable(execution, parentLogicalTable);
+		joinStatistics.setRowCount(LogicalTableProjection
+				.getLogicalTableKey(parentTriplesMap), nbRows);
+		if (log.isDebugEnabled())
+			log.debug("[R2RMLEngine:getParentSubjectIndex] Number of indexed "
+					+ "parent subjects : " + index.size());
+		indexes.put(parentColumnNames, index);
+		return index;
 	}
 
+	// TOOLS
+
 	/**
-	 * Extract column names from children alias from a join condition.
+	 * Resolve the columns of a template expression to their indexes in a
+	 * logical table, columns being prefixed in this logical table. Column
+	 * indexes are resolved once per logical table, before its rows are read.
+	 * Returns null if there is no template expression.
 	 * 
-	 * @param joinCondition
+	 * @param execution
+	 * @param logicalTable
+	 * @param templateExpression
+	 * @param columnPrefix
 	 * @return
+	 * @throws SQLException
 	 */
-	private List<String> getChildLogicalTableColumnNames(String joinCondition) {
-		List<String> columnNames = new ArrayList<String>();
-		String[] andSplits = joinCondition.split(" AND ");
-		String childAlias = "{" + R2RMLVocabulary.JOIN_CONDITION_CHILD_ALIAS
-				+ ".}";
-		for (String andSplit : andSplits) {
-			String[] equalSplits = andSplit.split("=");
-			if (equalSplits[0].contains(childAlias)) {
-				columnNames.add(equalSplits[0].replace(childAlias, "")
-						.replaceAll("\\s", ""));
-			} else {
-				columnNames.add(equalSplits[1].replace(childAlias, "")
-						.replaceAll("\\s", ""));
-			}
-		}
-		return columnNames;
+	private TriplesMapPlan.TemplatePlan resolveTemplate(
+			R2RMLExecution execution, ResultSet logicalTable,
+			String templateExpression, String columnPrefix)
+			throws SQLException {
+		if (templateExpression == null)
+			return null;
+		R2RMLTemplate template = execution.getCompiledMapping().getTemplate(
+				templateExpression);
+		return new TriplesMapPlan.TemplatePlan(template, template
+				.resolveColumnIndexes(logicalTable, columnPrefix));
+	}
+
+	/**
+	 * Resolve a column, prefixed in a logical table, to its index in this
+	 * logical table. Returns 0 if there is no column.
+	 * 
+	 * @param logicalTable
+	 * @param column
+	 * @param columnPrefix
+	 * @return
+	 * @throws SQLException
+	 */
+	private int resolveColumn(ResultSet logicalTable, String column,
+			String columnPrefix) throws SQLException {
+		if (column == null)
+			return 0;
+		return logicalTable.findColumn(columnPrefix + column);
+	}
+
+	/**
+	 * Close a logical table.
+	 * 
+	 * @param execution
+	 * @param logicalTable
+	 * @throws SQLException
+	 */
+	private void closeLogicalTable(R2RMLExecution execution,
+			ResultSet logicalTable) throws SQLException {
+		execution.closeStatement(logicalTable.getStatement());
+	}
+
+	/**
+	 * Returns the parsed join condition of a refObjectMap.
+	 * 
+	 * @param execution
+	 * @param refObjectMap
+	 * @return
+	 */
+	private JoinKeys getJoinKeys(R2RMLExecution execution,
+			RefObjectMap refObjectMap) {
+		return execution.getCompiledMapping().getJoinKeys(refObjectMap);
+	}
+
+	/**
+	 * @return
+	 */
+	LogicalTableProjection getLogicalTableProjection() {
+		return projection;
+	}
+
+	/**
+	 * Returns the generator of row mappers, which is created at first use
+	 * and shared by all runs.
+	 * 
+	 * @return
+	 */
+	private synchronized RowMapperCompiler getRowMapperCompiler() {
+		if (rowMapperCompiler == null)
+			rowMapperCompiler = new RowMapperCompiler();
+		return rowMapperCompiler;
 	}
 
 	/**
-	 * Print logical content in console. WARNING : this method use the same
-	 * logical table object to explore it. The cursor in result set is reinit at
-	 * its original position after method call.
+	 * Describe the columns of a logical table. Rows are not printed : a
+	 * logical table is read only once.
 	 * 
 	 * @param logicalTable
 	 * @return
 	 * @throws SQLException
 	 */
-	private String printLogicalTable(ResultSet logicalTable)
+	private String describeLogicalTable(ResultSet logicalTable)
 			throws SQLException {
 		if (logicalTable == null) {
 			if (log.isWarnEnabled())
-				log.warn("[R2RMLEngine:printLogicalTable] WARNING : a "
+				log.warn("[R2RMLEngine:describeLogicalTable] WARNING : a "
 						+ "print request has been done against"
 						+ " a null logical table.");
 			return null;
 		}
-		int rowNumber = logicalTable.getRow();
-		String result = "{[R2RMLEngine:printLogicalTable] (Row numbers : "
-				+ rowNumber + ") : ";
-		// Init cursor
-		logicalTable.beforeFirst();
-		int cpt = 1;
-		while (logicalTable.next()) {
-			result += "ROW " + cpt + System.getProperty("line.separator");
-			for (int i = 1; i <= logicalTable.getMetaData().getColumnCount(); i++) {
-				result += "\tcolumn name : "
-						+ logicalTable.getMetaData().getColumnName(i)
-						+ System.getProperty("line.separator");
-				result += "\tcolumn value : " + logicalTable.getObject(i)
-						+ System.getProperty("line.separator");
-			}
-			cpt++;
-		}
-		result += "}";
-		// Reset cursor of resultSet
-		logicalTable.beforeFirst();
-		for (int i = 1; i <= rowNumber; i++)
-			logicalTable.next();
-		return result;
+		ResultSetMetaData meta = logicalTable.getMetaData();
+		StringBuffer result = new StringBuffer(
+				"{[R2RMLEngine:describeLogicalTable] (Column numbers : "
+						+ meta.getColumnCount() + ") : ");
+		for (int i = 1; i <= meta.getColumnCount(); i++)
+			result.append(System.getProperty("line.separator")
+					+ "\tcolumn name : " + meta.getColumnName(i) + " ("
+					+ meta.getColumnTypeName(i) + ")");
+		result.append("}");
+		return result.toString();
 	}
 
 }
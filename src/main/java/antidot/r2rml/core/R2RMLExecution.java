@@ -0,0 +1,439 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : R2RML Execution
+ *
+ * State of one execution of a R2RML mapping : its connection, the logical
+ * table being read and the join structures built during the run. An
+ * execution is confined to one thread, whereas the engine, the mapping and
+ * its compiled form are shared : several executions can run
+ * concurrently on the same engine.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import antidot.r2rml.model.RefObjectMap;
+import antidot.r2rml.model.TriplesMap;
+
+public class R2RMLExecution {
+
+	// Log
+	private static Log log = LogFactory.getLog(R2RMLExecution.class);
+
+	// SQL Connection
+	private Connection conn;
+
+	// Templates, join conditions and referenced columns of the run
+	private CompiledMapping compiledMapping;
+
+	// Join strategy of each RefObjectMap
+	private HashMap<RefObjectMap, JoinStrategy> joinStrategies;
+
+	// Tables materializing SQL queries, by logical table key
+	private HashMap<String, String> materializedTables;
+
+	// Current logical table
+	private ResultSet logicalTable;
+
+	// Columns of current row : the row of the logical table, or a row of a
+	// column batch
+	private ColumnAccessor currentRow;
+
+	// Parent subjects indexed by parent triplesMap and join columns (used by
+	// hash join strategy)
+	private HashMap<TriplesMap, HashMap<List<String>, ParentSubjectIndex>> parentSubjectIndexes;
+
+	// Column prefixes of parent logical tables joined to current logical table
+	// (used by SQL pushdown strategy)
+	private HashMap<RefObjectMap, String> parentColumnPrefixes;
+
+	// Parent logical tables spilled on disk by parent triplesMap and join
+	// columns (used by grace hash join strategy)
+	private HashMap<TriplesMap, HashMap<List<String>, SpilledRelation>> parentRelations;
+
+	// Ref triples of current logical table spilled on disk, waiting for their
+	// ref object (used by grace hash join strategy)
+	private HashMap<RefObjectMap, SpilledRelation> childRelations;
+
+	// Ref triples of current logical table waiting for their ref object (used
+	// by lookup join strategy)
+	private HashMap<RefObjectMap, LookupBatch> lookupBatches;
+
+	// Prepared lookup queries against parent logical tables (used by lookup
+	// join strategy)
+	private HashMap<RefObjectMap, PreparedStatement> lookupStatements;
+
+	// Buffer reused to render templates
+	private StringBuilder templateBuffer;
+
+	// Column labels by logical table (read at first projection)
+	private HashMap<String, List<String>> columnLabels;
+
+	// Time zone of database (read at first date conversion)
+	private String timeZone;
+
+	// Open statements of this execution, which can be cancelled by another
+	// thread
+	private Set<Statement> statements;
+
+	// True once the statements of this execution are cancelled
+	private volatile boolean cancelled;
+
+	// True if database is MySQL (detected at first use)
+	private Boolean mySQL;
+
+	// True if database compares row value constructors in IN predicates
+	// (detected at first use)
+	private Boolean rowValues;
+
+	public R2RMLExecution(Connection conn) {
+		if (conn == null)
+			throw new IllegalStateException(
+					"[R2RMLExecution:R2RMLExecution] SQL connection does not exists.");
+		this.conn = conn;
+		joinStrategies = new HashMap<RefObjectMap, JoinStrategy>();
+		materializedTables = new HashMap<String, String>();
+		logicalTable = null;
+		parentSubjectIndexes = new HashMap<TriplesMap, HashMap<List<String>, ParentSubjectIndex>>();
+		parentColumnPrefixes = new HashMap<RefObjectMap, String>();
+		parentRelations = new HashMap<TriplesMap, HashMap<List<String>, SpilledRelation>>();
+		childRelations = new HashMap<RefObjectMap, SpilledRelation>();
+		lookupBatches = new HashMap<RefObjectMap, LookupBatch>();
+		lookupStatements = new HashMap<RefObjectMap, PreparedStatement>();
+		templateBuffer = new StringBuilder();
+		columnLabels = new HashMap<String, List<String>>();
+		statements = Collections.synchronizedSet(new HashSet<Statement>());
+	}
+
+	/**
+	 * Create the execution of a pipeline worker. It shares the connection,
+	 * the compiled mapping, the join strategies, the materialized tables,
+	 * the indexes of parent subjects, the column prefixes of joined parent
+	 * tables and the time zone of an execution, which are read-only while
+	 * the pipeline runs. Its current row is the view of the rows given to
+	 * the worker.
+	 * 
+	 * @param execution
+	 */
+	public R2RMLExecution(R2RMLExecution execution) {
+		this(execution.getConnection());
+		compiledMapping = execution.getCompiledMapping();
+		joinStrategies = execution.getJoinStrategies();
+		materializedTables = execution.getMaterializedTables();
+		parentSubjectIndexes = execution.getParentSubjectIndexes();
+		parentColumnPrefixes = execution.getParentColumnPrefixes();
+		timeZone = execution.getTimeZone();
+		mySQL = execution.mySQL;
+		rowValues = execution.rowValues;
+	}
+
+	/**
+	 * @return
+	 */
+	public Connection getConnection() {
+		return conn;
+	}
+
+	/**
+	 * @return
+	 */
+	public CompiledMapping getCompiledMapping() {
+		return compiledMapping;
+	}
+
+	/**
+	 * @param compiledMapping
+	 */
+	public void setCompiledMapping(CompiledMapping compiledMapping) {
+		this.compiledMapping = compiledMapping;
+	}
+
+	/**
+	 * @return
+	 */
+	public HashMap<RefObjectMap, JoinStrategy> getJoinStrategies() {
+		return joinStrategies;
+	}
+
+	/**
+	 * @param joinStrategies
+	 */
+	public void setJoinStrategies(
+			HashMap<RefObjectMap, JoinStrategy> joinStrategies) {
+		this.joinStrategies = joinStrategies;
+	}
+
+	/**
+	 * @return
+	 */
+	public HashMap<String, String> getMaterializedTables() {
+		return materializedTables;
+	}
+
+	/**
+	 * @param materializedTables
+	 */
+	public void setMaterializedTables(
+			HashMap<String, String> materializedTables) {
+		this.materializedTables = materializedTables;
+	}
+
+	/**
+	 * @return
+	 */
+	public ResultSet getLogicalTable() {
+		return logicalTable;
+	}
+
+	/**
+	 * Set the current logical table. Its rows become the current rows.
+	 * 
+	 * @param logicalTable
+	 */
+	public void setLogicalTable(ResultSet logicalTable) {
+		this.logicalTable = logicalTable;
+		currentRow = logicalTable == null ? null : new ResultSetAccessor(
+				logicalTable);
+	}
+
+	/**
+	 * @return
+	 */
+	public ColumnAccessor getCurrentRow() {
+		return currentRow;
+	}
+
+	/**
+	 * @param currentRow
+	 */
+	public void setCurrentRow(ColumnAccessor currentRow) {
+		this.currentRow = currentRow;
+	}
+
+	/**
+	 * @return
+	 */
+	public HashMap<TriplesMap, HashMap<List<String>, ParentSubjectIndex>> getParentSubjectIndexes() {
+		return parentSubjectIndexes;
+	}
+
+	/**
+	 * @return
+	 */
+	public HashMap<RefObjectMap, String> getParentColumnPrefixes() {
+		return parentColumnPrefixes;
+	}
+
+	/**
+	 * @return
+	 */
+	public HashMap<TriplesMap, HashMap<List<String>, SpilledRelation>> getParentRelations() {
+		return parentRelations;
+	}
+
+	/**
+	 * @return
+	 */
+	public HashMap<RefObjectMap, SpilledRelation> getChildRelations() {
+		return childRelations;
+	}
+
+	/**
+	 * @return
+	 */
+	public HashMap<RefObjectMap, LookupBatch> getLookupBatches() {
+		return lookupBatches;
+	}
+
+	/**
+	 * @return
+	 */
+	public HashMap<RefObjectMap, PreparedStatement> getLookupStatements() {
+		return lookupStatements;
+	}
+
+	/**
+	 * @return
+	 */
+	public StringBuilder getTemplateBuffer() {
+		return templateBuffer;
+	}
+
+	/**
+	 * @return
+	 */
+	public HashMap<String, List<String>> getColumnLabels() {
+		return columnLabels;
+	}
+
+	/**
+	 * @return
+	 */
+	public String getTimeZone() {
+		return timeZone;
+	}
+
+	/**
+	 * @param timeZone
+	 */
+	public void setTimeZone(String timeZone) {
+		this.timeZone = timeZone;
+	}
+
+	/**
+	 * @return
+	 * @throws SQLException
+	 */
+	public boolean isMySQL() throws SQLException {
+		if (mySQL == null)
+			mySQL = conn.getMetaData().getDatabaseProductName().toLowerCase()
+					.contains("mysql");
+		return mySQL;
+	}
+
+	/**
+	 * Returns true if database supports row value constructors in IN
+	 * predicates, as in "(a, b) IN ((?, ?), (?, ?))". JDBC does not tell
+	 * it : known databases are listed.
+	 * 
+	 * @return
+	 * @throws SQLException
+	 */
+	public boolean isRowValueSupported() throws SQLException {
+		if (rowValues == null) {
+			String product = conn.getMetaData().getDatabaseProductName()
+					.toLowerCase();
+			rowValues = product.contains("mysql")
+					|| product.contains("postgresql")
+					|| product.contains("oracle") || product.contains("h2")
+					|| product.contains("db2");
+		}
+		return rowValues;
+	}
+
+	/**
+	 * Register a statement created against the connection of this execution,
+	 * until it is closed by closeStatement or release. A statement can not
+	 * be registered once the execution is cancelled.
+	 * 
+	 * @param statement
+	 * @throws SQLException
+	 */
+	public void registerStatement(Statement statement) throws SQLException {
+		synchronized (statements) {
+			if (!cancelled) {
+				statements.add(statement);
+				return;
+			}
+		}
+		statement.close();
+		throw new IllegalStateException(
+				"[R2RMLExecution:registerStatement] Execution cancelled.");
+	}
+
+	/**
+	 * Close a registered statement.
+	 * 
+	 * @param statement
+	 * @throws SQLException
+	 */
+	public void closeStatement(Statement statement) throws SQLException {
+		statements.remove(statement);
+		statement.close();
+	}
+
+	/**
+	 * Cancel the running statements of this execution from another thread :
+	 * the thread of the execution gets an SQLException. No statement can be
+	 * registered afterwards. A failure is only logged.
+	 */
+	public void cancelStatements() {
+		synchronized (statements) {
+			cancelled = true;
+			for (Statement statement : statements)
+				try {
+					statement.cancel();
+				} catch (SQLException e) {
+					if (log.isWarnEnabled())
+						log.warn("[R2RMLExecution:cancelStatements] "
+								+ "Statement can not be cancelled : "
+								+ e.getMessage());
+				}
+		}
+	}
+
+	/**
+	 * Release the resources of this execution : current logical table,
+	 * spilled relations, prepared lookup queries and other open statements.
+	 * The connection is not closed.
+	 * 
+	 * @throws SQLException
+	 */
+	public void release() throws SQLException {
+		if (logicalTable != null) {
+			logicalTable.getStatement().close();
+			logicalTable.close();
+			logicalTable = null;
+		}
+		currentRow = null;
+		columnLabels.clear();
+		parentSubjectIndexes.clear();
+		parentColumnPrefixes.clear();
+		lookupBatches.clear();
+		// Delete spilled relations
+		for (HashMap<List<String>, SpilledRelation> relations : parentRelations
+				.values())
+			for (SpilledRelation relation : relations.values())
+				relation.delete();
+		parentRelations.clear();
+		for (SpilledRelation relation : childRelations.values())
+			relation.delete();
+		childRelations.clear();
+		// Close lookup queries
+		for (PreparedStatement lookupStatement : lookupStatements.values())
+			lookupStatement.close();
+		lookupStatements.clear();
+		// Close statements left open by a failure
+		synchronized (statements) {
+			for (Statement statement : statements)
+				statement.close();
+			statements.clear();
+		}
+		if (log.isDebugEnabled())
+			log.debug("[R2RMLExecution:release] Execution resources released.");
+	}
+
+}
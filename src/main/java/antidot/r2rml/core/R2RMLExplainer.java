@@ -0,0 +1,326 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : R2RML Explainer
+ *
+ * Describes the execution plan of a R2RML mapping on an engine, without
+ * running it : for each logical table, its SQL query, projected columns,
+ * shared scan, mode and estimated rows, and for each triplesMap its
+ * estimated triples and the join strategy of its RefObjectMaps. Queries
+ * are explained by the database when it supports EXPLAIN, and joins which
+ * scan a whole parent table for a child row or a key are flagged.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import antidot.r2rml.model.ISubjectMap;
+import antidot.r2rml.model.R2RMLMapping;
+import antidot.r2rml.model.RefObjectMap;
+import antidot.r2rml.model.RefPredicateObjectMap;
+import antidot.r2rml.model.TriplesMap;
+import antidot.sql.core.SQLStatistics;
+
+public class R2RMLExplainer {
+
+	// Log
+	private static Log log = LogFactory.getLog(R2RMLExplainer.class);
+
+	// Engine which would run the mapping
+	private R2RMLEngine engine;
+
+	// Queries of logical tables of the engine
+	private LogicalTableProjection projection;
+
+	public R2RMLExplainer(R2RMLEngine engine) {
+		this.engine = engine;
+		projection = engine.getLogicalTableProjection();
+	}
+
+	/**
+	 * Describe the execution plan of a R2RML mapping against a connection.
+	 * 
+	 * @param conn
+	 * @param r2rmlMapping
+	 * @return
+	 * @throws SQLException
+	 */
+	public String explainR2RMLMapping(Connection conn,
+			R2RMLMapping r2rmlMapping) throws SQLException {
+		CompiledMapping compiledMapping = new CompiledMapping(r2rmlMapping
+				.getTriplesMaps());
+		HashMap<RefObjectMap, JoinStrategy> joinStrategies = engine.planJoins(
+				conn, compiledMapping, r2rmlMapping.getTriplesMaps());
+		List<List<TriplesMap>> groups = engine.groupTriplesMapsByLogicalTable(
+				joinStrategies, r2rmlMapping.getTriplesMaps());
+		// Estimates only : no memory is reserved
+		JoinPlanner estimates = new JoinPlanner(conn, engine
+				.getJoinStatistics(), 0);
+		SQLStatistics statistics = estimates.getTableStatistics();
+		R2RMLExecution execution = new R2RMLExecution(conn);
+		execution.setCompiledMapping(compiledMapping);
+		execution.setJoinStrategies(joinStrategies);
+		StringBuffer report = new StringBuffer();
+		report.append("R2RML execution plan : " + groups.size()
+				+ " logical table(s), " + r2rmlMapping.getTriplesMaps().size()
+				+ " triplesMap(s)\n");
+		report.append("Join strategy : " + engine.getJoinStrategy()
+				+ ", threads : "
+				+ Math.max(1, Math.min(engine.getNbThreads(), groups.size()))
+				+ "\n");
+		long totalTriples = 0;
+		boolean totalKnown = true;
+		try {
+			int cpt = 0;
+			for (List<TriplesMap> group : groups) {
+				cpt++;
+				TriplesMap firstTriplesMap = group.get(0);
+				String key = LogicalTableProjection
+						.getLogicalTableKey(firstTriplesMap);
+				boolean joined = engine.isJoinedLogicalTable(joinStrategies,
+						firstTriplesMap);
+				boolean pipelined = true;
+				for (TriplesMap triplesMap : group)
+					pipelined = pipelined
+							&& engine.isPipelined(execution, triplesMap);
+				String query = joined ? engine.getJoinedLogicalTableQuery(
+						execution, firstTriplesMap) : projection
+						.getLogicalTableQuery(execution, firstTriplesMap,
+								compiledMapping.getReferencedColumns(group));
+				Long rows = estimates.getRowCount(firstTriplesMap, key);
+				report.append("\nLogical table " + cpt + " : " + key + "\n");
+				if (group.size() > 1)
+					report.append("  Shared scan : " + group.size()
+							+ " triplesMaps\n");
+				if (joined)
+					report.append("  Joined with its parents by the "
+							+ "database\n");
+				report.append("  SQL : " + query + "\n");
+				report.append("  Columns : "
+						+ (joined ? "*" : projection.getProjection(execution,
+								firstTriplesMap, compiledMapping
+										.getReferencedColumns(group), null))
+						+ "\n");
+				report.append("  Mode : "
+						+ (pipelined ? "pipeline of "
+								+ engine.getPipelineWorkers() + " workers"
+								: engine.getBatchSize() > 0 ? "batches of "
+										+ engine.getBatchSize() + " rows"
+										: "row by row") + "\n");
+				report.append("  Estimated rows : "
+						+ JoinPlanner.describe(rows) + "\n");
+				explainQuery(report, statistics, query, "  ");
+				for (TriplesMap triplesMap : group) {
+					long triplesByRow = estimateTriplesByRow(triplesMap);
+					report.append("  TriplesMap "
+							+ describeTriplesMap(triplesMap) + "\n");
+					report.append("    Triples by row : " + triplesByRow
+							+ ", estimated triples : "
+							+ (rows == null ? "unknown" : rows * triplesByRow)
+							+ "\n");
+					if (rows == null)
+						totalKnown = false;
+					else
+						totalTriples += rows * triplesByRow;
+					for (RefPredicateObjectMap refPredicateObjectMap : triplesMap
+							.getRefPredicateObjectMaps())
+						explainJoin(report, execution, estimates,
+								refPredicateObjectMap.getRefObjectMap(),
+								query);
+				}
+			}
+		} finally {
+			execution.release();
+		}
+		report.append("\nEstimated triples : "
+				+ (totalKnown ? String.valueOf(totalTriples) : "unknown")
+				+ "\n");
+		return report.toString();
+	}
+
+	/**
+	 * Describe the join of a RefObjectMap in an execution plan.
+	 * 
+	 * @param report
+	 * @param execution
+	 * @param estimates
+	 * @param refObjectMap
+	 * @param childQuery
+	 *            Query of the child logical table
+	 * @throws SQLException
+	 */
+	private void explainJoin(StringBuffer report, R2RMLExecution execution,
+			JoinPlanner estimates, RefObjectMap refObjectMap,
+			String childQuery) throws SQLException {
+		TriplesMap parentTriplesMap = refObjectMap.getParentTriplesMap();
+		List<String> parentColumnNames = execution.getCompiledMapping()
+				.getJoinKeys(refObjectMap).getParentColumnNames();
+		JoinStrategy refJoinStrategy = execution.getJoinStrategies().get(
+				refObjectMap);
+		boolean indexed = estimates.isIndexed(parentTriplesMap,
+				parentColumnNames);
+		String parentKey = LogicalTableProjection
+				.getLogicalTableKey(parentTriplesMap);
+		report.append("    Join " + refObjectMap.getJoinCondition() + " : "
+				+ refJoinStrategy + "\n");
+		report.append("      Parent : " + parentKey + ", estimated rows : "
+				+ JoinPlanner.describe(estimates.getRowCount(parentTriplesMap,
+						parentKey)) + ", index on " + parentColumnNames
+				+ " : " + (indexed ? "yes" : "no") + "\n");
+		if (engine.isQueryMaterialization()
+				&& parentTriplesMap.getSQLQuery() != null) {
+			// The parent query is read from an indexed table during a run
+			report.append("      Materialized and indexed on "
+					+ parentColumnNames + "\n");
+			indexed = true;
+		}
+		boolean fullScan = false;
+		switch (refJoinStrategy) {
+		case SQL_PUSHDOWN:
+			// Parent rows of a child row are found by the join of childQuery
+			String prefix = execution.getParentColumnPrefixes().get(
+					refObjectMap);
+			String parentAlias = prefix.substring(0, prefix.length() - 1);
+			for (String line : explain(estimates.getTableStatistics(),
+					childQuery))
+				if (SQLStatistics.isFullScan(line)
+						&& line.contains(parentAlias))
+					fullScan = true;
+			fullScan = fullScan || !indexed;
+			break;
+
+		case LOOKUP_JOIN:
+			// Lookup queries have parameters : they are not explained
+			report.append("      SQL : "
+					+ engine.getLookupQuery(execution, refObjectMap,
+							parentColumnNames, engine.getLookupBatchSize(
+									execution, parentColumnNames.size()))
+					+ "\n");
+			fullScan = !indexed;
+			break;
+
+		case NESTED_LOOP:
+			// Parent logical table is scanned for each child row
+			fullScan = true;
+			break;
+
+		default:
+			// Parent logical table is scanned once
+			String parentQuery = projection.getLogicalTableQuery(execution,
+					parentTriplesMap, execution.getCompiledMapping()
+							.getReferencedColumns(parentTriplesMap));
+			report.append("      SQL : " + parentQuery + "\n");
+			explainQuery(report, estimates.getTableStatistics(), parentQuery,
+					"      ");
+			break;
+		}
+		if (fullScan)
+			report.append("      WARNING : full scan of " + parentKey
+					+ " on join columns " + parentColumnNames + "\n");
+	}
+
+	/**
+	 * Append the plan of a query given by the database to a report.
+	 * 
+	 * @param report
+	 * @param statistics
+	 * @param query
+	 * @param indent
+	 */
+	private void explainQuery(StringBuffer report, SQLStatistics statistics,
+			String query, String indent) {
+		List<String> plan = explain(statistics, query);
+		if (plan.isEmpty()) {
+			report.append(indent + "Database plan : not available\n");
+			return;
+		}
+		report.append(indent + "Database plan :\n");
+		for (String line : plan)
+			report.append(indent + "  " + line
+					+ (SQLStatistics.isFullScan(line) ? "  [full scan]" : "")
+					+ "\n");
+	}
+
+	/**
+	 * Returns the plan of a query given by the database, or an empty plan if
+	 * the database can not explain it.
+	 * 
+	 * @param statistics
+	 * @param query
+	 * @return
+	 */
+	private List<String> explain(SQLStatistics statistics, String query) {
+		try {
+			return statistics.explain(query);
+		} catch (SQLException e) {
+			if (log.isDebugEnabled())
+				log.debug("[R2RMLExplainer:explain] Query can not be explained : "
+						+ e.getMessage());
+			return new ArrayList<String>();
+		}
+	}
+
+	/**
+	 * Returns the number of triples extracted from a row by a triplesMap :
+	 * its class, predicate-object and ref predicate-object triples, in each
+	 * graph of its subject.
+	 * 
+	 * @param triplesMap
+	 * @return
+	 */
+	private long estimateTriplesByRow(TriplesMap triplesMap) {
+		ISubjectMap subjectMap = triplesMap.getSubjectMap();
+		long triples = triplesMap.getPredicateObjectMaps().size()
+				+ triplesMap.getRefPredicateObjectMaps().size();
+		if (subjectMap.getRdfsClass() != null)
+			triples++;
+		int nbGraphs = subjectMap.getGraphs().size()
+				+ subjectMap.getGraphColumns().size()
+				+ subjectMap.getGraphTemplates().size();
+		return triples * Math.max(1, nbGraphs);
+	}
+
+	/**
+	 * Returns a short description of a triplesMap : its subject template,
+	 * column or constant.
+	 * 
+	 * @param triplesMap
+	 * @return
+	 */
+	private String describeTriplesMap(TriplesMap triplesMap) {
+		ISubjectMap subjectMap = triplesMap.getSubjectMap();
+		if (subjectMap.getTemplate() != null)
+			return "rr:template \"" + subjectMap.getTemplate() + "\"";
+		if (subjectMap.getColumn() != null)
+			return "rr:column \"" + subjectMap.getColumn() + "\"";
+		return "rr:subject <" + subjectMap.getSubject() + ">";
+	}
+
+}
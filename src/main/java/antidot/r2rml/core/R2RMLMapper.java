@@ -30,6 +30,8 @@ package antidot.r2rml.core;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -38,6 +40,7 @@ import antidot.r2rml.exception.InvalidR2RMLStructureException;
 import antidot.r2rml.exception.InvalidR2RMLSyntaxException;
 import antidot.r2rml.model.R2RMLMapping;
 import antidot.rdf.impl.sesame.SesameDataSet;
+import antidot.sql.core.ConnectionFactory;
 
 public abstract class R2RMLMapper {
 	
@@ -45,6 +48,20 @@ public abstract class R2RMLMapper {
 	private static Log log = LogFactory.getLog(R2RMLMapper.class);
 	
 	private static Long start = 0l;
+
+	// True if compiled R2RML instances are cached next to their files
+	private static boolean mappingCache = true;
+
+	/**
+	 * If true, R2RML instances are read from their binary cache when they
+	 * have not changed since their last extraction (see
+	 * R2RMLMappingCache). Default is true.
+	 * 
+	 * @param mappingCache
+	 */
+	public static void setMappingCache(boolean mappingCache) {
+		R2RMLMapper.mappingCache = mappingCache;
+	}
 	
 	/**
 	 * Convert a MySQL database into a RDF graph from a database Connection
@@ -53,25 +70,84 @@ public abstract class R2RMLMapper {
 	public static SesameDataSet convertMySQLDatabase(Connection conn,
 			String pathToR2RMLMappingDocument, String pathToNativeStore) throws InstantiationException,
 			IllegalAccessException, ClassNotFoundException, SQLException {
+		return convertMySQLDatabase(conn, pathToR2RMLMappingDocument,
+				pathToNativeStore, 1, null);
+	}
+
+	/**
+	 * Convert a MySQL database into a RDF graph from a database Connection
+	 * and a R2RML instance (with native storage). TriplesMaps are extracted by
+	 * nbThreads threads, each one with its own connection opened by the
+	 * connection factory.
+	 */
+	public static SesameDataSet convertMySQLDatabase(Connection conn,
+			String pathToR2RMLMappingDocument, String pathToNativeStore,
+			int nbThreads, ConnectionFactory connectionFactory)
+			throws InstantiationException, IllegalAccessException,
+			ClassNotFoundException, SQLException {
+		return convertMySQLDatabase(conn, pathToR2RMLMappingDocument,
+				pathToNativeStore, nbThreads, connectionFactory, 0, 0);
+	}
+
+	/**
+	 * Convert a MySQL database into a RDF graph from a database Connection
+	 * and a R2RML instance (with native storage). TriplesMaps are extracted by
+	 * nbThreads threads and the rows of each logical table are mapped by
+	 * pipelineWorkers threads (0 if rows are mapped by the reading thread),
+	 * by batches of batchSize rows (0 if rows are mapped one by one).
+	 */
+	public static SesameDataSet convertMySQLDatabase(Connection conn,
+			String pathToR2RMLMappingDocument, String pathToNativeStore,
+			int nbThreads, ConnectionFactory connectionFactory,
+			int pipelineWorkers, int batchSize) throws InstantiationException,
+			IllegalAccessException, ClassNotFoundException, SQLException {
+		return convertMySQLDatabase(conn, pathToR2RMLMappingDocument,
+				pathToNativeStore, nbThreads, connectionFactory,
+				pipelineWorkers, batchSize, false);
+	}
+
+	/**
+	 * Convert a MySQL database into a RDF graph from a database Connection
+	 * and a R2RML instance (with native storage), as above. If
+	 * queryMaterialization is true, SQL queries of parent logical tables
+	 * are materialized into indexed tables during the conversion.
+	 */
+	public static SesameDataSet convertMySQLDatabase(Connection conn,
+			String pathToR2RMLMappingDocument, String pathToNativeStore,
+			int nbThreads, ConnectionFactory connectionFactory,
+			int pipelineWorkers, int batchSize, boolean queryMaterialization)
+			throws InstantiationException, IllegalAccessException,
+			ClassNotFoundException, SQLException {
+		return convertMySQLDatabase(conn, pathToR2RMLMappingDocument,
+				pathToNativeStore, nbThreads, connectionFactory,
+				pipelineWorkers, batchSize, queryMaterialization, false);
+	}
+
+	/**
+	 * Convert a MySQL database into a RDF graph from a database Connection
+	 * and a R2RML instance (with native storage), as above. If
+	 * temporaryJoinIndexes is true, indexes missing on join columns are
+	 * created during the conversion.
+	 */
+	public static SesameDataSet convertMySQLDatabase(Connection conn,
+			String pathToR2RMLMappingDocument, String pathToNativeStore,
+			int nbThreads, ConnectionFactory connectionFactory,
+			int pipelineWorkers, int batchSize, boolean queryMaterialization,
+			boolean temporaryJoinIndexes) throws InstantiationException,
+			IllegalAccessException, ClassNotFoundException, SQLException {
 		if (log.isInfoEnabled()) log.info("[R2RMLMapper:convertMySQLDatabase] Start Mapping R2RML...");
 		// Init time
 		start = System.currentTimeMillis();
 		// Extract R2RML Mapping object
-		R2RMLMapping r2rmlMapping = null;
-		try {
-			r2rmlMapping = R2RMLMappingFactory.extractR2RMLMapping(pathToR2RMLMappingDocument);
-		} catch (InvalidR2RMLStructureException e) {
-			e.printStackTrace();
-			System.exit(-1);
-		} catch (InvalidR2RMLSyntaxException e) {
-			e.printStackTrace();
-			System.exit(-1);
-		} catch (Exception e) {
-			e.printStackTrace();
-			System.exit(-1);
-		}
+		R2RMLMapping r2rmlMapping = extractR2RMLMapping(pathToR2RMLMappingDocument);
 		// Connect database
 		R2RMLEngine r2rmlEngine = new R2RMLEngine(conn);
+		r2rmlEngine.setNbThreads(nbThreads);
+		r2rmlEngine.setConnectionFactory(connectionFactory);
+		r2rmlEngine.setPipelineWorkers(pipelineWorkers);
+		r2rmlEngine.setBatchSize(batchSize);
+		r2rmlEngine.setQueryMaterialization(queryMaterialization);
+		r2rmlEngine.setTemporaryJoinIndexes(temporaryJoinIndexes);
 		SesameDataSet result =  r2rmlEngine.runR2RMLMapping(r2rmlMapping, pathToNativeStore);
 		if (log.isInfoEnabled()) log.info("[R2RMLMapper:convertMySQLDatabase] Mapping R2RML done.");
 		Float stop = Float.valueOf(System.currentTimeMillis() - start) / 1000;
@@ -82,6 +158,78 @@ public abstract class R2RMLMapper {
 		return result;
 	}
 	
+	/**
+	 * Convert a MySQL database into several RDF graphs from a database
+	 * Connection and several R2RML instances, in one run : a table read by
+	 * several instances is read once. The graph of each instance is stored
+	 * in its native store (or in memory if its path is null).
+	 */
+	public static List<SesameDataSet> convertMySQLDatabase(Connection conn,
+			List<String> pathToR2RMLMappingDocuments,
+			List<String> pathToNativeStores, int nbThreads,
+			ConnectionFactory connectionFactory, int pipelineWorkers,
+			int batchSize, boolean queryMaterialization,
+			boolean temporaryJoinIndexes) throws InstantiationException,
+			IllegalAccessException, ClassNotFoundException, SQLException {
+		if (log.isInfoEnabled()) log.info("[R2RMLMapper:convertMySQLDatabase] Start Mapping "
+				+ pathToR2RMLMappingDocuments.size() + " R2RML instances...");
+		// Init time
+		start = System.currentTimeMillis();
+		// Extract R2RML Mapping objects
+		List<R2RMLMapping> r2rmlMappings = new ArrayList<R2RMLMapping>();
+		for (String pathToR2RMLMappingDocument : pathToR2RMLMappingDocuments)
+			r2rmlMappings.add(extractR2RMLMapping(pathToR2RMLMappingDocument));
+		// Connect database
+		R2RMLEngine r2rmlEngine = new R2RMLEngine(conn);
+		r2rmlEngine.setNbThreads(nbThreads);
+		r2rmlEngine.setConnectionFactory(connectionFactory);
+		r2rmlEngine.setPipelineWorkers(pipelineWorkers);
+		r2rmlEngine.setBatchSize(batchSize);
+		r2rmlEngine.setQueryMaterialization(queryMaterialization);
+		r2rmlEngine.setTemporaryJoinIndexes(temporaryJoinIndexes);
+		List<SesameDataSet> results = r2rmlEngine.runR2RMLMappings(conn,
+				r2rmlMappings, pathToNativeStores);
+		if (log.isInfoEnabled()) log.info("[R2RMLMapper:convertMySQLDatabase] Mapping R2RML done.");
+		Float stop = Float.valueOf(System.currentTimeMillis() - start) / 1000;
+		if (log.isInfoEnabled()) log.info("[R2RMLMapper:convertMySQLDatabase] Database extracted in "
+				+ stop + " seconds.");
+		for (int i = 0; i < results.size(); i++)
+			if (log.isInfoEnabled()) log.info("[R2RMLMapper:convertMySQLDatabase] Number of extracted triples of "
+					+ pathToR2RMLMappingDocuments.get(i) + " : " + results.get(i).getSize());
+		return results;
+	}
+
+	/**
+	 * Describe the execution plan of a R2RML instance against a MySQL
+	 * database, with the settings of convertMySQLDatabase, without
+	 * extracting any triple.
+	 */
+	public static String explainMySQLDatabase(Connection conn,
+			String pathToR2RMLMappingDocument, int nbThreads,
+			int pipelineWorkers, int batchSize) throws InstantiationException,
+			IllegalAccessException, ClassNotFoundException, SQLException {
+		// Extract R2RML Mapping object
+		R2RMLMapping r2rmlMapping = extractR2RMLMapping(pathToR2RMLMappingDocument);
+		R2RMLEngine r2rmlEngine = new R2RMLEngine(conn);
+		r2rmlEngine.setNbThreads(nbThreads);
+		r2rmlEngine.setPipelineWorkers(pipelineWorkers);
+		r2rmlEngine.setBatchSize(batchSize);
+		return r2rmlEngine.explainR2RMLMapping(conn, r2rmlMapping);
+	}
+
+	/**
+	 * Report the indexes of a MySQL database on the join columns of a R2RML
+	 * instance, with the DDL of the missing ones.
+	 */
+	public static String adviseMySQLDatabaseIndexes(Connection conn,
+			String pathToR2RMLMappingDocument) throws InstantiationException,
+			IllegalAccessException, ClassNotFoundException, SQLException {
+		// Extract R2RML Mapping object
+		R2RMLMapping r2rmlMapping = extractR2RMLMapping(pathToR2RMLMappingDocument);
+		return new JoinIndexAdvisor(conn).getReport(r2rmlMapping
+				.getTriplesMaps());
+	}
+
 	/**
 	 * Convert a MySQL database into a RDF graph from a database Connection
 	 * and a R2RML instance.
@@ -93,4 +241,31 @@ public abstract class R2RMLMapper {
 	}
 
 
+	/**
+	 * Extract a R2RML Mapping object from a R2RML instance. Exits if the
+	 * instance is invalid.
+	 */
+	private static R2RMLMapping extractR2RMLMapping(
+			String pathToR2RMLMappingDocument) {
+		R2RMLMapping r2rmlMapping = null;
+		try {
+			if (mappingCache)
+				r2rmlMapping = R2RMLMappingCache
+						.extractR2RMLMapping(pathToR2RMLMappingDocument);
+			else
+				r2rmlMapping = R2RMLMappingFactory
+						.extractR2RMLMapping(pathToR2RMLMappingDocument);
+		} catch (InvalidR2RMLStructureException e) {
+			e.printStackTrace();
+			System.exit(-1);
+		} catch (InvalidR2RMLSyntaxException e) {
+			e.printStackTrace();
+			System.exit(-1);
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(-1);
+		}
+		return r2rmlMapping;
+	}
+
 }
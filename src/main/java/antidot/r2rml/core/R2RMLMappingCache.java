@@ -0,0 +1,316 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : R2RML Mapping Cache
+ *
+ * Binary copy of a validated R2RML Mapping object, written next to its
+ * R2RML file and keyed by the SHA-1 hash of this file. A later extraction
+ * of an unchanged file reads this copy instead of parsing and validating
+ * the Turtle document. A cache which is stale, corrupt or written by
+ * another version of the model is ignored : the file is parsed again and
+ * the cache is rewritten. The version of the model is a hash of the
+ * serialized fields of its classes, so any change of these fields
+ * invalidates existing caches whatever their serialVersionUID. A cache
+ * is read by a stream which only resolves the classes a mapping is made of.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openrdf.model.Value;
+
+import antidot.r2rml.exception.InvalidR2RMLStructureException;
+import antidot.r2rml.exception.InvalidR2RMLSyntaxException;
+import antidot.r2rml.model.ObjectMap;
+import antidot.r2rml.model.PredicateMap;
+import antidot.r2rml.model.PredicateObjectMap;
+import antidot.r2rml.model.R2RMLMapping;
+import antidot.r2rml.model.RefObjectMap;
+import antidot.r2rml.model.RefPredicateMap;
+import antidot.r2rml.model.RefPredicateObjectMap;
+import antidot.r2rml.model.SubjectMap;
+import antidot.r2rml.model.TermType;
+import antidot.r2rml.model.TriplesMap;
+import antidot.xmls.type.XSDType;
+
+public abstract class R2RMLMappingCache {
+
+	// Log
+	private static Log log = LogFactory.getLog(R2RMLMappingCache.class);
+
+	// Extension of cache files
+	public static String cacheExtension = ".r2rmlc";
+
+	// Version of cache layout
+	private static String cacheVersion = "r2rml-mapping-cache-3";
+
+	// Classes of the model written into caches
+	private static Class<?>[] modelClasses = { R2RMLMapping.class,
+			TriplesMap.class, SubjectMap.class, PredicateObjectMap.class,
+			PredicateMap.class, ObjectMap.class, RefPredicateObjectMap.class,
+			RefPredicateMap.class, RefObjectMap.class, TermType.class,
+			XSDType.class };
+
+	// Packages of the Java classes of a mapping (without their subpackages)
+	private static String[] javaPackages = { "java.lang", "java.util",
+			"java.math" };
+
+	// Version of the model : hash of the serialized form of its classes
+	// (computed at first use)
+	private static String modelVersion;
+
+	/**
+	 * Object input stream resolving only the classes of the model, the
+	 * classes of the Java packages of a mapping and the implementations of
+	 * Sesame values. A cache naming any other class is rejected before this
+	 * class is initialized.
+	 */
+	private static class MappingInputStream extends ObjectInputStream {
+
+		public MappingInputStream(InputStream in) throws IOException {
+			super(in);
+		}
+
+		protected Class<?> resolveClass(ObjectStreamClass desc)
+				throws IOException, ClassNotFoundException {
+			String name = desc.getName();
+			for (Class<?> modelClass : modelClasses)
+				if (modelClass.getName().equals(name))
+					return modelClass;
+			for (String javaPackage : javaPackages)
+				if (name.startsWith(javaPackage + ".")
+						&& name.indexOf('.', javaPackage.length() + 1) == -1)
+					return super.resolveClass(desc);
+			Class<?> result = Class.forName(name, false,
+					R2RMLMappingCache.class.getClassLoader());
+			if (!Value.class.isAssignableFrom(result))
+				throw new InvalidClassException(name,
+						"not a class of a mapping");
+			return result;
+		}
+	}
+
+	/**
+	 * Extract R2RML Mapping object from a R2RML file, from its cache if the
+	 * file has not changed since the cache was written. Otherwise the file
+	 * is parsed by R2RMLMappingFactory and its cache is written.
+	 *
+	 * @param fileToR2RMLFile
+	 * @return
+	 * @throws InvalidR2RMLStructureException
+	 * @throws InvalidR2RMLSyntaxException
+	 */
+	public static R2RMLMapping extractR2RMLMapping(String fileToR2RMLFile)
+			throws InvalidR2RMLStructureException, InvalidR2RMLSyntaxException {
+		File cacheFile = new File(fileToR2RMLFile + cacheExtension);
+		String hash = null;
+		try {
+			hash = hashFile(new File(fileToR2RMLFile));
+		} catch (IOException e) {
+			// The factory reports unreadable files
+			return R2RMLMappingFactory.extractR2RMLMapping(fileToR2RMLFile);
+		}
+		if (cacheFile.exists()) {
+			R2RMLMapping result = readCache(cacheFile, hash);
+			if (result != null)
+				return result;
+		}
+		R2RMLMapping result = R2RMLMappingFactory
+				.extractR2RMLMapping(fileToR2RMLFile);
+		writeCache(cacheFile, hash, result);
+		return result;
+	}
+
+	/**
+	 * Read a cached R2RML Mapping object, or returns null if the cache is
+	 * stale or can not be read.
+	 *
+	 * @param cacheFile
+	 * @param hash
+	 *            Hash of current R2RML file
+	 * @return
+	 */
+	private static R2RMLMapping readCache(File cacheFile, String hash) {
+		try {
+			ObjectInputStream in = new MappingInputStream(
+					new BufferedInputStream(new FileInputStream(cacheFile)));
+			try {
+				if (!cacheVersion.equals(in.readUTF())
+						|| !getModelVersion().equals(in.readUTF())
+						|| !hash.equals(in.readUTF())) {
+					if (log.isDebugEnabled())
+						log.debug("[R2RMLMappingCache:readCache] Cache "
+								+ cacheFile + " is stale.");
+					return null;
+				}
+				R2RMLMapping result = (R2RMLMapping) in.readObject();
+				if (log.isDebugEnabled())
+					log.debug("[R2RMLMappingCache:readCache] "
+							+ result.getTriplesMaps().size()
+							+ " triplesMaps read from cache " + cacheFile);
+				return result;
+			} finally {
+				in.close();
+			}
+		} catch (Exception e) {
+			if (log.isWarnEnabled())
+				log.warn("[R2RMLMappingCache:readCache] Cache " + cacheFile
+						+ " can not be read, mapping will be parsed : " + e);
+		}
+		return null;
+	}
+
+	/**
+	 * Write a R2RML Mapping object into its cache. Failures are logged : the
+	 * mapping will be parsed by the next extraction.
+	 *
+	 * @param cacheFile
+	 * @param hash
+	 *            Hash of R2RML file
+	 * @param r2rmlMapping
+	 */
+	private static void writeCache(File cacheFile, String hash,
+			R2RMLMapping r2rmlMapping) {
+		// Write a whole file before replacing the cache, so a concurrent run
+		// never reads a partial cache
+		File tmpFile = new File(cacheFile.getPath() + ".tmp"
+				+ System.nanoTime());
+		try {
+			ObjectOutputStream out = new ObjectOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tmpFile)));
+			try {
+				out.writeUTF(cacheVersion);
+				out.writeUTF(getModelVersion());
+				out.writeUTF(hash);
+				out.writeObject(r2rmlMapping);
+			} finally {
+				out.close();
+			}
+			if (!tmpFile.renameTo(cacheFile)) {
+				cacheFile.delete();
+				if (!tmpFile.renameTo(cacheFile))
+					throw new IOException(tmpFile + " can not be renamed.");
+			}
+			if (log.isDebugEnabled())
+				log.debug("[R2RMLMappingCache:writeCache] Cache " + cacheFile
+						+ " written.");
+		} catch (IOException e) {
+			if (log.isWarnEnabled())
+				log.warn("[R2RMLMappingCache:writeCache] Cache " + cacheFile
+						+ " can not be written : " + e.getMessage());
+		} finally {
+			tmpFile.delete();
+		}
+	}
+
+	/**
+	 * Returns the SHA-1 hash of the content of a file, in hexadecimal.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	private static String hashFile(File file) throws IOException {
+		MessageDigest digest = createDigest();
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1)
+				digest.update(buffer, 0, read);
+		} finally {
+			in.close();
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Returns the version of the model : the SHA-1 hash, in hexadecimal, of
+	 * the names and types of the serialized fields of its classes and of the
+	 * constants of its enums.
+	 *
+	 * @return
+	 */
+	private static synchronized String getModelVersion() {
+		if (modelVersion == null) {
+			StringBuffer format = new StringBuffer();
+			for (Class<?> modelClass : modelClasses) {
+				format.append(modelClass.getName() + "{");
+				if (modelClass.isEnum())
+					for (Object constant : modelClass.getEnumConstants())
+						format.append(constant + ";");
+				else
+					for (ObjectStreamField field : ObjectStreamClass.lookup(
+							modelClass).getFields())
+						format.append(field.getName() + ":"
+								+ field.getType().getName() + ";");
+				format.append("}");
+			}
+			MessageDigest digest = createDigest();
+			try {
+				digest.update(format.toString().getBytes("UTF-8"));
+			} catch (IOException e) {
+				throw new IllegalStateException(
+						"[R2RMLMappingCache:getModelVersion] UTF-8 is not "
+								+ "available.");
+			}
+			modelVersion = toHex(digest.digest());
+			if (log.isDebugEnabled())
+				log.debug("[R2RMLMappingCache:getModelVersion] Model version : "
+						+ modelVersion);
+		}
+		return modelVersion;
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(
+					"[R2RMLMappingCache:createDigest] SHA-1 is not available.");
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuffer result = new StringBuffer();
+		for (byte b : bytes)
+			result.append(String.format("%02x", b));
+		return result.toString();
+	}
+
+}
@@ -53,7 +53,6 @@ import antidot.r2rml.model.RefPredicateObjectMap;
 import antidot.r2rml.model.SubjectMap;
 import antidot.r2rml.model.TermType;
 import antidot.r2rml.model.TriplesMap;
-import antidot.rdf.impl.sesame.SesameDataSet;
 import antidot.xmls.type.XSDType;
 
 public abstract class R2RMLMappingFactory {
@@ -88,8 +87,8 @@ public abstract class R2RMLMappingFactory {
 	 */
 	public static R2RMLMapping extractR2RMLMapping(String fileToR2RMLFile)
 			throws InvalidR2RMLStructureException, InvalidR2RMLSyntaxException {
-		// Load RDF data from R2RML Mapping document
-		SesameDataSet r2rmlMappingGraph = new SesameDataSet();
+		// Load RDF data from R2RML Mapping document in one pass
+		R2RMLMappingGraph r2rmlMappingGraph = new R2RMLMappingGraph();
 		r2rmlMappingGraph.loadDataFromFile(fileToR2RMLFile, RDFFormat.TURTLE);
 		log
 				.debug("[R2RMLFactory:extractR2RMLMapping] Number of R2RML triples in file "
@@ -143,7 +142,7 @@ public abstract class R2RMLMappingFactory {
 	 * @throws InvalidR2RMLSyntaxException
 	 */
 	private static void extractTriplesMap(TriplesMap triplesMap,
-			SesameDataSet r2rmlMappingGraph, Resource triplesMapSubject,
+			R2RMLMappingGraph r2rmlMappingGraph, Resource triplesMapSubject,
 			HashMap<URI, TriplesMap> storedTriplesMaps)
 			throws InvalidR2RMLStructureException, InvalidR2RMLSyntaxException {
 		if (log.isDebugEnabled())
@@ -182,7 +181,7 @@ public abstract class R2RMLMappingFactory {
 	 * @return
 	 */
 	private static String extractStringProperty(
-			SesameDataSet r2rmlMappingGraph, Resource subject,
+			R2RMLMappingGraph r2rmlMappingGraph, Resource subject,
 			R2RMLVocabulary property) {
 		if (log.isDebugEnabled())
 			log.debug("[R2RMLFactory:extractStringProperty] From subject : "
@@ -225,8 +224,9 @@ public abstract class R2RMLMappingFactory {
 	 * @param subject
 	 * @return
 	 */
-	private static Value extractValueProperty(SesameDataSet r2rmlMappingGraph,
-			Resource subject, R2RMLVocabulary property) {
+	private static Value extractValueProperty(
+			R2RMLMappingGraph r2rmlMappingGraph, Resource subject,
+			R2RMLVocabulary property) {
 		if (log.isDebugEnabled())
 			log.debug("[R2RMLFactory:extractValueProperty] From subject : "
 					+ subject.stringValue() + " with property : " + property);
@@ -269,7 +269,7 @@ public abstract class R2RMLMappingFactory {
 	 * @throws InvalidR2RMLStructureException
 	 */
 	private static ISubjectMap extractSubjectMap(
-			SesameDataSet r2rmlMappingGraph, Resource triplesMapSubject)
+			R2RMLMappingGraph r2rmlMappingGraph, Resource triplesMapSubject)
 			throws InvalidR2RMLStructureException, InvalidR2RMLSyntaxException {
 		if (log.isDebugEnabled())
 			log.debug("[R2RMLFactory:extractSubjectMap] -- From subject : "
@@ -341,7 +341,7 @@ public abstract class R2RMLMappingFactory {
 	 * @return
 	 */
 	private static Set<String> extractStringsProperty(
-			SesameDataSet r2rmlMappingGraph, Resource resource,
+			R2RMLMappingGraph r2rmlMappingGraph, Resource resource,
 			R2RMLVocabulary property) {
 		HashSet<String> strings = new HashSet<String>();
 		if (log.isDebugEnabled())
@@ -376,7 +376,7 @@ public abstract class R2RMLMappingFactory {
 	 * @return
 	 */
 	private static Set<Value> extractValuesProperty(
-			SesameDataSet r2rmlMappingGraph, Resource subject,
+			R2RMLMappingGraph r2rmlMappingGraph, Resource subject,
 			R2RMLVocabulary property) {
 		Set<Value> values = new HashSet<Value>();
 		if (log.isDebugEnabled())
@@ -415,7 +415,7 @@ public abstract class R2RMLMappingFactory {
 	 * @throws InvalidR2RMLStructureException
 	 */
 	private static HashSet<PredicateObjectMap> extractPredicateObjectMaps(
-			SesameDataSet r2rmlMappingGraph, Resource triplesMapSubject)
+			R2RMLMappingGraph r2rmlMappingGraph, Resource triplesMapSubject)
 			throws InvalidR2RMLSyntaxException, InvalidR2RMLStructureException {
 		HashSet<PredicateObjectMap> result = new HashSet<PredicateObjectMap>();
 		if (log.isDebugEnabled())
@@ -488,7 +488,8 @@ public abstract class R2RMLMappingFactory {
 	 * @throws InvalidR2RMLStructureException
 	 * @throws InvalidR2RMLSyntaxException
 	 */
-	private static ObjectMap extractObjectMap(SesameDataSet r2rmlMappingGraph,
+	private static ObjectMap extractObjectMap(
+			R2RMLMappingGraph r2rmlMappingGraph,
 			Resource predicateObjectMapSubject)
 			throws InvalidR2RMLSyntaxException, InvalidR2RMLStructureException {
 		if (log.isDebugEnabled())
@@ -552,7 +553,8 @@ public abstract class R2RMLMappingFactory {
 	 * @throws InvalidR2RMLStructureException
 	 */
 	private static PredicateMap extractPredicateMap(
-			SesameDataSet r2rmlMappingGraph, Resource predicateObjectMapSubject)
+			R2RMLMappingGraph r2rmlMappingGraph,
+			Resource predicateObjectMapSubject)
 			throws InvalidR2RMLStructureException, InvalidR2RMLSyntaxException {
 
 		if (log.isDebugEnabled())
@@ -613,7 +615,7 @@ public abstract class R2RMLMappingFactory {
 	 * @throws InvalidR2RMLSyntaxException
 	 */
 	private static HashSet<RefPredicateObjectMap> extractRefPredicateObjectMaps(
-			SesameDataSet r2rmlMappingGraph, Resource triplesMapSubject,
+			R2RMLMappingGraph r2rmlMappingGraph, Resource triplesMapSubject,
 			HashMap<URI, TriplesMap> storedTriplesMaps)
 			throws InvalidR2RMLSyntaxException, InvalidR2RMLStructureException {
 		HashSet<RefPredicateObjectMap> result = new HashSet<RefPredicateObjectMap>();
@@ -687,7 +689,7 @@ public abstract class R2RMLMappingFactory {
 	 * @return
 	 */
 	private static RefPredicateMap extractRefPredicateMap(
-			SesameDataSet r2rmlMappingGraph,
+			R2RMLMappingGraph r2rmlMappingGraph,
 			Resource refPredicateObjectMapSubject) {
 		if (log.isDebugEnabled())
 			log
@@ -736,7 +738,7 @@ public abstract class R2RMLMappingFactory {
 	 * @throws InvalidR2RMLSyntaxException
 	 */
 	private static RefObjectMap extractRefObjectMap(
-			SesameDataSet r2rmlMappingGraph,
+			R2RMLMappingGraph r2rmlMappingGraph,
 			Resource refPredicateObjectMapSubject,
 			HashMap<URI, TriplesMap> storedTriplesMaps)
 			throws InvalidR2RMLSyntaxException {
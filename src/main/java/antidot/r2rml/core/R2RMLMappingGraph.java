@@ -0,0 +1,181 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : R2RML Mapping Graph
+ *
+ * Triples of a R2RML mapping document, read in one pass by a Rio parser and
+ * indexed by subject in memory. The mapping factory reads each property of
+ * each map from this index instead of querying a Sesame repository, so a
+ * document is loaded in a time linear in its size.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.RDFParser;
+import org.openrdf.rio.Rio;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+
+import antidot.r2rml.exception.InvalidR2RMLSyntaxException;
+
+public class R2RMLMappingGraph extends RDFHandlerBase {
+
+	// Log
+	private static Log log = LogFactory.getLog(R2RMLMappingGraph.class);
+
+	// Statements by subject, in document order
+	private HashMap<Resource, List<Statement>> statements;
+
+	// Number of distinct statements
+	private int size;
+
+	private ValueFactory valueFactory;
+
+	public R2RMLMappingGraph() {
+		statements = new HashMap<Resource, List<Statement>>();
+		size = 0;
+		valueFactory = ValueFactoryImpl.getInstance();
+	}
+
+	/**
+	 * Load the triples of a file.
+	 *
+	 * @param filePath
+	 * @param format
+	 * @throws InvalidR2RMLSyntaxException
+	 */
+	public void loadDataFromFile(String filePath, RDFFormat format)
+			throws InvalidR2RMLSyntaxException {
+		File file = new File(filePath);
+		RDFParser parser = Rio.createParser(format, valueFactory);
+		parser.setRDFHandler(this);
+		try {
+			InputStream in = new FileInputStream(file);
+			try {
+				parser.parse(in, file.toURI().toString());
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new InvalidR2RMLSyntaxException(
+					"[R2RMLMappingGraph:loadDataFromFile] " + filePath
+							+ " can not be read : " + e.getMessage());
+		} catch (RDFParseException e) {
+			throw new InvalidR2RMLSyntaxException(
+					"[R2RMLMappingGraph:loadDataFromFile] " + filePath
+							+ " is not valid " + format + " : "
+							+ e.getMessage());
+		} catch (RDFHandlerException e) {
+			throw new InvalidR2RMLSyntaxException(
+					"[R2RMLMappingGraph:loadDataFromFile] " + e.getMessage());
+		}
+		if (log.isDebugEnabled())
+			log.debug("[R2RMLMappingGraph:loadDataFromFile] " + size
+					+ " triples of " + statements.size()
+					+ " subjects loaded from " + filePath);
+	}
+
+	public void handleStatement(Statement statement)
+			throws RDFHandlerException {
+		List<Statement> subjectStatements = statements.get(statement
+				.getSubject());
+		if (subjectStatements == null) {
+			subjectStatements = new ArrayList<Statement>(4);
+			statements.put(statement.getSubject(), subjectStatements);
+		}
+		// A graph is a set of triples
+		for (Statement s : subjectStatements)
+			if (s.getPredicate().equals(statement.getPredicate())
+					&& s.getObject().equals(statement.getObject()))
+				return;
+		subjectStatements.add(statement);
+		size++;
+	}
+
+	/**
+	 * Returns the statements matching a pattern. A pattern without subject
+	 * reads the whole graph : other patterns only read the statements of
+	 * their subject.
+	 *
+	 * @param s
+	 *            subject (null for wildcard)
+	 * @param p
+	 *            predicate (null for wildcard)
+	 * @param o
+	 *            object (null for wildcard)
+	 * @return
+	 */
+	public List<Statement> tuplePattern(Resource s, URI p, Value o) {
+		List<Statement> result = new ArrayList<Statement>();
+		if (s == null) {
+			for (List<Statement> subjectStatements : statements.values())
+				match(subjectStatements, p, o, result);
+		} else {
+			List<Statement> subjectStatements = statements.get(s);
+			if (subjectStatements != null)
+				match(subjectStatements, p, o, result);
+		}
+		return result;
+	}
+
+	private static void match(List<Statement> statements, URI p, Value o,
+			List<Statement> result) {
+		for (Statement statement : statements)
+			if ((p == null || p.equals(statement.getPredicate()))
+					&& (o == null || o.equals(statement.getObject())))
+				result.add(statement);
+	}
+
+	/**
+	 * @param uri
+	 * @return
+	 */
+	public URI URIref(String uri) {
+		return valueFactory.createURI(uri);
+	}
+
+	/**
+	 * @return
+	 */
+	public int getSize() {
+		return size;
+	}
+
+}
@@ -0,0 +1,215 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Template
+ *
+ * Compiled form of a rr:template expression. The expression is parsed once
+ * into literal segments and column names : a template with n column
+ * references has n + 1 segments, a column value being rendered between two
+ * segments. Compiled templates are immutable ; column names are resolved to
+ * column indexes of each logical table before rendering.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class R2RMLTemplate {
+
+	// Template expression
+	private String template;
+
+	// Literal segments
+	private String[] segments;
+
+	// Referenced column names
+	private String[] columnNames;
+
+	private R2RMLTemplate(String template, String[] segments,
+			String[] columnNames) {
+		this.template = template;
+		this.segments = segments;
+		this.columnNames = columnNames;
+	}
+
+	/**
+	 * Parse a template expression. Its curly braces are supposed to be
+	 * checked by the model.
+	 * 
+	 * @param template
+	 * @return
+	 */
+	public static R2RMLTemplate compile(String template) {
+		List<String> segments = new ArrayList<String>();
+		List<String> columnNames = new ArrayList<String>();
+		int start = 0;
+		int opened = template.indexOf('{');
+		while (opened != -1) {
+			int closed = template.indexOf('}', opened);
+			if (closed == -1)
+				// This error have not to be happened ! It must be
+				// caught by the model !
+				throw new IllegalStateException(
+						"[R2RMLTemplate:compile] Invalid R2RML"
+								+ " syntax expression : " + template);
+			segments.add(template.substring(start, opened));
+			columnNames.add(template.substring(opened + 1, closed));
+			start = closed + 1;
+			opened = template.indexOf('{', start);
+		}
+		segments.add(template.substring(start));
+		return new R2RMLTemplate(template, segments
+				.toArray(new String[segments.size()]), columnNames
+				.toArray(new String[columnNames.size()]));
+	}
+
+	/**
+	 * @return
+	 */
+	public String getTemplate() {
+		return template;
+	}
+
+	/**
+	 * @return
+	 */
+	public List<String> getColumnNames() {
+		return Collections.unmodifiableList(Arrays.asList(columnNames));
+	}
+
+	/**
+	 * Resolve referenced columns to their indexes in a logical table, column
+	 * names being prefixed in this logical table.
+	 * 
+	 * @param logicalTable
+	 * @param columnPrefix
+	 * @return
+	 * @throws SQLException
+	 */
+	public int[] resolveColumnIndexes(ResultSet logicalTable,
+			String columnPrefix) throws SQLException {
+		int[] columnIndexes = new int[columnNames.length];
+		for (int i = 0; i < columnNames.length; i++)
+			columnIndexes[i] = logicalTable.findColumn(columnPrefix
+					+ columnNames[i]);
+		return columnIndexes;
+	}
+
+	/**
+	 * Render this template with the current row of a logical table. Returns
+	 * null if a referenced column value is null.
+	 * 
+	 * @param row
+	 * @param columnIndexes
+	 *            Indexes returned by resolveColumnIndexes for this logical
+	 *            table
+	 * @param buffer
+	 *            Reused buffer
+	 * @return
+	 * @throws SQLException
+	 */
+	public String render(ColumnAccessor row, int[] columnIndexes,
+			StringBuilder buffer) throws SQLException {
+		buffer.setLength(0);
+		buffer.append(segments[0]);
+		for (int i = 0; i < columnIndexes.length; i++) {
+			String value = row.getString(columnIndexes[i]);
+			if (value == null)
+				return null;
+			buffer.append(value);
+			buffer.append(segments[i + 1]);
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * Render this template with a row of a column batch. Returns null if a
+	 * referenced column value is null.
+	 * 
+	 * @param batch
+	 * @param columnIndexes
+	 *            Indexes returned by resolveColumnIndexes for the logical
+	 *            table of this batch
+	 * @param row
+	 * @param buffer
+	 *            Reused buffer
+	 * @return
+	 */
+	public String render(ColumnBatch batch, int[] columnIndexes, int row,
+			StringBuilder buffer) {
+		buffer.setLength(0);
+		buffer.append(segments[0]);
+		for (int i = 0; i < columnIndexes.length; i++) {
+			String value = batch.getStrings(columnIndexes[i])[row];
+			if (value == null)
+				return null;
+			buffer.append(value);
+			buffer.append(segments[i + 1]);
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * Render this template with all rows of a column batch. A result is null
+	 * if a referenced column value of its row is null.
+	 * 
+	 * @param batch
+	 * @param columnIndexes
+	 *            Indexes returned by resolveColumnIndexes for the logical
+	 *            table of this batch
+	 * @param results
+	 *            Vector of results, indexed by row
+	 * @param buffer
+	 *            Reused buffer
+	 */
+	public void render(ColumnBatch batch, int[] columnIndexes,
+			String[] results, StringBuilder buffer) {
+		String[][] columns = new String[columnIndexes.length][];
+		for (int i = 0; i < columnIndexes.length; i++)
+			columns[i] = batch.getStrings(columnIndexes[i]);
+		int size = batch.size();
+		rows: for (int row = 0; row < size; row++) {
+			buffer.setLength(0);
+			buffer.append(segments[0]);
+			for (int i = 0; i < columns.length; i++) {
+				String value = columns[i][row];
+				if (value == null) {
+					results[row] = null;
+					continue rows;
+				}
+				buffer.append(value);
+				buffer.append(segments[i + 1]);
+			}
+			results[row] = buffer.toString();
+		}
+	}
+
+	public String toString() {
+		return template;
+	}
+
+}
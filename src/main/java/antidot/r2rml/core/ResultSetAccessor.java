@@ -0,0 +1,59 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : ResultSet Accessor
+ *
+ * Column accessor of the current row of a ResultSet.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+public class ResultSetAccessor implements ColumnAccessor {
+
+	// Read result set
+	private ResultSet resultSet;
+
+	public ResultSetAccessor(ResultSet resultSet) {
+		this.resultSet = resultSet;
+	}
+
+	public int findColumn(String columnLabel) throws SQLException {
+		return resultSet.findColumn(columnLabel);
+	}
+
+	public String getString(int column) throws SQLException {
+		return resultSet.getString(column);
+	}
+
+	public Object getObject(int column) throws SQLException {
+		return resultSet.getObject(column);
+	}
+
+	public Timestamp getTimestamp(int column) throws SQLException {
+		return resultSet.getTimestamp(column);
+	}
+
+}
@@ -0,0 +1,122 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Row Mapper
+ *
+ * Base class of the row mappers generated by RowMapperCompiler. A generated
+ * row mapper emits the triples of the predicateObjectMaps of a TriplesMap
+ * for a row of its logical table, with straight-line code specialized for
+ * each predicateObjectMap. The predicateObjectMaps which it cannot handle
+ * are left to the interpreter of the engine.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openrdf.model.Resource;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+
+import antidot.rdf.impl.sesame.TripleSink;
+
+public abstract class RowMapper {
+
+	// Log
+	private static Log log = LogFactory.getLog(RowMapper.class);
+
+	// Value factory
+	protected static ValueFactory vf = new ValueFactoryImpl();
+
+	// PredicateObjectMaps which are not handled by this row mapper
+	private List<TriplesMapPlan.PredicateObjectPlan> interpretedPlans;
+
+	/**
+	 * Emit the triples of current row of a logical table.
+	 * 
+	 * @param row
+	 * @param subject
+	 * @param subjectContexts
+	 *            Contexts of subject (a null context stands for the default
+	 *            graph)
+	 * @param sink
+	 * @throws SQLException
+	 */
+	public abstract void mapRow(ColumnAccessor row, Resource subject,
+			Resource[] subjectContexts, TripleSink sink)
+			throws SQLException;
+
+	/**
+	 * @return
+	 */
+	public List<TriplesMapPlan.PredicateObjectPlan> getInterpretedPlans() {
+		return interpretedPlans;
+	}
+
+	/**
+	 * @param interpretedPlans
+	 */
+	public void setInterpretedPlans(
+			List<TriplesMapPlan.PredicateObjectPlan> interpretedPlans) {
+		this.interpretedPlans = interpretedPlans;
+	}
+
+	/**
+	 * Add a triple in the contexts of its subject and in the contexts of its
+	 * predicateObjectMap.
+	 * 
+	 * @param sink
+	 * @param subject
+	 * @param predicate
+	 * @param object
+	 * @param subjectContexts
+	 * @param contexts
+	 */
+	protected void emit(TripleSink sink, Resource subject,
+			URI predicate, Value object, Resource[] subjectContexts,
+			Resource[] contexts) {
+		for (Resource context : subjectContexts) {
+			if (context == null)
+				sink.add(subject, predicate, object);
+			else
+				sink.add(subject, predicate, object, context);
+		}
+		for (Resource context : contexts) {
+			if (context == null)
+				sink.add(subject, predicate, object);
+			else
+				sink.add(subject, predicate, object, context);
+		}
+	}
+
+	protected void nullObject() {
+		if (log.isWarnEnabled())
+			log.warn("[RowMapper:nullObject] Object of triple is null : "
+					+ "this triple will be ignored.");
+	}
+
+}
@@ -0,0 +1,432 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Row Mapper Compiler
+ *
+ * Generates a RowMapper class for a TriplesMapPlan. The Java source of the
+ * class is compiled in memory with the system Java compiler (javax.tools),
+ * which is only available when running on a JDK : otherwise, no row mapper
+ * is generated and the engine interprets the plan.
+ * 
+ * A predicateObjectMap is generated when its predicate is constant and its
+ * object is constant or read from a column (except for date datatypes which
+ * require a conversion). Subjects, graphs read from rows and
+ * refPredicateObjectMaps are always interpreted by the engine, from the
+ * column indexes and templates resolved by the plan.
+ * 
+ * Constant terms are passed to the constructor of a row mapper, so plans
+ * of the same shape (same generated code up to their constants) share one
+ * class : a shape is compiled once per compiler, and the interpreter is
+ * used whenever a class can not be generated.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Constructor;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import javax.tools.JavaFileObject.Kind;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openrdf.model.Resource;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+
+import antidot.r2rml.model.ObjectMap;
+import antidot.r2rml.model.TermType;
+import antidot.rdf.impl.sesame.TripleSink;
+import antidot.xmls.type.XSDType;
+
+public class RowMapperCompiler {
+
+	// Log
+	private static Log log = LogFactory.getLog(RowMapperCompiler.class);
+
+	// Package of generated classes
+	private static String generatedPackage = "antidot.r2rml.core.generated";
+
+	// Number of generated classes (used to name them)
+	private static int nbGeneratedClasses = 0;
+
+	// Value factory
+	private static ValueFactory vf = new ValueFactoryImpl();
+
+	// XSD namespace
+	private static String xsd = "http://www.w3.org/2001/XMLSchema#";
+
+	// System Java compiler (null if not available)
+	private JavaCompiler compiler;
+
+	// Class path of generated classes
+	private String classPath;
+
+	// Constructor of generated class by shape of plan (null if the shape
+	// can not be compiled)
+	private HashMap<String, Constructor<?>> rowMapperConstructors;
+
+	public RowMapperCompiler() {
+		compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null)
+			if (log.isWarnEnabled())
+				log.warn("[RowMapperCompiler:RowMapperCompiler] No Java "
+						+ "compiler available (JRE) : TriplesMaps will be "
+						+ "interpreted.");
+		classPath = getClassPath();
+		rowMapperConstructors = new HashMap<String, Constructor<?>>();
+	}
+
+	/**
+	 * Returns the class path of generated classes : locations of the classes
+	 * they reference, whatever the class loader which loaded them, followed
+	 * by the class path of the JVM.
+	 * 
+	 * @return
+	 */
+	private static String getClassPath() {
+		Set<String> locations = new LinkedHashSet<String>();
+		for (Class<?> referencedClass : new Class<?>[] { RowMapper.class,
+				TripleSink.class, Value.class, ValueFactoryImpl.class }) {
+			CodeSource codeSource = referencedClass.getProtectionDomain()
+					.getCodeSource();
+			if (codeSource == null || codeSource.getLocation() == null)
+				continue;
+			URL location = codeSource.getLocation();
+			try {
+				locations.add(new File(location.toURI()).getPath());
+			} catch (URISyntaxException e) {
+				locations.add(location.getPath());
+			} catch (IllegalArgumentException e) {
+				// Not a file (nested jar for instance)
+				if (log.isDebugEnabled())
+					log.debug("[RowMapperCompiler:getClassPath] Location "
+							+ location + " is not a file.");
+			}
+		}
+		String jvmClassPath = System.getProperty("java.class.path");
+		if (jvmClassPath != null && jvmClassPath.length() > 0)
+			locations.add(jvmClassPath);
+		StringBuffer result = new StringBuffer();
+		for (String location : locations) {
+			if (result.length() > 0)
+				result.append(File.pathSeparator);
+			result.append(location);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * @return
+	 */
+	public boolean isAvailable() {
+		return compiler != null;
+	}
+
+	/**
+	 * Generate the row mapper of a triplesMap plan. The class of a shape of
+	 * plan is compiled at its first use only. Returns null if it can not be
+	 * generated : the plan is then interpreted.
+	 * 
+	 * @param plan
+	 * @return
+	 */
+	public synchronized RowMapper compile(TriplesMapPlan plan) {
+		if (compiler == null)
+			return null;
+		List<Object> constants = new ArrayList<Object>();
+		List<TriplesMapPlan.PredicateObjectPlan> interpretedPlans = new ArrayList<TriplesMapPlan.PredicateObjectPlan>();
+		StringBuffer fields = new StringBuffer();
+		StringBuffer constructor = new StringBuffer();
+		StringBuffer body = new StringBuffer();
+		int cpt = 0;
+		for (TriplesMapPlan.PredicateObjectPlan predicateObjectPlan : plan
+				.getPredicateObjectPlans()) {
+			if (!isGenerated(predicateObjectPlan)) {
+				interpretedPlans.add(predicateObjectPlan);
+				continue;
+			}
+			ObjectMap objectMap = predicateObjectPlan.getObjectMap();
+			String p = "p" + cpt;
+			String g = "g" + cpt;
+			declare(fields, constructor, "org.openrdf.model.URI", p,
+					constants, predicateObjectPlan.getPredicate());
+			declare(fields, constructor, "org.openrdf.model.Resource[]", g,
+					constants, toContexts(predicateObjectPlan));
+			String object;
+			if (objectMap.getObject() != null) {
+				// Constant object
+				object = "o" + cpt;
+				declare(fields, constructor, "org.openrdf.model.Value",
+						object, constants, objectMap.getObject());
+			} else if (objectMap.getTermType().equals(TermType.BLANK_NODE)) {
+				object = "vf.createBNode(v)";
+			} else if (objectMap.getTermType().equals(TermType.IRI)) {
+				object = "vf.createURI(v)";
+			} else if (predicateObjectPlan.getDatatype() != null) {
+				String d = "d" + cpt;
+				declare(fields, constructor, "org.openrdf.model.URI", d,
+						constants, vf.createURI(xsd, predicateObjectPlan
+								.getDatatype().toString()));
+				object = "vf.createLiteral(v, " + d + ")";
+			} else if (objectMap.getLanguage() != null) {
+				String l = "l" + cpt;
+				declare(fields, constructor, "String", l, constants,
+						objectMap.getLanguage());
+				object = "vf.createLiteral(v, " + l + ")";
+			} else {
+				object = "vf.createLiteral(v)";
+			}
+			body.append("\t\t// predicateObjectMap " + cpt + "\n");
+			if (objectMap.getObject() != null) {
+				body.append("\t\temit(ds, s, " + p + ", " + object + ", sc, "
+						+ g + ");\n");
+			} else {
+				body.append("\t\tv = row.getString("
+						+ predicateObjectPlan.getObjectColumnIndex() + ");\n");
+				body.append("\t\tif (v == null)\n\t\t\tnullObject();\n");
+				body.append("\t\telse\n\t\t\temit(ds, s, " + p + ", " + object
+						+ ", sc, " + g + ");\n");
+			}
+			cpt++;
+		}
+		if (cpt == 0)
+			// Nothing to generate
+			return null;
+		// Constants are not part of the code : the shape of the plan is its
+		// code without class name
+		String shape = fields + "\n" + constructor + "\n" + body;
+		try {
+			Constructor<?> c;
+			if (rowMapperConstructors.containsKey(shape))
+				c = rowMapperConstructors.get(shape);
+			else {
+				c = compileShape(shape, fields, constructor, body);
+				rowMapperConstructors.put(shape, c);
+			}
+			if (c == null)
+				return null;
+			RowMapper rowMapper = (RowMapper) c
+					.newInstance(new Object[] { constants.toArray() });
+			rowMapper.setInterpretedPlans(interpretedPlans);
+			if (log.isDebugEnabled())
+				log.debug("[RowMapperCompiler:compile] "
+						+ c.getDeclaringClass().getName() + " used for "
+						+ cpt + " predicateObjectMaps ("
+						+ interpretedPlans.size() + " interpreted).");
+			return rowMapper;
+		} catch (Exception e) {
+			if (log.isWarnEnabled())
+				log.warn("[RowMapperCompiler:compile] Unable to generate "
+						+ "row mapper : " + e.getMessage());
+		} catch (LinkageError e) {
+			if (log.isWarnEnabled())
+				log.warn("[RowMapperCompiler:compile] Unable to load "
+						+ "row mapper : " + e.getMessage());
+		}
+		// This shape will be interpreted from now on
+		rowMapperConstructors.put(shape, null);
+		return null;
+	}
+
+	/**
+	 * Compile the class of a shape of plan. Returns the constructor of the
+	 * class, or null if it can not be compiled.
+	 * 
+	 * @param shape
+	 * @param fields
+	 * @param constructor
+	 * @param body
+	 * @return
+	 * @throws Exception
+	 */
+	private Constructor<?> compileShape(String shape, StringBuffer fields,
+			StringBuffer constructor, StringBuffer body) throws Exception {
+		String className = nextClassName();
+		String source = "package " + generatedPackage + ";\n\n"
+				+ "public final class " + className
+				+ " extends antidot.r2rml.core.RowMapper {\n\n" + fields
+				+ "\n\tpublic " + className + "(Object[] c) {\n" + constructor
+				+ "\t}\n\n"
+				+ "\tpublic void mapRow(antidot.r2rml.core.ColumnAccessor row, "
+				+ "org.openrdf.model.Resource s, "
+				+ "org.openrdf.model.Resource[] sc, "
+				+ "antidot.rdf.impl.sesame.TripleSink ds) "
+				+ "throws java.sql.SQLException {\n" + "\t\tString v;\n"
+				+ body + "\t}\n\n}\n";
+		if (log.isDebugEnabled())
+			log.debug("[RowMapperCompiler:compileShape] Generated source : "
+					+ source);
+		Class<?> rowMapperClass = compileSource(generatedPackage + "."
+				+ className, source);
+		if (rowMapperClass == null)
+			return null;
+		return rowMapperClass.getConstructor(Object[].class);
+	}
+
+	/**
+	 * Returns true if a predicateObjectMap can be generated.
+	 * 
+	 * @param predicateObjectPlan
+	 * @return
+	 */
+	private boolean isGenerated(
+			TriplesMapPlan.PredicateObjectPlan predicateObjectPlan) {
+		if (predicateObjectPlan.getPredicate() == null)
+			return false;
+		ObjectMap objectMap = predicateObjectPlan.getObjectMap();
+		if (objectMap.getObject() != null)
+			return true;
+		if (predicateObjectPlan.getObjectColumnIndex() == 0)
+			// Template
+			return false;
+		XSDType datatype = predicateObjectPlan.getDatatype();
+		return !(objectMap.getTermType().equals(TermType.LITERAL)
+				&& datatype != null && XSDType.isDateType(datatype));
+	}
+
+	private Resource[] toContexts(
+			TriplesMapPlan.PredicateObjectPlan predicateObjectPlan) {
+		List<Resource> contexts = new ArrayList<Resource>();
+		URI defaultGraph = vf.createURI("http://www.w3.org/ns/r2rml#"
+				+ R2RMLVocabulary.DEFAULT_GRAPH_OBJ);
+		for (URI graph : predicateObjectPlan.getGraphs()) {
+			if (graph.equals(defaultGraph))
+				// Default graph <=> No context
+				contexts.add(null);
+			else
+				contexts.add(graph);
+		}
+		return contexts.toArray(new Resource[contexts.size()]);
+	}
+
+	private void declare(StringBuffer fields, StringBuffer constructor,
+			String type, String name, List<Object> constants, Object value) {
+		fields.append("\tprivate final " + type + " " + name + ";\n");
+		constructor.append("\t\t" + name + " = (" + type + ") c["
+				+ constants.size() + "];\n");
+		constants.add(value);
+	}
+
+	private static synchronized String nextClassName() {
+		nbGeneratedClasses++;
+		return "R2RMLRowMapper" + nbGeneratedClasses;
+	}
+
+	/**
+	 * Compile a Java source in memory and load its class.
+	 * 
+	 * @param className
+	 * @param source
+	 * @return
+	 * @throws ClassNotFoundException
+	 */
+	private Class<?> compileSource(final String className, final String source)
+			throws ClassNotFoundException {
+		final Map<String, ByteArrayOutputStream> classes = new HashMap<String, ByteArrayOutputStream>();
+		StandardJavaFileManager standardFileManager = compiler
+				.getStandardFileManager(null, null, null);
+		JavaFileManager fileManager = new ForwardingJavaFileManager<StandardJavaFileManager>(
+				standardFileManager) {
+
+			public JavaFileObject getJavaFileForOutput(Location location,
+					final String outputClassName, Kind kind, FileObject sibling) {
+				return new SimpleJavaFileObject(java.net.URI.create("mem:///"
+						+ outputClassName.replace('.', '/') + kind.extension),
+						kind) {
+
+					public OutputStream openOutputStream() {
+						ByteArrayOutputStream out = new ByteArrayOutputStream();
+						classes.put(outputClassName, out);
+						return out;
+					}
+				};
+			}
+		};
+		JavaFileObject sourceFile = new SimpleJavaFileObject(java.net.URI
+				.create("string:///" + className.replace('.', '/')
+						+ Kind.SOURCE.extension), Kind.SOURCE) {
+
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+		StringWriter diagnostics = new StringWriter();
+		Boolean success;
+		try {
+			success = compiler.getTask(diagnostics, fileManager, null,
+					Arrays.asList("-classpath", classPath), null,
+					Arrays.asList(sourceFile)).call();
+		} finally {
+			try {
+				fileManager.close();
+			} catch (IOException e) {
+				if (log.isWarnEnabled())
+					log.warn("[RowMapperCompiler:compileSource] Unable to "
+							+ "close file manager : " + e.getMessage());
+			}
+		}
+		if (!success) {
+			if (log.isWarnEnabled())
+				log.warn("[RowMapperCompiler:compileSource] Compilation of "
+						+ className + " failed : " + diagnostics);
+			return null;
+		}
+		ClassLoader classLoader = new ClassLoader(RowMapper.class
+				.getClassLoader()) {
+
+			protected Class<?> findClass(String name)
+					throws ClassNotFoundException {
+				ByteArrayOutputStream out = classes.get(name);
+				if (out == null)
+					throw new ClassNotFoundException(name);
+				byte[] bytes = out.toByteArray();
+				return defineClass(name, bytes, 0, bytes.length);
+			}
+		};
+		return classLoader.loadClass(className);
+	}
+
+}
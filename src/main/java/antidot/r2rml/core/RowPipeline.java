@@ -0,0 +1,293 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Row Pipeline
+ *
+ * Producer/consumer extraction of a logical table in three stages : the
+ * calling thread reads rows into reusable column batches, mapping workers
+ * turn the batches into batches of statements and a single writer adds
+ * these statements to the dataset. Stages are connected by bounded queues :
+ * a stage which is ahead blocks until a buffer is released by the next
+ * one.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import antidot.rdf.impl.sesame.SesameDataSet;
+import antidot.rdf.impl.sesame.TripleSink;
+
+public class RowPipeline {
+
+	// Log
+	private static Log log = LogFactory.getLog(RowPipeline.class);
+
+	// Delay between two checks of a failure by a blocked stage (in ms)
+	private static long pollTimeout = 100;
+
+	/**
+	 * Mapping of the column batches handled by a worker.
+	 */
+	public interface BatchHandler {
+
+		/**
+		 * Map the rows of a column batch.
+		 *
+		 * @param batch
+		 * @param sink
+		 * @throws SQLException
+		 */
+		public void handleBatch(ColumnBatch batch, TripleSink sink)
+				throws SQLException;
+	}
+
+	// Number of column batches (and of statement batches waiting for the
+	// writer)
+	private int nbBuffers;
+
+	// Number of statements which fills a statement batch
+	private int statementsPerBatch;
+
+	// First failure of a stage
+	private AtomicReference<Throwable> failure;
+
+	public RowPipeline(int nbBuffers, int statementsPerBatch) {
+		if (nbBuffers < 1 || statementsPerBatch < 1)
+			throw new IllegalStateException(
+					"[RowPipeline:RowPipeline] Buffer sizes must be positive.");
+		this.nbBuffers = nbBuffers;
+		this.statementsPerBatch = statementsPerBatch;
+	}
+
+	/**
+	 * Read a logical table until its end and map its rows with one worker
+	 * per handler. Returns the number of rows read, once all statements have
+	 * been written.
+	 *
+	 * @param logicalTable
+	 * @param batch
+	 *            Empty batch of the logical table, whose columns are copied
+	 *            by the other batches of the pipeline
+	 * @param handlers
+	 * @param sesameDataSet
+	 * @return
+	 * @throws SQLException
+	 */
+	public long run(ResultSet logicalTable, ColumnBatch batch,
+			List<? extends BatchHandler> handlers,
+			final SesameDataSet sesameDataSet) throws SQLException {
+		failure = new AtomicReference<Throwable>();
+		// Column batches ring
+		final BlockingQueue<ColumnBatch> freeBuffers = new ArrayBlockingQueue<ColumnBatch>(
+				nbBuffers);
+		final BlockingQueue<ColumnBatch> fullBuffers = new ArrayBlockingQueue<ColumnBatch>(
+				nbBuffers + handlers.size());
+		freeBuffers.add(batch);
+		for (int i = 1; i < nbBuffers; i++)
+			freeBuffers.add(new ColumnBatch(batch));
+		final ColumnBatch endOfRows = new ColumnBatch(batch);
+		// Statement batches ring
+		int nbBatches = nbBuffers + handlers.size();
+		final BlockingQueue<StatementBatch> freeBatches = new ArrayBlockingQueue<StatementBatch>(
+				nbBatches);
+		final BlockingQueue<StatementBatch> fullBatches = new ArrayBlockingQueue<StatementBatch>(
+				nbBatches + 1);
+		for (int i = 0; i < nbBatches; i++)
+			freeBatches.add(new StatementBatch(statementsPerBatch));
+		final StatementBatch endOfStatements = new StatementBatch(0);
+		if (log.isDebugEnabled())
+			log.debug("[RowPipeline:run] Map logical table with "
+					+ handlers.size() + " workers, " + nbBuffers
+					+ " batches of " + batch.getCapacity() + " rows and "
+					+ nbBatches + " batches of " + statementsPerBatch
+					+ " statements.");
+
+		ExecutorService executor = Executors
+				.newFixedThreadPool(handlers.size() + 1);
+		long nbRows = 0;
+		try {
+			// Writer
+			Future<Object> writer = executor.submit(new Callable<Object>() {
+
+				public Object call() throws Exception {
+					try {
+						StatementBatch statements = take(fullBatches);
+						while (statements != endOfStatements) {
+							sesameDataSet.addAll(statements.getStatements());
+							statements.clear();
+							put(freeBatches, statements);
+							statements = take(fullBatches);
+						}
+						return null;
+					} catch (Throwable t) {
+						throw fail(t);
+					}
+				}
+			});
+			// Mapping workers
+			List<Future<Object>> workers = new ArrayList<Future<Object>>();
+			for (final BatchHandler handler : handlers)
+				workers.add(executor.submit(new Callable<Object>() {
+
+					public Object call() throws Exception {
+						try {
+							StatementBatch statements = take(freeBatches);
+							ColumnBatch rows = take(fullBuffers);
+							while (rows != endOfRows) {
+								handler.handleBatch(rows, statements);
+								if (statements.size() >= statementsPerBatch) {
+									put(fullBatches, statements);
+									statements = take(freeBatches);
+								}
+								put(freeBuffers, rows);
+								rows = take(fullBuffers);
+							}
+							if (statements.size() > 0)
+								put(fullBatches, statements);
+							else
+								put(freeBatches, statements);
+							return null;
+						} catch (Throwable t) {
+							throw fail(t);
+						}
+					}
+				}));
+			// Reader
+			try {
+				ColumnBatch rows = take(freeBuffers);
+				int nbRead = rows.fill(logicalTable);
+				while (nbRead > 0) {
+					nbRows += nbRead;
+					put(fullBuffers, rows);
+					if (nbRead < rows.getCapacity())
+						// Logical table is exhausted
+						break;
+					rows = take(freeBuffers);
+					nbRead = rows.fill(logicalTable);
+				}
+				for (int i = 0; i < handlers.size(); i++)
+					put(fullBuffers, endOfRows);
+				if (log.isDebugEnabled())
+					log.debug("[RowPipeline:run] " + nbRows + " rows read.");
+			} catch (SQLException e) {
+				fail(e);
+				throw e;
+			} catch (RuntimeException e) {
+				fail(e);
+				throw e;
+			}
+			for (Future<Object> worker : workers)
+				worker.get();
+			put(fullBatches, endOfStatements);
+			writer.get();
+			return nbRows;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(
+					"[RowPipeline:run] Interrupted extraction.");
+		} catch (ExecutionException e) {
+			throw rethrow(failure.get() != null ? failure.get() : e.getCause());
+		} catch (Exception e) {
+			throw rethrow(failure.get() != null ? failure.get() : e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Put an element in a queue. Waits for room unless another stage has
+	 * failed.
+	 *
+	 * @param queue
+	 * @param element
+	 * @throws InterruptedException
+	 */
+	private <T> void put(BlockingQueue<T> queue, T element)
+			throws InterruptedException {
+		while (!queue.offer(element, pollTimeout, TimeUnit.MILLISECONDS))
+			checkFailure();
+	}
+
+	/**
+	 * Take an element from a queue. Waits for an element unless another
+	 * stage has failed.
+	 *
+	 * @param queue
+	 * @return
+	 * @throws InterruptedException
+	 */
+	private <T> T take(BlockingQueue<T> queue) throws InterruptedException {
+		T element = queue.poll(pollTimeout, TimeUnit.MILLISECONDS);
+		while (element == null) {
+			checkFailure();
+			element = queue.poll(pollTimeout, TimeUnit.MILLISECONDS);
+		}
+		return element;
+	}
+
+	private void checkFailure() {
+		if (failure.get() != null)
+			throw new IllegalStateException(
+					"[RowPipeline:checkFailure] Pipeline aborted.");
+	}
+
+	/**
+	 * Record the failure of a stage (only the first one is kept) so that
+	 * blocked stages give up.
+	 *
+	 * @param t
+	 * @return
+	 */
+	private Exception fail(Throwable t) {
+		failure.compareAndSet(null, t);
+		if (t instanceof Exception)
+			return (Exception) t;
+		return new IllegalStateException("[RowPipeline:fail] Stage failed : "
+				+ t.getMessage(), t);
+	}
+
+	private static SQLException rethrow(Throwable cause) throws SQLException {
+		if (cause instanceof SQLException)
+			throw (SQLException) cause;
+		if (cause instanceof RuntimeException)
+			throw (RuntimeException) cause;
+		throw new IllegalStateException("[RowPipeline:run] Extraction failed : "
+				+ cause.getMessage(), cause);
+	}
+
+}
@@ -0,0 +1,289 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Spilled Relation
+ *
+ * A relation whose records are spilled on disk into temporary partition
+ * files. Each record is made of join key values and of payload values, and
+ * it is written in the partition given by the hash of its key. The hash
+ * depends on the partitioning level so that an oversized partition can be
+ * split again with a different distribution.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+public class SpilledRelation {
+
+	// Log
+	private static Log log = LogFactory.getLog(SpilledRelation.class);
+
+	// Size of write buffer of each partition
+	private static int bufferSize = 64 * 1024;
+
+	// Temporary directory
+	private File directory;
+
+	// Partitioning level
+	private int level;
+
+	// Partition files
+	private File[] partitions;
+
+	// Partition outputs (null once closed)
+	private DataOutputStream[] outputs;
+
+	// Number of records
+	private long size;
+
+	/**
+	 * A record of a spilled relation.
+	 */
+	public static class Record {
+
+		private List<String> key;
+
+		private List<String> values;
+
+		public Record(List<String> key, List<String> values) {
+			this.key = key;
+			this.values = values;
+		}
+
+		/**
+		 * @return
+		 */
+		public List<String> getKey() {
+			return key;
+		}
+
+		/**
+		 * @return
+		 */
+		public List<String> getValues() {
+			return values;
+		}
+	}
+
+	public SpilledRelation(File directory, int nbPartitions, int level)
+			throws IOException {
+		if (nbPartitions < 1)
+			throw new IllegalStateException(
+					"[SpilledRelation:SpilledRelation] At least one partition is required.");
+		this.directory = directory;
+		this.level = level;
+		partitions = new File[nbPartitions];
+		outputs = new DataOutputStream[nbPartitions];
+		size = 0;
+		for (int i = 0; i < nbPartitions; i++) {
+			partitions[i] = File.createTempFile("r2rml-join-", ".part",
+					directory);
+			outputs[i] = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(partitions[i]), bufferSize));
+		}
+	}
+
+	/**
+	 * Write a record in the partition of its key.
+	 *
+	 * @param key
+	 * @param values
+	 * @throws IOException
+	 */
+	public void add(List<String> key, List<String> values) throws IOException {
+		if (outputs == null)
+			throw new IllegalStateException(
+					"[SpilledRelation:add] Relation is closed for writing.");
+		DataOutputStream out = outputs[getPartition(key)];
+		writeStrings(out, key);
+		writeStrings(out, values);
+		size++;
+	}
+
+	/**
+	 * Flush and close all partitions for writing. Partitions can be read
+	 * after this call.
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		if (outputs == null)
+			return;
+		for (DataOutputStream out : outputs)
+			out.close();
+		outputs = null;
+		if (log.isDebugEnabled())
+			log.debug("[SpilledRelation:close] " + size
+					+ " records spilled in " + partitions.length
+					+ " partitions (level " + level + ").");
+	}
+
+	/**
+	 * Delete partition files.
+	 */
+	public void delete() {
+		try {
+			close();
+		} catch (IOException e) {
+			if (log.isWarnEnabled())
+				log.warn("[SpilledRelation:delete] Unable to close partitions : "
+						+ e.getMessage());
+		}
+		for (File partition : partitions) {
+			if (partition.exists() && !partition.delete())
+				if (log.isWarnEnabled())
+					log.warn("[SpilledRelation:delete] Unable to delete "
+							+ partition);
+		}
+	}
+
+	/**
+	 * Returns the index of the partition of a key.
+	 *
+	 * @param key
+	 * @return
+	 */
+	public int getPartition(List<String> key) {
+		// Mix hash with level in order to split again an oversized partition
+		int h = key.hashCode() ^ (level * 0x9E3779B9);
+		h ^= (h >>> 16);
+		h *= 0x85EBCA6B;
+		h ^= (h >>> 13);
+		return (h & 0x7FFFFFFF) % partitions.length;
+	}
+
+	/**
+	 * @return
+	 */
+	public int getNbPartitions() {
+		return partitions.length;
+	}
+
+	/**
+	 * @return
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * @return
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Returns the size on disk of a partition.
+	 *
+	 * @param partition
+	 * @return
+	 */
+	public long getPartitionLength(int partition) {
+		return partitions[partition].length();
+	}
+
+	/**
+	 * Open a partition for reading. Records are read with readRecord.
+	 *
+	 * @param partition
+	 * @return
+	 * @throws IOException
+	 */
+	public DataInputStream openPartition(int partition) throws IOException {
+		if (outputs != null)
+			throw new IllegalStateException(
+					"[SpilledRelation:openPartition] Relation has to be closed before reading.");
+		return new DataInputStream(new BufferedInputStream(
+				new FileInputStream(partitions[partition]), bufferSize));
+	}
+
+	/**
+	 * Read next record from a partition. Returns null at end of partition.
+	 *
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	public static Record readRecord(DataInputStream in) throws IOException {
+		List<String> key = null;
+		try {
+			key = readStrings(in);
+		} catch (EOFException e) {
+			return null;
+		}
+		return new Record(key, readStrings(in));
+	}
+
+	private static void writeStrings(DataOutputStream out, List<String> strings)
+			throws IOException {
+		out.writeInt(strings.size());
+		for (String string : strings) {
+			if (string == null) {
+				out.writeInt(-1);
+			} else {
+				byte[] bytes = string.getBytes("UTF-8");
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+	}
+
+	private static List<String> readStrings(DataInputStream in)
+			throws IOException {
+		int nbStrings = in.readInt();
+		List<String> strings = new ArrayList<String>(nbStrings);
+		for (int i = 0; i < nbStrings; i++) {
+			int length = in.readInt();
+			if (length == -1) {
+				strings.add(null);
+			} else {
+				byte[] bytes = new byte[length];
+				in.readFully(bytes);
+				strings.add(new String(bytes, "UTF-8"));
+			}
+		}
+		return strings;
+	}
+
+}
@@ -0,0 +1,95 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Statement Batch
+ *
+ * Buffer of statements generated by a mapping worker, written into the
+ * dataset by the writer of a row pipeline. A batch is cleared and reused
+ * once written.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+
+import antidot.rdf.impl.sesame.TripleSink;
+
+public class StatementBatch implements TripleSink {
+
+	// Value factory
+	private static ValueFactory vf = new ValueFactoryImpl();
+
+	// Buffered statements
+	private ArrayList<Statement> statements;
+
+	public StatementBatch(int capacity) {
+		statements = new ArrayList<Statement>(capacity);
+	}
+
+	public void add(Resource s, URI p, Value o, Resource... contexts) {
+		if (s == null || p == null || o == null)
+			// Rows and triples without terms are skipped by the engine
+			throw new IllegalStateException("[StatementBatch:add] Incomplete"
+					+ " triple (" + s + ", " + p + ", " + o + ").");
+		if (contexts.length == 0) {
+			statements.add(vf.createStatement(s, p, o));
+			return;
+		}
+		for (Resource context : contexts) {
+			// A null context stands for the default graph
+			if (context == null)
+				statements.add(vf.createStatement(s, p, o));
+			else
+				statements.add(vf.createStatement(s, p, o, context));
+		}
+	}
+
+	/**
+	 * @return
+	 */
+	public List<Statement> getStatements() {
+		return statements;
+	}
+
+	/**
+	 * @return
+	 */
+	public int size() {
+		return statements.size();
+	}
+
+	/**
+	 * Remove all statements of this batch (its capacity is kept).
+	 */
+	public void clear() {
+		statements.clear();
+	}
+
+}
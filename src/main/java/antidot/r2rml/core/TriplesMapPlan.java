@@ -0,0 +1,514 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : TriplesMap Plan
+ *
+ * Execution plan of a TriplesMap against its opened logical table. It holds
+ * everything which is constant for all the rows of the logical table :
+ * class of subjects, constant predicates and graphs, column indexes of
+ * terms, templates resolved to column indexes, datatypes of objects, parsed
+ * join conditions and join strategies. The engine only reads column values and emits triples for
+ * each row. Several plans can share the scan of one logical table.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+
+import org.openrdf.model.Resource;
+import org.openrdf.model.URI;
+
+import antidot.r2rml.model.ObjectMap;
+import antidot.r2rml.model.PredicateObjectMap;
+import antidot.r2rml.model.RefObjectMap;
+import antidot.r2rml.model.TriplesMap;
+import antidot.xmls.type.XSDType;
+
+public class TriplesMapPlan {
+
+	// Compiled triplesMap
+	private TriplesMap triplesMap;
+
+	// Class of subjects (null if not specified)
+	private URI rdfsClass;
+
+	// Index of subject column in the logical table (0 if none)
+	private int subjectColumnIndex;
+
+	// Subject template resolved against the logical table (null if none)
+	private TemplatePlan subjectTemplate;
+
+	// Subject graphs (null if they depend on rows)
+	private Set<URI> subjectGraphs;
+
+	// Indexes of graph columns of subject in the logical table
+	private int[] graphColumnIndexes;
+
+	// Graph templates of subject resolved against the logical table
+	private List<TemplatePlan> graphTemplates;
+
+	// Contexts of subject graphs (null if they depend on rows)
+	private Resource[] subjectContexts;
+
+	// Plans of predicateObjectMaps
+	private List<PredicateObjectPlan> predicateObjectPlans;
+
+	// Plans of refPredicateObjectMaps
+	private List<RefPredicateObjectPlan> refPredicateObjectPlans;
+
+	// Generated row mapper (null if triplesMap is interpreted)
+	private RowMapper rowMapper;
+
+	/**
+	 * Template whose columns are resolved to their indexes in the logical
+	 * table.
+	 */
+	public static class TemplatePlan {
+
+		private R2RMLTemplate template;
+
+		private int[] columnIndexes;
+
+		public TemplatePlan(R2RMLTemplate template, int[] columnIndexes) {
+			this.template = template;
+			this.columnIndexes = columnIndexes;
+		}
+
+		/**
+		 * @return
+		 */
+		public R2RMLTemplate getTemplate() {
+			return template;
+		}
+
+		/**
+		 * @return
+		 */
+		public int[] getColumnIndexes() {
+			return columnIndexes;
+		}
+
+		/**
+		 * Render the template with the current row of the logical table it
+		 * is resolved against. Returns null if a column value is null.
+		 * 
+		 * @param row
+		 * @param buffer
+		 *            Reused buffer
+		 * @return
+		 * @throws SQLException
+		 */
+		public String render(ColumnAccessor row, StringBuilder buffer)
+				throws SQLException {
+			return template.render(row, columnIndexes, buffer);
+		}
+	}
+
+	/**
+	 * Execution plan of a predicateObjectMap.
+	 */
+	public static class PredicateObjectPlan {
+
+		private PredicateObjectMap predicateObjectMap;
+
+		private URI predicate;
+
+		private int predicateColumnIndex;
+
+		private TemplatePlan predicateTemplate;
+
+		private XSDType datatype;
+
+		private int objectColumnIndex;
+
+		private TemplatePlan objectTemplate;
+
+		private Set<URI> graphs;
+
+		public PredicateObjectPlan(PredicateObjectMap predicateObjectMap,
+				URI predicate, int predicateColumnIndex,
+				TemplatePlan predicateTemplate, XSDType datatype,
+				int objectColumnIndex, TemplatePlan objectTemplate,
+				Set<URI> graphs) {
+			this.predicateObjectMap = predicateObjectMap;
+			this.predicate = predicate;
+			this.predicateColumnIndex = predicateColumnIndex;
+			this.predicateTemplate = predicateTemplate;
+			this.datatype = datatype;
+			this.objectColumnIndex = objectColumnIndex;
+			this.objectTemplate = objectTemplate;
+			this.graphs = graphs;
+		}
+
+		/**
+		 * @return
+		 */
+		public PredicateObjectMap getPredicateObjectMap() {
+			return predicateObjectMap;
+		}
+
+		/**
+		 * @return
+		 */
+		public ObjectMap getObjectMap() {
+			return predicateObjectMap.getObjectMap();
+		}
+
+		/**
+		 * Returns the constant predicate, or null if the predicate depends on
+		 * rows.
+		 * 
+		 * @return
+		 */
+		public URI getPredicate() {
+			return predicate;
+		}
+
+		/**
+		 * Returns the index of the predicate column in the logical table,
+		 * or 0 if the predicate is not extracted from a column.
+		 * 
+		 * @return
+		 */
+		public int getPredicateColumnIndex() {
+			return predicateColumnIndex;
+		}
+
+		/**
+		 * Returns the predicate template, or null if the predicate is not
+		 * extracted from a template.
+		 * 
+		 * @return
+		 */
+		public TemplatePlan getPredicateTemplate() {
+			return predicateTemplate;
+		}
+
+		/**
+		 * @return
+		 */
+		public XSDType getDatatype() {
+			return datatype;
+		}
+
+		/**
+		 * Returns the index of the object column in the logical table, or 0
+		 * if the object is not extracted from a column.
+		 * 
+		 * @return
+		 */
+		public int getObjectColumnIndex() {
+			return objectColumnIndex;
+		}
+
+		/**
+		 * Returns the object template, or null if the object is not
+		 * extracted from a template.
+		 * 
+		 * @return
+		 */
+		public TemplatePlan getObjectTemplate() {
+			return objectTemplate;
+		}
+
+		/**
+		 * @return
+		 */
+		public Set<URI> getGraphs() {
+			return graphs;
+		}
+	}
+
+	/**
+	 * Execution plan of a refPredicateObjectMap.
+	 */
+	public static class RefPredicateObjectPlan {
+
+		private RefObjectMap refObjectMap;
+
+		private URI predicate;
+
+		private Set<URI> graphs;
+
+		private JoinKeys joinKeys;
+
+		private JoinStrategy joinStrategy;
+
+		private int[] childColumnIndexes;
+
+		private ParentSubjectIndex parentSubjectIndex;
+
+		private List<URI> contexts;
+
+		private int parentKeyColumnIndex;
+
+		private int parentSubjectColumnIndex;
+
+		private TemplatePlan parentSubjectTemplate;
+
+		public RefPredicateObjectPlan(RefObjectMap refObjectMap,
+				URI predicate, Set<URI> graphs, JoinKeys joinKeys,
+				JoinStrategy joinStrategy, int[] childColumnIndexes,
+				ParentSubjectIndex parentSubjectIndex, List<URI> contexts,
+				int parentKeyColumnIndex, int parentSubjectColumnIndex,
+				TemplatePlan parentSubjectTemplate) {
+			this.refObjectMap = refObjectMap;
+			this.predicate = predicate;
+			this.graphs = graphs;
+			this.joinKeys = joinKeys;
+			this.joinStrategy = joinStrategy;
+			this.childColumnIndexes = childColumnIndexes;
+			this.parentSubjectIndex = parentSubjectIndex;
+			this.contexts = contexts;
+			this.parentKeyColumnIndex = parentKeyColumnIndex;
+			this.parentSubjectColumnIndex = parentSubjectColumnIndex;
+			this.parentSubjectTemplate = parentSubjectTemplate;
+		}
+
+		/**
+		 * @return
+		 */
+		public RefObjectMap getRefObjectMap() {
+			return refObjectMap;
+		}
+
+		/**
+		 * @return
+		 */
+		public URI getPredicate() {
+			return predicate;
+		}
+
+		/**
+		 * @return
+		 */
+		public Set<URI> getGraphs() {
+			return graphs;
+		}
+
+		/**
+		 * @return
+		 */
+		public JoinKeys getJoinKeys() {
+			return joinKeys;
+		}
+
+		/**
+		 * @return
+		 */
+		public JoinStrategy getJoinStrategy() {
+			return joinStrategy;
+		}
+
+		/**
+		 * Returns the indexes of the child columns of the join condition in
+		 * the logical table.
+		 * 
+		 * @return
+		 */
+		public int[] getChildColumnIndexes() {
+			return childColumnIndexes;
+		}
+
+		/**
+		 * Returns the index of parent subjects, or null if the join
+		 * strategy is not a hash join.
+		 * 
+		 * @return
+		 */
+		public ParentSubjectIndex getParentSubjectIndex() {
+			return parentSubjectIndex;
+		}
+
+		/**
+		 * Returns the contexts of ref triples, or null if they depend on rows
+		 * (subject graphs extracted from columns or templates).
+		 * 
+		 * @return
+		 */
+		public List<URI> getContexts() {
+			return contexts;
+		}
+
+		/**
+		 * Returns the index of the first prefixed parent column of the join
+		 * condition in the logical table, or 0 if the parent logical table
+		 * is not joined by the database.
+		 * 
+		 * @return
+		 */
+		public int getParentKeyColumnIndex() {
+			return parentKeyColumnIndex;
+		}
+
+		/**
+		 * Returns the index of the prefixed subject column of the parent
+		 * triplesMap in the logical table, or 0 if the parent logical table
+		 * is not joined by the database or if the parent subject is not
+		 * extracted from a column.
+		 * 
+		 * @return
+		 */
+		public int getParentSubjectColumnIndex() {
+			return parentSubjectColumnIndex;
+		}
+
+		/**
+		 * Returns the subject template of the parent triplesMap resolved
+		 * against the prefixed columns of the logical table, or null if the
+		 * parent logical table is not joined by the database or if the
+		 * parent subject is not extracted from a template.
+		 * 
+		 * @return
+		 */
+		public TemplatePlan getParentSubjectTemplate() {
+			return parentSubjectTemplate;
+		}
+	}
+
+	public TriplesMapPlan(TriplesMap triplesMap, URI rdfsClass,
+			int subjectColumnIndex, TemplatePlan subjectTemplate,
+			Set<URI> subjectGraphs, int[] graphColumnIndexes,
+			List<TemplatePlan> graphTemplates, Resource[] subjectContexts,
+			List<PredicateObjectPlan> predicateObjectPlans,
+			List<RefPredicateObjectPlan> refPredicateObjectPlans) {
+		this.triplesMap = triplesMap;
+		this.rdfsClass = rdfsClass;
+		this.subjectColumnIndex = subjectColumnIndex;
+		this.subjectTemplate = subjectTemplate;
+		this.subjectGraphs = subjectGraphs;
+		this.graphColumnIndexes = graphColumnIndexes;
+		this.graphTemplates = graphTemplates;
+		this.subjectContexts = subjectContexts;
+		this.predicateObjectPlans = predicateObjectPlans;
+		this.refPredicateObjectPlans = refPredicateObjectPlans;
+	}
+
+	/**
+	 * @return
+	 */
+	public TriplesMap getTriplesMap() {
+		return triplesMap;
+	}
+
+	/**
+	 * @return
+	 */
+	public URI getRdfsClass() {
+		return rdfsClass;
+	}
+
+	/**
+	 * Returns the index of the subject column in the logical table, or 0 if
+	 * the subject is not extracted from a column.
+	 * 
+	 * @return
+	 */
+	public int getSubjectColumnIndex() {
+		return subjectColumnIndex;
+	}
+
+	/**
+	 * Returns the subject template, or null if the subject is not extracted
+	 * from a template.
+	 * 
+	 * @return
+	 */
+	public TemplatePlan getSubjectTemplate() {
+		return subjectTemplate;
+	}
+
+	/**
+	 * Returns the constant subject graphs, or null if they depend on rows.
+	 * 
+	 * @return
+	 */
+	public Set<URI> getSubjectGraphs() {
+		return subjectGraphs;
+	}
+
+	/**
+	 * @return
+	 */
+	public int[] getGraphColumnIndexes() {
+		return graphColumnIndexes;
+	}
+
+	/**
+	 * @return
+	 */
+	public List<TemplatePlan> getGraphTemplates() {
+		return graphTemplates;
+	}
+
+	/**
+	 * Returns the contexts of subject graphs, or null if they depend on rows.
+	 * 
+	 * @return
+	 */
+	public Resource[] getSubjectContexts() {
+		return subjectContexts;
+	}
+
+	/**
+	 * @return
+	 */
+	public List<PredicateObjectPlan> getPredicateObjectPlans() {
+		return predicateObjectPlans;
+	}
+
+	/**
+	 * @return
+	 */
+	public List<RefPredicateObjectPlan> getRefPredicateObjectPlans() {
+		return refPredicateObjectPlans;
+	}
+
+	/**
+	 * @return
+	 */
+	public RowMapper getRowMapper() {
+		return rowMapper;
+	}
+
+	/**
+	 * @param rowMapper
+	 */
+	public void setRowMapper(RowMapper rowMapper) {
+		this.rowMapper = rowMapper;
+	}
+
+	/**
+	 * Returns the plans of predicateObjectMaps which are not mapped by the
+	 * row mapper.
+	 * 
+	 * @return
+	 */
+	public List<PredicateObjectPlan> getInterpretedPlans() {
+		if (rowMapper != null)
+			return rowMapper.getInterpretedPlans();
+		return predicateObjectPlans;
+	}
+
+}
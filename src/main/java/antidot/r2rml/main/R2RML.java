@@ -27,9 +27,14 @@
  */
 package antidot.r2rml.main;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -45,6 +50,7 @@ import org.openrdf.rio.RDFFormat;
 
 import antidot.r2rml.core.R2RMLMapper;
 import antidot.rdf.impl.sesame.SesameDataSet;
+import antidot.sql.core.SQLConnectionFactory;
 import antidot.sql.core.SQLConnector;
 
 @SuppressWarnings("static-access")
@@ -98,6 +104,51 @@ public class R2RML {
 			"r2ml instance").withLongOpt(
 			"r2rml").create("r2rml");
 
+	private static Option mappingsOpt = OptionBuilder.withArgName("mappings")
+			.hasArg().withDescription(
+					"File of r2rml instances run together, one by line, each "
+							+ "one followed by its output (optional)")
+			.withLongOpt("mappings").create("m");
+
+	private static Option threadsOpt = OptionBuilder.withArgName("threads")
+			.hasArg().withDescription(
+					"Number of triplesMaps extracted concurrently (default : 1)")
+			.withLongOpt("threads").create("t");
+
+	private static Option workersOpt = OptionBuilder.withArgName("workers")
+			.hasArg().withDescription(
+					"Number of threads mapping the rows of a logical table "
+							+ "(default : 0, rows are mapped by the reading thread)")
+			.withLongOpt("workers").create("w");
+
+	private static Option batchOpt = OptionBuilder.withArgName("batchSize")
+			.hasArg().withDescription(
+					"Number of rows mapped at once, column by column "
+							+ "(default : 0, rows are mapped one by one)")
+			.withLongOpt("batchSize").create("b");
+
+	private static Option materializeOpt = OptionBuilder.withDescription(
+			"Materialize the SQL queries of parent logical tables into "
+					+ "indexed tables during the run").withLongOpt(
+			"materialize").create("q");
+
+	private static Option explainOpt = OptionBuilder.withDescription(
+			"Print the execution plan of the mapping without running it")
+			.withLongOpt("explain").create("e");
+
+	private static Option adviseIndexesOpt = OptionBuilder.withDescription(
+			"Print the indexes of the join columns and the DDL of the "
+					+ "missing ones without running the mapping")
+			.withLongOpt("adviseIndexes").create("a");
+
+	private static Option tempIndexesOpt = OptionBuilder.withDescription(
+			"Create the indexes missing on join columns during the run")
+			.withLongOpt("tempIndexes").create("x");
+
+	private static Option noCacheOpt = OptionBuilder.withDescription(
+			"Parse the r2rml instances without reading or writing their "
+					+ "binary cache").withLongOpt("noCache").create("k");
+
 	// Database settings
 //	private static String userName = "root";
 //	private static String password = "root";
@@ -119,7 +170,16 @@ public class R2RML {
 		options.addOption(nativeStoreNameOpt);
 		options.addOption(outputOpt);
 		options.addOption(r2rmlFileOpt);
+		options.addOption(mappingsOpt);
 		options.addOption(removeOpt);
+		options.addOption(threadsOpt);
+		options.addOption(workersOpt);
+		options.addOption(batchOpt);
+		options.addOption(materializeOpt);
+		options.addOption(explainOpt);
+		options.addOption(adviseIndexesOpt);
+		options.addOption(tempIndexesOpt);
+		options.addOption(noCacheOpt);
 		
 		// Init parameters
 		String userName = null;
@@ -128,11 +188,20 @@ public class R2RML {
 		String driver = null;
 		String dbName = null;
 		String r2rmlFile = null;
+		List<String> r2rmlFiles = new ArrayList<String>();
+		List<String> outputs = new ArrayList<String>();
 		boolean useNativeStore = false;
 		boolean forceExistingRep = false;
 		boolean forceRemovingOld = false;
 		String nativeOutput = null;
 		String output = null;
+		int nbThreads = 1;
+		int pipelineWorkers = 0;
+		int batchSize = 0;
+		boolean explain = false;
+		boolean materialize = false;
+		boolean adviseIndexes = false;
+		boolean tempIndexes = false;
 		
 
 		// Option parsing
@@ -173,8 +242,16 @@ public class R2RML {
 			} else {
 				dbName = line.getOptionValue("databaseName");
 			}
+			// Use of native store ?
+			useNativeStore = line.hasOption("n");
+			// r2rml instances run together
+			if (line.hasOption("mappings")) {
+				readMappings(line.getOptionValue("mappings"), useNativeStore,
+						line.getOptionValue("nativeOutput", "."), r2rmlFiles,
+						outputs);
+			}
 			// r2rml instance
-			if (!line.hasOption("r2rml")) {
+			else if (!line.hasOption("r2rml")) {
 				// automatically generate the help statement
 				HelpFormatter formatter = new HelpFormatter();
 				formatter.printHelp("R2RML", options);
@@ -187,10 +264,9 @@ public class R2RML {
 				}
 				r2rmlFile = line.getOptionValue("r2rml");
 			}
-			// Use of native store ?
-			useNativeStore = line.hasOption("n");
 			// Name of native store
-			if (useNativeStore && !line.hasOption("nativeOutput")) {
+			if (useNativeStore && r2rmlFiles.isEmpty()
+					&& !line.hasOption("nativeOutput")) {
 				// automatically generate the help statement
 				HelpFormatter formatter = new HelpFormatter();
 				formatter.printHelp("DirectMapping", options);
@@ -204,8 +280,45 @@ public class R2RML {
 			forceRemovingOld = line.hasOption("r");
 			// Output
 			output = line.getOptionValue("output", "output.n3");
+			// Number of threads
+			nbThreads = Integer.parseInt(line.getOptionValue("threads", "1"));
+			if (nbThreads < 1) {
+				log.error("[R2RML:main] Number of threads must be positive.");
+				System.exit(-1);
+			}
+			// Number of pipeline workers
+			pipelineWorkers = Integer.parseInt(line.getOptionValue("workers",
+					"0"));
+			if (pipelineWorkers < 0) {
+				log.error("[R2RML:main] Number of workers must be positive.");
+				System.exit(-1);
+			}
+			// Size of column batches
+			batchSize = Integer.parseInt(line.getOptionValue("batchSize", "0"));
+			if (batchSize < 0) {
+				log.error("[R2RML:main] Batch size must be positive.");
+				System.exit(-1);
+			}
+			// Materialization of parent SQL queries
+			materialize = line.hasOption("materialize");
+			// Print execution plan only
+			explain = line.hasOption("explain");
+			// Print join indexes only
+			adviseIndexes = line.hasOption("adviseIndexes");
+			// Temporary join indexes
+			tempIndexes = line.hasOption("tempIndexes");
+			// Binary cache of r2rml instances
+			R2RMLMapper.setMappingCache(!line.hasOption("noCache"));
 		
 
+		} catch (IOException exp) {
+			log.error("[R2RML:main] Invalid list of r2rml instances : "
+					+ exp.getMessage());
+			System.exit(-1);
+		} catch (NumberFormatException exp) {
+			log.error("[R2RML:main] Invalid number of threads, workers or rows : "
+					+ exp.getMessage());
+			System.exit(-1);
 		} catch (ParseException exp) {
 			// oops, something went wrong
 			log.error("[DirectMapping:main] Parsing failed. Reason : "
@@ -220,7 +333,54 @@ public class R2RML {
 		try {
 			conn = SQLConnector
 					.connect(userName, password, url, driver, dbName);
+			// Each thread opens its own connection
+			SQLConnectionFactory connectionFactory = new SQLConnectionFactory(
+					userName, password, url, driver, dbName);
 
+			if (explain) {
+				if (r2rmlFiles.isEmpty())
+					r2rmlFiles.add(r2rmlFile);
+				for (String file : r2rmlFiles)
+					System.out.print(R2RMLMapper.explainMySQLDatabase(conn,
+							file, nbThreads, pipelineWorkers, batchSize));
+				return;
+			}
+			if (adviseIndexes) {
+				if (r2rmlFiles.isEmpty())
+					r2rmlFiles.add(r2rmlFile);
+				for (String file : r2rmlFiles)
+					System.out.print(R2RMLMapper.adviseMySQLDatabaseIndexes(
+							conn, file));
+				return;
+			}
+			if (!r2rmlFiles.isEmpty()) {
+				// Run all instances together, each one into its output
+				List<String> pathToNativeStores = new ArrayList<String>();
+				for (String out : outputs) {
+					File outputFile = new File(out);
+					if (outputFile.exists()
+							&& !(useNativeStore ? forceExistingRep
+									: forceRemovingOld)) {
+						if (log.isErrorEnabled())
+							log.error("Output " + outputFile.getAbsolutePath()
+									+ " already exists. Use -f or -r option"
+									+ " to force its loading or removing.");
+						System.exit(-1);
+					}
+					pathToNativeStores.add(useNativeStore ? out : null);
+				}
+				List<SesameDataSet> sesameDataSets = R2RMLMapper
+						.convertMySQLDatabase(conn, r2rmlFiles,
+								pathToNativeStores, nbThreads,
+								connectionFactory, pipelineWorkers, batchSize,
+								materialize, tempIndexes);
+				if (!useNativeStore)
+					// Dump graphs
+					for (int i = 0; i < outputs.size(); i++)
+						sesameDataSets.get(i).dumpRDF(outputs.get(i),
+								RDFFormat.N3);
+				return;
+			}
 			// Check nature of storage (memory by default)
 			if (useNativeStore) {
 				File pathToNativeOutputDir = new File(nativeOutput);
@@ -235,7 +395,9 @@ public class R2RML {
 				}
 				R2RMLMapper.convertMySQLDatabase(conn,
 						r2rmlFile,
-						nativeOutput);
+						nativeOutput, nbThreads, connectionFactory,
+						pipelineWorkers, batchSize, materialize,
+						tempIndexes);
 			} else {
 				File outputFile = new File(output);
 				if (outputFile.exists() && !forceRemovingOld) {
@@ -256,7 +418,9 @@ public class R2RML {
 				}
 				SesameDataSet sesameDataSet = R2RMLMapper.convertMySQLDatabase(
 						conn, r2rmlFile,
-						nativeOutput);
+						nativeOutput, nbThreads, connectionFactory,
+						pipelineWorkers, batchSize, materialize,
+						tempIndexes);
 				// Dump graph
 				sesameDataSet.dumpRDF(output, RDFFormat.N3);
 			}
@@ -273,4 +437,56 @@ public class R2RML {
 		}
 	}
 
+	/**
+	 * Read a list of r2rml instances : one instance by line, followed by its
+	 * output (N3 file or native store directory). The default output of an
+	 * instance is named after it, with the "n3" extension, or in the
+	 * native store directory.
+	 * 
+	 * @param pathToList
+	 * @param useNativeStore
+	 * @param nativeOutput
+	 * @param r2rmlFiles
+	 * @param outputs
+	 * @throws IOException
+	 */
+	private static void readMappings(String pathToList,
+			boolean useNativeStore, String nativeOutput,
+			List<String> r2rmlFiles, List<String> outputs) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(pathToList));
+		try {
+			String line = reader.readLine();
+			for (; line != null; line = reader.readLine()) {
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#"))
+					continue;
+				String[] fields = line.split("\\s+");
+				if (fields.length > 2)
+					throw new IOException("Too many fields in line : " + line);
+				if (!new File(fields[0]).exists())
+					throw new IOException("R2RML file " + fields[0]
+							+ " does not exists.");
+				String name = new File(fields[0]).getName();
+				if (name.lastIndexOf('.') > 0)
+					name = name.substring(0, name.lastIndexOf('.'));
+				String output = null;
+				if (fields.length == 2)
+					output = fields[1];
+				else if (useNativeStore)
+					output = new File(nativeOutput, name).getPath();
+				else
+					output = name + ".n3";
+				if (outputs.contains(output))
+					throw new IOException("Output " + output
+							+ " is used by several r2rml instances.");
+				r2rmlFiles.add(fields[0]);
+				outputs.add(output);
+			}
+		} finally {
+			reader.close();
+		}
+		if (r2rmlFiles.isEmpty())
+			throw new IOException("No r2rml instance in " + pathToList);
+	}
+
 }
@@ -33,8 +33,6 @@ package antidot.r2rml.model;
 
 import org.openrdf.model.URI;
 
-import antidot.r2rml.exception.InvalidR2RMLSyntaxException;
-
 /**
  * @author   jh
  */
@@ -46,44 +44,22 @@ public interface IPredicateMap {
 	 */
 	public URI getPredicate();
 
-	/**
-	 * @param  predicate
-	 */
-	public void setPredicate(URI predicate);
-
 	/**
 	 * When the property name is not a constant and instead comes from the values in a column, this optional property (used in place of rr:predicate) allows the user to specify the column name. Note that this property should always be a column name in the logical table.
 	 * @return
 	 */
 	public String getColumn();
 
-	/**
-	 * @param  column
-	 */
-	public void setColumn(String column);
-
 	/**
 	 * This optional property, for use in place of rr:column, specifies a template (or format string) to construct a value, for use as a predicate IRI, based on one or more columns from a logical table row.
 	 * @return
 	 */
 	public String getTemplate();
 
-	/**
-	 * @param template
-	 * @throws InvalidR2RMLSyntaxException
-	 */
-	public void setTemplate(String template) throws InvalidR2RMLSyntaxException;
-
 	/**
 	 * This optional property, for use in place of rr:graphColumn, specifies a template (or format string) to construct a value, for use as a graph IRI, based on one or more columns from a logical table row. Column names are case-sensitive and must be enclosed within curly braces. Use of curly braces in the template, for any purpose other than enclosing column names, must be escaped by a backslash character.
 	 * @return
 	 */
 	public String getInverseExpression();
 
-	/**
-	 * @param inverseExpression
-	 * @throws InvalidR2RMLSyntaxException
-	 */
-	public void setInverseExpression(String inverseExpression) throws InvalidR2RMLSyntaxException;
-
 }
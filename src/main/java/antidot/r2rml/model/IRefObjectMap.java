@@ -31,8 +31,6 @@
  */
 package antidot.r2rml.model;
 
-import antidot.r2rml.exception.InvalidR2RMLSyntaxException;
-
 /**
  * @author   jh
  */
@@ -44,21 +42,10 @@ public interface IRefObjectMap {
 	 */
 	public String getJoinCondition();
 
-	/**
-	 * @param joinCondition
-	 * @throws InvalidR2RMLSyntaxException
-	 */
-	public void setJoinCondition(String joinCondition) throws InvalidR2RMLSyntaxException;
-
 	/**
 	 * This property specifies the TriplesMap corresponding to the parent (or referenced) table component of the foreign key constraint. The following example identifies the TriplesMap corresponding to the parent (or referenced) logical table.
 	 * @return
 	 */
 	public TriplesMap getParentTriplesMap();
 
-	/**
-	 * @param  parentTriplesMap
-	 */
-	public void setParentTriplesMap(TriplesMap parentTriplesMap);
-
 }
@@ -44,9 +44,4 @@ public interface IRefPredicateMap {
 	 */
 	public URI getPredicate();
 
-	/**
-	 * @param  predicate
-	 */
-	public void setPredicate(URI predicate);
-
 }
@@ -43,8 +43,6 @@ import java.util.Set;
 
 import org.openrdf.model.URI;
 
-import antidot.r2rml.exception.InvalidR2RMLSyntaxException;
-
 /**
  * @author   jh
  */
@@ -56,54 +54,28 @@ public interface IRefPredicateObjectMap {
 	 */
 	public Set<URI> getGraphs();
 
-	/**
-	 * @param  graphs
-	 */
-	public void setGraphs(Set<URI> graphs);
-
 	/**
 	 * This optional property specifies the name of a column in the logical table. The value from this column of a logical table row is used as the graph name where the RDF triple generated from a logical table row, containing the (predicate, object) pair from this PredicateObjectMap, will be stored. There is no restriction on maximum cardinality of this property. If for a row, value from the specified column is NULL, then the generated triple will be stored in the default graph.
 	 * @return
 	 */
 	public Set<String> getGraphColumns();
 
-	/**
-	 * @param  graphColumns
-	 */
-	public void setGraphColumns(Set<String> graphColumns);
-
 	/**
 	 * This optional property, for use in place of rr:graphColumn, specifies a template (or format string) to construct a value, for use as a graph IRI, based on one or more columns from a logical table row.
 	 * @return
 	 */
 	public Set<String> getGraphTemplates();
 
-	/**
-	 * @param graphTemplates
-	 * @throws InvalidR2RMLSyntaxException
-	 */
-	public void setGraphTemplates(Set<String> graphTemplates) throws InvalidR2RMLSyntaxException;
-
 	/**
 	 * This property specifies the RefPredicateMap component of a RefPredicateObjectMap.
 	 * @return
 	 */
 	public RefPredicateMap getRefPredicateMap();
 
-	/**
-	 * @param  refPredicateMap
-	 */
-	public void setRefPredicateMap(RefPredicateMap refPredicateMap);
-
 	/**
 	 * This property specifies the RefObjectMap component of a RefPredicateObjectMap.
 	 * @return
 	 */
 	public RefObjectMap getRefObjectMap();
 
-	/**
-	 * @param  refObjectMap
-	 */
-	public void setRefObjectMap(RefObjectMap refObjectMap);
-
 }
@@ -30,7 +30,7 @@
  */
 package antidot.r2rml.model;
 
-import java.util.HashSet;
+import java.util.Set;
 
 public interface ITriplesMap {
 
@@ -74,7 +74,7 @@ public interface ITriplesMap {
 	 * 
 	 * @return
 	 */
-	public HashSet<PredicateObjectMap> getPredicateObjectMaps();
+	public Set<PredicateObjectMap> getPredicateObjectMaps();
 
 	/**
 	 * This property specifies a RefPredicateObjectMap that contains the rules
@@ -84,6 +84,6 @@ public interface ITriplesMap {
 	 * 
 	 * @return
 	 */
-	public HashSet<RefPredicateObjectMap> getRefPredicateObjectMaps();
+	public Set<RefPredicateObjectMap> getRefPredicateObjectMaps();
 
 }
@@ -31,6 +31,8 @@
  */
 package antidot.r2rml.model;
 
+import java.io.Serializable;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openrdf.model.Value;
@@ -43,7 +45,9 @@ import antidot.xmls.type.XSDType;
 /**
  * @author  jh
  */
-public class ObjectMap implements IObjectMap {
+public class ObjectMap implements IObjectMap, Serializable {
+
+	private static final long serialVersionUID = 1L;
 	
 	// Log
 	private static Log log = LogFactory.getLog(TriplesMap.class);
@@ -124,13 +128,6 @@ public class ObjectMap implements IObjectMap {
 		return object;
 	}
 
-	/**
-	 * @param object
-	 */
-	public void setObject(Value object) {
-		this.object = object;
-	}
-
 	/**
 	 * @return
 	 */
@@ -138,13 +135,6 @@ public class ObjectMap implements IObjectMap {
 		return column;
 	}
 
-	/**
-	 * @param column
-	 */
-	public void setColumn(String column) {
-		this.column = column;
-	}
-
 	/**
 	 * @return
 	 */
@@ -156,7 +146,7 @@ public class ObjectMap implements IObjectMap {
 	 * @param template
 	 * @throws InvalidR2RMLSyntaxException
 	 */
-	public void setTemplate(String template) throws InvalidR2RMLSyntaxException {
+	private void setTemplate(String template) throws InvalidR2RMLSyntaxException {
 		if (!R2RMLToolkit.checkCurlyBraces(template))
 			throw new InvalidR2RMLSyntaxException(
 					"A synthax error have be found in your R2RML expression : " + template);
@@ -170,13 +160,6 @@ public class ObjectMap implements IObjectMap {
 		return datatype;
 	}
 
-	/**
-	 * @param datatype
-	 */
-	public void setDatatype(XSDType datatype) {
-		this.datatype = datatype;
-	}
-
 	/**
 	 * @return
 	 */
@@ -184,13 +167,6 @@ public class ObjectMap implements IObjectMap {
 		return language;
 	}
 
-	/**
-	 * @param language
-	 */
-	public void setLanguage(String language) {
-		this.language = language;
-	}
-
 	/**
 	 * @return
 	 */
@@ -201,7 +177,7 @@ public class ObjectMap implements IObjectMap {
 	/**
 	 * @param inverseExpression
 	 */
-	public void setInverseExpression(String inverseExpression) {
+	private void setInverseExpression(String inverseExpression) {
 		if (!R2RMLToolkit.checkCurlyBraces(inverseExpression))
 			throw new IllegalArgumentException(
 					"A synthax error have be found in your R2RML expression : " + inverseExpression);
@@ -215,12 +191,4 @@ public class ObjectMap implements IObjectMap {
 		return termType;
 	}
 
-	/**
-	 * @param termType
-	 */
-	public void setTermType(TermType termType) {
-		this.termType = termType;
-
-	}
-
 }
@@ -31,6 +31,8 @@
  */
 package antidot.r2rml.model;
 
+import java.io.Serializable;
+
 import org.openrdf.model.URI;
 
 import antidot.r2rml.exception.InvalidR2RMLStructureException;
@@ -40,7 +42,9 @@ import antidot.r2rml.tools.R2RMLToolkit;
 /**
  * @author  jh
  */
-public class PredicateMap implements IPredicateMap {
+public class PredicateMap implements IPredicateMap, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 */
@@ -90,13 +94,6 @@ public class PredicateMap implements IPredicateMap {
 		return predicate;
 	}
 
-	/**
-	 * @param predicate
-	 */
-	public void setPredicate(URI predicate) {
-		this.predicate = predicate;
-	}
-
 	/**
 	 * @return
 	 */
@@ -104,13 +101,6 @@ public class PredicateMap implements IPredicateMap {
 		return column;
 	}
 
-	/**
-	 * @param column
-	 */
-	public void setColumn(String column) {
-		this.column = column;
-	}
-
 	/**
 	 * @return
 	 */
@@ -122,7 +112,7 @@ public class PredicateMap implements IPredicateMap {
 	 * @param template
 	 * @throws InvalidR2RMLSyntaxException
 	 */
-	public void setTemplate(String template) throws InvalidR2RMLSyntaxException {
+	private void setTemplate(String template) throws InvalidR2RMLSyntaxException {
 		if (!R2RMLToolkit.checkCurlyBraces(template))
 			throw new InvalidR2RMLSyntaxException(
 					"[PredicateMap:setTemplate] A synthax error have be found in your R2RML expression : " + template);
@@ -140,7 +130,7 @@ public class PredicateMap implements IPredicateMap {
 	 * @param inverseExpression
 	 * @throws InvalidR2RMLSyntaxException
 	 */
-	public void setInverseExpression(String inverseExpression) throws InvalidR2RMLSyntaxException {
+	private void setInverseExpression(String inverseExpression) throws InvalidR2RMLSyntaxException {
 		if (!R2RMLToolkit.checkCurlyBraces(inverseExpression))
 			throw new InvalidR2RMLSyntaxException(
 					"[PredicateMap:setInverseExpression] A synthax error have be found in your R2RML expression : " + inverseExpression);
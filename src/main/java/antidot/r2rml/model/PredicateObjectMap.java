@@ -31,6 +31,8 @@
  */
 package antidot.r2rml.model;
 
+import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -42,7 +44,9 @@ import antidot.r2rml.tools.R2RMLToolkit;
 /**
  * @author  jh
  */
-public class PredicateObjectMap implements IPredicateObjectMap {
+public class PredicateObjectMap implements IPredicateObjectMap, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 */
@@ -80,11 +84,12 @@ public class PredicateObjectMap implements IPredicateObjectMap {
 	/**
 	 * @param graphs
 	 */
-	public void setGraphs(Set<URI> graphs) {
+	private void setGraphs(Set<URI> graphs) {
 		this.graphs = new HashSet<URI>();
 		for (URI graph : graphs) {
 			this.graphs.add(graph);
 		}
+		this.graphs = Collections.unmodifiableSet(this.graphs);
 	}
 
 	/**
@@ -97,11 +102,12 @@ public class PredicateObjectMap implements IPredicateObjectMap {
 	/**
 	 * @param graphColumns
 	 */
-	public void setGraphColumns(Set<String> graphColumns) {
+	private void setGraphColumns(Set<String> graphColumns) {
 		this.graphColumns = new HashSet<String>();
 		for (String graphColumn : graphColumns) {
 			this.graphColumns.add(graphColumn);
 		}
+		this.graphColumns = Collections.unmodifiableSet(this.graphColumns);
 	}
 
 	/**
@@ -115,7 +121,7 @@ public class PredicateObjectMap implements IPredicateObjectMap {
 	 * @param graphTemplates
 	 * @throws InvalidR2RMLSyntaxException
 	 */
-	public void setGraphTemplates(Set<String> graphTemplates) throws InvalidR2RMLSyntaxException {
+	private void setGraphTemplates(Set<String> graphTemplates) throws InvalidR2RMLSyntaxException {
 		this.graphTemplates = new HashSet<String>();
 		for (String graphTemplate : graphTemplates) {
 			if (!R2RMLToolkit.checkCurlyBraces(graphTemplate))
@@ -124,6 +130,7 @@ public class PredicateObjectMap implements IPredicateObjectMap {
 								+ graphTemplate);
 			this.graphTemplates.add(graphTemplate);
 		}
+		this.graphTemplates = Collections.unmodifiableSet(this.graphTemplates);
 	}
 
 	/**
@@ -133,24 +140,10 @@ public class PredicateObjectMap implements IPredicateObjectMap {
 		return objectMap;
 	}
 
-	/**
-	 * @param objectMap
-	 */
-	public void setObjectMap(ObjectMap objectMap) {
-		this.objectMap = objectMap;
-	}
-
 	/**
 	 * @return
 	 */
 	public PredicateMap getPredicateMap() {
 		return predicateMap;
 	}
-
-	/**
-	 * @param predicateMap
-	 */
-	public void setPredicateMap(PredicateMap predicateMap) {
-		this.predicateMap = predicateMap;
-	}
 }
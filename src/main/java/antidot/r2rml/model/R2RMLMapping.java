@@ -30,13 +30,22 @@
  */
 package antidot.r2rml.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
 
 /**
  * @author  jh
  */
-public class R2RMLMapping {
+public class R2RMLMapping implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 	
 	/**
 	 */
@@ -44,8 +53,8 @@ public class R2RMLMapping {
 
 	public R2RMLMapping(Collection<TriplesMap> triplesMaps) {
 		super();
-		this.triplesMaps = new HashSet<TriplesMap>();
-		this.triplesMaps.addAll(triplesMaps);
+		this.triplesMaps = Collections
+				.unmodifiableCollection(new HashSet<TriplesMap>(triplesMaps));
 	}
 
 	/**
@@ -54,4 +63,51 @@ public class R2RMLMapping {
 	public Collection<TriplesMap> getTriplesMaps() {
 		return triplesMaps;
 	}
+
+	/**
+	 * Write the triplesMaps, then each RefObjectMap with its parent
+	 * triplesMap. Parents are not written by their RefObjectMaps, so the
+	 * stream does not recurse through chains of parent triplesMaps : a
+	 * parent of the mapping is only written as a reference to a triplesMap
+	 * already written.
+	 * 
+	 * @param out
+	 * @throws IOException
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		LinkedList<TriplesMap> pending = new LinkedList<TriplesMap>(
+				triplesMaps);
+		Set<TriplesMap> written = new HashSet<TriplesMap>(triplesMaps);
+		while (!pending.isEmpty())
+			for (RefPredicateObjectMap refPredicateObjectMap : pending
+					.removeFirst().getRefPredicateObjectMaps()) {
+				RefObjectMap refObjectMap = refPredicateObjectMap
+						.getRefObjectMap();
+				TriplesMap parentTriplesMap = refObjectMap
+						.getParentTriplesMap();
+				out.writeObject(refObjectMap);
+				out.writeObject(parentTriplesMap);
+				// Parent out of the mapping : written by this reference
+				if (written.add(parentTriplesMap))
+					pending.add(parentTriplesMap);
+			}
+		out.writeObject(null);
+	}
+
+	/**
+	 * Read the triplesMaps, then restore the parent triplesMap of each
+	 * RefObjectMap.
+	 * 
+	 * @param in
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		RefObjectMap refObjectMap;
+		while ((refObjectMap = (RefObjectMap) in.readObject()) != null)
+			refObjectMap.setParentTriplesMap((TriplesMap) in.readObject());
+	}
 }
@@ -31,20 +31,26 @@
  */
 package antidot.r2rml.model;
 
+import java.io.Serializable;
+
 import antidot.r2rml.exception.InvalidR2RMLSyntaxException;
 import antidot.r2rml.tools.R2RMLToolkit;
 
 /**
  * @author  jh
  */
-public class RefObjectMap implements IRefObjectMap {
+public class RefObjectMap implements IRefObjectMap, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 */
 	private String joinCondition;
 	/**
+	 * Not serialized with this object : restored by the R2RMLMapping which
+	 * contains it
 	 */
-	private TriplesMap parentTriplesMap;
+	private transient TriplesMap parentTriplesMap;
 
 	public RefObjectMap(String joinCondition, TriplesMap parentTriplesMap) throws InvalidR2RMLSyntaxException {
 		super();
@@ -71,7 +77,7 @@ public class RefObjectMap implements IRefObjectMap {
 	 * @param joinCondition
 	 * @throws InvalidR2RMLSyntaxException
 	 */
-	public void setJoinCondition(String joinCondition) throws InvalidR2RMLSyntaxException {
+	private void setJoinCondition(String joinCondition) throws InvalidR2RMLSyntaxException {
 		if (!R2RMLToolkit.checkCurlyBraces(joinCondition))
 			throw new InvalidR2RMLSyntaxException(
 					"A synthax error have be found in your R2RML expression : " + joinCondition);
@@ -88,7 +94,7 @@ public class RefObjectMap implements IRefObjectMap {
 	/**
 	 * @param parentTriplesMap
 	 */
-	public void setParentTriplesMap(TriplesMap parentTriplesMap) {
+	void setParentTriplesMap(TriplesMap parentTriplesMap) {
 		this.parentTriplesMap = parentTriplesMap;
 	}
 }
\ No newline at end of file
@@ -31,12 +31,16 @@
  */
 package antidot.r2rml.model;
 
+import java.io.Serializable;
+
 import org.openrdf.model.URI;
 
 /**
  * @author  jh
  */
-public class RefPredicateMap implements IRefPredicateMap {
+public class RefPredicateMap implements IRefPredicateMap, Serializable {
+
+	private static final long serialVersionUID = 1L;
 	
 	/**
 	 */
@@ -57,11 +61,4 @@ public class RefPredicateMap implements IRefPredicateMap {
 	public URI getPredicate() {
 		return predicate;
 	}
-
-	/**
-	 * @param predicate
-	 */
-	public void setPredicate(URI predicate) {
-		this.predicate = predicate;
-	}
 }
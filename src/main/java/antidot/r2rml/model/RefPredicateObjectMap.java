@@ -39,6 +39,8 @@
  */
 package antidot.r2rml.model;
 
+import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -51,7 +53,10 @@ import antidot.r2rml.tools.R2RMLToolkit;
 /**
  * @author  jh
  */
-public class RefPredicateObjectMap implements IRefPredicateObjectMap {
+public class RefPredicateObjectMap implements IRefPredicateObjectMap,
+		Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 */
@@ -90,11 +95,12 @@ public class RefPredicateObjectMap implements IRefPredicateObjectMap {
 	/**
 	 * @param graphs
 	 */
-	public void setGraphs(Set<URI> graphs) {
+	private void setGraphs(Set<URI> graphs) {
 		this.graphs = new HashSet<URI>();
 		for (URI graph : graphs) {
 			this.graphs.add(graph);
 		}
+		this.graphs = Collections.unmodifiableSet(this.graphs);
 	}
 
 	/**
@@ -107,11 +113,12 @@ public class RefPredicateObjectMap implements IRefPredicateObjectMap {
 	/**
 	 * @param graphColumns
 	 */
-	public void setGraphColumns(Set<String> graphColumns) {
+	private void setGraphColumns(Set<String> graphColumns) {
 		this.graphColumns = new HashSet<String>();
 		for (String graphColumn : graphColumns) {
 			this.graphColumns.add(graphColumn);
 		}
+		this.graphColumns = Collections.unmodifiableSet(this.graphColumns);
 	}
 
 	/**
@@ -125,7 +132,7 @@ public class RefPredicateObjectMap implements IRefPredicateObjectMap {
 	 * @param graphTemplates
 	 * @throws InvalidR2RMLSyntaxException
 	 */
-	public void setGraphTemplates(Set<String> graphTemplates) throws InvalidR2RMLSyntaxException {
+	private void setGraphTemplates(Set<String> graphTemplates) throws InvalidR2RMLSyntaxException {
 		this.graphTemplates = new HashSet<String>();
 		for (String graphTemplate : graphTemplates) {
 			if (!R2RMLToolkit.checkCurlyBraces(graphTemplate))
@@ -134,6 +141,7 @@ public class RefPredicateObjectMap implements IRefPredicateObjectMap {
 								+ graphTemplate);
 			this.graphTemplates.add(graphTemplate);
 		}
+		this.graphTemplates = Collections.unmodifiableSet(this.graphTemplates);
 	}
 
 	/**
@@ -143,24 +151,10 @@ public class RefPredicateObjectMap implements IRefPredicateObjectMap {
 		return refPredicateMap;
 	}
 
-	/**
-	 * @param refPredicateMap
-	 */
-	public void setRefPredicateMap(RefPredicateMap refPredicateMap) {
-		this.refPredicateMap = refPredicateMap;
-	}
-
 	/**
 	 * @return
 	 */
 	public RefObjectMap getRefObjectMap() {
 		return refObjectMap;
 	}
-
-	/**
-	 * @param refObjectMap
-	 */
-	public void setRefObjectMap(RefObjectMap refObjectMap) {
-		this.refObjectMap = refObjectMap;
-	}
 }
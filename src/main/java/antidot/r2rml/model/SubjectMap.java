@@ -30,6 +30,8 @@
  */
 package antidot.r2rml.model;
 
+import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -40,7 +42,9 @@ import antidot.r2rml.exception.InvalidR2RMLStructureException;
 import antidot.r2rml.exception.InvalidR2RMLSyntaxException;
 import antidot.r2rml.tools.R2RMLToolkit;
 
-public class SubjectMap implements ISubjectMap {
+public class SubjectMap implements ISubjectMap, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 */
@@ -122,13 +126,6 @@ public class SubjectMap implements ISubjectMap {
 		return subject;
 	}
 
-	/**
-	 * @param subject
-	 */
-	public void setSubject(Resource subject) {
-		this.subject = subject;
-	}
-
 	/**
 	 * @return
 	 */
@@ -136,13 +133,6 @@ public class SubjectMap implements ISubjectMap {
 		return column;
 	}
 
-	/**
-	 * @param column
-	 */
-	public void setColumn(String column) {
-		this.column = column;
-	}
-
 	/**
 	 * @return
 	 */
@@ -154,7 +144,7 @@ public class SubjectMap implements ISubjectMap {
 	 * @param template
 	 * @throws InvalidR2RMLSyntaxException
 	 */
-	public void setTemplate(String template) throws InvalidR2RMLSyntaxException {
+	private void setTemplate(String template) throws InvalidR2RMLSyntaxException {
 		if (!R2RMLToolkit.checkCurlyBraces(template))
 			throw new InvalidR2RMLSyntaxException(
 					"A synthax error have be found in your R2RML expression : "
@@ -172,11 +162,12 @@ public class SubjectMap implements ISubjectMap {
 	/**
 	 * @param graphs
 	 */
-	public void setGraphs(Set<URI> graphs) {
+	private void setGraphs(Set<URI> graphs) {
 		this.graphs = new HashSet<URI>();
 		for (URI graph : graphs) {
 			this.graphs.add(graph);
 		}
+		this.graphs = Collections.unmodifiableSet(this.graphs);
 	}
 
 	/**
@@ -189,11 +180,12 @@ public class SubjectMap implements ISubjectMap {
 	/**
 	 * @param graphColumns
 	 */
-	public void setGraphColumns(Set<String> graphColumns) {
+	private void setGraphColumns(Set<String> graphColumns) {
 		this.graphColumns = new HashSet<String>();
 		for (String graphColumn : graphColumns) {
 			this.graphColumns.add(graphColumn);
 		}
+		this.graphColumns = Collections.unmodifiableSet(this.graphColumns);
 	}
 
 	/**
@@ -207,7 +199,7 @@ public class SubjectMap implements ISubjectMap {
 	 * @param graphTemplates
 	 * @throws InvalidR2RMLSyntaxException
 	 */
-	public void setGraphTemplates(Set<String> graphTemplates) throws InvalidR2RMLSyntaxException {
+	private void setGraphTemplates(Set<String> graphTemplates) throws InvalidR2RMLSyntaxException {
 		this.graphTemplates = new HashSet<String>();
 		for (String graphTemplate : graphTemplates) {
 			if (!R2RMLToolkit.checkCurlyBraces(graphTemplate))
@@ -216,6 +208,7 @@ public class SubjectMap implements ISubjectMap {
 								+ graphTemplate);
 			this.graphTemplates.add(graphTemplate);
 		}
+		this.graphTemplates = Collections.unmodifiableSet(this.graphTemplates);
 	}
 
 	/**
@@ -228,7 +221,7 @@ public class SubjectMap implements ISubjectMap {
 	/**
 	 * @param inverseExpression
 	 */
-	public void setInverseExpression(String inverseExpression) {
+	private void setInverseExpression(String inverseExpression) {
 		this.inverseExpression = inverseExpression;
 	}
 
@@ -239,14 +232,6 @@ public class SubjectMap implements ISubjectMap {
 		return rdfsClass;
 	}
 
-	/**
-	 * @param rdfsClass
-	 */
-	public void setRdfsClass(String rdfsClass) {
-		this.rdfsClass = rdfsClass;
-
-	}
-
 	/**
 	 * @return
 	 */
@@ -254,12 +239,4 @@ public class SubjectMap implements ISubjectMap {
 		return termType;
 	}
 
-	/**
-	 * @param termType
-	 */
-	public void setTermType(TermType termType) {
-		this.termType = termType;
-
-	}
-
 }
@@ -30,7 +30,10 @@
  */
 package antidot.r2rml.model;
 
+import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -42,7 +45,9 @@ import antidot.r2rml.exception.InvalidR2RMLStructureException;
 /**
  * @author  jh
  */
-public class TriplesMap implements ITriplesMap {
+public class TriplesMap implements ITriplesMap, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	// Log
 	private static Log log = LogFactory.getLog(TriplesMap.class);
@@ -61,10 +66,10 @@ public class TriplesMap implements ITriplesMap {
 	private ISubjectMap subjectMap;
 	/**
 	 */
-	private HashSet<PredicateObjectMap> predicateObjectMaps;
+	private Set<PredicateObjectMap> predicateObjectMaps;
 	/**
 	 */
-	private HashSet<RefPredicateObjectMap> refPredicateObjectMaps;
+	private Set<RefPredicateObjectMap> refPredicateObjectMaps;
 
 	public TriplesMap(String tableName, String SQLQuery, String tableOwner,
 			ISubjectMap subjectMap,
@@ -86,8 +91,8 @@ public class TriplesMap implements ITriplesMap {
 		this.SQLQuery = null;
 		this.tableOwner = null;
 		this.subjectMap = null;
-		this.predicateObjectMaps = new HashSet<PredicateObjectMap>();
-		this.refPredicateObjectMaps = new HashSet<RefPredicateObjectMap>();
+		this.predicateObjectMaps = Collections.emptySet();
+		this.refPredicateObjectMaps = Collections.emptySet();
 	}
 
 	/**
@@ -101,6 +106,8 @@ public class TriplesMap implements ITriplesMap {
 	 * Set properties of this triplesMap according to the "R2RML: RDB to RDF Mapping Language" document.
 	 * A TriplesMap contains the rules for mapping a logical table row to a set of RDF triples. 
 	 * It consists of one SubjectMap structure and one or more PredicateObjectMap structure(s).
+	 * Properties can be set only once (by the constructor or after a reference to
+	 * this triplesMap has been resolved) : then this triplesMap is immutable.
 	 * @param tableName
 	 * @param tableOwner
 	 * @param SQLQuery
@@ -117,6 +124,8 @@ public class TriplesMap implements ITriplesMap {
 			log.debug("[TriplesMap:setProperties] New properties, tableName = "
 					+ tableName + ", tableOwner = " + tableOwner
 					+ ", SQLQuery = " + SQLQuery);
+		if (this.subjectMap != null)
+			throw new IllegalStateException("[TriplesMap:setProperties] Properties of a triplesMap can not be changed.");
 		// Checking structure : see 1.4 Mapping overview
 		if (subjectMap == null)
 			throw new InvalidR2RMLStructureException("[TriplesMap:setProperties] subjectMap have to be specified.");
@@ -155,7 +164,7 @@ public class TriplesMap implements ITriplesMap {
 	/**
 	 * @return
 	 */
-	public HashSet<PredicateObjectMap> getPredicateObjectMaps() {
+	public Set<PredicateObjectMap> getPredicateObjectMaps() {
 		return predicateObjectMaps;
 	}
 
@@ -164,14 +173,15 @@ public class TriplesMap implements ITriplesMap {
 	 */
 	private void setPredicateObjectMaps(
 			HashSet<PredicateObjectMap> predicateObjectMaps) {
-		this.predicateObjectMaps = new HashSet<PredicateObjectMap>();
-		this.predicateObjectMaps.addAll(predicateObjectMaps);
+		this.predicateObjectMaps = Collections
+				.unmodifiableSet(new HashSet<PredicateObjectMap>(
+						predicateObjectMaps));
 	}
 
 	/**
 	 * @return
 	 */
-	public HashSet<RefPredicateObjectMap> getRefPredicateObjectMaps() {
+	public Set<RefPredicateObjectMap> getRefPredicateObjectMaps() {
 		return refPredicateObjectMaps;
 	}
 
@@ -192,8 +202,9 @@ public class TriplesMap implements ITriplesMap {
 	 */
 	private void setRefPredicateObjectMaps(
 			HashSet<RefPredicateObjectMap> refPredicateObjectMaps) {
-		this.refPredicateObjectMaps = new HashSet<RefPredicateObjectMap>();
-		this.refPredicateObjectMaps.addAll(refPredicateObjectMaps);
+		this.refPredicateObjectMaps = Collections
+				.unmodifiableSet(new HashSet<RefPredicateObjectMap>(
+						refPredicateObjectMaps));
 	}
 
 	/**
@@ -27,6 +27,9 @@
  */
 package antidot.r2rml.tools;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public abstract class R2RMLToolkit {
 
 	public static boolean checkCurlyBraces(String value) {
@@ -79,4 +82,26 @@ public abstract class R2RMLToolkit {
 
 	}
 
+	/**
+	 * Extract column names contained in curly braces of a template
+	 * expression, in order of appearance.
+	 * 
+	 * @param template
+	 * @return
+	 */
+	public static List<String> extractColumnNamesFromTemplate(String template) {
+		List<String> columnNames = new ArrayList<String>();
+		if (template == null)
+			return columnNames;
+		int openedBrace = template.indexOf('{');
+		while (openedBrace != -1) {
+			int closedBrace = template.indexOf('}', openedBrace);
+			if (closedBrace == -1)
+				break;
+			columnNames.add(template.substring(openedBrace + 1, closedBrace));
+			openedBrace = template.indexOf('{', closedBrace);
+		}
+		return columnNames;
+	}
+
 }
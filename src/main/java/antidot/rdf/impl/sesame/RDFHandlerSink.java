@@ -0,0 +1,80 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ *
+ * RDF Handler Sink
+ *
+ * Hands each triple to a Rio RDFHandler (a RDFWriter for instance) as soon
+ * as it is generated, without storing it. The handler must be started and
+ * ended by the caller.
+ *
+ * @author jhomo
+ *
+ */
+package antidot.rdf.impl.sesame;
+
+import org.openrdf.model.Resource;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+
+public class RDFHandlerSink implements TripleSink {
+
+	private RDFHandler handler;
+
+	private ValueFactory vf;
+
+	// Number of handled triples
+	private long size;
+
+	public RDFHandlerSink(RDFHandler handler) {
+		this.handler = handler;
+		vf = ValueFactoryImpl.getInstance();
+		size = 0;
+	}
+
+	public void add(Resource s, URI p, Value o, Resource... contexts) {
+		try {
+			if (contexts == null || contexts.length == 0) {
+				handler.handleStatement(vf.createStatement(s, p, o));
+				size++;
+			} else
+				for (Resource context : contexts) {
+					handler.handleStatement(vf.createStatement(s, p, o,
+							context));
+					size++;
+				}
+		} catch (RDFHandlerException e) {
+			throw new IllegalStateException("[RDFHandlerSink:add] Triple ("
+					+ s + ", " + p + ", " + o + ") can not be handled : "
+					+ e.getMessage());
+		}
+	}
+
+	/**
+	 * @return
+	 */
+	public long getSize() {
+		return size;
+	}
+
+}
@@ -41,6 +41,7 @@ import java.io.StringWriter;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
@@ -72,7 +73,7 @@ import org.openrdf.sail.inferencer.fc.ForwardChainingRDFSInferencer;
 import org.openrdf.sail.memory.MemoryStore;
 import org.openrdf.sail.nativerdf.NativeStore;
 
-public class SesameDataSet {
+public class SesameDataSet implements TripleSink {
 
 	// Log
 	private static Log log = LogFactory.getLog(SesameDataSet.class);
@@ -323,6 +324,38 @@ public class SesameDataSet {
 		}
 	}
 
+	/**
+	 * Insert statements into graph within one transaction. Each statement is
+	 * added to its own context (default graph if null). If the transaction
+	 * fails, no statement is added and an IllegalStateException is thrown.
+	 * 
+	 * @param statements
+	 */
+	public void addAll(Collection<Statement> statements) {
+		if (log.isDebugEnabled())
+			log.debug("[SesameDataSet:addAll] Add " + statements.size()
+					+ " triples.");
+		try {
+			RepositoryConnection con = currentRepository.getConnection();
+			try {
+				// Statements are committed together, not one by one
+				con.setAutoCommit(false);
+				for (Statement st : statements)
+					con.add(st);
+				con.commit();
+			} catch (RepositoryException e) {
+				con.rollback();
+				throw e;
+			} finally {
+				con.close();
+			}
+		} catch (RepositoryException e) {
+			throw new IllegalStateException("[SesameDataSet:addAll] "
+					+ statements.size() + " triples can not be added : "
+					+ e.getMessage(), e);
+		}
+	}
+
 	public void remove(Resource s, URI p, Value o, Resource... context) {
 		try {
 			RepositoryConnection con = currentRepository.getConnection();
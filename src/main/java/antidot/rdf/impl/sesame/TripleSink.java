@@ -0,0 +1,51 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ *
+ * RDF Triple Sink
+ *
+ * Receives the triples generated by a mapping : a dataset, or a buffer
+ * of statements written later into a dataset.
+ *
+ * @author jhomo
+ *
+ */
+package antidot.rdf.impl.sesame;
+
+import org.openrdf.model.Resource;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+
+public interface TripleSink {
+
+	/**
+	 * Insert Triple/Statement into graph
+	 * 
+	 * @param s
+	 *            subject uriref
+	 * @param p
+	 *            predicate uriref
+	 * @param o
+	 *            value object (URIref or Literal)
+	 * @param contexts
+	 *            varArgs context objects (use default graph if null)
+	 */
+	public void add(Resource s, URI p, Value o, Resource... contexts);
+
+}
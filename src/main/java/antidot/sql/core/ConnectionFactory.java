@@ -0,0 +1,44 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ *
+ * Connection Factory
+ *
+ * Opens new connections to a database, for instance one per thread of a
+ * parallel mapping.
+ *
+ * @author jhomo
+ *
+ */
+package antidot.sql.core;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public interface ConnectionFactory {
+
+	/**
+	 * Open a new connection. It has to be closed by the caller.
+	 * 
+	 * @return
+	 * @throws SQLException
+	 */
+	public Connection createConnection() throws SQLException;
+
+}
@@ -0,0 +1,78 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ *
+ * SQL Connection Factory
+ *
+ * Connection factory which connects a database with SQLConnector.
+ *
+ * @author jhomo
+ *
+ */
+package antidot.sql.core;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class SQLConnectionFactory implements ConnectionFactory {
+
+	private String userName;
+
+	private String password;
+
+	private String url;
+
+	private String driver;
+
+	private String database;
+
+	public SQLConnectionFactory(String userName, String password, String url,
+			String driver, String database) {
+		this.userName = userName;
+		this.password = password;
+		this.url = url;
+		this.driver = driver;
+		this.database = database;
+	}
+
+	public Connection createConnection() throws SQLException {
+		try {
+			return SQLConnector.connect(userName, password, url, driver,
+					database);
+		} catch (InstantiationException e) {
+			throw driverNotLoaded(e);
+		} catch (IllegalAccessException e) {
+			throw driverNotLoaded(e);
+		} catch (ClassNotFoundException e) {
+			throw driverNotLoaded(e);
+		}
+	}
+
+	/**
+	 * @param e
+	 *            Cause of the failure of driver loading
+	 * @return
+	 */
+	private IllegalStateException driverNotLoaded(Exception e) {
+		return new IllegalStateException(
+				"[SQLConnectionFactory:createConnection] Unable to load driver "
+						+ driver + " : " + e.getMessage(), e);
+	}
+
+}
@@ -35,6 +35,7 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.TimeZone;
 import java.util.TreeMap;
 
@@ -87,115 +88,13 @@ public class SQLExtractor {
 				// Extract meta-data of table
 				// Extract table name
 				String tableName = tablesSet.getString("TABLE_NAME");
-
-				// Extract header
-				ResultSet columnsSet = meta.getColumns(null, null, tableName,
-						null);
-				LinkedHashMap<String, String> datatypes = new LinkedHashMap<String, String>();
-				while (columnsSet.next()) {
-					// Get datatypes
-					datatypes.put(columnsSet.getString("COLUMN_NAME"),
-							columnsSet.getString("TYPE_NAME"));
-				}
-				Header header = new Header(datatypes);
-				// Extract candidate keys
-				ArrayList<CandidateKey> candidateKeys = new ArrayList<CandidateKey>();
-				// In particular : primary key
-				ResultSet primaryKeySet = meta.getPrimaryKeys(
-						conn.getCatalog(), null, tableName);
-				ArrayList<String> columnNames = new ArrayList<String>();
-				int size = 0;
-				while (primaryKeySet.next()) {
-					size++;
-					String columnName = primaryKeySet.getString("COLUMN_NAME");
-					columnNames.add(columnName);
-
-				}
-				ArrayList<String> sortedColumnNames = new ArrayList<String>();
-				for (String columnName : header.getColumnNames()) {
-					if (columnNames.contains(columnName))
-						sortedColumnNames.add(columnName);
-				}
-				if (size != 0) {
-					CandidateKey primaryKey = new CandidateKey(
-							sortedColumnNames, tableName,
-							CandidateKey.KeyType.PRIMARY);
-					candidateKeys.add(primaryKey);
-				}
-
-				// Extract foreign key
-				HashSet<ForeignKey> foreignKeys = new HashSet<ForeignKey>();
-				ResultSet importedKeySet = meta.getImportedKeys(conn
-						.getCatalog(), null, tableName);
-				String currentPkTableName = null;
-				ArrayList<String> pkColumnNames = new ArrayList<String>();
-				ArrayList<String> fkColumnNames = new ArrayList<String>();
-				while (importedKeySet.next()) {
-					String pkTableName = importedKeySet
-							.getString("PKTABLE_NAME");
-					String pkColumnName = importedKeySet
-							.getString("PKCOLUMN_NAME");
-					String fkTableName = importedKeySet
-							.getString("FKTABLE_NAME");
-					String fkColumnName = importedKeySet
-							.getString("FKCOLUMN_NAME");
-					int fkSequence = importedKeySet.getInt("KEY_SEQ");
-
-					// Consistency test
-					if (!fkTableName.equals(tableName))
-						throw new IllegalStateException(
-								"[SQLConnection:extractDatabase] Unconsistency between source "
-										+ "table of foreign key and current table : "
-										+ tableName + " != " + fkTableName);
-
-					if (fkSequence == 1) { // Sequence == order of column in
-						// multi-column foreign key
-						// New foreign key => store last key
-						if (fkColumnNames.size() != 0)
-							foreignKeys.add(new ForeignKey(fkColumnNames,
-									tableName, new CandidateKey(pkColumnNames,
-											currentPkTableName)));
-						// TODO : check if this value is the same for another
-						// SGBD than MySQL
-						fkColumnNames = new ArrayList<String>();
-						pkColumnNames = new ArrayList<String>();
-					}
-					currentPkTableName = pkTableName;
-					pkColumnNames.add(pkColumnName);
-					fkColumnNames.add(fkColumnName);
-				}
-				// Store last key
-				if (fkColumnNames.size() != 0)
-					foreignKeys
-							.add(new ForeignKey(fkColumnNames, tableName,
-									new CandidateKey(pkColumnNames,
-											currentPkTableName)));
+				Table table = extractTableSchema(conn, meta, tableName);
+				Header header = table.getHeader();
 				// Rows generation
 				HashSet<Row> rows = new HashSet<Row>();
 				Statement s = conn.createStatement();
 				// Construct SQL query
-				String SQLQuery = "SELECT ";
-				int i = 0;
-				for (String columnName : header.getColumnNames()) {
-					i++;
-					// Extract MySQL date format in a ISO 8601 format
-					SQLType.MySQLType type = SQLType.MySQLType
-							.toMySQLType(header.getDatatypes().get(columnName));
-					if (type == null) {
-						throw new IllegalStateException(
-								"[SQLConnector:extractMySQLDatabase] Unknown MySQL type : "
-										+ header.getDatatypes().get(columnName)
-										+ " from column : " + columnName);
-					}
-					if (type.isDateType()) {
-						SQLQuery += "UNIX_TIMESTAMP(`" + columnName + "`)";
-					} else {
-						SQLQuery += "`" + columnName + "`";
-					}
-					if (i < header.getColumnNames().size())
-						SQLQuery += ", ";
-				}
-				SQLQuery += " FROM " + tableName + ";";
+				String SQLQuery = getMySQLTableQuery(tableName, header);
 				if (log.isDebugEnabled()) log
 						.debug("[SQLConnection:extractDatabase] SQL generated request : "
 								+ SQLQuery);
@@ -243,9 +142,7 @@ public class SQLExtractor {
 							+ row);
 					rows.add(row);
 				}
-				Body body = new Body(rows);
-				Table table = new Table(tableName, header, candidateKeys,
-						foreignKeys, body);
+				table.setBody(new Body(rows));
 				tables.add(table);
 			}
 			db = new Database(tables);
@@ -261,4 +158,211 @@ public class SQLExtractor {
 		return db;
 	}
 
+	/**
+	 * Describe the extraction plan of a MySQL database, without reading its
+	 * rows : for each table, its SQL query, columns, keys, estimated rows and
+	 * triples and the plan of its query given by the database. Foreign keys
+	 * whose referenced columns are not indexed are flagged.
+	 * 
+	 * @param conn
+	 * @return
+	 * @throws SQLException
+	 */
+	static public String explainMySQLDatabase(Connection conn)
+			throws SQLException {
+		DatabaseMetaData meta = conn.getMetaData();
+		SQLStatistics statistics = new SQLStatistics(conn);
+		StringBuffer report = new StringBuffer();
+		long totalTriples = 0;
+		boolean totalKnown = true;
+		int nbTables = 0;
+		ResultSet tablesSet = meta.getTables(conn.getCatalog(), null, "%",
+				null);
+		while (tablesSet.next()) {
+			nbTables++;
+			String tableName = tablesSet.getString("TABLE_NAME");
+			Table table = extractTableSchema(conn, meta, tableName);
+			String SQLQuery = getMySQLTableQuery(tableName, table.getHeader());
+			Long rows = statistics.getRowCount(tableName);
+			// Type triple, one triple by column and by foreign key
+			long triplesByRow = 1 + table.getHeader().getColumnNames().size()
+					+ table.getForeignKeys().size();
+			report.append("\nTable " + tableName + "\n");
+			report.append("  SQL : " + SQLQuery + "\n");
+			report.append("  Columns : " + table.getHeader().getColumnNames()
+					+ "\n");
+			report.append("  Primary key : "
+					+ (table.getPrimaryKey() == null ? "none (blank nodes)"
+							: table.getPrimaryKey().getColumnNames()) + "\n");
+			report.append("  Estimated rows : "
+					+ (rows == null ? "unknown" : rows.toString())
+					+ ", triples by row : " + triplesByRow
+					+ ", estimated triples : "
+					+ (rows == null ? "unknown" : rows * triplesByRow) + "\n");
+			if (rows == null)
+				totalKnown = false;
+			else
+				totalTriples += rows * triplesByRow;
+			try {
+				List<String> plan = statistics.explain(SQLQuery);
+				report.append("  Database plan :\n");
+				for (String line : plan)
+					report.append("    " + line + "\n");
+			} catch (SQLException e) {
+				report.append("  Database plan : not available\n");
+			}
+			for (ForeignKey foreignKey : table.getForeignKeys()) {
+				List<String> referencedColumns = foreignKey.getReferenceKey()
+						.getColumnNames();
+				boolean indexed = statistics.isIndexed(foreignKey
+						.getTargetTableName(), referencedColumns);
+				report.append("  Foreign key " + foreignKey.getColumnNames()
+						+ " -> " + foreignKey.getTargetTableName()
+						+ referencedColumns + ", index : "
+						+ (indexed ? "yes" : "no") + "\n");
+				if (!indexed)
+					report.append("    WARNING : full scan of "
+							+ foreignKey.getTargetTableName()
+							+ " on join columns " + referencedColumns + "\n");
+			}
+		}
+		tablesSet.close();
+		return "Direct Mapping execution plan : " + nbTables + " table(s)\n"
+				+ report.toString() + "\nEstimated triples : "
+				+ (totalKnown ? String.valueOf(totalTriples) : "unknown")
+				+ "\n";
+	}
+
+	/**
+	 * Extract the header, candidate keys and foreign keys of a table, with
+	 * an empty body.
+	 * 
+	 * @param conn
+	 * @param meta
+	 * @param tableName
+	 * @return
+	 * @throws SQLException
+	 */
+	static private Table extractTableSchema(Connection conn,
+			DatabaseMetaData meta, String tableName) throws SQLException {
+		// Extract header
+		ResultSet columnsSet = meta.getColumns(null, null, tableName,
+				null);
+		LinkedHashMap<String, String> datatypes = new LinkedHashMap<String, String>();
+		while (columnsSet.next()) {
+			// Get datatypes
+			datatypes.put(columnsSet.getString("COLUMN_NAME"),
+					columnsSet.getString("TYPE_NAME"));
+		}
+		Header header = new Header(datatypes);
+		// Extract candidate keys
+		ArrayList<CandidateKey> candidateKeys = new ArrayList<CandidateKey>();
+		// In particular : primary key
+		ResultSet primaryKeySet = meta.getPrimaryKeys(
+				conn.getCatalog(), null, tableName);
+		ArrayList<String> columnNames = new ArrayList<String>();
+		int size = 0;
+		while (primaryKeySet.next()) {
+			size++;
+			String columnName = primaryKeySet.getString("COLUMN_NAME");
+			columnNames.add(columnName);
+
+		}
+		ArrayList<String> sortedColumnNames = new ArrayList<String>();
+		for (String columnName : header.getColumnNames()) {
+			if (columnNames.contains(columnName))
+				sortedColumnNames.add(columnName);
+		}
+		if (size != 0) {
+			CandidateKey primaryKey = new CandidateKey(
+					sortedColumnNames, tableName,
+					CandidateKey.KeyType.PRIMARY);
+			candidateKeys.add(primaryKey);
+		}
+
+		// Extract foreign key
+		HashSet<ForeignKey> foreignKeys = new HashSet<ForeignKey>();
+		ResultSet importedKeySet = meta.getImportedKeys(conn
+				.getCatalog(), null, tableName);
+		String currentPkTableName = null;
+		ArrayList<String> pkColumnNames = new ArrayList<String>();
+		ArrayList<String> fkColumnNames = new ArrayList<String>();
+		while (importedKeySet.next()) {
+			String pkTableName = importedKeySet
+					.getString("PKTABLE_NAME");
+			String pkColumnName = importedKeySet
+					.getString("PKCOLUMN_NAME");
+			String fkTableName = importedKeySet
+					.getString("FKTABLE_NAME");
+			String fkColumnName = importedKeySet
+					.getString("FKCOLUMN_NAME");
+			int fkSequence = importedKeySet.getInt("KEY_SEQ");
+
+			// Consistency test
+			if (!fkTableName.equals(tableName))
+				throw new IllegalStateException(
+						"[SQLConnection:extractDatabase] Unconsistency between source "
+								+ "table of foreign key and current table : "
+								+ tableName + " != " + fkTableName);
+
+			if (fkSequence == 1) { // Sequence == order of column in
+				// multi-column foreign key
+				// New foreign key => store last key
+				if (fkColumnNames.size() != 0)
+					foreignKeys.add(new ForeignKey(fkColumnNames,
+							tableName, new CandidateKey(pkColumnNames,
+									currentPkTableName)));
+				// TODO : check if this value is the same for another
+				// SGBD than MySQL
+				fkColumnNames = new ArrayList<String>();
+				pkColumnNames = new ArrayList<String>();
+			}
+			currentPkTableName = pkTableName;
+			pkColumnNames.add(pkColumnName);
+			fkColumnNames.add(fkColumnName);
+		}
+		// Store last key
+		if (fkColumnNames.size() != 0)
+			foreignKeys
+					.add(new ForeignKey(fkColumnNames, tableName,
+							new CandidateKey(pkColumnNames,
+									currentPkTableName)));
+		return new Table(tableName, header, candidateKeys, foreignKeys,
+				new Body(new HashSet<Row>()));
+	}
+
+	/**
+	 * Returns the SQL query which reads the rows of a MySQL table, with its
+	 * dates as timestamps.
+	 * 
+	 * @param tableName
+	 * @param header
+	 * @return
+	 */
+	static private String getMySQLTableQuery(String tableName, Header header) {
+		String SQLQuery = "SELECT ";
+		int i = 0;
+		for (String columnName : header.getColumnNames()) {
+			i++;
+			// Extract MySQL date format in a ISO 8601 format
+			SQLType.MySQLType type = SQLType.MySQLType
+					.toMySQLType(header.getDatatypes().get(columnName));
+			if (type == null) {
+				throw new IllegalStateException(
+						"[SQLConnector:extractMySQLDatabase] Unknown MySQL type : "
+								+ header.getDatatypes().get(columnName)
+								+ " from column : " + columnName);
+			}
+			if (type.isDateType()) {
+				SQLQuery += "UNIX_TIMESTAMP(`" + columnName + "`)";
+			} else {
+				SQLQuery += "`" + columnName + "`";
+			}
+			if (i < header.getColumnNames().size())
+				SQLQuery += ", ";
+		}
+		SQLQuery += " FROM " + tableName + ";";
+		return SQLQuery;
+	}
+
 }
@@ -0,0 +1,281 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ *
+ * SQL Statistics
+ *
+ * Cheap statistics of the tables of a database : estimated number of rows
+ * and indexes, read from the metadata of the driver (and from
+ * information_schema with MySQL). Statistics are read once per table and
+ * are unknown if the driver does not provide them. Query plans of the
+ * database can be read too.
+ *
+ * @author jhomo
+ *
+ */
+package antidot.sql.core;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+public class SQLStatistics {
+
+	// Log
+	private static Log log = LogFactory.getLog(SQLStatistics.class);
+
+	// SQL Connection
+	private Connection conn;
+
+	// Statistics by table name
+	private HashMap<String, TableStatistics> tableStatistics;
+
+	/**
+	 * Statistics of a table.
+	 */
+	private static class TableStatistics {
+
+		// Estimated number of rows (null if unknown)
+		private Long rowCount;
+
+		// Columns of each index, in index order
+		private List<List<String>> indexes = new ArrayList<List<String>>();
+	}
+
+	public SQLStatistics(Connection conn) {
+		this.conn = conn;
+		tableStatistics = new HashMap<String, TableStatistics>();
+	}
+
+	/**
+	 * Returns the estimated number of rows of a table, or null if it is
+	 * unknown.
+	 *
+	 * @param tableName
+	 * @return
+	 */
+	public Long getRowCount(String tableName) {
+		return getTableStatistics(tableName).rowCount;
+	}
+
+	/**
+	 * Returns the columns of each index of a table.
+	 *
+	 * @param tableName
+	 * @return
+	 */
+	public List<List<String>> getIndexes(String tableName) {
+		return getTableStatistics(tableName).indexes;
+	}
+
+	/**
+	 * Returns true if an index of a table starts with some columns (in any
+	 * order).
+	 *
+	 * @param tableName
+	 * @param columnNames
+	 * @return
+	 */
+	public boolean isIndexed(String tableName, List<String> columnNames) {
+		Set<String> columns = new HashSet<String>();
+		for (String columnName : columnNames)
+			columns.add(unquote(columnName).toLowerCase());
+		for (List<String> index : getIndexes(tableName)) {
+			if (index.size() < columns.size())
+				continue;
+			Set<String> prefix = new HashSet<String>();
+			for (String column : index.subList(0, columns.size()))
+				prefix.add(column.toLowerCase());
+			if (prefix.equals(columns))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the plan of a query given by the EXPLAIN statement of the
+	 * database, one line by row of the plan.
+	 *
+	 * @param query
+	 * @return
+	 * @throws SQLException
+	 */
+	public List<String> explain(String query) throws SQLException {
+		List<String> plan = new ArrayList<String>();
+		Statement s = conn.createStatement();
+		try {
+			ResultSet rs = s.executeQuery("EXPLAIN " + query);
+			ResultSetMetaData meta = rs.getMetaData();
+			while (rs.next()) {
+				if (meta.getColumnCount() == 1) {
+					plan.add(rs.getString(1));
+					continue;
+				}
+				StringBuffer line = new StringBuffer();
+				for (int i = 1; i <= meta.getColumnCount(); i++) {
+					if (i > 1)
+						line.append(", ");
+					line.append(meta.getColumnLabel(i) + "="
+							+ rs.getString(i));
+				}
+				plan.add(line.toString());
+			}
+			rs.close();
+		} finally {
+			s.close();
+		}
+		return plan;
+	}
+
+	/**
+	 * Returns true if a line of a query plan reads a whole table (MySQL
+	 * access type ALL, sequential or full table scans of other databases).
+	 *
+	 * @param planLine
+	 * @return
+	 */
+	public static boolean isFullScan(String planLine) {
+		if (planLine == null)
+			return false;
+		String line = planLine.toLowerCase();
+		return line.contains("type=all") || line.contains("seq scan")
+				|| line.contains("table scan") || line.contains("full scan")
+				|| line.contains("scan table");
+	}
+
+	/**
+	 * Returns the statistics of a table, read from the database at first
+	 * use.
+	 *
+	 * @param tableName
+	 * @return
+	 */
+	private TableStatistics getTableStatistics(String tableName) {
+		TableStatistics result = tableStatistics.get(tableName);
+		if (result != null)
+			return result;
+		result = new TableStatistics();
+		tableStatistics.put(tableName, result);
+		String schema = null;
+		String table = unquote(tableName);
+		int dot = table.lastIndexOf('.');
+		if (dot != -1) {
+			schema = table.substring(0, dot);
+			table = table.substring(dot + 1);
+		}
+		try {
+			DatabaseMetaData meta = conn.getMetaData();
+			// Identifiers may be stored in upper or lower case
+			String[] names = { table, table.toUpperCase(),
+					table.toLowerCase() };
+			for (int i = 0; i < names.length && result.indexes.isEmpty()
+					&& result.rowCount == null; i++)
+				readIndexInfo(meta, schema, names[i], result);
+			if (result.rowCount == null
+					&& meta.getDatabaseProductName().toLowerCase().contains(
+							"mysql"))
+				result.rowCount = readMySQLRowCount(schema, table);
+		} catch (SQLException e) {
+			if (log.isWarnEnabled())
+				log.warn("[SQLStatistics:getTableStatistics] Statistics of "
+						+ tableName + " are not available : " + e.getMessage());
+		}
+		if (log.isDebugEnabled())
+			log.debug("[SQLStatistics:getTableStatistics] " + tableName
+					+ " : rows : " + result.rowCount + ", indexes : "
+					+ result.indexes);
+		return result;
+	}
+
+	private void readIndexInfo(DatabaseMetaData meta, String schema,
+			String table, TableStatistics result) throws SQLException {
+		// Columns by position, by index name
+		HashMap<String, TreeMap<Short, String>> indexColumns = new HashMap<String, TreeMap<Short, String>>();
+		ResultSet rs = meta.getIndexInfo(conn.getCatalog(), schema, table,
+				false, true);
+		try {
+			while (rs.next()) {
+				short type = rs.getShort("TYPE");
+				if (type == DatabaseMetaData.tableIndexStatistic) {
+					long cardinality = rs.getLong("CARDINALITY");
+					if (!rs.wasNull())
+						result.rowCount = cardinality;
+					continue;
+				}
+				String indexName = rs.getString("INDEX_NAME");
+				String columnName = rs.getString("COLUMN_NAME");
+				if (indexName == null || columnName == null)
+					continue;
+				TreeMap<Short, String> columns = indexColumns.get(indexName);
+				if (columns == null) {
+					columns = new TreeMap<Short, String>();
+					indexColumns.put(indexName, columns);
+				}
+				columns.put(rs.getShort("ORDINAL_POSITION"), columnName);
+			}
+		} finally {
+			rs.close();
+		}
+		for (TreeMap<Short, String> columns : indexColumns.values())
+			result.indexes.add(new ArrayList<String>(columns.values()));
+	}
+
+	private Long readMySQLRowCount(String schema, String table)
+			throws SQLException {
+		PreparedStatement s = conn.prepareStatement("SELECT TABLE_ROWS FROM "
+				+ "information_schema.TABLES WHERE TABLE_SCHEMA = "
+				+ (schema == null ? "DATABASE()" : "?")
+				+ " AND TABLE_NAME = ?");
+		try {
+			int i = 1;
+			if (schema != null)
+				s.setString(i++, schema);
+			s.setString(i, table);
+			ResultSet rs = s.executeQuery();
+			Long rowCount = null;
+			if (rs.next()) {
+				rowCount = rs.getLong(1);
+				if (rs.wasNull())
+					rowCount = null;
+			}
+			rs.close();
+			return rowCount;
+		} finally {
+			s.close();
+		}
+	}
+
+	private static String unquote(String identifier) {
+		return identifier.replace("\"", "").replace("`", "");
+	}
+
+}
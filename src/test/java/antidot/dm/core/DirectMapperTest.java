@@ -0,0 +1,226 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ *
+ * Direct Mapper Test
+ *
+ * Checks the Direct Mapping of a small database model : blank nodes of
+ * identical rows without primary key, and the same triples whether they
+ * are stored or streamed, by one thread or several.
+ *
+ * @author jhomo
+ *
+ */
+package antidot.dm.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+
+import antidot.rdf.impl.sesame.SesameDataSet;
+import antidot.rdf.impl.sesame.TripleSink;
+import antidot.sql.model.Body;
+import antidot.sql.model.CandidateKey;
+import antidot.sql.model.Database;
+import antidot.sql.model.ForeignKey;
+import antidot.sql.model.Header;
+import antidot.sql.model.Row;
+import antidot.sql.model.Table;
+
+public class DirectMapperTest extends TestCase {
+
+	private static String baseURI = "http://example.com/base/";
+
+	// DEPT and EMP tables with primary keys, EMP referencing DEPT, and a LOG
+	// table without primary key holding identical rows
+	private Database db;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		db = createDatabase(false);
+	}
+
+	public void testIdenticalRowsWithoutPrimaryKeyAreDistinct()
+			throws Exception {
+		SesameDataSet result = DirectMapper.generateDirectMapping(db, baseURI);
+		Set<Resource> blankNodes = new HashSet<Resource>();
+		for (Statement statement : result.tuplePattern(null, null, null))
+			if (statement.getSubject() instanceof BNode)
+				blankNodes.add(statement.getSubject());
+		assertEquals(4, blankNodes.size());
+	}
+
+	public void testBlankNodesDoNotDependOnRowOrder() throws Exception {
+		// Rows of each table are read in reverse order
+		assertEquals(getStatements(DirectMapper.generateDirectMapping(db,
+				baseURI)), getStatements(DirectMapper.generateDirectMapping(
+				createDatabase(true), baseURI)));
+	}
+
+	public void testStreamMatchesDataSet() throws Exception {
+		Set<Statement> expected = getStatements(DirectMapper
+				.generateDirectMapping(db, baseURI));
+		List<Statement> streamed = new ArrayList<Statement>();
+		long nbTriples = DirectMapper.streamDirectMapping(db, baseURI,
+				new StatementCollector(streamed));
+		assertEquals(streamed.size(), nbTriples);
+		// Rows are distinct, so are their triples
+		assertEquals(expected.size(), streamed.size());
+		assertEquals(expected, new HashSet<Statement>(streamed));
+	}
+
+	public void testThreadsMatchOneThread() throws Exception {
+		Set<Statement> expected = getStatements(DirectMapper
+				.generateDirectMapping(db, baseURI));
+		assertEquals(expected, getStatements(DirectMapper
+				.generateDirectMapping(db, baseURI, null, 4)));
+		List<Statement> oneThread = new ArrayList<Statement>();
+		DirectMapper.streamDirectMapping(db, baseURI, new StatementCollector(
+				oneThread), 1);
+		StatementCollector collector = new StatementCollector(
+				new ArrayList<Statement>());
+		DirectMapper.streamDirectMapping(db, baseURI, collector, 4);
+		// Same triples in the same order, handed by the calling thread only
+		assertEquals(oneThread, collector.statements);
+		assertEquals(Collections.singleton(Thread.currentThread()),
+				collector.threads);
+	}
+
+	/**
+	 * Sink storing the triples it receives.
+	 */
+	private static class StatementCollector implements TripleSink {
+
+		private static ValueFactory vf = new ValueFactoryImpl();
+
+		private List<Statement> statements;
+
+		// Threads which handed the triples
+		private Set<Thread> threads = new HashSet<Thread>();
+
+		public StatementCollector(List<Statement> statements) {
+			this.statements = statements;
+		}
+
+		public void add(Resource s, URI p, Value o, Resource... contexts) {
+			statements.add(vf.createStatement(s, p, o));
+			threads.add(Thread.currentThread());
+		}
+
+	}
+
+	private static Set<Statement> getStatements(SesameDataSet sesameDataSet) {
+		return new HashSet<Statement>(sesameDataSet.tuplePattern(null, null,
+				null));
+	}
+
+	private static ArrayList<String> list(String... values) {
+		return new ArrayList<String>(Arrays.asList(values));
+	}
+
+	/**
+	 * Build the database model, its rows being read in insertion order or
+	 * in reverse order.
+	 * 
+	 * @param reverse
+	 * @return
+	 */
+	private static Database createDatabase(boolean reverse) {
+		CandidateKey deptKey = new CandidateKey(list("DEPTNO"), "DEPT",
+				CandidateKey.KeyType.PRIMARY);
+		Table dept = createTable("DEPT", new String[] { "DEPTNO", "INT",
+				"DNAME", "VARCHAR" }, deptKey, new HashSet<ForeignKey>());
+		addRows(dept, reverse, new String[][] {
+				{ "DEPTNO", "10", "DNAME", "ACCOUNTING" },
+				{ "DEPTNO", "20", "DNAME", "RESEARCH" } });
+		HashSet<ForeignKey> empForeignKeys = new HashSet<ForeignKey>();
+		empForeignKeys.add(new ForeignKey(list("DEPTNO"), "EMP", deptKey));
+		Table emp = createTable("EMP", new String[] { "EMPNO", "INT",
+				"ENAME", "VARCHAR", "DEPTNO", "INT" }, new CandidateKey(
+				list("EMPNO"), "EMP", CandidateKey.KeyType.PRIMARY),
+				empForeignKeys);
+		addRows(emp, reverse, new String[][] {
+				{ "EMPNO", "7839", "ENAME", "KING", "DEPTNO", "10" },
+				{ "EMPNO", "7566", "ENAME", "JONES", "DEPTNO", "20" },
+				{ "EMPNO", "7369", "ENAME", "SMITH", "DEPTNO", "20" } });
+		Table log = createTable("LOG", new String[] { "MSG", "VARCHAR",
+				"LEVEL", "INT" }, null, new HashSet<ForeignKey>());
+		addRows(log, reverse, new String[][] {
+				{ "MSG", "start", "LEVEL", "1" },
+				{ "MSG", "stop", "LEVEL", "1" },
+				{ "MSG", "start", "LEVEL", "1" },
+				{ "MSG", "start", "LEVEL", "2" } });
+		return new Database(new HashSet<Table>(Arrays.asList(dept, emp, log)));
+	}
+
+	/**
+	 * @param tableName
+	 * @param columns
+	 *            Name and datatype of each column
+	 * @param primaryKey
+	 *            Primary key or null
+	 * @param foreignKeys
+	 * @return
+	 */
+	private static Table createTable(String tableName, String[] columns,
+			CandidateKey primaryKey, HashSet<ForeignKey> foreignKeys) {
+		LinkedHashMap<String, String> datatypes = new LinkedHashMap<String, String>();
+		for (int i = 0; i < columns.length; i += 2)
+			datatypes.put(columns[i], columns[i + 1]);
+		ArrayList<CandidateKey> candidateKeys = new ArrayList<CandidateKey>();
+		if (primaryKey != null)
+			candidateKeys.add(primaryKey);
+		// Rows are read in insertion order
+		return new Table(tableName, new Header(datatypes), candidateKeys,
+				foreignKeys, new Body(new LinkedHashSet<Row>()));
+	}
+
+	/**
+	 * @param table
+	 * @param reverse
+	 * @param rows
+	 *            Name and value of each column, by row
+	 */
+	private static void addRows(Table table, boolean reverse, String[][] rows) {
+		for (int i = 0; i < rows.length; i++) {
+			String[] values = rows[reverse ? rows.length - 1 - i : i];
+			TreeMap<String, String> row = new TreeMap<String, String>();
+			for (int j = 0; j < values.length; j += 2)
+				row.put(values[j], values[j + 1]);
+			table.getBody().getRows().add(new Row(row, table.getTableName()));
+		}
+	}
+
+}
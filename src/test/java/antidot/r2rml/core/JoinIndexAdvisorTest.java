@@ -0,0 +1,76 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Join Index Advisor Test
+ *
+ * Checks the index advised for the MGR column of the EMP self join, the
+ * only join column of the fixture without index, and its quoted DDL.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import antidot.r2rml.core.JoinIndexAdvisor.JoinIndex;
+import antidot.r2rml.model.R2RMLMapping;
+import antidot.sql.core.SQLStatistics;
+
+public class JoinIndexAdvisorTest extends R2RMLTestCase {
+
+	public void testMissingIndexIsQuoted() throws Exception {
+		R2RMLMapping r2rmlMapping = loadMapping(empDeptMapping);
+		JoinIndexAdvisor advisor = new JoinIndexAdvisor(conn);
+		List<JoinIndex> indexes = advisor.getMissingIndexes(r2rmlMapping
+				.getTriplesMaps());
+		assertEquals(1, indexes.size());
+		JoinIndex index = indexes.get(0);
+		assertEquals("EMP", index.getTableName());
+		assertEquals(Arrays.asList("MGR"), index.getColumnNames());
+		assertEquals("CREATE INDEX r2rml_idx_EMP_MGR ON \"EMP\" (\"MGR\")",
+				index.getCreateStatement());
+		assertEquals("DROP INDEX r2rml_idx_EMP_MGR", index
+				.getDropStatement(false));
+		assertEquals("DROP INDEX r2rml_idx_EMP_MGR ON \"EMP\"", index
+				.getDropStatement(true));
+		assertTrue(advisor.getReport(r2rmlMapping.getTriplesMaps())
+				.contains(index.getCreateStatement() + ";"));
+	}
+
+	public void testCreateAndDropIndexes() throws Exception {
+		R2RMLMapping r2rmlMapping = loadMapping(empDeptMapping);
+		JoinIndexAdvisor advisor = new JoinIndexAdvisor(conn);
+		List<JoinIndex> createdIndexes = new ArrayList<JoinIndex>();
+		advisor.createIndexes(advisor.getMissingIndexes(r2rmlMapping
+				.getTriplesMaps()), createdIndexes);
+		assertEquals(1, createdIndexes.size());
+		assertTrue(new SQLStatistics(conn).isIndexed("EMP", Arrays
+				.asList("MGR")));
+		assertTrue(new JoinIndexAdvisor(conn).getMissingIndexes(
+				r2rmlMapping.getTriplesMaps()).isEmpty());
+		advisor.dropIndexes(createdIndexes);
+		assertFalse(new SQLStatistics(conn).isIndexed("EMP", Arrays
+				.asList("MGR")));
+	}
+
+}
@@ -0,0 +1,114 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : Join Planner Test
+ *
+ * Checks the join strategy chosen for the EMP to DEPT join from the
+ * memory budget, the row counts of the logical tables and the indexes of
+ * DEPT.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+import antidot.r2rml.model.R2RMLMapping;
+import antidot.r2rml.model.RefPredicateObjectMap;
+import antidot.r2rml.model.TriplesMap;
+
+public class JoinPlannerTest extends R2RMLTestCase {
+
+	private TriplesMap emp;
+
+	private TriplesMap dept;
+
+	private JoinStatistics statistics;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		R2RMLMapping r2rmlMapping = loadMapping(empDeptMapping);
+		for (TriplesMap triplesMap : r2rmlMapping.getTriplesMaps()) {
+			if (triplesMap.getTableName().equals("DEPT"))
+				dept = triplesMap;
+			for (RefPredicateObjectMap refPredicateObjectMap : triplesMap
+					.getRefPredicateObjectMaps())
+				if (refPredicateObjectMap.getRefObjectMap()
+						.getParentTriplesMap().getTableName().equals("DEPT"))
+					emp = triplesMap;
+		}
+		statistics = new JoinStatistics();
+	}
+
+	public void testHashJoinWithinBudget() {
+		setRowCounts(4, 3);
+		JoinPlanner planner = new JoinPlanner(conn, statistics,
+				1024 * 1024);
+		assertEquals(JoinStrategy.HASH_JOIN, plan(planner, "DEPTNO", true));
+		// Index shared with another join on the same columns
+		assertEquals(JoinStrategy.HASH_JOIN, plan(planner, "DEPTNO", true));
+	}
+
+	public void testLookupJoinForFewChildRows() {
+		setRowCounts(4, 1000);
+		JoinPlanner planner = new JoinPlanner(conn, statistics, 1);
+		assertEquals(JoinStrategy.LOOKUP_JOIN, plan(planner, "DEPTNO", true));
+	}
+
+	public void testSQLPushdownForManyChildRows() {
+		setRowCounts(4000, 1000);
+		JoinPlanner planner = new JoinPlanner(conn, statistics, 1);
+		assertEquals(JoinStrategy.SQL_PUSHDOWN, plan(planner, "DEPTNO", true));
+		// Child logical table can not be joined by the database
+		assertEquals(JoinStrategy.GRACE_HASH_JOIN, plan(planner, "DEPTNO",
+				false));
+	}
+
+	public void testGraceHashJoinWithoutIndex() {
+		setRowCounts(4, 1000);
+		JoinPlanner planner = new JoinPlanner(conn, statistics, 1);
+		assertEquals(JoinStrategy.GRACE_HASH_JOIN, plan(planner, "LOC", true));
+	}
+
+	public void testIndexesOfDatabase() {
+		JoinPlanner planner = new JoinPlanner(conn, statistics, 1);
+		assertTrue(planner.isIndexed(dept, Arrays.asList("DEPTNO")));
+		assertFalse(planner.isIndexed(dept, Arrays.asList("LOC")));
+	}
+
+	private void setRowCounts(long empRows, long deptRows) {
+		statistics.setRowCount(LogicalTableProjection.getLogicalTableKey(emp),
+				empRows);
+		statistics.setRowCount(LogicalTableProjection
+				.getLogicalTableKey(dept), deptRows);
+	}
+
+	private JoinStrategy plan(JoinPlanner planner, String parentColumnName,
+			boolean pushable) {
+		List<String> parentColumnNames = Arrays.asList(parentColumnName);
+		return planner.plan(emp, LogicalTableProjection
+				.getLogicalTableKey(emp), pushable, dept,
+				LogicalTableProjection.getLogicalTableKey(dept),
+				parentColumnNames);
+	}
+
+}
@@ -0,0 +1,336 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : R2RML Engine Test
+ *
+ * Checks that the join strategies and the execution modes of the engine
+ * extract the same triples as one thread reading rows one by one with
+ * nested loop joins.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.openrdf.model.Statement;
+
+import antidot.r2rml.model.R2RMLMapping;
+import antidot.r2rml.model.TriplesMap;
+import antidot.rdf.impl.sesame.SesameDataSet;
+import antidot.sql.core.ConnectionFactory;
+
+public class R2RMLEngineTest extends R2RMLTestCase {
+
+	private static String ex = "http://example.com/ns#";
+
+	/**
+	 * Reference run : one thread, rows read one by one, nested loop joins.
+	 * 
+	 * @param resource
+	 * @return
+	 * @throws Exception
+	 */
+	private Set<Statement> runReference(String resource) throws Exception {
+		R2RMLEngine engine = new R2RMLEngine(JoinStrategy.NESTED_LOOP);
+		return getStatements(run(engine, loadMapping(resource)));
+	}
+
+	/**
+	 * Check that a join strategy extracts the same triples as nested loops,
+	 * rows being read one by one or by batches. Every partition is spilled
+	 * and keys are looked up by small batches.
+	 * 
+	 * @param joinStrategy
+	 * @throws Exception
+	 */
+	private void assertJoinMatchesNestedLoop(JoinStrategy joinStrategy)
+			throws Exception {
+		Set<Statement> expected = runReference(empDeptMapping);
+		for (int batchSize = 0; batchSize <= 2; batchSize += 2) {
+			R2RMLEngine engine = new R2RMLEngine(joinStrategy);
+			engine.setBatchSize(batchSize);
+			engine.setJoinMemoryBudget(1);
+			engine.setLookupBatchSize(2);
+			assertEquals(joinStrategy + ", batch size " + batchSize,
+					expected, getStatements(run(engine,
+							loadMapping(empDeptMapping))));
+		}
+	}
+
+	public void testRowPath() throws Exception {
+		R2RMLEngine engine = new R2RMLEngine(JoinStrategy.NESTED_LOOP);
+		SesameDataSet result = run(engine, loadMapping(empDeptMapping));
+		// 3 departments, 4 employees and 3 managers
+		assertEquals(3 * 3 + 4 * 3 + 3, result.getSize());
+		assertEquals(1, result.tuplePattern(
+				result.URIref("http://example.com/emp/7369"),
+				result.URIref(ex + "department"),
+				result.URIref("http://example.com/dept/20")).size());
+		assertEquals(1, result.tuplePattern(
+				result.URIref("http://example.com/emp/7369"),
+				result.URIref(ex + "manager"),
+				result.URIref("http://example.com/emp/7566")).size());
+		// No manager
+		assertEquals(0, result.tuplePattern(
+				result.URIref("http://example.com/emp/7839"),
+				result.URIref(ex + "manager"), null).size());
+	}
+
+	public void testHashJoinMatchesNestedLoop() throws Exception {
+		assertJoinMatchesNestedLoop(JoinStrategy.HASH_JOIN);
+	}
+
+	public void testSQLPushdownMatchesNestedLoop() throws Exception {
+		assertJoinMatchesNestedLoop(JoinStrategy.SQL_PUSHDOWN);
+	}
+
+	public void testGraceHashJoinMatchesNestedLoop() throws Exception {
+		assertJoinMatchesNestedLoop(JoinStrategy.GRACE_HASH_JOIN);
+	}
+
+	public void testLookupJoinMatchesNestedLoop() throws Exception {
+		assertJoinMatchesNestedLoop(JoinStrategy.LOOKUP_JOIN);
+	}
+
+	public void testLookupJoinOfCompositeKey() throws Exception {
+		SesameDataSet reference = run(new R2RMLEngine(
+				JoinStrategy.NESTED_LOOP), loadMapping(compositeKeyMapping));
+		// One triple by assignment, except the one with a NULL key
+		assertEquals(5, reference.tuplePattern(null,
+				reference.URIref(ex + "project"), null).size());
+		assertEquals(1, reference.tuplePattern(
+				reference.URIref("http://example.com/emp/7782"),
+				reference.URIref(ex + "project"),
+				reference.URIref("http://example.com/proj/10/2")).size());
+		Set<Statement> expected = getStatements(reference);
+		// Full and partial batches
+		int[] lookupBatchSizes = { 1, 2, 1000 };
+		for (int lookupBatchSize : lookupBatchSizes) {
+			R2RMLEngine engine = new R2RMLEngine(JoinStrategy.LOOKUP_JOIN);
+			engine.setLookupBatchSize(lookupBatchSize);
+			assertEquals("Lookup batch size " + lookupBatchSize, expected,
+					getStatements(run(engine,
+							loadMapping(compositeKeyMapping))));
+		}
+		// Quoted join columns compared as a row value
+		String report = new R2RMLEngine(JoinStrategy.LOOKUP_JOIN)
+				.explainR2RMLMapping(conn, loadMapping(compositeKeyMapping));
+		assertTrue(report, report.contains(
+				"(parent.\"DEPTNO\", parent.\"PNO\") IN ((?, ?), "));
+	}
+
+	public void testRowsWithoutSubjectAreIgnored() throws Exception {
+		SesameDataSet reference = run(new R2RMLEngine(
+				JoinStrategy.NESTED_LOOP), loadMapping(nullSubjectMapping));
+		// KING has no manager : 3 departments with a name and 3 employees
+		// with a class, a name and a department
+		assertEquals(3 + 3 * 3, reference.getSize());
+		assertEquals(3, reference.tuplePattern(null,
+				reference.URIref(ex + "department"), null).size());
+		Set<Statement> expected = getStatements(reference);
+		for (JoinStrategy joinStrategy : JoinStrategy.values())
+			for (int batchSize = 0; batchSize <= 2; batchSize += 2) {
+				R2RMLEngine engine = new R2RMLEngine(joinStrategy);
+				engine.setBatchSize(batchSize);
+				assertEquals(joinStrategy + ", batch size " + batchSize,
+						expected, getStatements(run(engine,
+								loadMapping(nullSubjectMapping))));
+			}
+	}
+
+	public void testCodeGenerationMatchesRowPath() throws Exception {
+		Set<Statement> expected = runReference(empDeptMapping);
+		R2RMLEngine engine = new R2RMLEngine(JoinStrategy.NESTED_LOOP);
+		engine.setCodeGeneration(true);
+		assertEquals(expected, getStatements(run(engine,
+				loadMapping(empDeptMapping))));
+	}
+
+	public void testThreadsMatchOneThread() throws Exception {
+		Set<Statement> expected = runReference(empDeptMapping);
+		R2RMLEngine engine = new R2RMLEngine(JoinStrategy.HASH_JOIN);
+		engine.setNbThreads(3);
+		engine.setConnectionFactory(getConnectionFactory());
+		assertEquals(expected, getStatements(run(engine,
+				loadMapping(empDeptMapping))));
+	}
+
+	public void testFailedThreadStopsOtherThreads() throws Exception {
+		// The second thread can not connect
+		final List<Connection> connections = Collections
+				.synchronizedList(new ArrayList<Connection>());
+		R2RMLEngine engine = new R2RMLEngine(JoinStrategy.HASH_JOIN);
+		engine.setNbThreads(3);
+		engine.setQueryMaterialization(true);
+		engine.setConnectionFactory(new ConnectionFactory() {
+			public Connection createConnection() throws SQLException {
+				synchronized (connections) {
+					if (!connections.isEmpty())
+						throw new SQLException("No more connection");
+					Connection workerConn = R2RMLEngineTest.this
+							.createConnection();
+					connections.add(workerConn);
+					return workerConn;
+				}
+			}
+		});
+		try {
+			run(engine, loadMapping(sqlQueryMapping));
+			fail("Failure of a thread not reported");
+		} catch (SQLException e) {
+			assertEquals("No more connection", e.getMessage());
+		}
+		// Other threads are stopped before materialized tables are dropped
+		for (Connection workerConn : connections)
+			assertTrue(workerConn.isClosed());
+		assertEquals(0, getMaterializedTables().size());
+	}
+
+	public void testPipelineMatchesRowPath() throws Exception {
+		Set<Statement> expected = runReference(empDeptMapping);
+		for (JoinStrategy joinStrategy : JoinStrategy.values()) {
+			R2RMLEngine engine = new R2RMLEngine(joinStrategy);
+			engine.setPipelineWorkers(2);
+			engine.setPipelineBuffers(1);
+			engine.setPipelineBufferRows(1);
+			engine.setPipelineBatchSize(1);
+			assertEquals(joinStrategy.toString(), expected, getStatements(run(
+					engine, loadMapping(empDeptMapping))));
+		}
+	}
+
+	public void testBatchesMatchRowPath() throws Exception {
+		Set<Statement> expected = runReference(empDeptMapping);
+		// Batches smaller and larger than the tables
+		int[] batchSizes = { 1, 2, 1000 };
+		for (int batchSize : batchSizes) {
+			R2RMLEngine engine = new R2RMLEngine(JoinStrategy.NESTED_LOOP);
+			engine.setBatchSize(batchSize);
+			assertEquals("Batch size " + batchSize, expected, getStatements(run(
+					engine, loadMapping(empDeptMapping))));
+		}
+	}
+
+	public void testSharedScan() throws Exception {
+		R2RMLEngine engine = new R2RMLEngine(JoinStrategy.HASH_JOIN);
+		R2RMLMapping r2rmlMapping = loadMapping(empDeptMapping);
+		CompiledMapping compiledMapping = new CompiledMapping(r2rmlMapping
+				.getTriplesMaps());
+		List<List<TriplesMap>> groups = engine.groupTriplesMapsByLogicalTable(
+				engine.planJoins(conn, compiledMapping, r2rmlMapping
+						.getTriplesMaps()), r2rmlMapping.getTriplesMaps());
+		// Both triplesMaps of EMP are mapped from one scan
+		assertEquals(2, groups.size());
+		for (List<TriplesMap> group : groups)
+			assertEquals(group.get(0).getTableName().equals("EMP") ? 2 : 1,
+					group.size());
+		assertEquals(runReference(empDeptMapping), getStatements(run(engine,
+				r2rmlMapping)));
+	}
+
+	public void testProjectionPushdown() throws Exception {
+		for (String resource : new String[] { empDeptMapping,
+				sqlQueryMapping }) {
+			R2RMLEngine engine = new R2RMLEngine(JoinStrategy.HASH_JOIN);
+			engine.setProjectionPushdown(false);
+			Set<Statement> expected = getStatements(run(engine,
+					loadMapping(resource)));
+			engine.setProjectionPushdown(true);
+			assertEquals(resource, expected, getStatements(run(engine,
+					loadMapping(resource))));
+		}
+	}
+
+	public void testAutoJoinMatchesNestedLoop() throws Exception {
+		assertJoinMatchesNestedLoop(JoinStrategy.AUTO);
+	}
+
+	public void testExplain() throws Exception {
+		R2RMLEngine engine = new R2RMLEngine(JoinStrategy.HASH_JOIN);
+		String report = engine.explainR2RMLMapping(conn,
+				loadMapping(empDeptMapping));
+		assertTrue(report, report.startsWith("R2RML execution plan : "
+				+ "2 logical table(s), 3 triplesMap(s)"));
+		// Both triplesMaps of EMP share one scan
+		assertTrue(report, report.contains("Shared scan : 2"));
+	}
+
+	public void testSharedScanOfSeveralMappings() throws Exception {
+		Set<Statement> expected = runReference(empDeptMapping);
+		R2RMLEngine engine = new R2RMLEngine(JoinStrategy.HASH_JOIN);
+		List<R2RMLMapping> r2rmlMappings = new ArrayList<R2RMLMapping>();
+		List<String> pathToNativeStores = new ArrayList<String>();
+		for (int i = 0; i < 2; i++) {
+			r2rmlMappings.add(loadMapping(empDeptMapping));
+			pathToNativeStores.add(null);
+		}
+		List<SesameDataSet> results = engine.runR2RMLMappings(conn,
+				r2rmlMappings, pathToNativeStores);
+		assertEquals(2, results.size());
+		for (SesameDataSet result : results)
+			assertEquals(expected, getStatements(result));
+	}
+
+	public void testQueryMaterialization() throws Exception {
+		Set<Statement> expected = runReference(sqlQueryMapping);
+		for (JoinStrategy joinStrategy : JoinStrategy.values()) {
+			R2RMLEngine engine = new R2RMLEngine(joinStrategy);
+			engine.setQueryMaterialization(true);
+			SesameDataSet result = run(engine, loadMapping(sqlQueryMapping));
+			assertEquals(joinStrategy.toString(), expected,
+					getStatements(result));
+			// Employees of departments selected by the query
+			assertEquals(4, result.tuplePattern(null,
+					result.URIref(ex + "department"), null).size());
+			assertEquals(joinStrategy.toString(), 0,
+					getMaterializedTables().size());
+		}
+	}
+
+	/**
+	 * Returns the tables materializing SQL queries left in the database.
+	 * 
+	 * @return
+	 * @throws SQLException
+	 */
+	private List<String> getMaterializedTables() throws SQLException {
+		List<String> tableNames = new ArrayList<String>();
+		ResultSet rs = conn.getMetaData().getTables(null, null, "%", null);
+		try {
+			while (rs.next()) {
+				String tableName = rs.getString("TABLE_NAME");
+				if (tableName.toLowerCase().startsWith("r2rml_m"))
+					tableNames.add(tableName);
+			}
+		} finally {
+			rs.close();
+		}
+		return tableNames;
+	}
+
+}
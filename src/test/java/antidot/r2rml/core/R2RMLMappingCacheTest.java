@@ -0,0 +1,233 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : R2RML Mapping Cache Test
+ *
+ * Checks that a mapping read from its cache extracts the same triples as
+ * the parsed mapping, that a stale or broken cache is replaced, that a
+ * cache of another class is not deserialized, and that a long chain of
+ * parent triplesMaps is cached.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.util.Set;
+
+import org.openrdf.model.Statement;
+
+import antidot.r2rml.model.R2RMLMapping;
+import antidot.r2rml.model.RefPredicateObjectMap;
+import antidot.r2rml.model.TriplesMap;
+
+public class R2RMLMappingCacheTest extends R2RMLTestCase {
+
+	// Length of the chain of parent triplesMaps of a generated mapping
+	private static int chainLength = 2000;
+
+	/**
+	 * Object which is not part of a mapping, and tells whether it has been
+	 * deserialized.
+	 */
+	private static class Probe implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private static boolean read;
+
+		private void readObject(ObjectInputStream in) throws IOException,
+				ClassNotFoundException {
+			in.defaultReadObject();
+			read = true;
+		}
+	}
+
+	// Copy of a test mapping, cached next to it
+	private File mappingFile;
+
+	private File cacheFile;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		mappingFile = File.createTempFile("mapping", ".ttl");
+		cacheFile = new File(mappingFile.getPath()
+				+ R2RMLMappingCache.cacheExtension);
+	}
+
+	protected void tearDown() throws Exception {
+		mappingFile.delete();
+		cacheFile.delete();
+		super.tearDown();
+	}
+
+	public void testCachedMappingMatchesParsedMapping() throws Exception {
+		copy(getMappingPath(empDeptMapping), mappingFile);
+		Set<Statement> expected = getStatements(run(new R2RMLEngine(
+				JoinStrategy.HASH_JOIN), loadMapping(empDeptMapping)));
+		// First extraction parses the mapping and writes its cache
+		R2RMLMapping parsed = R2RMLMappingCache
+				.extractR2RMLMapping(mappingFile.getPath());
+		assertTrue(cacheFile.exists());
+		long cacheDate = cacheFile.lastModified();
+		assertEquals(expected, getStatements(run(new R2RMLEngine(
+				JoinStrategy.HASH_JOIN), parsed)));
+		// Second extraction reads the cache
+		R2RMLMapping cached = R2RMLMappingCache
+				.extractR2RMLMapping(mappingFile.getPath());
+		assertEquals(cacheDate, cacheFile.lastModified());
+		assertEquals(3, cached.getTriplesMaps().size());
+		assertEquals(expected, getStatements(run(new R2RMLEngine(
+				JoinStrategy.HASH_JOIN), cached)));
+	}
+
+	public void testStaleCacheIsReplaced() throws Exception {
+		copy(getMappingPath(empDeptMapping), mappingFile);
+		assertEquals(3, R2RMLMappingCache.extractR2RMLMapping(
+				mappingFile.getPath()).getTriplesMaps().size());
+		copy(getMappingPath(sqlQueryMapping), mappingFile);
+		R2RMLMapping r2rmlMapping = R2RMLMappingCache
+				.extractR2RMLMapping(mappingFile.getPath());
+		assertEquals(2, r2rmlMapping.getTriplesMaps().size());
+		assertEquals(getStatements(run(new R2RMLEngine(
+				JoinStrategy.HASH_JOIN), loadMapping(sqlQueryMapping))),
+				getStatements(run(new R2RMLEngine(JoinStrategy.HASH_JOIN),
+						r2rmlMapping)));
+	}
+
+	public void testBrokenCacheIsReplaced() throws Exception {
+		copy(getMappingPath(empDeptMapping), mappingFile);
+		OutputStream out = new FileOutputStream(cacheFile);
+		try {
+			out.write("not a cache".getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+		long brokenLength = cacheFile.length();
+		assertEquals(3, R2RMLMappingCache.extractR2RMLMapping(
+				mappingFile.getPath()).getTriplesMaps().size());
+		assertTrue(cacheFile.length() != brokenLength);
+		assertEquals(3, R2RMLMappingCache.extractR2RMLMapping(
+				mappingFile.getPath()).getTriplesMaps().size());
+	}
+
+	public void testCacheOfOtherClassIsNotRead() throws Exception {
+		copy(getMappingPath(empDeptMapping), mappingFile);
+		R2RMLMappingCache.extractR2RMLMapping(mappingFile.getPath());
+		// Same header as a valid cache, followed by another object
+		String[] header = new String[3];
+		ObjectInputStream in = new ObjectInputStream(new FileInputStream(
+				cacheFile));
+		try {
+			for (int i = 0; i < header.length; i++)
+				header[i] = in.readUTF();
+		} finally {
+			in.close();
+		}
+		ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(
+				cacheFile));
+		try {
+			for (String line : header)
+				out.writeUTF(line);
+			out.writeObject(new Probe());
+		} finally {
+			out.close();
+		}
+		Probe.read = false;
+		assertEquals(3, R2RMLMappingCache.extractR2RMLMapping(
+				mappingFile.getPath()).getTriplesMaps().size());
+		assertFalse(Probe.read);
+	}
+
+	public void testLongChainOfParentsIsCached() throws Exception {
+		PrintWriter writer = new PrintWriter(mappingFile, "UTF-8");
+		try {
+			writer.println("@prefix rr: <http://www.w3.org/ns/r2rml#> .");
+			writer.println("@prefix ex: <http://example.com/ns#> .");
+			writer.println("@prefix map: <http://example.com/mapping#> .");
+			for (int i = 0; i < chainLength; i++) {
+				writer.println("map:Emp" + i + " a rr:TriplesMapClass ;");
+				writer.println("\trr:tableName \"EMP\" ;");
+				writer.println("\trr:subjectMap [ rr:template "
+						+ "\"http://example.com/emp/{EMPNO}\" ] ;");
+				if (i == chainLength - 1)
+					writer.println("\trr:predicateObjectMap [ "
+							+ "rr:predicateMap [ rr:predicate ex:name ] ; "
+							+ "rr:objectMap [ rr:column \"ENAME\" ] ] .");
+				else
+					writer.println("\trr:refPredicateObjectMap [ "
+							+ "rr:refPredicateMap [ "
+							+ "rr:predicate ex:manager ] ; "
+							+ "rr:refObjectMap [ rr:parentTriplesMap map:Emp"
+							+ (i + 1) + " ; rr:joinCondition \"{childAlias.}"
+							+ "MGR = {parentAlias.}EMPNO\" ] ] .");
+			}
+		} finally {
+			writer.close();
+		}
+		R2RMLMappingCache.extractR2RMLMapping(mappingFile.getPath());
+		assertTrue(cacheFile.exists());
+		long cacheDate = cacheFile.lastModified();
+		R2RMLMapping cached = R2RMLMappingCache
+				.extractR2RMLMapping(mappingFile.getPath());
+		assertEquals(cacheDate, cacheFile.lastModified());
+		assertEquals(chainLength, cached.getTriplesMaps().size());
+		// Each parent is the triplesMap of the mapping, not a copy
+		int nbParents = 0;
+		for (TriplesMap triplesMap : cached.getTriplesMaps())
+			for (RefPredicateObjectMap refPredicateObjectMap : triplesMap
+					.getRefPredicateObjectMaps()) {
+				assertTrue(cached.getTriplesMaps().contains(
+						refPredicateObjectMap.getRefObjectMap()
+								.getParentTriplesMap()));
+				nbParents++;
+			}
+		assertEquals(chainLength - 1, nbParents);
+	}
+
+	private static void copy(String pathToSource, File target)
+			throws IOException {
+		InputStream in = new FileInputStream(pathToSource);
+		try {
+			OutputStream out = new FileOutputStream(target);
+			try {
+				byte[] buffer = new byte[8192];
+				int length;
+				while ((length = in.read(buffer)) != -1)
+					out.write(buffer, 0, length);
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+}
@@ -0,0 +1,147 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : R2RML Mapping Graph Test
+ *
+ * Checks that the index of a mapping document holds the triples a Sesame
+ * repository reads from it, and the objects extracted from this index by
+ * the mapping factory.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.rio.RDFFormat;
+
+import antidot.r2rml.model.R2RMLMapping;
+import antidot.r2rml.model.RefObjectMap;
+import antidot.r2rml.model.RefPredicateObjectMap;
+import antidot.r2rml.model.TriplesMap;
+import antidot.rdf.impl.sesame.SesameDataSet;
+
+public class R2RMLMappingGraphTest extends TestCase {
+
+	private String mappingPath;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		mappingPath = new File(getClass().getResource(
+				R2RMLTestCase.empDeptMapping).toURI()).getPath();
+	}
+
+	public void testGraphMatchesRepository() throws Exception {
+		R2RMLMappingGraph graph = new R2RMLMappingGraph();
+		graph.loadDataFromFile(mappingPath, RDFFormat.TURTLE);
+		SesameDataSet repository = new SesameDataSet();
+		repository.loadDataFromFile(mappingPath, RDFFormat.TURTLE);
+		assertEquals(repository.getSize(), graph.getSize());
+		assertEquals(repository.getSize(), graph.tuplePattern(null, null,
+				null).size());
+		// Blank node labels differ : compare named subjects and predicates
+		Set<URI> predicates = new HashSet<URI>();
+		for (Statement statement : repository.tuplePattern(null, null, null)) {
+			predicates.add(statement.getPredicate());
+			if (statement.getSubject() instanceof BNode)
+				continue;
+			if (statement.getObject() instanceof BNode)
+				assertEquals(statement.toString(), repository.tuplePattern(
+						statement.getSubject(), statement.getPredicate(),
+						null).size(), graph.tuplePattern(
+						statement.getSubject(), statement.getPredicate(),
+						null).size());
+			else
+				assertEquals(statement.toString(), 1, graph.tuplePattern(
+						statement.getSubject(), statement.getPredicate(),
+						statement.getObject()).size());
+		}
+		for (URI predicate : predicates)
+			assertEquals(predicate.toString(), repository.tuplePattern(null,
+					predicate, null).size(), graph.tuplePattern(null,
+					predicate, null).size());
+	}
+
+	public void testDuplicateTriplesAreCountedOnce() throws Exception {
+		File file = File.createTempFile("graph", ".ttl");
+		try {
+			Writer out = new OutputStreamWriter(new FileOutputStream(file),
+					"UTF-8");
+			try {
+				out.write("<http://example.com/a> <http://example.com/p> "
+						+ "\"x\", \"y\", \"x\" .\n");
+			} finally {
+				out.close();
+			}
+			R2RMLMappingGraph graph = new R2RMLMappingGraph();
+			graph.loadDataFromFile(file.getPath(), RDFFormat.TURTLE);
+			assertEquals(2, graph.getSize());
+			assertEquals(2, graph.tuplePattern(graph
+					.URIref("http://example.com/a"), null, null).size());
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testFactoryExtractsMapping() throws Exception {
+		R2RMLMapping r2rmlMapping = R2RMLMappingFactory
+				.extractR2RMLMapping(mappingPath);
+		assertEquals(3, r2rmlMapping.getTriplesMaps().size());
+		HashMap<String, Integer> tables = new HashMap<String, Integer>();
+		TriplesMap dept = null;
+		for (TriplesMap triplesMap : r2rmlMapping.getTriplesMaps()) {
+			Integer count = tables.get(triplesMap.getTableName());
+			tables.put(triplesMap.getTableName(), count == null ? 1
+					: count + 1);
+			if (triplesMap.getTableName().equals("DEPT"))
+				dept = triplesMap;
+		}
+		assertEquals(Integer.valueOf(1), tables.get("DEPT"));
+		assertEquals(Integer.valueOf(2), tables.get("EMP"));
+		assertEquals("http://example.com/dept/{DEPTNO}", dept
+				.getSubjectMap().getTemplate());
+		assertEquals(2, dept.getPredicateObjectMaps().size());
+		// Parents are the extracted triplesMaps
+		for (TriplesMap triplesMap : r2rmlMapping.getTriplesMaps())
+			for (RefPredicateObjectMap refPredicateObjectMap : triplesMap
+					.getRefPredicateObjectMaps()) {
+				RefObjectMap refObjectMap = refPredicateObjectMap
+						.getRefObjectMap();
+				assertTrue(r2rmlMapping.getTriplesMaps().contains(
+						refObjectMap.getParentTriplesMap()));
+				if (refObjectMap.getParentTriplesMap() == dept)
+					assertEquals("{childAlias.}DEPTNO = {parentAlias.}DEPTNO",
+							refObjectMap.getJoinCondition());
+			}
+	}
+
+}
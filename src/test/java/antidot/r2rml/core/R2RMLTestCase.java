@@ -0,0 +1,195 @@
+/* 
+ * Copyright 2011 Antidot opensource@antidot.net
+ * https://github.com/antidot/db2triples
+ * 
+ * DB2Triples is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * DB2Triples is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/***************************************************************************
+ *
+ * R2RML : R2RML Test Case
+ *
+ * Fixture of the R2RML tests : an in-memory H2 database with a DEPT table
+ * and an EMP table referencing it and itself, and the mappings of
+ * src/test/resources/mappings. Each test gets its own database, dropped
+ * afterwards.
+ *
+ * @author jhomo
+ *
+ ****************************************************************************/
+package antidot.r2rml.core;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.openrdf.model.Statement;
+
+import antidot.r2rml.exception.InvalidR2RMLStructureException;
+import antidot.r2rml.exception.InvalidR2RMLSyntaxException;
+import antidot.r2rml.model.R2RMLMapping;
+import antidot.rdf.impl.sesame.SesameDataSet;
+import antidot.sql.core.ConnectionFactory;
+
+public abstract class R2RMLTestCase extends TestCase {
+
+	// Mapping of DEPT and EMP tables, with a self join on EMP
+	protected static String empDeptMapping = "/mappings/emp_dept.ttl";
+
+	// Mapping of EMP table joined to a SQL query on DEPT
+	protected static String sqlQueryMapping = "/mappings/sql_query.ttl";
+
+	// Mapping of ASSIGN table joined to PROJ table by a composite key
+	protected static String compositeKeyMapping = "/mappings/composite_key.ttl";
+
+	// Mapping of EMP table whose subject is NULL for an employee
+	protected static String nullSubjectMapping = "/mappings/null_subject.ttl";
+
+	private static String[] fixture = {
+			"CREATE TABLE DEPT (DEPTNO INT PRIMARY KEY, "
+					+ "DNAME VARCHAR(20), LOC VARCHAR(20))",
+			"CREATE TABLE EMP (EMPNO INT PRIMARY KEY, ENAME VARCHAR(20), "
+					+ "DEPTNO INT REFERENCES DEPT (DEPTNO), MGR INT)",
+			"INSERT INTO DEPT VALUES (10, 'ACCOUNTING', 'NEW YORK')",
+			"INSERT INTO DEPT VALUES (20, 'RESEARCH', 'DALLAS')",
+			"INSERT INTO DEPT VALUES (30, 'SALES', 'CHICAGO')",
+			"INSERT INTO EMP VALUES (7839, 'KING', 10, NULL)",
+			"INSERT INTO EMP VALUES (7566, 'JONES', 20, 7839)",
+			"INSERT INTO EMP VALUES (7782, 'CLARK', 10, 7839)",
+			"INSERT INTO EMP VALUES (7369, 'SMITH', 20, 7566)",
+			"CREATE TABLE PROJ (DEPTNO INT, PNO INT, PNAME VARCHAR(20), "
+					+ "PRIMARY KEY (DEPTNO, PNO))",
+			"CREATE TABLE ASSIGN (EMPNO INT, DEPTNO INT, PNO INT, "
+					+ "FOREIGN KEY (DEPTNO, PNO) REFERENCES PROJ)",
+			"INSERT INTO PROJ VALUES (10, 1, 'AUDIT')",
+			"INSERT INTO PROJ VALUES (10, 2, 'BUDGET')",
+			"INSERT INTO PROJ VALUES (20, 1, 'SURVEY')",
+			"INSERT INTO ASSIGN VALUES (7839, 10, 1)",
+			"INSERT INTO ASSIGN VALUES (7782, 10, 2)",
+			"INSERT INTO ASSIGN VALUES (7782, 10, 1)",
+			"INSERT INTO ASSIGN VALUES (7566, 20, 1)",
+			"INSERT INTO ASSIGN VALUES (7369, 20, 1)",
+			"INSERT INTO ASSIGN VALUES (7369, 20, NULL)" };
+
+	// Connection to the database of current test
+	protected Connection conn;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		Class.forName("org.h2.Driver");
+		conn = createConnection();
+		java.sql.Statement s = conn.createStatement();
+		try {
+			for (String statement : fixture)
+				s.executeUpdate(statement);
+		} finally {
+			s.close();
+		}
+	}
+
+	protected void tearDown() throws Exception {
+		java.sql.Statement s = conn.createStatement();
+		try {
+			s.executeUpdate("DROP ALL OBJECTS");
+		} finally {
+			s.close();
+			conn.close();
+		}
+		super.tearDown();
+	}
+
+	/**
+	 * Open a new connection to the database of current test, kept open
+	 * until the end of the test.
+	 * 
+	 * @return
+	 * @throws SQLException
+	 */
+	protected Connection createConnection() throws SQLException {
+		return DriverManager.getConnection("jdbc:h2:mem:" + getName()
+				+ ";DB_CLOSE_DELAY=-1", "sa", "");
+	}
+
+	/**
+	 * @return
+	 */
+	protected ConnectionFactory getConnectionFactory() {
+		return new ConnectionFactory() {
+			public Connection createConnection() throws SQLException {
+				return R2RMLTestCase.this.createConnection();
+			}
+		};
+	}
+
+	/**
+	 * Returns the path of a mapping of the test resources.
+	 * 
+	 * @param resource
+	 * @return
+	 * @throws URISyntaxException
+	 */
+	protected String getMappingPath(String resource)
+			throws URISyntaxException {
+		URL url = getClass().getResource(resource);
+		assertNotNull("Missing test resource " + resource, url);
+		return new File(url.toURI()).getPath();
+	}
+
+	/**
+	 * @param resource
+	 * @return
+	 * @throws InvalidR2RMLStructureException
+	 * @throws InvalidR2RMLSyntaxException
+	 * @throws URISyntaxException
+	 */
+	protected R2RMLMapping loadMapping(String resource)
+			throws InvalidR2RMLStructureException,
+			InvalidR2RMLSyntaxException, URISyntaxException {
+		return R2RMLMappingFactory
+				.extractR2RMLMapping(getMappingPath(resource));
+	}
+
+	/**
+	 * Run a mapping with an engine against the connection of current test.
+	 * 
+	 * @param engine
+	 * @param r2rmlMapping
+	 * @return
+	 * @throws SQLException
+	 */
+	protected SesameDataSet run(R2RMLEngine engine, R2RMLMapping r2rmlMapping)
+			throws SQLException {
+		return engine.runR2RMLMapping(conn, r2rmlMapping, null);
+	}
+
+	/**
+	 * Returns the triples of a dataset, to be compared with the triples of
+	 * another run.
+	 * 
+	 * @param sesameDataSet
+	 * @return
+	 */
+	protected static Set<Statement> getStatements(SesameDataSet sesameDataSet) {
+		return new HashSet<Statement>(sesameDataSet.tuplePattern(null, null,
+				null));
+	}
+
+}